@@ -0,0 +1,133 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs;
+
+import java.util.Date;
+
+/**
+ * A row in the change_notification table. Every node that shares the database writes one of these
+ * when it changes something that other nodes may hold in memory, e.g. a global property, and polls
+ * for the ones written by the other nodes so that it can drop its own stale copies.
+ * 
+ * @see org.openmrs.api.AdministrationService#processChangeNotifications()
+ * @since 1.12
+ */
+public class ChangeNotification {
+	
+	private Integer changeNotificationId;
+	
+	private String type;
+	
+	private String identifier;
+	
+	private String origin;
+	
+	private Date dateCreated;
+	
+	/**
+	 * Default Constructor
+	 */
+	public ChangeNotification() {
+	}
+	
+	/**
+	 * @param type the name of the class that was changed
+	 * @param identifier identifies the changed object, e.g. the global property name
+	 * @param origin the node that made the change
+	 */
+	public ChangeNotification(String type, String identifier, String origin) {
+		this.type = type;
+		this.identifier = identifier;
+		this.origin = origin;
+		this.dateCreated = new Date();
+	}
+	
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "ChangeNotification #" + changeNotificationId + " " + type + " <" + identifier + "> from " + origin;
+	}
+	
+	/**
+	 * @return the changeNotificationId
+	 */
+	public Integer getChangeNotificationId() {
+		return changeNotificationId;
+	}
+	
+	/**
+	 * @param changeNotificationId the changeNotificationId to set
+	 */
+	public void setChangeNotificationId(Integer changeNotificationId) {
+		this.changeNotificationId = changeNotificationId;
+	}
+	
+	/**
+	 * @return the name of the class that was changed
+	 */
+	public String getType() {
+		return type;
+	}
+	
+	/**
+	 * @param type the type to set
+	 */
+	public void setType(String type) {
+		this.type = type;
+	}
+	
+	/**
+	 * @return the identifier of the changed object, may be null if the whole type changed
+	 */
+	public String getIdentifier() {
+		return identifier;
+	}
+	
+	/**
+	 * @param identifier the identifier to set
+	 */
+	public void setIdentifier(String identifier) {
+		this.identifier = identifier;
+	}
+	
+	/**
+	 * @return the id of the node that made the change
+	 */
+	public String getOrigin() {
+		return origin;
+	}
+	
+	/**
+	 * @param origin the origin to set
+	 */
+	public void setOrigin(String origin) {
+		this.origin = origin;
+	}
+	
+	/**
+	 * @return the dateCreated
+	 */
+	public Date getDateCreated() {
+		return dateCreated;
+	}
+	
+	/**
+	 * @param dateCreated the dateCreated to set
+	 */
+	public void setDateCreated(Date dateCreated) {
+		this.dateCreated = dateCreated;
+	}
+}
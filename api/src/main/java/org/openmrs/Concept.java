@@ -17,7 +17,6 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -26,6 +25,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
@@ -129,10 +129,16 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 	private Collection<ConceptMap> conceptMappings;
 	
 	/**
-	 * A cache of locales to names which have compatible locales. Built on-the-fly by
-	 * getCompatibleNames().
+	 * The names resolved per locale, built on-the-fly by {@link #getLocaleNames(Locale)} and thrown
+	 * away as soon as a name is added, removed or changed
 	 */
-	private Map<Locale, List<ConceptName>> compatibleCache;
+	private transient volatile Map<Locale, LocaleNames> resolvedNames;
+	
+	/**
+	 * The descriptions resolved per locale, built on-the-fly by
+	 * {@link #getLocaleDescriptions(Locale)}
+	 */
+	private transient volatile ResolvedDescriptions resolvedDescriptions;
 	
 	/** default constructor */
 	public Concept() {
@@ -693,8 +699,17 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 	 * @should return loose match given exact equals false
 	 * @should return null if no names are found in locale given exact equals true
 	 * @should return any name if no locale match given exact equals false
+	 * @should return the new best name after a name in the locale was changed
 	 */
 	public ConceptName getName(Locale locale, boolean exact) {
+		if (locale == null) {
+			return findName(locale, exact);
+		}
+		LocaleNames localeNames = getLocaleNames(locale);
+		return exact ? localeNames.exactName : localeNames.name;
+	}
+	
+	private ConceptName findName(Locale locale, boolean exact) {
 		
 		// fail early if this concept has no names defined
 		if (getNames().size() == 0) {
@@ -708,7 +723,7 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 			log.debug("Getting conceptName for locale: " + locale);
 		}
 		
-		ConceptName exactName = getNameInLocale(locale);
+		ConceptName exactName = findNameInLocale(locale);
 		
 		if (exactName != null) {
 			return exactName;
@@ -716,7 +731,7 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 		
 		if (exact == false) {
 			Locale broaderLocale = new Locale(locale.getLanguage());
-			ConceptName name = getNameInLocale(broaderLocale);
+			ConceptName name = findNameInLocale(broaderLocale);
 			return name;
 		}
 		return null;
@@ -728,13 +743,17 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 	 * @param locale
 	 * @return null if name in given locale doesn't exist
 	 */
-	private ConceptName getNameInLocale(Locale locale) {
-		ConceptName preferredName = getPreferredName(locale);
+	private ConceptName findNameInLocale(Locale locale) {
+		ConceptName preferredName = findPreferredName(locale);
 		if (preferredName != null) {
 			return preferredName;
 		}
 		
-		ConceptName fullySpecifiedName = getFullySpecifiedName(locale);
+		return findFullySpecifiedNameOrSynonym(locale);
+	}
+	
+	private ConceptName findFullySpecifiedNameOrSynonym(Locale locale) {
+		ConceptName fullySpecifiedName = findFullySpecifiedName(locale);
 		if (fullySpecifiedName != null) {
 			return fullySpecifiedName;
 		} else if (getSynonyms(locale).size() > 0) {
@@ -751,8 +770,16 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 	 * @return preferred name for the locale, or null if no preferred name is specified
 	 * @should return the concept name explicitly marked as locale preferred
 	 * @should return the fully specified name if no name is explicitly marked as locale preferred
+	 * @should return the new preferred name after the locale preferred flag was moved
 	 */
 	public ConceptName getPreferredName(Locale forLocale) {
+		if (forLocale == null) {
+			return findPreferredName(forLocale);
+		}
+		return getLocaleNames(forLocale).preferredName;
+	}
+	
+	private ConceptName findPreferredName(Locale forLocale) {
 		
 		if (log.isDebugEnabled()) {
 			log.debug("Getting preferred conceptName for locale: " + forLocale);
@@ -793,7 +820,7 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 			return bestMatch;
 		}
 		
-		return getFullySpecifiedName(forLocale);
+		return findFullySpecifiedName(forLocale);
 	}
 	
 	/**
@@ -812,6 +839,13 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 	 * @should return the name marked as fully specified for the given locale
 	 */
 	public ConceptName getFullySpecifiedName(Locale locale) {
+		if (locale == null) {
+			return null;
+		}
+		return getLocaleNames(locale).fullySpecifiedName;
+	}
+	
+	private ConceptName findFullySpecifiedName(Locale locale) {
 		if (locale != null && getNames(locale).size() > 0) {
 			//get the first fully specified name, since every concept must have a fully specified name,
 			//then, this loop will have to return a name
@@ -889,22 +923,18 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 	 * @should exclude incompatible language locales
 	 */
 	public List<ConceptName> getCompatibleNames(Locale desiredLocale) {
-		// lazy create the cache
-		List<ConceptName> compatibleNames = null;
-		if (compatibleCache == null) {
-			compatibleCache = new HashMap<Locale, List<ConceptName>>();
-		} else {
-			compatibleNames = compatibleCache.get(desiredLocale);
+		if (desiredLocale == null) {
+			return findCompatibleNames(desiredLocale);
 		}
-		
-		if (compatibleNames == null) {
-			compatibleNames = new Vector<ConceptName>();
-			for (ConceptName possibleName : getNames()) {
-				if (LocaleUtility.areCompatible(possibleName.getLocale(), desiredLocale)) {
-					compatibleNames.add(possibleName);
-				}
+		return getLocaleNames(desiredLocale).compatibleNames;
+	}
+	
+	private List<ConceptName> findCompatibleNames(Locale desiredLocale) {
+		List<ConceptName> compatibleNames = new Vector<ConceptName>();
+		for (ConceptName possibleName : getNames()) {
+			if (LocaleUtility.areCompatible(possibleName.getLocale(), desiredLocale)) {
+				compatibleNames.add(possibleName);
 			}
-			compatibleCache.put(desiredLocale, compatibleNames);
 		}
 		return compatibleNames;
 	}
@@ -1036,6 +1066,13 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 	 * @return the short name, or null if none has been explicitly set
 	 */
 	public ConceptName getShortNameInLocale(Locale locale) {
+		if (locale == null) {
+			return null;
+		}
+		return getLocaleNames(locale).shortName;
+	}
+	
+	private ConceptName findShortNameInLocale(Locale locale) {
 		ConceptName bestMatch = null;
 		if (locale != null && getShortNames().size() > 0) {
 			for (ConceptName shortName : getShortNames()) {
@@ -1236,6 +1273,7 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 	@ElementList
 	public void setNames(Collection<ConceptName> names) {
 		this.names = names;
+		resolvedNames = null;
 	}
 	
 	/**
@@ -1277,9 +1315,7 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 					}
 				}
 				names.add(conceptName);
-				if (compatibleCache != null) {
-					compatibleCache.clear(); // clear the locale cache, forcing it to be rebuilt
-				}
+				resolvedNames = null; // forces the names per locale to be resolved again
 			}
 		}
 	}
@@ -1289,10 +1325,13 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 	 * 
 	 * @param conceptName
 	 * @return true if the entity was removed, false otherwise
+	 * @should not return a removed name
 	 */
 	public boolean removeName(ConceptName conceptName) {
 		if (names != null) {
-			return names.remove(conceptName);
+			boolean removed = names.remove(conceptName);
+			resolvedNames = null;
+			return removed;
 		} else {
 			return false;
 		}
@@ -1328,8 +1367,17 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 	 * @should return match on language only
 	 * @should not return match on language only if exact match exists
 	 * @should not return language only match for exact matches
+	 * @should return the new description after the description was changed
 	 */
 	public ConceptDescription getDescription(Locale locale, boolean exact) {
+		if (locale == null) {
+			locale = LocaleUtility.getDefaultLocale();
+		}
+		LocaleDescriptions localeDescriptions = getLocaleDescriptions(locale);
+		return exact ? localeDescriptions.exactDescription : localeDescriptions.description;
+	}
+	
+	private ConceptDescription findDescription(Locale locale, boolean exact) {
 		log.debug("Getting ConceptDescription for locale: " + locale);
 		
 		ConceptDescription foundDescription = null;
@@ -1433,6 +1481,7 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 	@ElementList
 	public void setDescriptions(Collection<ConceptDescription> descriptions) {
 		this.descriptions = descriptions;
+		resolvedDescriptions = null;
 	}
 	
 	/**
@@ -1450,6 +1499,7 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 				description.setConcept(this);
 				descriptions.add(description);
 			}
+			resolvedDescriptions = null;
 		}
 	}
 	
@@ -1461,7 +1511,9 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 	 */
 	public boolean removeDescription(ConceptDescription description) {
 		if (getDescriptions() != null) {
-			return descriptions.remove(description);
+			boolean removed = descriptions.remove(description);
+			resolvedDescriptions = null;
+			return removed;
 		} else {
 			return false;
 		}
@@ -1860,4 +1912,120 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 		conceptSets.add(conceptSet);
 	}
 	
+	/**
+	 * Called by a name of this concept when its name, locale, type, preferred or voided flag is set,
+	 * so that the names of all locales are resolved again
+	 */
+	void namesChanged() {
+		resolvedNames = null;
+	}
+	
+	/**
+	 * Called by a description of this concept when its text or locale is set
+	 * 
+	 * @see #namesChanged()
+	 */
+	void descriptionsChanged() {
+		resolvedDescriptions = null;
+	}
+	
+	/**
+	 * Looks up the names resolved for the given locale, resolving them the first time they are
+	 * asked for. The names of all locales are resolved again once a name was added, removed or
+	 * changed since they were resolved.
+	 * 
+	 * @param locale the locale, not null
+	 * @return the names resolved for the locale
+	 */
+	private LocaleNames getLocaleNames(Locale locale) {
+		Map<Locale, LocaleNames> resolved = resolvedNames;
+		if (resolved == null) {
+			resolved = new ConcurrentHashMap<Locale, LocaleNames>();
+			resolvedNames = resolved;
+		}
+		
+		LocaleNames localeNames = resolved.get(locale);
+		if (localeNames == null) {
+			localeNames = new LocaleNames(locale);
+			resolved.put(locale, localeNames);
+		}
+		return localeNames;
+	}
+	
+	/**
+	 * @see #getLocaleNames(Locale)
+	 */
+	private LocaleDescriptions getLocaleDescriptions(Locale locale) {
+		Locale defaultLocale = LocaleUtility.getDefaultLocale();
+		ResolvedDescriptions resolved = resolvedDescriptions;
+		if (resolved == null || !resolved.defaultLocale.equals(defaultLocale)) {
+			resolved = new ResolvedDescriptions(defaultLocale);
+			resolvedDescriptions = resolved;
+		}
+		
+		LocaleDescriptions localeDescriptions = resolved.byLocale.get(locale);
+		if (localeDescriptions == null) {
+			localeDescriptions = new LocaleDescriptions(locale);
+			resolved.byLocale.put(locale, localeDescriptions);
+		}
+		return localeDescriptions;
+	}
+	
+	/**
+	 * The descriptions resolved per locale, they are valid as long as the default locale they fall
+	 * back to stays the same
+	 */
+	private static class ResolvedDescriptions {
+		
+		private final Locale defaultLocale;
+		
+		private final Map<Locale, LocaleDescriptions> byLocale = new ConcurrentHashMap<Locale, LocaleDescriptions>();
+		
+		private ResolvedDescriptions(Locale defaultLocale) {
+			this.defaultLocale = defaultLocale;
+		}
+	}
+	
+	/**
+	 * The names of this concept as they are returned for one locale
+	 */
+	private class LocaleNames {
+		
+		private final ConceptName preferredName;
+		
+		private final ConceptName fullySpecifiedName;
+		
+		private final ConceptName exactName;
+		
+		private final ConceptName name;
+		
+		private final ConceptName shortName;
+		
+		private final List<ConceptName> compatibleNames;
+		
+		private LocaleNames(Locale locale) {
+			preferredName = findPreferredName(locale);
+			fullySpecifiedName = findFullySpecifiedName(locale);
+			exactName = preferredName != null ? preferredName : findFullySpecifiedNameOrSynonym(locale);
+			name = exactName != null ? exactName : findName(locale, false);
+			shortName = findShortNameInLocale(locale);
+			compatibleNames = findCompatibleNames(locale);
+		}
+	}
+	
+	/**
+	 * The descriptions of this concept as they are returned for one locale
+	 */
+	private class LocaleDescriptions {
+		
+		private final ConceptDescription exactDescription;
+		
+		private final ConceptDescription description;
+		
+		private LocaleDescriptions(Locale locale) {
+			exactDescription = findDescription(locale, true);
+			description = exactDescription != null ? exactDescription : findDescription(locale, false);
+		}
+	}
+	
 }
@@ -113,6 +113,7 @@ public class ConceptDescription extends BaseOpenmrsObject implements Auditable,
 	@Element(data = true)
 	public void setDescription(String description) {
 		this.description = description;
+		descriptionsChanged();
 	}
 	
 	/**
@@ -126,6 +127,7 @@ public class ConceptDescription extends BaseOpenmrsObject implements Auditable,
 	@Attribute
 	public void setLocale(Locale locale) {
 		this.locale = locale;
+		descriptionsChanged();
 	}
 	
 	/**
@@ -217,4 +219,15 @@ public class ConceptDescription extends BaseOpenmrsObject implements Auditable,
 		setConceptDescriptionId(id);
 	}
 	
+	/**
+	 * Makes the concept resolve its descriptions again
+	 * 
+	 * @see Concept#getDescription(Locale, boolean)
+	 */
+	private void descriptionsChanged() {
+		if (concept != null) {
+			concept.descriptionsChanged();
+		}
+	}
+	
 }
@@ -186,6 +186,7 @@ public class ConceptName extends BaseOpenmrsObject implements Auditable, Voidabl
 			this.setVoided(true);
 		} else {
 			this.name = name;
+			namesChanged();
 		}
 	}
 	
@@ -200,6 +201,7 @@ public class ConceptName extends BaseOpenmrsObject implements Auditable, Voidabl
 	@Element
 	public void setLocale(Locale locale) {
 		this.locale = locale;
+		namesChanged();
 	}
 	
 	/**
@@ -293,6 +295,7 @@ public class ConceptName extends BaseOpenmrsObject implements Auditable, Voidabl
 	@Attribute
 	public void setVoided(Boolean voided) {
 		this.voided = voided;
+		namesChanged();
 	}
 	
 	/**
@@ -390,6 +393,7 @@ public class ConceptName extends BaseOpenmrsObject implements Auditable, Voidabl
 	 */
 	public void setConceptNameType(ConceptNameType conceptNameType) {
 		this.conceptNameType = conceptNameType;
+		namesChanged();
 	}
 	
 	/**
@@ -415,6 +419,7 @@ public class ConceptName extends BaseOpenmrsObject implements Auditable, Voidabl
 	 */
 	public void setLocalePreferred(Boolean localePreferred) {
 		this.localePreferred = localePreferred;
+		namesChanged();
 	}
 	
 	/**
@@ -736,4 +741,16 @@ public class ConceptName extends BaseOpenmrsObject implements Auditable, Voidabl
 	 */
 	public void setDateChanged(Date dateChanged) {
 	}
+	
+	/**
+	 * Makes the concept resolve its names again, hibernate sets the fields this depends on directly
+	 * so that loading a name does not initialize its concept
+	 * 
+	 * @see Concept#getName(Locale, boolean)
+	 */
+	private void namesChanged() {
+		if (concept != null) {
+			concept.namesChanged();
+		}
+	}
 }
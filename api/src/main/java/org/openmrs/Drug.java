@@ -19,15 +19,18 @@ import java.util.Locale;
 import java.util.Set;
 
 import org.apache.commons.lang3.StringUtils;
+import org.hibernate.search.annotations.ClassBridge;
 import org.hibernate.search.annotations.DocumentId;
 import org.hibernate.search.annotations.Indexed;
 import org.hibernate.search.annotations.IndexedEmbedded;
 import org.openmrs.api.context.Context;
+import org.openmrs.api.db.hibernate.search.bridge.DrugConceptNamesBridge;
 
 /**
  * Drug
  */
 @Indexed
+@ClassBridge(name = DrugConceptNamesBridge.FIELD, impl = DrugConceptNamesBridge.class)
 public class Drug extends BaseOpenmrsMetadata implements java.io.Serializable {
 	
 	public static final long serialVersionUID = 285L;
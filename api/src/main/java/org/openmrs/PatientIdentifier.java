@@ -18,6 +18,12 @@ import java.lang.reflect.Method;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.hibernate.search.annotations.ClassBridge;
+import org.hibernate.search.annotations.DocumentId;
+import org.hibernate.search.annotations.Index;
+import org.hibernate.search.annotations.Indexed;
+import org.hibernate.search.annotations.Store;
+import org.openmrs.api.db.hibernate.search.bridge.PatientSearchBridge;
 import org.openmrs.util.OpenmrsUtil;
 
 /**
@@ -28,6 +34,8 @@ import org.openmrs.util.OpenmrsUtil;
  *
  * @see org.openmrs.PatientIdentifierType
  */
+@Indexed
+@ClassBridge(name = PatientSearchBridge.FIELD, index = Index.UN_TOKENIZED, store = Store.YES, impl = PatientSearchBridge.class)
 public class PatientIdentifier extends BaseOpenmrsData implements java.io.Serializable, Comparable<PatientIdentifier> {
 	
 	public static final long serialVersionUID = 1123121L;
@@ -39,6 +47,7 @@ public class PatientIdentifier extends BaseOpenmrsData implements java.io.Serial
 	/**
 	 * @since 1.5
 	 */
+	@DocumentId
 	private Integer patientIdentifierId;
 	
 	private Patient patient;
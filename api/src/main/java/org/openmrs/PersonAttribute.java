@@ -20,9 +20,15 @@ import java.util.Date;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.hibernate.search.annotations.ClassBridge;
+import org.hibernate.search.annotations.DocumentId;
+import org.hibernate.search.annotations.Index;
+import org.hibernate.search.annotations.Indexed;
+import org.hibernate.search.annotations.Store;
 import org.openmrs.api.context.Context;
-import org.openmrs.util.OpenmrsClassLoader;
+import org.openmrs.api.db.hibernate.search.bridge.PatientSearchBridge;
 import org.openmrs.util.OpenmrsUtil;
+import org.openmrs.util.PersonAttributeHydrator;
 import org.simpleframework.xml.Attribute;
 import org.simpleframework.xml.Element;
 import org.simpleframework.xml.Root;
@@ -39,6 +45,8 @@ import org.simpleframework.xml.Root;
  * @see org.openmrs.Attributable
  */
 @Root(strict = false)
+@Indexed
+@ClassBridge(name = PatientSearchBridge.FIELD, index = Index.UN_TOKENIZED, store = Store.YES, impl = PatientSearchBridge.class)
 public class PersonAttribute extends BaseOpenmrsData implements java.io.Serializable, Comparable<PersonAttribute> {
 	
 	public static final long serialVersionUID = 11231211232111L;
@@ -47,6 +55,7 @@ public class PersonAttribute extends BaseOpenmrsData implements java.io.Serializ
 	
 	// Fields
 	
+	@DocumentId
 	private Integer personAttributeId;
 	
 	private Person person;
@@ -236,13 +245,13 @@ public class PersonAttribute extends BaseOpenmrsData implements java.io.Serializ
 	
 	/**
 	 * Will try to create an object of class 'PersonAttributeType.format'. If that implements
-	 * <code>Attributable</code>, hydrate(value) is called. Defaults to just returning getValue()
+	 * <code>Attributable</code>, hydrate(value) is called. Defaults to just returning getValue().
+	 * The class of each format is loaded only once, see {@link PersonAttributeHydrator}.
 	 * 
 	 * @return hydrated object or getValue()
 	 * @should load class in format property
 	 * @should still load class in format property if not Attributable
 	 */
-	@SuppressWarnings("unchecked")
 	public Object getHydratedObject() {
 		
 		if (getValue() == null) {
@@ -250,20 +259,7 @@ public class PersonAttribute extends BaseOpenmrsData implements java.io.Serializ
 		}
 		
 		try {
-			Class c = OpenmrsClassLoader.getInstance().loadClass(getAttributeType().getFormat());
-			try {
-				Object o = c.newInstance();
-				if (o instanceof Attributable) {
-					Attributable attr = (Attributable) o;
-					return attr.hydrate(getValue());
-				}
-			}
-			catch (InstantiationException e) {
-				// try to hydrate the object with the String constructor
-				log.trace("Unable to call no-arg constructor for class: " + c.getName());
-				Object o = c.getConstructor(String.class).newInstance(getValue());
-				return o;
-			}
+			return PersonAttributeHydrator.hydrate(getAttributeType().getFormat(), getValue());
 		}
 		catch (Exception e) {
 			
@@ -24,8 +24,15 @@ import org.apache.commons.lang.builder.EqualsBuilder;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.hibernate.search.annotations.ClassBridge;
+import org.hibernate.search.annotations.DocumentId;
+import org.hibernate.search.annotations.Index;
+import org.hibernate.search.annotations.Indexed;
+import org.hibernate.search.annotations.Store;
+import org.openmrs.api.db.hibernate.search.bridge.PatientSearchBridge;
 import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.OpenmrsUtil;
+import org.openmrs.util.PhoneticUtil;
 import org.simpleframework.xml.Attribute;
 import org.simpleframework.xml.Element;
 import org.simpleframework.xml.Root;
@@ -37,6 +44,8 @@ import static org.apache.commons.lang.StringUtils.defaultString;
  * A Person can have zero to n PersonName(s).
  */
 @Root(strict = false)
+@Indexed
+@ClassBridge(name = PatientSearchBridge.FIELD, index = Index.UN_TOKENIZED, store = Store.YES, impl = PatientSearchBridge.class)
 public class PersonName extends BaseOpenmrsData implements java.io.Serializable, Cloneable, Comparable<PersonName> {
 	
 	public static final long serialVersionUID = 4353L;
@@ -45,6 +54,7 @@ public class PersonName extends BaseOpenmrsData implements java.io.Serializable,
 	
 	// Fields
 	
+	@DocumentId
 	private Integer personNameId;
 	
 	private Person person;
@@ -67,6 +77,22 @@ public class PersonName extends BaseOpenmrsData implements java.io.Serializable,
 	
 	private String degree;
 	
+	private String givenNameSoundex;
+	
+	private String middleNameSoundex;
+	
+	private String familyNameSoundex;
+	
+	private String familyName2Soundex;
+	
+	private String givenNameMetaphone;
+	
+	private String middleNameMetaphone;
+	
+	private String familyNameMetaphone;
+	
+	private String familyName2Metaphone;
+	
 	private static String format = OpenmrsConstants.PERSON_NAME_FORMAT_SHORT;
 	
 	// Constructors
@@ -514,6 +540,93 @@ public class PersonName extends BaseOpenmrsData implements java.io.Serializable,
 		return nameString.trim();
 	}
 	
+	/**
+	 * Computes the soundex and double metaphone keys of the given, middle and family names, which
+	 * are used by {@link org.openmrs.api.PersonService#getSimilarPeople(String, Integer, String)}.
+	 * The keys are computed from the real names, even if they are obscured, and are empty for a
+	 * name part without letters. They are null until the name is saved or the
+	 * "Update Person Name Phonetic Keys" task has run.
+	 *
+	 * @see PhoneticUtil
+	 * @since 1.12
+	 * @should set the keys of every name part
+	 * @should set empty keys for missing name parts
+	 */
+	public void updatePhoneticKeys() {
+		givenNameSoundex = PhoneticUtil.getSoundex(givenName);
+		middleNameSoundex = PhoneticUtil.getSoundex(middleName);
+		familyNameSoundex = PhoneticUtil.getSoundex(familyName);
+		familyName2Soundex = PhoneticUtil.getSoundex(familyName2);
+		givenNameMetaphone = PhoneticUtil.getDoubleMetaphone(givenName);
+		middleNameMetaphone = PhoneticUtil.getDoubleMetaphone(middleName);
+		familyNameMetaphone = PhoneticUtil.getDoubleMetaphone(familyName);
+		familyName2Metaphone = PhoneticUtil.getDoubleMetaphone(familyName2);
+	}
+	
+	/**
+	 * @return the soundex key of the given name, see {@link #updatePhoneticKeys()}
+	 * @since 1.12
+	 */
+	public String getGivenNameSoundex() {
+		return givenNameSoundex;
+	}
+	
+	/**
+	 * @return the double metaphone key of the given name, see {@link #updatePhoneticKeys()}
+	 * @since 1.12
+	 */
+	public String getGivenNameMetaphone() {
+		return givenNameMetaphone;
+	}
+	
+	/**
+	 * @return the soundex key of the middle name, see {@link #updatePhoneticKeys()}
+	 * @since 1.12
+	 */
+	public String getMiddleNameSoundex() {
+		return middleNameSoundex;
+	}
+	
+	/**
+	 * @return the double metaphone key of the middle name, see {@link #updatePhoneticKeys()}
+	 * @since 1.12
+	 */
+	public String getMiddleNameMetaphone() {
+		return middleNameMetaphone;
+	}
+	
+	/**
+	 * @return the soundex key of the family name, see {@link #updatePhoneticKeys()}
+	 * @since 1.12
+	 */
+	public String getFamilyNameSoundex() {
+		return familyNameSoundex;
+	}
+	
+	/**
+	 * @return the double metaphone key of the family name, see {@link #updatePhoneticKeys()}
+	 * @since 1.12
+	 */
+	public String getFamilyNameMetaphone() {
+		return familyNameMetaphone;
+	}
+	
+	/**
+	 * @return the soundex key of the second family name, see {@link #updatePhoneticKeys()}
+	 * @since 1.12
+	 */
+	public String getFamilyName2Soundex() {
+		return familyName2Soundex;
+	}
+	
+	/**
+	 * @return the double metaphone key of the second family name, see {@link #updatePhoneticKeys()}
+	 * @since 1.12
+	 */
+	public String getFamilyName2Metaphone() {
+		return familyName2Metaphone;
+	}
+	
 	/**
 	 * @see java.lang.Object#toString()
 	 */
@@ -15,6 +15,9 @@ package org.openmrs.aop;
 
 import java.lang.reflect.Method;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
@@ -36,6 +39,12 @@ public class AuthorizationAdvice implements MethodBeforeAdvice {
 	 */
 	protected final Log log = LogFactory.getLog(AuthorizationAdvice.class);
 	
+	/**
+	 * The resolved {@link org.openmrs.annotation.Authorized} metadata of every method this advice
+	 * has been called for, so that annotations are only reflected over once per method
+	 */
+	private final Map<Method, AuthorizedMethod> authorizedMethods = new ConcurrentHashMap<Method, AuthorizedMethod>();
+	
 	/**
 	 * Allows us to check whether a user is authorized to access a particular method.
 	 *
@@ -61,9 +70,9 @@ public class AuthorizationAdvice implements MethodBeforeAdvice {
 			}
 		}
 		
-		AuthorizedAnnotationAttributes attributes = new AuthorizedAnnotationAttributes();
-		Collection<String> privileges = attributes.getAttributes(method);
-		boolean requireAll = attributes.getRequireAll(method);
+		AuthorizedMethod authorizedMethod = getAuthorizedMethod(method);
+		Collection<String> privileges = authorizedMethod.privileges;
+		boolean requireAll = authorizedMethod.requireAll;
 		
 		// Only execute if the "secure" method has authorization attributes
 		// Iterate through required privileges and return only if the user has
@@ -102,7 +111,7 @@ public class AuthorizationAdvice implements MethodBeforeAdvice {
 				throwUnauthorized(user, method, privileges);
 			}
 			
-		} else if (attributes.hasAuthorizedAnnotation(method)) {
+		} else if (authorizedMethod.annotated) {
 			// if there are no privileges defined, just require that 
 			// the user be authenticated
 			if (Context.isAuthenticated() == false) {
@@ -111,6 +120,25 @@ public class AuthorizationAdvice implements MethodBeforeAdvice {
 		}
 	}
 	
+	/**
+	 * Gets the authorization metadata for the given method, reading it from the method's
+	 * annotations the first time the method is called
+	 *
+	 * @param method the intercepted method
+	 * @return the cached authorization metadata
+	 */
+	@SuppressWarnings("unchecked")
+	private AuthorizedMethod getAuthorizedMethod(Method method) {
+		AuthorizedMethod authorizedMethod = authorizedMethods.get(method);
+		if (authorizedMethod == null) {
+			AuthorizedAnnotationAttributes attributes = new AuthorizedAnnotationAttributes();
+			authorizedMethod = new AuthorizedMethod(attributes.getAttributes(method), attributes.getRequireAll(method),
+			        attributes.hasAuthorizedAnnotation(method));
+			authorizedMethods.put(method, authorizedMethod);
+		}
+		return authorizedMethod;
+	}
+	
 	/**
 	 * Throws an APIAuthorization exception stating why the user failed
 	 *
@@ -153,4 +181,23 @@ public class AuthorizationAdvice implements MethodBeforeAdvice {
 		}
 		throw new APIAuthenticationException(Context.getMessageSourceService().getMessage("error.aunthenticationRequired"));
 	}
+	
+	/**
+	 * The privileges required by a method, whether all of them are required and whether the method
+	 * has an {@link org.openmrs.annotation.Authorized} annotation at all
+	 */
+	private static final class AuthorizedMethod {
+		
+		private final Collection<String> privileges;
+		
+		private final boolean requireAll;
+		
+		private final boolean annotated;
+		
+		AuthorizedMethod(Collection<String> privileges, boolean requireAll, boolean annotated) {
+			this.privileges = Collections.unmodifiableCollection(privileges);
+			this.requireAll = requireAll;
+			this.annotated = annotated;
+		}
+	}
 }
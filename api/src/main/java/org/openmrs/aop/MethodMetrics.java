@@ -0,0 +1,311 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.aop;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Call count, error count and latency histogram of one service method, as recorded by
+ * {@link MetricsAdvice}. Recording never locks: every counter is striped over a few slots picked
+ * by the calling thread, and the slots are only summed up when the numbers are read.<br/>
+ * <br/>
+ * Latencies are kept in microseconds in log-linear buckets, four per power of two, so a
+ * percentile is at most 25% above the real value.
+ *
+ * @since 1.12
+ */
+public class MethodMetrics implements MethodMetricsMBean {
+	
+	private static final int SUB_BUCKET_BITS = 2;
+	
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	
+	/**
+	 * Latencies of 2^40 microseconds (about 12 days) and more all go into the last bucket
+	 */
+	private static final int MAX_EXPONENT = 40;
+	
+	static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+	
+	private static final int STRIPES = getStripeCount();
+	
+	private static final int CALLS = 0;
+	
+	private static final int ERRORS = 1;
+	
+	private static final int TOTAL_MICROS = 2;
+	
+	/**
+	 * The counters of one stripe are spread over a whole cache line, so that threads writing to
+	 * different stripes do not contend on it
+	 */
+	private static final int COUNTER_STRIDE = 8;
+	
+	private final String name;
+	
+	private final AtomicLongArray counters = new AtomicLongArray(STRIPES * COUNTER_STRIDE);
+	
+	private final AtomicLongArray histogram = new AtomicLongArray(STRIPES * BUCKETS);
+	
+	private final AtomicLong maxMicros = new AtomicLong();
+	
+	/**
+	 * @param name the name of the measured method
+	 */
+	public MethodMetrics(String name) {
+		this.name = name;
+	}
+	
+	/**
+	 * Records one call of the method
+	 *
+	 * @param nanos how long the call took
+	 * @param error whether the call threw an exception
+	 */
+	public void record(long nanos, boolean error) {
+		long micros = nanos / 1000;
+		int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+		int offset = stripe * COUNTER_STRIDE;
+		counters.incrementAndGet(offset + CALLS);
+		if (error) {
+			counters.incrementAndGet(offset + ERRORS);
+		}
+		counters.addAndGet(offset + TOTAL_MICROS, micros);
+		histogram.incrementAndGet(stripe * BUCKETS + getBucket(micros));
+		
+		long max = maxMicros.get();
+		while (micros > max && !maxMicros.compareAndSet(max, micros)) {
+			max = maxMicros.get();
+		}
+	}
+	
+	/**
+	 * @return a copy of the current numbers, calls recorded while it is taken may be partly missing
+	 */
+	public Snapshot getSnapshot() {
+		long[] buckets = new long[BUCKETS];
+		for (int stripe = 0; stripe < STRIPES; stripe++) {
+			for (int bucket = 0; bucket < BUCKETS; bucket++) {
+				buckets[bucket] += histogram.get(stripe * BUCKETS + bucket);
+			}
+		}
+		return new Snapshot(name, sumCounter(CALLS), sumCounter(ERRORS), sumCounter(TOTAL_MICROS), maxMicros.get(),
+		        buckets);
+	}
+	
+	/**
+	 * @see org.openmrs.aop.MethodMetricsMBean#getName()
+	 */
+	public String getName() {
+		return name;
+	}
+	
+	/**
+	 * @see org.openmrs.aop.MethodMetricsMBean#getCalls()
+	 */
+	public long getCalls() {
+		return sumCounter(CALLS);
+	}
+	
+	/**
+	 * @see org.openmrs.aop.MethodMetricsMBean#getErrors()
+	 */
+	public long getErrors() {
+		return sumCounter(ERRORS);
+	}
+	
+	/**
+	 * @see org.openmrs.aop.MethodMetricsMBean#getMeanMicros()
+	 */
+	public long getMeanMicros() {
+		return getSnapshot().getMeanMicros();
+	}
+	
+	/**
+	 * @see org.openmrs.aop.MethodMetricsMBean#getP50Micros()
+	 */
+	public long getP50Micros() {
+		return getSnapshot().getP50Micros();
+	}
+	
+	/**
+	 * @see org.openmrs.aop.MethodMetricsMBean#getP95Micros()
+	 */
+	public long getP95Micros() {
+		return getSnapshot().getP95Micros();
+	}
+	
+	/**
+	 * @see org.openmrs.aop.MethodMetricsMBean#getP99Micros()
+	 */
+	public long getP99Micros() {
+		return getSnapshot().getP99Micros();
+	}
+	
+	/**
+	 * @see org.openmrs.aop.MethodMetricsMBean#getMaxMicros()
+	 */
+	public long getMaxMicros() {
+		return maxMicros.get();
+	}
+	
+	/**
+	 * Sets all numbers back to zero. Calls that are recorded at the same time may be partly lost.
+	 *
+	 * @see org.openmrs.aop.MethodMetricsMBean#reset()
+	 */
+	public void reset() {
+		for (int i = 0; i < counters.length(); i++) {
+			counters.set(i, 0);
+		}
+		for (int i = 0; i < histogram.length(); i++) {
+			histogram.set(i, 0);
+		}
+		maxMicros.set(0);
+	}
+	
+	private long sumCounter(int counter) {
+		long sum = 0;
+		for (int stripe = 0; stripe < STRIPES; stripe++) {
+			sum += counters.get(stripe * COUNTER_STRIDE + counter);
+		}
+		return sum;
+	}
+	
+	/**
+	 * @param micros a latency
+	 * @return the index of the histogram bucket the latency is counted in
+	 */
+	static int getBucket(long micros) {
+		if (micros < SUB_BUCKETS) {
+			return micros < 0 ? 0 : (int) micros;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(micros);
+		if (exponent > MAX_EXPONENT) {
+			return BUCKETS - 1;
+		}
+		int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+	}
+	
+	/**
+	 * @param bucket the index of a histogram bucket
+	 * @return the highest latency that is counted in the bucket
+	 */
+	static long getBucketUpperBound(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int exponent = (bucket - SUB_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS;
+		int subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+		return ((long) (SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+	}
+	
+	/**
+	 * @return the number of stripes, a power of two close to the number of processors
+	 */
+	private static int getStripeCount() {
+		int processors = Math.min(Runtime.getRuntime().availableProcessors(), 8);
+		int stripes = 1;
+		while (stripes < processors) {
+			stripes <<= 1;
+		}
+		return stripes;
+	}
+	
+	/**
+	 * The numbers of a {@link MethodMetrics} at one point in time
+	 */
+	public static class Snapshot {
+		
+		private final String name;
+		
+		private final long calls;
+		
+		private final long errors;
+		
+		private final long totalMicros;
+		
+		private final long maxMicros;
+		
+		private final long[] buckets;
+		
+		private Snapshot(String name, long calls, long errors, long totalMicros, long maxMicros, long[] buckets) {
+			this.name = name;
+			this.calls = calls;
+			this.errors = errors;
+			this.totalMicros = totalMicros;
+			this.maxMicros = maxMicros;
+			this.buckets = buckets;
+		}
+		
+		/**
+		 * @param quantile between 0 and 1, e.g. 0.95
+		 * @return the latency that the given fraction of the calls did not exceed, or 0 if there
+		 *         were no calls
+		 */
+		public long getPercentileMicros(double quantile) {
+			long count = 0;
+			for (long bucket : buckets) {
+				count += bucket;
+			}
+			if (count == 0) {
+				return 0;
+			}
+			
+			long rank = (long) Math.ceil(quantile * count);
+			long seen = 0;
+			for (int bucket = 0; bucket < buckets.length; bucket++) {
+				seen += buckets[bucket];
+				if (seen >= rank && seen > 0) {
+					return Math.min(getBucketUpperBound(bucket), maxMicros);
+				}
+			}
+			return maxMicros;
+		}
+		
+		public String getName() {
+			return name;
+		}
+		
+		public long getCalls() {
+			return calls;
+		}
+		
+		public long getErrors() {
+			return errors;
+		}
+		
+		public long getMeanMicros() {
+			return calls == 0 ? 0 : totalMicros / calls;
+		}
+		
+		public long getP50Micros() {
+			return getPercentileMicros(0.5);
+		}
+		
+		public long getP95Micros() {
+			return getPercentileMicros(0.95);
+		}
+		
+		public long getP99Micros() {
+			return getPercentileMicros(0.99);
+		}
+		
+		public long getMaxMicros() {
+			return maxMicros;
+		}
+	}
+}
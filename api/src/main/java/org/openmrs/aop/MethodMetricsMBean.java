@@ -0,0 +1,40 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.aop;
+
+/**
+ * JMX view of the {@link MethodMetrics} of one service method. Latencies are in microseconds.
+ * 
+ * @since 1.12
+ */
+public interface MethodMetricsMBean {
+	
+	public String getName();
+	
+	public long getCalls();
+	
+	public long getErrors();
+	
+	public long getMeanMicros();
+	
+	public long getP50Micros();
+	
+	public long getP95Micros();
+	
+	public long getP99Micros();
+	
+	public long getMaxMicros();
+	
+	public void reset();
+}
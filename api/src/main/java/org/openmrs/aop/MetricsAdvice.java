@@ -0,0 +1,221 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.aop;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * This class provides the around advice that measures our service layer. It counts the calls and
+ * errors of every service interface method and keeps a histogram of their latencies, see
+ * {@link MethodMetrics}. The numbers are published as MBeans in the "org.openmrs" JMX domain and
+ * can be read with {@link #getSnapshots()}. This advice is placed on all services via the spring
+ * application context, and can be switched off with the "enabled" property or over JMX.
+ *
+ * @since 1.12
+ */
+public class MetricsAdvice implements MethodInterceptor, MetricsAdviceMBean, InitializingBean, DisposableBean {
+	
+	private static final Log log = LogFactory.getLog(MetricsAdvice.class);
+	
+	private static final String JMX_DOMAIN = "org.openmrs";
+	
+	private final ConcurrentMap<Method, MethodMetrics> metrics = new ConcurrentHashMap<Method, MethodMetrics>();
+	
+	private volatile boolean enabled = true;
+	
+	private boolean registerMBeans = true;
+	
+	/**
+	 * @see org.aopalliance.intercept.MethodInterceptor#invoke(org.aopalliance.intercept.MethodInvocation)
+	 */
+	public Object invoke(MethodInvocation invocation) throws Throwable {
+		if (!enabled) {
+			return invocation.proceed();
+		}
+		
+		long start = System.nanoTime();
+		boolean error = true;
+		try {
+			Object result = invocation.proceed();
+			error = false;
+			return result;
+		}
+		finally {
+			getMetrics(invocation.getMethod()).record(System.nanoTime() - start, error);
+		}
+	}
+	
+	/**
+	 * @param method a service interface method
+	 * @return the metrics of the method, created on the first call
+	 */
+	public MethodMetrics getMetrics(Method method) {
+		MethodMetrics methodMetrics = metrics.get(method);
+		if (methodMetrics == null) {
+			MethodMetrics newMetrics = new MethodMetrics(getName(method));
+			methodMetrics = metrics.putIfAbsent(method, newMetrics);
+			if (methodMetrics == null) {
+				methodMetrics = newMetrics;
+				if (registerMBeans) {
+					registerMBean(methodMetrics, "type=ServiceMetrics,service="
+					        + ObjectName.quote(method.getDeclaringClass().getSimpleName()) + ",method="
+					        + ObjectName.quote(getSignature(method)));
+				}
+			}
+		}
+		return methodMetrics;
+	}
+	
+	/**
+	 * @return the current numbers of all methods that were called, ordered by name
+	 */
+	public List<MethodMetrics.Snapshot> getSnapshots() {
+		List<MethodMetrics.Snapshot> snapshots = new ArrayList<MethodMetrics.Snapshot>();
+		for (MethodMetrics methodMetrics : metrics.values()) {
+			snapshots.add(methodMetrics.getSnapshot());
+		}
+		Collections.sort(snapshots, new Comparator<MethodMetrics.Snapshot>() {
+			
+			public int compare(MethodMetrics.Snapshot a, MethodMetrics.Snapshot b) {
+				return a.getName().compareTo(b.getName());
+			}
+		});
+		return snapshots;
+	}
+	
+	/**
+	 * @see org.openmrs.aop.MetricsAdviceMBean#isEnabled()
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+	
+	/**
+	 * @see org.openmrs.aop.MetricsAdviceMBean#setEnabled(boolean)
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+	
+	/**
+	 * @param registerMBeans whether the numbers should be published over JMX
+	 */
+	public void setRegisterMBeans(boolean registerMBeans) {
+		this.registerMBeans = registerMBeans;
+	}
+	
+	/**
+	 * @see org.openmrs.aop.MetricsAdviceMBean#getMethodCount()
+	 */
+	public int getMethodCount() {
+		return metrics.size();
+	}
+	
+	/**
+	 * @see org.openmrs.aop.MetricsAdviceMBean#reset()
+	 */
+	public void reset() {
+		for (MethodMetrics methodMetrics : metrics.values()) {
+			methodMetrics.reset();
+		}
+	}
+	
+	/**
+	 * @see org.springframework.beans.factory.InitializingBean#afterPropertiesSet()
+	 */
+	public void afterPropertiesSet() throws Exception {
+		if (registerMBeans) {
+			registerMBean(this, "type=ServiceMetrics,name=MetricsAdvice");
+		}
+	}
+	
+	/**
+	 * Removes the MBeans again, so that a refreshed context can register its own
+	 *
+	 * @see org.springframework.beans.factory.DisposableBean#destroy()
+	 */
+	public void destroy() throws Exception {
+		if (!registerMBeans) {
+			return;
+		}
+		
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for (ObjectName name : server.queryNames(new ObjectName(JMX_DOMAIN + ":type=ServiceMetrics,*"), null)) {
+			try {
+				server.unregisterMBean(name);
+			}
+			catch (Exception e) {
+				log.debug("Unable to unregister " + name, e);
+			}
+		}
+	}
+	
+	/**
+	 * Registers the given MBean, replacing one that is still registered under the same name
+	 *
+	 * @param mbean the MBean
+	 * @param properties the key properties of the MBean name
+	 */
+	private void registerMBean(Object mbean, String properties) {
+		String name = JMX_DOMAIN + ":" + properties;
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName objectName = new ObjectName(name);
+			if (server.isRegistered(objectName)) {
+				server.unregisterMBean(objectName);
+			}
+			server.registerMBean(mbean, objectName);
+		}
+		catch (Exception e) {
+			log.warn("Unable to register MBean " + name, e);
+		}
+	}
+	
+	/**
+	 * @param method a service method
+	 * @return the name of the method like ConceptService.getConcept(Integer)
+	 */
+	private String getName(Method method) {
+		return method.getDeclaringClass().getSimpleName() + "." + getSignature(method);
+	}
+	
+	private String getSignature(Method method) {
+		StringBuilder signature = new StringBuilder(method.getName()).append("(");
+		Class<?>[] types = method.getParameterTypes();
+		for (int i = 0; i < types.length; i++) {
+			if (i > 0) {
+				signature.append(",");
+			}
+			signature.append(types[i].getSimpleName());
+		}
+		return signature.append(")").toString();
+	}
+}
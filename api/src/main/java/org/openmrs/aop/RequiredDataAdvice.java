@@ -20,7 +20,9 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.openmrs.OpenmrsObject;
 import org.openmrs.Retireable;
@@ -82,6 +84,21 @@ import org.springframework.util.StringUtils;
  */
 public class RequiredDataAdvice implements MethodBeforeAdvice {
 	
+	/**
+	 * Cached traversal plans keyed on handler type and object class, see
+	 * {@link #getTraversalPlan(Class, Class)}
+	 */
+	private static final Map<PlanKey, TraversalPlan<?>> traversalPlans = new ConcurrentHashMap<PlanKey, TraversalPlan<?>>();
+	
+	static {
+		HandlerUtil.addCachedHandlersListener(new HandlerUtil.CachedHandlersListener() {
+			
+			public void cachedHandlersCleared() {
+				clearTraversalPlans();
+			}
+		});
+	}
+	
 	/**
 	 * @see org.springframework.aop.MethodBeforeAdvice#before(java.lang.reflect.Method,
 	 *      java.lang.Object[], java.lang.Object)
@@ -110,9 +127,7 @@ public class RequiredDataAdvice implements MethodBeforeAdvice {
 		if (methodName.startsWith("save") || methodName.startsWith("create")) {
 			
 			// if the first argument is an OpenmrsObject, handle it now
-			Reflect reflect = new Reflect(OpenmrsObject.class);
-			
-			if (reflect.isSuperClass(mainArgument)) {
+			if (mainArgument instanceof OpenmrsObject) {
 				// fail early if the method name is not like saveXyz(Xyz)
 				if (!methodNameEndsWithClassName(method, mainArgument.getClass())) {
 					return;
@@ -257,20 +272,57 @@ public class RequiredDataAdvice implements MethodBeforeAdvice {
 			alreadyHandled = new ArrayList<OpenmrsObject>();
 		}
 		
-		// fetch all handlers for the object being saved
-		List<H> handlers = HandlerUtil.getHandlersForType(handlerType, openmrsObjectClass);
+		TraversalPlan<H> plan = getTraversalPlan(handlerType, openmrsObjectClass);
 		
 		// loop over all handlers, calling onSave on each
-		for (H handler : handlers) {
+		for (H handler : plan.handlers) {
 			handler.handle(openmrsObject, currentUser, currentDate, other);
 		}
 		alreadyHandled.add(openmrsObject);
 		
-		Reflect reflect = new Reflect(OpenmrsObject.class);
-		List<Field> allInheritedFields = reflect.getInheritedFields(openmrsObjectClass);
-		
 		// loop over all child collections of OpenmrsObjects and recursively save on those
-		for (Field field : allInheritedFields) {
+		for (ChildCollectionAccessor accessor : plan.childCollections) {
+			
+			// the collection we'll be looping over
+			Collection<OpenmrsObject> childCollection = accessor.get(openmrsObject);
+			
+			if (childCollection != null) {
+				for (Object collectionElement : childCollection) {
+					if (!alreadyHandled.contains(collectionElement)) {
+						recursivelyHandle(handlerType, (OpenmrsObject) collectionElement, currentUser, currentDate, other,
+						    alreadyHandled);
+					}
+				}
+			}
+		}
+		
+	}
+	
+	/**
+	 * Gets the handlers and the child collections to descend into for the given handler type and
+	 * object class. The plan is built by reflection the first time it is needed and then cached
+	 * until {@link #clearTraversalPlans()} is called.
+	 *
+	 * @param handlerType the type of Handler to get (should extend {@link RequiredDataHandler})
+	 * @param openmrsObjectClass the class of the object being acted upon
+	 * @return the traversal plan
+	 * @see HandlerUtil#getHandlersForType(Class, Class)
+	 */
+	@SuppressWarnings("unchecked")
+	private static <H extends RequiredDataHandler> TraversalPlan<H> getTraversalPlan(Class<H> handlerType,
+	        Class<? extends OpenmrsObject> openmrsObjectClass) {
+		PlanKey key = new PlanKey(handlerType, openmrsObjectClass);
+		TraversalPlan<H> plan = (TraversalPlan<H>) traversalPlans.get(key);
+		if (plan != null) {
+			return plan;
+		}
+		
+		// fetch all handlers for the object being saved
+		List<H> handlers = HandlerUtil.getHandlersForType(handlerType, openmrsObjectClass);
+		
+		List<ChildCollectionAccessor> childCollections = new ArrayList<ChildCollectionAccessor>();
+		Reflect reflect = new Reflect(OpenmrsObject.class);
+		for (Field field : reflect.getInheritedFields(openmrsObjectClass)) {
 			
 			// skip field if it's declared independent
 			if (field.isAnnotationPresent(Independent.class)) {
@@ -278,21 +330,24 @@ public class RequiredDataAdvice implements MethodBeforeAdvice {
 			}
 			
 			if (reflect.isCollectionField(field) && !isHandlerMarkedAsDisabled(handlerType, field)) {
-				
-				// the collection we'll be looping over
-				Collection<OpenmrsObject> childCollection = getChildCollection(openmrsObject, field);
-				
-				if (childCollection != null) {
-					for (Object collectionElement : childCollection) {
-						if (!alreadyHandled.contains(collectionElement)) {
-							recursivelyHandle(handlerType, (OpenmrsObject) collectionElement, currentUser, currentDate,
-							    other, alreadyHandled);
-						}
-					}
-				}
+				childCollections.add(new ChildCollectionAccessor(openmrsObjectClass, field));
 			}
 		}
 		
+		plan = new TraversalPlan<H>(handlers, childCollections);
+		traversalPlans.put(key, plan);
+		return plan;
+	}
+	
+	/**
+	 * Drops all cached traversal plans. This is called whenever
+	 * {@link HandlerUtil#clearCachedHandlers()} is, because the handlers registered for a class may
+	 * have changed, e.g. after a module was started or stopped.
+	 *
+	 * @since 1.12
+	 */
+	public static void clearTraversalPlans() {
+		traversalPlans.clear();
 	}
 	
 	/**
@@ -307,47 +362,8 @@ public class RequiredDataAdvice implements MethodBeforeAdvice {
 	 * @should should be able to get annotated private fields
 	 * @should throw APIException if getter method not found
 	 */
-	@SuppressWarnings("unchecked")
 	protected static Collection<OpenmrsObject> getChildCollection(OpenmrsObject openmrsObject, Field field) {
-		String fieldName = field.getName();
-		String getterName = "get" + StringUtils.capitalize(fieldName);
-		
-		try {
-			
-			// checks if direct access is allowed
-			if (field.isAnnotationPresent(AllowDirectAccess.class)) {
-				
-				boolean previousFieldAccessibility = field.isAccessible();
-				field.setAccessible(true);
-				Collection<OpenmrsObject> childCollection = (Collection<OpenmrsObject>) field.get(openmrsObject);
-				field.setAccessible(previousFieldAccessibility);
-				return childCollection;
-				
-			} else {
-				// access the field via its getter method
-				Class<? extends OpenmrsObject> openmrsObjectClass = openmrsObject.getClass();
-				
-				Method getterMethod = openmrsObjectClass.getMethod(getterName, (Class[]) null);
-				return (Collection<OpenmrsObject>) getterMethod.invoke(openmrsObject, new Object[] {});
-				
-			}
-		}
-		catch (IllegalAccessException e) {
-			if (field.isAnnotationPresent(AllowDirectAccess.class)) {
-				throw new APIException("Unable to get field: " + fieldName + " on " + openmrsObject.getClass());
-			} else {
-				throw new APIException("Unable to use getter method: " + getterName + " for field: " + fieldName + " on "
-				        + openmrsObject.getClass());
-			}
-		}
-		catch (InvocationTargetException e) {
-			throw new APIException("Unable to run getter method: " + getterName + " for field: " + fieldName + " on "
-			        + openmrsObject.getClass());
-		}
-		catch (NoSuchMethodException e) {
-			throw new APIException("Unable to find getter method: " + getterName + " for field: " + fieldName + " on "
-			        + openmrsObject.getClass());
-		}
+		return new ChildCollectionAccessor(openmrsObject.getClass(), field).get(openmrsObject);
 	}
 	
 	/**
@@ -393,4 +409,118 @@ public class RequiredDataAdvice implements MethodBeforeAdvice {
 		
 		return false;
 	}
+	
+	/**
+	 * The handlers to call on an object of a given class and the child collections of
+	 * {@link OpenmrsObject}s to recurse into afterwards
+	 */
+	private static final class TraversalPlan<H extends RequiredDataHandler> {
+		
+		private final List<H> handlers;
+		
+		private final List<ChildCollectionAccessor> childCollections;
+		
+		TraversalPlan(List<H> handlers, List<ChildCollectionAccessor> childCollections) {
+			this.handlers = handlers;
+			this.childCollections = childCollections;
+		}
+	}
+	
+	/**
+	 * Reads a child collection off of an object either through its getter or, if the field is
+	 * annotated with {@link AllowDirectAccess}, directly from the field. The getter is looked up
+	 * once when the accessor is created.
+	 */
+	private static final class ChildCollectionAccessor {
+		
+		private final Field field;
+		
+		private final String getterName;
+		
+		private final Method getterMethod;
+		
+		private final boolean directAccess;
+		
+		ChildCollectionAccessor(Class<?> openmrsObjectClass, Field field) {
+			this.field = field;
+			this.getterName = "get" + StringUtils.capitalize(field.getName());
+			this.directAccess = field.isAnnotationPresent(AllowDirectAccess.class);
+			
+			Method getter = null;
+			if (directAccess) {
+				field.setAccessible(true);
+			} else {
+				try {
+					getter = openmrsObjectClass.getMethod(getterName, (Class[]) null);
+				}
+				catch (NoSuchMethodException e) {
+					// reported when the collection is read, like it was before plans were cached
+				}
+			}
+			this.getterMethod = getter;
+		}
+		
+		@SuppressWarnings("unchecked")
+		Collection<OpenmrsObject> get(OpenmrsObject openmrsObject) {
+			String fieldName = field.getName();
+			
+			try {
+				// checks if direct access is allowed
+				if (directAccess) {
+					return (Collection<OpenmrsObject>) field.get(openmrsObject);
+				}
+				
+				// access the field via its getter method
+				if (getterMethod == null) {
+					throw new APIException("Unable to find getter method: " + getterName + " for field: " + fieldName
+					        + " on " + openmrsObject.getClass());
+				}
+				return (Collection<OpenmrsObject>) getterMethod.invoke(openmrsObject, new Object[] {});
+			}
+			catch (IllegalAccessException e) {
+				if (directAccess) {
+					throw new APIException("Unable to get field: " + fieldName + " on " + openmrsObject.getClass());
+				} else {
+					throw new APIException("Unable to use getter method: " + getterName + " for field: " + fieldName
+					        + " on " + openmrsObject.getClass());
+				}
+			}
+			catch (InvocationTargetException e) {
+				throw new APIException("Unable to run getter method: " + getterName + " for field: " + fieldName + " on "
+				        + openmrsObject.getClass());
+			}
+		}
+	}
+	
+	/**
+	 * Key of the traversal plan cache
+	 */
+	private static final class PlanKey {
+		
+		private final Class<?> handlerType;
+		
+		private final Class<?> type;
+		
+		PlanKey(Class<?> handlerType, Class<?> type) {
+			this.handlerType = handlerType;
+			this.type = type;
+		}
+		
+		@Override
+		public int hashCode() {
+			return 31 * handlerType.hashCode() + type.hashCode();
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof PlanKey)) {
+				return false;
+			}
+			PlanKey other = (PlanKey) obj;
+			return handlerType.equals(other.handlerType) && type.equals(other.type);
+		}
+	}
 }
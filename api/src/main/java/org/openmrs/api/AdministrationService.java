@@ -413,6 +413,8 @@ public interface AdministrationService extends OpenmrsService, GlobalPropertyLis
 	 * @should not fail with null propertyName
 	 * @should get property value given valid property name
 	 * @should get property in case insensitive way
+	 * @should return the saved value after the property was saved with different case
+	 * @should return null after the property was purged
 	 */
 	public String getGlobalProperty(String propertyName) throws APIException;
 	
@@ -594,6 +596,40 @@ public interface AdministrationService extends OpenmrsService, GlobalPropertyLis
 	 */
 	public void removeGlobalPropertyListener(GlobalPropertyListener listener);
 	
+	/**
+	 * Records that an object was changed, so that the other nodes sharing this database drop their
+	 * in-memory copies of it the next time they call {@link #processChangeNotifications()}. Saving
+	 * and purging global properties already does this. Nothing is recorded if polling is disabled.
+	 * 
+	 * @param type the class of the changed object
+	 * @param identifier identifies the changed object, may be null
+	 * @throws APIException
+	 * @since 1.12
+	 */
+	@Authorized(PrivilegeConstants.MANAGE_CHANGE_NOTIFICATIONS)
+	public void saveChangeNotification(Class<?> type, String identifier) throws APIException;
+	
+	/**
+	 * Applies the changes that other nodes sharing this database have made since the last call:
+	 * cached global properties are evicted and the registered {@link GlobalPropertyListener}s are
+	 * called as if the change had been made on this node, cached privileges are invalidated if
+	 * users, roles or privileges changed, and changed concepts are read again into the concept
+	 * dictionary snapshot. The first call only marks the starting point. A change committed after a
+	 * later one was already processed is still picked up within a few minutes. This is polled at
+	 * the interval set by {@link OpenmrsConstants#GP_CHANGE_NOTIFICATION_POLL_INTERVAL}, polling is
+	 * disabled by default.
+	 * 
+	 * @return the number of changes made by other nodes that were processed
+	 * @throws APIException
+	 * @since 1.12
+	 * @should notify global property listeners about changes made on other nodes
+	 * @should ignore changes made on this node
+	 * @should process a change that is committed after a later one was processed
+	 * @should not record changes if polling is disabled
+	 */
+	@Authorized(PrivilegeConstants.MANAGE_CHANGE_NOTIFICATIONS)
+	public int processChangeNotifications() throws APIException;
+	
 	/**
 	 * Runs the <code>sql</code> on the database. If <code>selectOnly</code> is flagged then any
 	 * non-select sql statements will be rejected.
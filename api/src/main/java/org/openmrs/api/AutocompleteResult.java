@@ -0,0 +1,62 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api;
+
+/**
+ * A concept or drug suggested for what a user started typing, as returned by
+ * {@link ConceptService#getConceptAutocompleteResults(String, java.util.Locale, int)} and
+ * {@link ConceptService#getDrugAutocompleteResults(String, int)}. It only holds what a typeahead
+ * shows, the concept or drug itself can be loaded by its id once one is picked.
+ * 
+ * @since 1.12
+ */
+public class AutocompleteResult {
+	
+	private final Integer id;
+	
+	private final String displayName;
+	
+	private final String matchedName;
+	
+	/**
+	 * @param id the concept id or drug id
+	 * @param displayName the name to show, e.g. the preferred name of the concept
+	 * @param matchedName the name that starts with the typed words
+	 */
+	public AutocompleteResult(Integer id, String displayName, String matchedName) {
+		this.id = id;
+		this.displayName = displayName;
+		this.matchedName = matchedName;
+	}
+	
+	public Integer getId() {
+		return id;
+	}
+	
+	public String getDisplayName() {
+		return displayName;
+	}
+	
+	public String getMatchedName() {
+		return matchedName;
+	}
+	
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return id + " " + displayName + (displayName.equals(matchedName) ? "" : " (" + matchedName + ")");
+	}
+}
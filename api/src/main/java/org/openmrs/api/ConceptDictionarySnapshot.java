@@ -0,0 +1,378 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.openmrs.Concept;
+import org.openmrs.ConceptDatatype;
+import org.openmrs.util.SharedMap;
+
+/**
+ * A read-only copy of the concept dictionary that is held in memory, so that code which only needs
+ * the id, uuid, names, datatype, class or answers of a concept can look them up without going to
+ * the hibernate session or the database. A snapshot never changes once it is built: saving,
+ * retiring or purging a concept makes {@link ConceptService#getConceptDictionarySnapshot()} return
+ * a new snapshot with just the changed concepts replaced, so a caller can keep working with the
+ * snapshot it got without seeing half applied changes. The new snapshot shares everything that did
+ * not change with the one it was updated from, so an update does not copy the whole dictionary.
+ *
+ * @see ConceptService#getConceptDictionarySnapshot()
+ * @since 1.12
+ */
+public class ConceptDictionarySnapshot {
+	
+	private final SharedMap<Integer, Entry> conceptsById;
+	
+	private final SharedMap<String, Entry> conceptsByUuid;
+	
+	private final SharedMap<String, List<Entry>> conceptsByName;
+	
+	/**
+	 * Creates a snapshot of the given concepts
+	 *
+	 * @param entries the concepts
+	 */
+	public ConceptDictionarySnapshot(Collection<Entry> entries) {
+		this(new ConceptDictionarySnapshot(new SharedMap<Integer, Entry>(entries.size()), new SharedMap<String, Entry>(
+		        entries.size()), new SharedMap<String, List<Entry>>(entries.size())).update(entries, Collections
+		        .<Integer> emptySet()));
+	}
+	
+	private ConceptDictionarySnapshot(ConceptDictionarySnapshot snapshot) {
+		this(snapshot.conceptsById, snapshot.conceptsByUuid, snapshot.conceptsByName);
+	}
+	
+	private ConceptDictionarySnapshot(SharedMap<Integer, Entry> conceptsById, SharedMap<String, Entry> conceptsByUuid,
+	    SharedMap<String, List<Entry>> conceptsByName) {
+		this.conceptsById = conceptsById;
+		this.conceptsByUuid = conceptsByUuid;
+		this.conceptsByName = conceptsByName;
+	}
+	
+	/**
+	 * Creates a new snapshot with some concepts replaced, this snapshot is not changed. Only the
+	 * parts of the snapshot that hold the changed concepts are copied.
+	 *
+	 * @param changedEntries the concepts that were added or changed
+	 * @param removedConceptIds the ids of the concepts that no longer exist
+	 * @return the new snapshot
+	 * @should replace changed concepts
+	 * @should remove purged concepts
+	 * @should not change this snapshot
+	 * @should keep the concepts that did not change
+	 */
+	public ConceptDictionarySnapshot update(Collection<Entry> changedEntries, Collection<Integer> removedConceptIds) {
+		// a null value removes the key
+		Map<Integer, Entry> byId = new HashMap<Integer, Entry>();
+		Map<String, Entry> byUuid = new HashMap<String, Entry>();
+		Map<String, List<Entry>> byName = new HashMap<String, List<Entry>>();
+		
+		List<Integer> replacedConceptIds = new ArrayList<Integer>(removedConceptIds);
+		for (Entry entry : changedEntries) {
+			replacedConceptIds.add(entry.getConceptId());
+		}
+		for (Integer conceptId : replacedConceptIds) {
+			Entry old = byId.containsKey(conceptId) ? byId.get(conceptId) : conceptsById.get(conceptId);
+			if (old == null) {
+				continue;
+			}
+			
+			byId.put(conceptId, null);
+			byUuid.put(old.getUuid(), null);
+			for (String name : old.getNameKeys()) {
+				List<Entry> withName = new ArrayList<Entry>(getWithName(byName, name));
+				withName.remove(old);
+				byName.put(name, withName.isEmpty() ? null : Collections.unmodifiableList(withName));
+			}
+		}
+		
+		for (Entry entry : changedEntries) {
+			byId.put(entry.getConceptId(), entry);
+			byUuid.put(entry.getUuid(), entry);
+			for (String name : entry.getNameKeys()) {
+				List<Entry> withName = new ArrayList<Entry>(getWithName(byName, name));
+				withName.add(entry);
+				byName.put(name, Collections.unmodifiableList(withName));
+			}
+		}
+		
+		return new ConceptDictionarySnapshot(conceptsById.with(byId), conceptsByUuid.with(byUuid), conceptsByName
+		        .with(byName));
+	}
+	
+	/**
+	 * @return the concepts with the name, taking the changes made by an update so far into account
+	 */
+	private List<Entry> getWithName(Map<String, List<Entry>> changedNames, String name) {
+		List<Entry> withName = changedNames.containsKey(name) ? changedNames.get(name) : conceptsByName.get(name);
+		return withName == null ? Collections.<Entry> emptyList() : withName;
+	}
+	
+	/**
+	 * @param uuid the uuid of a concept
+	 * @return the concept, or null if there is no concept with that uuid
+	 * @should get concept by uuid
+	 */
+	public Entry getConceptByUuid(String uuid) {
+		return conceptsByUuid.get(uuid);
+	}
+	
+	/**
+	 * @param name a name of a concept in any locale, case is ignored
+	 * @return all concepts that have the name, including retired ones
+	 * @should get concepts by name ignoring case
+	 */
+	public List<Entry> getConceptsByName(String name) {
+		if (name == null) {
+			return Collections.emptyList();
+		}
+		List<Entry> entries = conceptsByName.get(getNameKey(name));
+		return entries == null ? Collections.<Entry> emptyList() : entries;
+	}
+	
+	/**
+	 * Looks a concept up by name the way {@link ConceptService#getConceptByName(String)} does: a
+	 * concept that is not retired and has the name in the given locale wins over one that has it in
+	 * another country of the same language, names in other languages are not matched
+	 *
+	 * @param name a name of a concept, case is ignored
+	 * @param locale the locale to prefer
+	 * @return the best matching concept that is not retired, or null if there is none
+	 * @should prefer concepts with the name in the given locale
+	 * @should not return concepts that only have the name in another language
+	 * @should not return retired concepts
+	 */
+	public Entry getConceptByName(String name, Locale locale) {
+		if (name == null) {
+			return null;
+		}
+		
+		Entry sameLanguage = null;
+		for (Entry entry : getConceptsByName(name)) {
+			if (entry.isRetired()) {
+				continue;
+			}
+			
+			List<String> names = entry.names.get(locale);
+			if (names != null && names.contains(getNameKey(name))) {
+				return entry;
+			}
+			if (sameLanguage == null && entry.hasName(name, locale.getLanguage())) {
+				sameLanguage = entry;
+			}
+		}
+		return sameLanguage;
+	}
+	
+	/**
+	 * @return all concepts in this snapshot, in no particular order
+	 */
+	public Collection<Entry> getConcepts() {
+		return conceptsById.values();
+	}
+	
+	/**
+	 * @return the number of concepts in this snapshot
+	 */
+	public int size() {
+		return conceptsById.size();
+	}
+	
+	private static String getNameKey(String name) {
+		return name.trim().toUpperCase();
+	}
+	
+	/**
+	 * What a snapshot holds about one concept. Voided names are left out, the names used for lookups
+	 * are kept in upper case and the preferred name of each locale as it was entered.
+	 */
+	public static class Entry {
+		
+		private final Integer conceptId;
+		
+		private final String uuid;
+		
+		private final boolean retired;
+		
+		private final boolean set;
+		
+		private final String datatypeName;
+		
+		private final String hl7Abbreviation;
+		
+		private final String className;
+		
+		private final Map<Locale, String> preferredNames;
+		
+		private final Map<Locale, List<String>> names;
+		
+		private final List<Integer> answerConceptIds;
+		
+		/**
+		 * @param conceptId the id of the concept
+		 * @param uuid the uuid of the concept
+		 * @param retired whether the concept is retired
+		 * @param set whether the concept is a set
+		 * @param datatypeName the name of the datatype
+		 * @param hl7Abbreviation the hl7 abbreviation of the datatype
+		 * @param className the name of the concept class
+		 * @param preferredNames the preferred name of the concept in each locale
+		 * @param names all names of the concept in each locale, including the preferred ones
+		 * @param answerConceptIds the ids of the answer concepts, in their sort order
+		 */
+		public Entry(Integer conceptId, String uuid, boolean retired, boolean set, String datatypeName,
+		    String hl7Abbreviation, String className, Map<Locale, String> preferredNames,
+		    Map<Locale, List<String>> names, List<Integer> answerConceptIds) {
+			this.conceptId = conceptId;
+			this.uuid = uuid;
+			this.retired = retired;
+			this.set = set;
+			this.datatypeName = datatypeName;
+			this.hl7Abbreviation = hl7Abbreviation;
+			this.className = className;
+			this.preferredNames = Collections.unmodifiableMap(new LinkedHashMap<Locale, String>(preferredNames));
+			Map<Locale, List<String>> nameKeys = new LinkedHashMap<Locale, List<String>>();
+			for (Map.Entry<Locale, List<String>> localeNames : names.entrySet()) {
+				List<String> keys = new ArrayList<String>(localeNames.getValue().size());
+				for (String name : localeNames.getValue()) {
+					keys.add(getNameKey(name));
+				}
+				nameKeys.put(localeNames.getKey(), Collections.unmodifiableList(keys));
+			}
+			this.names = Collections.unmodifiableMap(nameKeys);
+			this.answerConceptIds = Collections.unmodifiableList(new ArrayList<Integer>(answerConceptIds));
+		}
+		
+		/**
+		 * @return the upper cased names in all locales, without duplicates
+		 */
+		private Collection<String> getNameKeys() {
+			Collection<String> keys = new LinkedHashSet<String>();
+			for (List<String> localeNames : names.values()) {
+				keys.addAll(localeNames);
+			}
+			return keys;
+		}
+		
+		private boolean hasName(String name, String language) {
+			String key = getNameKey(name);
+			for (Map.Entry<Locale, List<String>> localeNames : names.entrySet()) {
+				if (localeNames.getKey().getLanguage().equals(language) && localeNames.getValue().contains(key)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		/**
+		 * Gets the preferred name in the given locale, falling back to another country of the same
+		 * language and then to any name, like {@link Concept#getName(Locale)}
+		 *
+		 * @param locale the locale
+		 * @return the name, or null if the concept has no names
+		 * @should fall back to the language and then to any locale
+		 */
+		public String getName(Locale locale) {
+			String name = preferredNames.get(locale);
+			if (name != null) {
+				return name;
+			}
+			for (Map.Entry<Locale, String> preferredName : preferredNames.entrySet()) {
+				if (preferredName.getKey().getLanguage().equals(locale.getLanguage())) {
+					return preferredName.getValue();
+				}
+			}
+			return preferredNames.isEmpty() ? null : preferredNames.values().iterator().next();
+		}
+		
+		public Integer getConceptId() {
+			return conceptId;
+		}
+		
+		public String getUuid() {
+			return uuid;
+		}
+		
+		public boolean isRetired() {
+			return retired;
+		}
+		
+		public boolean isSet() {
+			return set;
+		}
+		
+		public String getDatatypeName() {
+			return datatypeName;
+		}
+		
+		/**
+		 * @return the hl7 abbreviation of the datatype, compare it to the constants in
+		 *         {@link ConceptDatatype}
+		 */
+		public String getHl7Abbreviation() {
+			return hl7Abbreviation;
+		}
+		
+		public String getClassName() {
+			return className;
+		}
+		
+		/**
+		 * @return the preferred name in each locale
+		 */
+		public Map<Locale, String> getPreferredNames() {
+			return preferredNames;
+		}
+		
+		/**
+		 * @return the ids of the answer concepts, in their sort order
+		 */
+		public List<Integer> getAnswerConceptIds() {
+			return answerConceptIds;
+		}
+		
+		public boolean isNumeric() {
+			return ConceptDatatype.NUMERIC.equals(hl7Abbreviation);
+		}
+		
+		public boolean isCoded() {
+			return ConceptDatatype.CODED.equals(hl7Abbreviation);
+		}
+		
+		public boolean isBoolean() {
+			return ConceptDatatype.BOOLEAN.equals(hl7Abbreviation);
+		}
+		
+		public boolean isText() {
+			return ConceptDatatype.TEXT.equals(hl7Abbreviation);
+		}
+		
+		/**
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public String toString() {
+			return "Concept #" + conceptId;
+		}
+	}
+}
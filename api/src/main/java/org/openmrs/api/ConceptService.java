@@ -41,6 +41,8 @@ import org.openmrs.ConceptStopWord;
 import org.openmrs.Drug;
 import org.openmrs.annotation.Authorized;
 import org.openmrs.api.db.ConceptDAO;
+import org.openmrs.collection.ListPart;
+import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.PrivilegeConstants;
 
 /**
@@ -119,6 +121,7 @@ public interface ConceptService extends OpenmrsService {
 	 * @return
 	 * @should find object given valid uuid
 	 * @should return null if no object found with given uuid
+	 * @should find concepts through the dictionary snapshot once it is loaded
 	 */
 	@Authorized(PrivilegeConstants.GET_CONCEPTS)
 	public Concept getConceptByUuid(String uuid);
@@ -384,6 +387,8 @@ public interface ConceptService extends OpenmrsService {
 	 * @should find concepts with names in more generic locales
 	 * @should find concepts with names in same specific locale
 	 * @should return null given blank string
+	 * @should find concepts through the dictionary snapshot once it is loaded
+	 * @should find concepts renamed in the current transaction while the dictionary snapshot is loaded
 	 */
 	@Authorized(PrivilegeConstants.GET_CONCEPTS)
 	public Concept getConceptByName(String name) throws APIException;
@@ -618,6 +623,7 @@ public interface ConceptService extends OpenmrsService {
 	 * 
 	 * @param cc ConceptClass to create or update
 	 * @throws APIException
+	 * @should update the dictionary snapshot once the change is committed
 	 */
 	@Authorized(PrivilegeConstants.MANAGE_CONCEPT_CLASSES)
 	public ConceptClass saveConceptClass(ConceptClass cc) throws APIException;
@@ -760,15 +766,34 @@ public interface ConceptService extends OpenmrsService {
 	public List<Concept> getConceptsInSet(Concept concept) throws APIException;
 	
 	/**
-	 * Return a List of all concepts within a concept set
+	 * Return a List of all concepts within a concept set, including the members of the sets within
+	 * it. The set hierarchy is kept in memory and only read again for the sets that change.
 	 * 
 	 * @param concept The concept representing the concept set
 	 * @return A List<Concept> object containing all objects within the ConceptSet
 	 * @throws APIException
+	 * @should return members added to a nested set
+	 * @should not return members removed from a set
 	 */
 	@Authorized(PrivilegeConstants.GET_CONCEPTS)
 	public List<Concept> getConceptsByConceptSet(Concept concept) throws APIException;
 	
+	/**
+	 * Checks whether a concept is among the concepts returned by
+	 * {@link #getConceptsByConceptSet(Concept)} for the given set, without loading them
+	 * 
+	 * @param concept the possible member
+	 * @param conceptSet the concept representing the concept set
+	 * @return true if the concept is a member of the set or of a set within it
+	 * @throws APIException
+	 * @since 1.12
+	 * @should return true for a direct member
+	 * @should return true for a member of a nested set
+	 * @should return false for a concept that is not in the set
+	 */
+	@Authorized(PrivilegeConstants.GET_CONCEPTS)
+	public boolean isConceptInSet(Concept concept, Concept conceptSet) throws APIException;
+	
 	/**
 	 * Find all sets that the given concept is a member of
 	 * 
@@ -1113,15 +1138,131 @@ public interface ConceptService extends OpenmrsService {
 	public Integer getMaxConceptId();
 	
 	/**
-	 * Returns an iterator for all concepts, including retired and expired.
+	 * Returns an iterator for all concepts, including retired and expired. The concepts are read
+	 * from the database in batches of {@link OpenmrsConstants#GP_CONCEPT_ITERATOR_BATCH_SIZE}
+	 * together with their names, descriptions, answers and set members, and a batch is evicted from
+	 * the session once the iterator moves past it. Concepts that were in the session already are
+	 * left there.
 	 * 
 	 * @return the Iterator
 	 * @should start with the smallest concept id
 	 * @should iterate over all concepts
+	 * @should iterate over all concepts in order when the batch size is smaller than the dictionary
+	 * @should only evict the concepts it loaded itself
 	 */
 	@Authorized(PrivilegeConstants.GET_CONCEPTS)
 	public Iterator<Concept> conceptIterator();
 	
+	/**
+	 * Gets a read-only copy of the whole concept dictionary that is held in memory. The first call
+	 * reads it from the database, or it is read at startup if
+	 * {@link OpenmrsConstants#GP_CONCEPT_DICTIONARY_SNAPSHOT_LOAD_AT_STARTUP} is true. After that
+	 * only the concepts that were saved, retired or purged since the last call are read again once
+	 * the change is committed, and a new snapshot is returned with them replaced. Changes that are
+	 * not committed yet are not in the snapshot, not even for the transaction that made them.
+	 * Everything is read again once a change to a concept class or datatype is committed. While a
+	 * snapshot is loaded, {@link #getConceptByUuid(String)} and {@link #getConceptByName(String)}
+	 * use it to find the id of the concept.
+	 * 
+	 * @return the snapshot
+	 * @throws APIException
+	 * @since 1.12
+	 * @should contain all concepts
+	 * @should contain the preferred names datatype class and answers of a concept
+	 * @should contain saved concepts once they are committed
+	 * @should not contain changes that are not committed
+	 * @should not contain purged concepts
+	 * @should not change snapshots returned earlier
+	 */
+	@Authorized(PrivilegeConstants.GET_CONCEPTS)
+	public ConceptDictionarySnapshot getConceptDictionarySnapshot() throws APIException;
+	
+	/**
+	 * Marks concepts to be read again into the dictionary snapshot the next time
+	 * {@link #getConceptDictionarySnapshot()} is called, their mappings into the index used by
+	 * {@link #getConceptsByMapping(String, String, boolean)}, their set members into the closure
+	 * used by {@link #getConceptsByConceptSet(Concept)} and their names into the index used by
+	 * {@link #getConceptAutocompleteResults(String, Locale, int)}. Concepts saved through this service
+	 * are marked already, this is for changes made elsewhere, e.g. by other nodes sharing the
+	 * database.
+	 * 
+	 * @param conceptIds the ids of the changed concepts, or null if all concepts may have changed
+	 * @throws APIException
+	 * @since 1.12
+	 * @should read the given concepts again
+	 */
+	public void refreshConceptDictionarySnapshot(Collection<Integer> conceptIds) throws APIException;
+	
+	/**
+	 * Suggests concepts for what a user started typing, e.g. on every key pressed in a typeahead.
+	 * A concept is found if one of its names has a word starting with each of the typed words.
+	 * The names of all unretired concepts are held in memory, so unlike
+	 * {@link #getConcepts(String, List, boolean, List, List, List, List, Concept, Integer, Integer)}
+	 * this neither runs a full text query nor loads any concepts. Names starting with the whole
+	 * phrase come first, then preferred names, then shorter ones.
+	 * 
+	 * @param phrase what was typed
+	 * @param locale the locale of the names to search, names in just its language are searched as
+	 *            well
+	 * @param maxResults the maximum number of concepts to return
+	 * @return the ids and the preferred names in the locale of the concepts
+	 * @throws APIException
+	 * @since 1.12
+	 * @should find concepts by the beginning of any word of their names
+	 * @should return the preferred name as display name
+	 * @should find a concept saved after the index was read
+	 * @should not find retired concepts
+	 */
+	@Authorized(PrivilegeConstants.GET_CONCEPTS)
+	public List<AutocompleteResult> getConceptAutocompleteResults(String phrase, Locale locale, int maxResults)
+	        throws APIException;
+	
+	/**
+	 * Suggests drugs for what a user started typing, the same way
+	 * {@link #getConceptAutocompleteResults(String, Locale, int)} suggests concepts
+	 * 
+	 * @param phrase what was typed
+	 * @param maxResults the maximum number of drugs to return
+	 * @return the ids and names of the drugs
+	 * @throws APIException
+	 * @since 1.12
+	 * @should find drugs by the beginning of any word of their names
+	 * @should not find retired drugs
+	 */
+	@Authorized(PrivilegeConstants.GET_CONCEPTS)
+	public List<AutocompleteResult> getDrugAutocompleteResults(String phrase, int maxResults) throws APIException;
+	
+	/**
+	 * Marks drugs to be read again into the index used by
+	 * {@link #getDrugAutocompleteResults(String, int)}. Drugs saved through this service are marked
+	 * already, this is for changes made elsewhere, e.g. by other nodes sharing the database.
+	 * 
+	 * @param drugIds the ids of the changed drugs, or null if all drugs may have changed
+	 * @throws APIException
+	 * @since 1.12
+	 */
+	public void refreshDrugAutocompleteIndex(Collection<Integer> drugIds) throws APIException;
+	
+	/**
+	 * Inserts new concepts together with their names, descriptions and mappings using batched
+	 * statements, as done by the {@link org.openmrs.dictionary.ConceptDictionaryImporter}. Unlike
+	 * {@link #saveConcept(Concept)} this neither validates the concepts nor runs the save handlers
+	 * nor updates the search index, the concepts must be valid and the index has to be updated once
+	 * all of them are in. The reference terms of the mappings are looked up by their source and code,
+	 * the ones that do not exist yet are created.
+	 * 
+	 * @param concepts the new concepts
+	 * @return the concepts that were skipped because a concept with the same uuid or one of the same
+	 *         fully specified or preferred names exists already
+	 * @throws APIException
+	 * @since 1.12
+	 * @should insert concepts with their names descriptions and mappings
+	 * @should skip concepts with an existing uuid or fully specified name
+	 * @should reuse existing reference terms
+	 */
+	@Authorized(PrivilegeConstants.MANAGE_CONCEPTS)
+	public List<Concept> importConcepts(List<Concept> concepts) throws APIException;
+	
 	/**
 	 * Looks up a concept via {@link ConceptMap} This will return the {@link Concept} which contains
 	 * a {@link ConceptMap} entry whose <code>sourceCode</code> is equal to the passed
@@ -1206,6 +1347,10 @@ public interface ConceptService extends OpenmrsService {
 	 * @should get concepts with given code and source name
 	 * @should return empty list if source code does not exist
 	 * @should return empty list if mapping does not exist
+	 * @should return concepts mapped after the first lookup
+	 * @should not return concepts whose mapping was removed
+	 * @should find concepts by the new code of a changed term
+	 * @should ignore the case of the code and source
 	 * @since 1.8
 	 */
 	@Authorized(PrivilegeConstants.GET_CONCEPTS)
@@ -1339,6 +1484,7 @@ public interface ConceptService extends OpenmrsService {
 	 * @should not return concepts with matching names that are voided
 	 * @should return preferred names higher
 	 * @should find concept by full code
+	 * @should find a concept saved after the same search was cached
 	 * @since 1.8
 	 */
 	@Authorized(PrivilegeConstants.GET_CONCEPTS)
@@ -1469,6 +1615,31 @@ public interface ConceptService extends OpenmrsService {
 	public List<Drug> getDrugs(String drugName, Concept concept, boolean searchKeywords, boolean searchDrugConceptNames,
 	        boolean includeRetired, Integer start, Integer length) throws APIException;
 	
+	/**
+	 * Does what {@link #getDrugs(String, Concept, boolean, boolean, boolean, Integer, Integer)} and
+	 * {@link #getCountOfDrugs(String, Concept, boolean, boolean, boolean)} do with a single query,
+	 * e.g. for a page of search results that shows the total number of matches
+	 * 
+	 * @param drugName the name of the drug
+	 * @param concept the drug concept
+	 * @param searchKeywords Specifies whether the search should match keywords or just phrase
+	 * @param searchDrugConceptNames Specifies whether a search on concept names for the drug's
+	 *            concept should be done or not
+	 * @param includeRetired specifies whether to include retired drugs
+	 * @param start beginning index for the batch
+	 * @param length number of drugs to return in the batch
+	 * @return the batch of matching drugs, together with the number of all matching drugs
+	 * @throws APIException
+	 * @since 1.12
+	 * @should return a page of drugs and the total number of matches
+	 * @should find drugs by the names of their concepts
+	 * @should find drugs by a concept name saved after the drug
+	 * @should not find drugs by voided concept names
+	 */
+	@Authorized(PrivilegeConstants.GET_CONCEPTS)
+	public ListPart<Drug> getDrugsPart(String drugName, Concept concept, boolean searchKeywords,
+	        boolean searchDrugConceptNames, boolean includeRetired, Integer start, Integer length) throws APIException;
+	
 	/**
 	 * Gets the list of <code>ConceptStopWord</code> for given locale
 	 * 
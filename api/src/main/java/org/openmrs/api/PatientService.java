@@ -16,6 +16,7 @@ package org.openmrs.api;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.openmrs.Concept;
@@ -29,6 +30,8 @@ import org.openmrs.activelist.Problem;
 import org.openmrs.annotation.Authorized;
 import org.openmrs.api.db.PatientDAO;
 import org.openmrs.comparator.PatientIdentifierTypeDefaultComparator;
+import org.openmrs.patient.DuplicatePatientDetector;
+import org.openmrs.patient.DuplicatePatientRecord;
 import org.openmrs.patient.IdentifierValidator;
 import org.openmrs.person.PersonMergeLogData;
 import org.openmrs.serialization.SerializationException;
@@ -621,10 +624,59 @@ public interface PatientService extends OpenmrsService {
 	 * @throws APIException
 	 * @should fetch patients that exactly match on all given attributes
 	 * @should not return patients that exactly match on some but not all given attributes
+	 * @should not return voided patients unless includeVoided is given
 	 */
 	@Authorized( { PrivilegeConstants.VIEW_PATIENTS })
 	public List<Patient> getDuplicatePatientsByAttributes(List<String> attributes) throws APIException;
 	
+	/**
+	 * Gets the ids of unvoided patients in ascending order, a page at a time, as used by the
+	 * {@link DuplicatePatientDetector}
+	 * 
+	 * @param changedSince if not null, only patients that were created or changed since then,
+	 *            including their names and identifiers
+	 * @param afterPatientId if not null, only ids greater than this one, i.e. the last id of the
+	 *            previous page
+	 * @param maxResults the maximum number of ids
+	 * @return the patient ids
+	 * @throws APIException
+	 * @since 1.12
+	 * @should return the ids after the given id
+	 * @should only return patients changed since the given date
+	 */
+	@Authorized( { PrivilegeConstants.VIEW_PATIENTS })
+	public List<Integer> getPatientIds(Date changedSince, Integer afterPatientId, int maxResults) throws APIException;
+	
+	/**
+	 * Gets what the {@link DuplicatePatientDetector} compares of the given patients, without
+	 * loading the patients themselves
+	 * 
+	 * @param patientIds the ids of the patients
+	 * @return the records of the patients, with their unvoided names and identifiers
+	 * @throws APIException
+	 * @since 1.12
+	 * @should return the names and identifiers of the patients
+	 */
+	@Authorized( { PrivilegeConstants.VIEW_PATIENTS })
+	public List<DuplicatePatientRecord> getDuplicatePatientRecords(Collection<Integer> patientIds) throws APIException;
+	
+	/**
+	 * Gets the unvoided patients that share a blocking key with any of the given records, see
+	 * {@link DuplicatePatientRecord#getBlockingKeys()}. The keys are looked up in the database
+	 * with the indexed phonetic keys of the names, the birthdate and the start of the identifiers.
+	 * The parts of a name key are only matched together, the identifier lookup returns some
+	 * patients that do not share a key as well.
+	 * 
+	 * @param records the patients to find candidates for
+	 * @return the ids of the candidates, including the given patients
+	 * @throws APIException
+	 * @since 1.12
+	 * @should return patients sharing a blocking key
+	 * @should only match the given and family name keys of the same name
+	 */
+	@Authorized( { PrivilegeConstants.VIEW_PATIENTS })
+	public Set<Integer> getDuplicatePatientCandidateIds(Collection<DuplicatePatientRecord> records) throws APIException;
+	
 	/**
 	 * Convenience method to join two patients' information into one record.
 	 * <ol>
@@ -699,6 +751,52 @@ public interface PatientService extends OpenmrsService {
 	 */
 	public void mergePatients(Patient preferred, List<Patient> notPreferred) throws APIException, SerializationException;
 	
+	/**
+	 * Joins two patients' information into one record like {@link #mergePatients(Patient, Patient)},
+	 * for patients with a lot of data. The visits, encounters, observations and orders of
+	 * <code>notPreferred</code> are moved with bulk updates, a chunk of rows per statement, instead
+	 * of being saved one by one. The observations of encounters are moved in place, the merge log
+	 * records the ids of the moved rows in a compact form, see
+	 * {@link PersonMergeLogData#getMovedObservationIds()}. The unvoided observations that are not
+	 * part of an encounter are voided and copied to <code>preferred</code> like in a regular merge,
+	 * see {@link PersonMergeLogData#getMovedIndependentObservations()}.<br/>
+	 * <br/>
+	 * Visits, encounters, observations and orders that were loaded before are removed from the
+	 * session, they have to be fetched again to see their new patient.
+	 * 
+	 * @param preferred The Patient to merge to
+	 * @param notPreferred The Patient to merge from (and then void)
+	 * @throws APIException
+	 * @throws SerializationException
+	 * @since 1.12
+	 * @should move visits encounters observations and orders to preferred patient
+	 * @should not move voided observations that are not part of an encounter
+	 * @should void and copy observations that are not part of an encounter
+	 * @should audit the ids of the moved rows
+	 * @should merge names and identifiers like a regular merge
+	 * @should void non preferred patient
+	 * @should not merge the same patient to itself
+	 * @should fail if not preferred patient has unvoided orders
+	 */
+	@Authorized( { PrivilegeConstants.EDIT_PATIENTS })
+	public void mergePatientsInBulk(Patient preferred, Patient notPreferred) throws APIException, SerializationException;
+	
+	/**
+	 * Merges a batch of duplicates with {@link #mergePatientsInBulk(Patient, Patient)} in one
+	 * transaction. The batch is checked before anything is merged: a patient that is merged into
+	 * another one can not be merged twice or have patients merged into it.
+	 * 
+	 * @param duplicates the preferred patients with the patients to merge into them
+	 * @throws APIException
+	 * @throws SerializationException
+	 * @since 1.12
+	 * @should merge all pairs of the batch
+	 * @should fail if a not preferred patient is merged twice
+	 * @should fail if a not preferred patient is also a preferred patient
+	 */
+	@Authorized( { PrivilegeConstants.EDIT_PATIENTS })
+	public void mergePatientsInBulk(Map<Patient, List<Patient>> duplicates) throws APIException, SerializationException;
+	
 	/**
 	 * @deprecated as of 1.10 and moved to exit from care module. This method is no longer supported
 	 *             because previously the patient's active orders would get discontinued in the
@@ -251,6 +251,7 @@ public interface PersonService extends OpenmrsService {
 	 * @should return voided person with given reason
 	 * @should void patient
 	 * @should retire users
+	 * @should leave the voided patient out of patient searches
 	 */
 	@Authorized( { PrivilegeConstants.EDIT_PERSONS })
 	public Person voidPerson(Person person, String reason) throws APIException;
@@ -1076,6 +1077,24 @@ public interface PersonService extends OpenmrsService {
 	@Authorized( { PrivilegeConstants.EDIT_PERSONS })
 	public PersonAddress savePersonAddress(PersonAddress personAddress);
 	
+	/**
+	 * Computes the phonetic keys of person names that do not have them yet, i.e. names that were
+	 * created before the keys were introduced or that were written to the database directly. A
+	 * name without keys is not found by {@link #getSimilarPeople(String, Integer, String)}. This is
+	 * done by the "Update Person Name Phonetic Keys" task, names get their keys automatically when
+	 * they are saved.
+	 * 
+	 * @param batchSize the maximum number of names to update
+	 * @return the number of names that were updated, less than batchSize once all names have keys
+	 * @throws APIException
+	 * @see PersonName#updatePhoneticKeys()
+	 * @since 1.12
+	 * @should set the phonetic keys of names without keys
+	 * @should not update more names than the batch size
+	 */
+	@Authorized( { PrivilegeConstants.EDIT_PERSONS })
+	public int updatePersonNamePhoneticKeys(int batchSize) throws APIException;
+	
 	/**
 	 * Check if the person attribute types are locked, and if they are throws an exception during manipulation of a person attribute type
 	 * 
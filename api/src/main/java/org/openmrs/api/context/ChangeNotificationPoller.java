@@ -0,0 +1,108 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.context;
+
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.util.OpenmrsConstants;
+import org.openmrs.util.PrivilegeConstants;
+
+/**
+ * Periodically calls {@link org.openmrs.api.AdministrationService#processChangeNotifications()} so
+ * that changes made by other nodes sharing the database reach the caches of this node. Started by
+ * {@link Context#startup(java.util.Properties)} and stopped by {@link Context#shutdown()}. The
+ * changes are processed as the daemon user, since the global property listeners they call may
+ * change anything.
+ * 
+ * @since 1.12
+ */
+class ChangeNotificationPoller extends TimerTask {
+	
+	private static final Log log = LogFactory.getLog(ChangeNotificationPoller.class);
+	
+	private static final int DEFAULT_POLL_INTERVAL = 0;
+	
+	private static Timer timer;
+	
+	/**
+	 * Starts polling at the interval set by
+	 * {@link OpenmrsConstants#GP_CHANGE_NOTIFICATION_POLL_INTERVAL}, if it is set. Requires an open
+	 * session.
+	 */
+	static synchronized void start() {
+		stop();
+		
+		int interval = DEFAULT_POLL_INTERVAL;
+		String value = Context.getAdministrationService().getGlobalProperty(
+		    OpenmrsConstants.GP_CHANGE_NOTIFICATION_POLL_INTERVAL);
+		if (value != null) {
+			try {
+				interval = Integer.parseInt(value.trim());
+			}
+			catch (NumberFormatException e) {
+				log.warn("Invalid value for " + OpenmrsConstants.GP_CHANGE_NOTIFICATION_POLL_INTERVAL + ": " + value);
+			}
+		}
+		
+		if (interval > 0) {
+			// the first run marks the starting point, so do it right away
+			try {
+				Context.addProxyPrivilege(PrivilegeConstants.MANAGE_CHANGE_NOTIFICATIONS);
+				Context.getAdministrationService().processChangeNotifications();
+			}
+			finally {
+				Context.removeProxyPrivilege(PrivilegeConstants.MANAGE_CHANGE_NOTIFICATIONS);
+			}
+			
+			log.info("Polling for changes made by other nodes every " + interval + " seconds");
+			timer = new Timer("ChangeNotificationPoller", true);
+			timer.schedule(new ChangeNotificationPoller(), interval * 1000L, interval * 1000L);
+		}
+	}
+	
+	/**
+	 * Stops polling, if it was started
+	 */
+	static synchronized void stop() {
+		if (timer != null) {
+			timer.cancel();
+			timer = null;
+		}
+	}
+	
+	/**
+	 * @see java.util.TimerTask#run()
+	 */
+	@Override
+	public void run() {
+		Daemon.isDaemonThread.set(true);
+		try {
+			Context.openSession();
+			int count = Context.getAdministrationService().processChangeNotifications();
+			if (count > 0 && log.isDebugEnabled()) {
+				log.debug("Processed " + count + " changes made by other nodes");
+			}
+		}
+		catch (Exception e) {
+			log.warn("Unable to process changes made by other nodes", e);
+		}
+		finally {
+			Context.closeSession();
+			Daemon.isDaemonThread.remove();
+		}
+	}
+}
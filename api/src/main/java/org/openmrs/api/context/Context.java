@@ -32,6 +32,7 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.openmrs.GlobalProperty;
+import org.openmrs.OpenmrsObject;
 import org.openmrs.Privilege;
 import org.openmrs.Role;
 import org.openmrs.User;
@@ -59,6 +60,7 @@ import org.openmrs.api.SerializationService;
 import org.openmrs.api.UserService;
 import org.openmrs.api.VisitService;
 import org.openmrs.api.db.ContextDAO;
+import org.openmrs.api.db.SearchIndexProgress;
 import org.openmrs.arden.ArdenService;
 import org.openmrs.hl7.HL7Service;
 import org.openmrs.logic.LogicService;
@@ -84,6 +86,7 @@ import org.openmrs.util.OpenmrsClassLoader;
 import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.OpenmrsUtil;
 import org.openmrs.util.PrivilegeConstants;
+import org.openmrs.util.QueryProfiler;
 import org.springframework.aop.Advisor;
 import org.springframework.context.support.AbstractApplicationContext;
 import org.springframework.context.support.ClassPathXmlApplicationContext;
@@ -765,6 +768,7 @@ public class Context {
 		setUserContext(new UserContext()); // must be cleared out in
 		// closeSession()
 		getContextDAO().openSession();
+		QueryProfiler.start(Thread.currentThread().getName());
 	}
 	
 	/**
@@ -773,6 +777,7 @@ public class Context {
 	 */
 	public static void closeSession() {
 		log.trace("closing session");
+		QueryProfiler.stop();
 		clearUserContext(); // because we set a UserContext on the current
 		// thread in openSession()
 		getContextDAO().closeSession();
@@ -880,6 +885,20 @@ public class Context {
 		checkCoreDataset();
 		
 		getContextDAO().setupSearchIndex();
+		
+		if (Boolean.valueOf(getAdministrationService().getGlobalProperty(
+		    OpenmrsConstants.GP_CONCEPT_DICTIONARY_SNAPSHOT_LOAD_AT_STARTUP))) {
+			try {
+				addProxyPrivilege(PrivilegeConstants.GET_CONCEPTS);
+				getConceptService().getConceptDictionarySnapshot();
+			}
+			finally {
+				removeProxyPrivilege(PrivilegeConstants.GET_CONCEPTS);
+			}
+		}
+		
+		// keep the caches of this node in sync with the other nodes sharing the database
+		ChangeNotificationPoller.start();
 	}
 	
 	/**
@@ -931,6 +950,8 @@ public class Context {
 	 * closing
 	 */
 	public static void shutdown() {
+		ChangeNotificationPoller.stop();
+		
 		log.debug("Shutting down the scheduler");
 		try {
 			// Needs to be shutdown before Hibernate
@@ -1366,6 +1387,53 @@ public class Context {
 		getContextDAO().updateSearchIndex();
 	}
 	
+	/**
+	 * Tells how far the current or last rebuild of the whole search index got, i.e. the one started
+	 * by {@link #updateSearchIndex()} or at startup.
+	 * 
+	 * @return the progress of the rebuild
+	 * @since 1.12
+	 */
+	public static SearchIndexProgress getSearchIndexProgress() {
+		return getContextDAO().getSearchIndexProgress();
+	}
+	
+	/**
+	 * Tells whether the search index changed, e.g. before results that were found in it are reused.
+	 * The version grows with every update of the index, its value has no other meaning.
+	 * 
+	 * @return the current version of the search index
+	 * @since 1.12
+	 */
+	public static long getSearchIndexVersion() {
+		return getContextDAO().getSearchIndexVersion();
+	}
+	
+	/**
+	 * Queues an update of the search index for the given object. It is applied in the background
+	 * together with other updates once the current transaction commits, and dropped if it rolls
+	 * back. Searches in the current transaction do not find the changes of the object yet.
+	 * 
+	 * @param object the object to index, one of the
+	 *            {@link org.openmrs.api.db.hibernate.search.SearchIndexUpdateQueue#QUEUED_TYPES}
+	 * @see #flushSearchIndexUpdates()
+	 * @since 1.12
+	 */
+	public static void queueSearchIndexUpdate(OpenmrsObject object) {
+		getContextDAO().queueSearchIndexUpdate(object);
+	}
+	
+	/**
+	 * Waits until the search index updates of committed transactions are applied, e.g. before a
+	 * test checks the index. The updates of the current transaction are left until it commits.
+	 * 
+	 * @see #queueSearchIndexUpdate(OpenmrsObject)
+	 * @since 1.12
+	 */
+	public static void flushSearchIndexUpdates() {
+		getContextDAO().flushSearchIndexUpdates();
+	}
+	
 	/**
 	 * Updates the search index for objects of the given type.
 	 * 
@@ -21,6 +21,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.aopalliance.aop.Advice;
 import org.apache.commons.logging.Log;
@@ -86,7 +87,11 @@ public class ServiceContext implements ApplicationContextAware {
 	
 	private ApplicationContext applicationContext;
 	
-	private static boolean refreshingContext = false;
+	/**
+	 * Volatile so that {@link #getService(Class)} can check it without taking
+	 * {@link #refreshingContextLock}; the lock is only entered while a refresh is in progress
+	 */
+	private static volatile boolean refreshingContext = false;
 	
 	private static final Object refreshingContextLock = new Object();
 	
@@ -96,9 +101,9 @@ public class ServiceContext implements ApplicationContextAware {
 	 */
 	private boolean useSystemClassLoader = false;
 	
-	// Cached service objects
+	// Cached service objects, read concurrently and without locking by getService
 	@SuppressWarnings("unchecked")
-	Map<Class, Object> services = new HashMap<Class, Object>();
+	Map<Class, Object> services = new ConcurrentHashMap<Class, Object>();
 	
 	// Advisors added to services by this service
 	@SuppressWarnings("unchecked")
@@ -578,7 +583,7 @@ public class ServiceContext implements ApplicationContextAware {
 	 */
 	@SuppressWarnings("unchecked")
 	public void addAdvisor(Class cls, Advisor advisor) {
-		Advised advisedService = (Advised) services.get(cls);
+		Advised advisedService = (Advised) getCachedService(cls);
 		if (advisedService.indexOf(advisor) < 0) {
 			advisedService.addAdvisor(advisor);
 		}
@@ -594,7 +599,7 @@ public class ServiceContext implements ApplicationContextAware {
 	 */
 	@SuppressWarnings("unchecked")
 	public void addAdvice(Class cls, Advice advice) {
-		Advised advisedService = (Advised) services.get(cls);
+		Advised advisedService = (Advised) getCachedService(cls);
 		if (advisedService.indexOf(advice) < 0) {
 			advisedService.addAdvice(advice);
 		}
@@ -610,7 +615,7 @@ public class ServiceContext implements ApplicationContextAware {
 	 */
 	@SuppressWarnings("unchecked")
 	public void removeAdvisor(Class cls, Advisor advisor) {
-		Advised advisedService = (Advised) services.get(cls);
+		Advised advisedService = (Advised) getCachedService(cls);
 		advisedService.removeAdvisor(advisor);
 		getAddedAdvisors(cls).remove(advisor);
 	}
@@ -621,7 +626,7 @@ public class ServiceContext implements ApplicationContextAware {
 	 */
 	@SuppressWarnings("unchecked")
 	public void removeAdvice(Class cls, Advice advice) {
-		Advised advisedService = (Advised) services.get(cls);
+		Advised advisedService = (Advised) getCachedService(cls);
 		advisedService.removeAdvice(advice);
 		getAddedAdvice(cls).remove(advice);
 	}
@@ -666,7 +671,7 @@ public class ServiceContext implements ApplicationContextAware {
 	 */
 	@SuppressWarnings("unchecked")
 	private void removeAddedAdvisors(Class cls) {
-		Advised advisedService = (Advised) services.get(cls);
+		Advised advisedService = (Advised) getCachedService(cls);
 		Set<Advisor> advisorsToRemove = addedAdvisors.get(cls);
 		if (advisedService != null && advisorsToRemove != null) {
 			for (Advisor advisor : advisorsToRemove.toArray(new Advisor[] {})) {
@@ -694,7 +699,7 @@ public class ServiceContext implements ApplicationContextAware {
 	 */
 	@SuppressWarnings("unchecked")
 	private void removeAddedAdvice(Class cls) {
-		Advised advisedService = (Advised) services.get(cls);
+		Advised advisedService = (Advised) getCachedService(cls);
 		Set<Advice> adviceToRemove = addedAdvice.get(cls);
 		if (advisedService != null && adviceToRemove != null) {
 			for (Advice advice : adviceToRemove.toArray(new Advice[] {})) {
@@ -728,28 +733,31 @@ public class ServiceContext implements ApplicationContextAware {
 		}
 		
 		// if the context is refreshing, wait until it is
-		// done -- otherwise a null service might be returned
-		synchronized (refreshingContextLock) {
-			try {
-				while (refreshingContext) {
-					if (log.isDebugEnabled()) {
-						log.debug("Waiting to get service: " + cls + " while the context is being refreshed");
+		// done -- otherwise a null service might be returned. The flag is volatile
+		// so the lock is only taken while a refresh is actually in progress
+		if (refreshingContext) {
+			synchronized (refreshingContextLock) {
+				try {
+					while (refreshingContext) {
+						if (log.isDebugEnabled()) {
+							log.debug("Waiting to get service: " + cls + " while the context is being refreshed");
+						}
+						
+						refreshingContextLock.wait();
+						
+						if (log.isDebugEnabled()) {
+							log.debug("Finished waiting to get service " + cls + " while the context was being refreshed");
+						}
 					}
 					
-					refreshingContextLock.wait();
-					
-					if (log.isDebugEnabled()) {
-						log.debug("Finished waiting to get service " + cls + " while the context was being refreshed");
-					}
 				}
-				
-			}
-			catch (InterruptedException e) {
-				log.warn("Refresh lock was interrupted", e);
+				catch (InterruptedException e) {
+					log.warn("Refresh lock was interrupted", e);
+				}
 			}
 		}
 		
-		Object service = services.get(cls);
+		Object service = getCachedService(cls);
 		if (service == null) {
 			throw new APIException("Service not found: " + cls);
 		}
@@ -757,6 +765,18 @@ public class ServiceContext implements ApplicationContextAware {
 		return (T) service;
 	}
 	
+	/**
+	 * The services map does not accept null keys, this returns null for them like the HashMap it
+	 * replaced did
+	 *
+	 * @param cls the interface of a service
+	 * @return the cached service or null
+	 */
+	@SuppressWarnings("unchecked")
+	private Object getCachedService(Class cls) {
+		return cls == null ? null : services.get(cls);
+	}
+	
 	/**
 	 * Allow other services to be added to our service layer
 	 *
@@ -924,9 +944,7 @@ public class ServiceContext implements ApplicationContextAware {
 	 *         doneRefreshingContext()
 	 */
 	public boolean isRefreshingContext() {
-		synchronized (refreshingContextLock) {
-			return refreshingContext;
-		}
+		return refreshingContext;
 	}
 	
 	/**
@@ -14,16 +14,20 @@
 package org.openmrs.api.context;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.openmrs.Location;
+import org.openmrs.Privilege;
 import org.openmrs.Role;
 import org.openmrs.User;
 import org.openmrs.api.APIAuthenticationException;
@@ -80,6 +84,34 @@ public class UserContext implements Serializable {
 	 */
 	private Integer locationId;
 	
+	/**
+	 * Incremented whenever roles or privileges are changed through the UserService. Every
+	 * UserContext compares its cached privileges against this to know when to rebuild them
+	 */
+	private static final AtomicLong privilegesVersion = new AtomicLong();
+	
+	/**
+	 * Incremented whenever the user in this context changes
+	 */
+	private volatile int userVersion = 0;
+	
+	/**
+	 * Incremented whenever a proxy privilege is added or removed
+	 */
+	private volatile int proxiesVersion = 0;
+	
+	/**
+	 * Privileges granted by the anonymous role and, if authenticated, by the user's (inherited)
+	 * roles and the authenticated role
+	 */
+	private transient volatile PrivilegeClosure rolePrivileges = null;
+	
+	/**
+	 * {@link #rolePrivileges} plus the current proxy privileges, this is what
+	 * {@link #hasPrivilege(String)} checks against
+	 */
+	private transient volatile PrivilegeClosure privileges = null;
+	
 	/**
 	 * Default public constructor
 	 */
@@ -102,6 +134,7 @@ public class UserContext implements Serializable {
 		}
 		
 		this.user = contextDAO.authenticate(username, password);
+		userChanged();
 		setUserLocation();
 		if (log.isDebugEnabled()) {
 			log.debug("Authenticated as: " + this.user);
@@ -124,6 +157,7 @@ public class UserContext implements Serializable {
 		
 		if (user != null) {
 			user = Context.getUserService().getUser(user.getUserId());
+			userChanged();
 			//update the stored location in the user's session
 			setUserLocation();
 		}
@@ -164,6 +198,7 @@ public class UserContext implements Serializable {
 		}
 		
 		this.user = userToBecome;
+		userChanged();
 		//update the user's location
 		setUserLocation();
 		
@@ -196,6 +231,7 @@ public class UserContext implements Serializable {
 	public void logout() {
 		log.debug("setting user to null on logout");
 		user = null;
+		userChanged();
 	}
 	
 	/**
@@ -220,6 +256,7 @@ public class UserContext implements Serializable {
 		}
 		
 		proxies.add(privilege);
+		proxiesChanged();
 	}
 	
 	/**
@@ -234,6 +271,7 @@ public class UserContext implements Serializable {
 		
 		if (proxies.contains(privilege)) {
 			proxies.remove(privilege);
+			proxiesChanged();
 		}
 	}
 	
@@ -308,37 +346,143 @@ public class UserContext implements Serializable {
 	 */
 	public boolean hasPrivilege(String privilege) {
 		
-		// if a user has logged in, check their privileges
-		if (isAuthenticated()) {
-			
-			// check user's privileges
-			if (getAuthenticatedUser().hasPrivilege(privilege) || getAuthenticatedRole().hasPrivilege(privilege)) {
-				Context.getUserService().notifyPrivilegeListeners(getAuthenticatedUser(), privilege, true);
-				return true;
+		boolean hasPrivilege;
+		
+		// all authenticated users have the "" (empty) privilege
+		if (isAuthenticated() && StringUtils.isEmpty(privilege)) {
+			hasPrivilege = true;
+		} else {
+			hasPrivilege = getPrivileges().contains(privilege);
+		}
+		
+		Context.getUserService().notifyPrivilegeListeners(getAuthenticatedUser(), privilege, hasPrivilege);
+		return hasPrivilege;
+	}
+	
+	/**
+	 * Makes every UserContext rebuild its privileges on the next privilege check. This should be
+	 * called whenever a user, role or privilege is saved or deleted.
+	 *
+	 * @since 1.12
+	 */
+	public static void invalidatePrivileges() {
+		privilegesVersion.incrementAndGet();
+	}
+	
+	/**
+	 * Gets the flattened privileges of this context, rebuilding them if the user, the proxy
+	 * privileges or any role or privilege changed since they were last built
+	 *
+	 * @return the current privileges
+	 */
+	private PrivilegeClosure getPrivileges() {
+		PrivilegeClosure fromRoles = getRolePrivileges();
+		int currentProxiesVersion = proxiesVersion;
+		
+		PrivilegeClosure closure = privileges;
+		if (closure == null || !closure.isCurrent(fromRoles.version, fromRoles.userVersion, currentProxiesVersion)) {
+			List<String> proxied = new ArrayList<String>(proxies);
+			if (log.isDebugEnabled()) {
+				log.debug("Rebuilding privileges with proxies: " + proxied);
 			}
 			
+			Set<String> names = fromRoles.names;
+			if (!proxied.isEmpty()) {
+				names = new HashSet<String>(names);
+				names.addAll(proxied);
+			}
+			closure = new PrivilegeClosure(fromRoles.version, fromRoles.userVersion, currentProxiesVersion,
+			        fromRoles.superUser, names);
+			privileges = closure;
 		}
 		
-		if (log.isDebugEnabled()) {
-			log.debug("Checking '" + privilege + "' against proxies: " + proxies);
-		}
+		return closure;
+	}
+	
+	/**
+	 * Gets the privileges granted by the roles of this context, rebuilding them if the user or any
+	 * role or privilege changed since they were last built
+	 *
+	 * @return the privileges granted by roles
+	 */
+	private PrivilegeClosure getRolePrivileges() {
+		long currentVersion = privilegesVersion.get();
+		int currentUserVersion = userVersion;
 		
-		// check proxied privileges
-		for (String s : proxies) {
-			if (s.equals(privilege)) {
-				Context.getUserService().notifyPrivilegeListeners(getAuthenticatedUser(), privilege, true);
-				return true;
+		PrivilegeClosure closure = rolePrivileges;
+		if (closure == null || !closure.isCurrent(currentVersion, currentUserVersion, 0)) {
+			Set<Role> roles = new HashSet<Role>();
+			roles.add(getAnonymousRole());
+			User authenticatedUser = getAuthenticatedUser();
+			if (authenticatedUser != null) {
+				roles.addAll(authenticatedUser.getAllRoles());
+				roles.add(getAuthenticatedRole());
+			}
+			
+			boolean superUser = false;
+			Set<String> names = new HashSet<String>();
+			for (Role role : roles) {
+				if (RoleConstants.SUPERUSER.equals(role.getRole())) {
+					superUser = true;
+				}
+				if (role.getPrivileges() != null) {
+					for (Privilege privilege : role.getPrivileges()) {
+						names.add(privilege.getPrivilege());
+					}
+				}
 			}
+			
+			closure = new PrivilegeClosure(currentVersion, currentUserVersion, 0, superUser, names);
+			rolePrivileges = closure;
+		}
+		
+		return closure;
+	}
+	
+	/**
+	 * Drops the privileges of this context after the user changed
+	 */
+	private synchronized void userChanged() {
+		userVersion++;
+	}
+	
+	/**
+	 * Drops the privileges of this context after a proxy privilege was added or removed
+	 */
+	private synchronized void proxiesChanged() {
+		proxiesVersion++;
+	}
+	
+	/**
+	 * Immutable, flattened set of privilege names together with the versions it was built from
+	 */
+	private static final class PrivilegeClosure {
+		
+		private final long version;
+		
+		private final int userVersion;
+		
+		private final int proxiesVersion;
+		
+		private final boolean superUser;
+		
+		private final Set<String> names;
+		
+		PrivilegeClosure(long version, int userVersion, int proxiesVersion, boolean superUser, Set<String> names) {
+			this.version = version;
+			this.userVersion = userVersion;
+			this.proxiesVersion = proxiesVersion;
+			this.superUser = superUser;
+			this.names = Collections.unmodifiableSet(names);
 		}
 		
-		if (getAnonymousRole().hasPrivilege(privilege)) {
-			Context.getUserService().notifyPrivilegeListeners(getAuthenticatedUser(), privilege, true);
-			return true;
+		boolean isCurrent(long version, int userVersion, int proxiesVersion) {
+			return this.version == version && this.userVersion == userVersion && this.proxiesVersion == proxiesVersion;
 		}
 		
-		// default return value
-		Context.getUserService().notifyPrivilegeListeners(getAuthenticatedUser(), privilege, false);
-		return false;
+		boolean contains(String privilege) {
+			return superUser || names.contains(privilege);
+		}
 	}
 	
 	/**
@@ -14,8 +14,10 @@
 package org.openmrs.api.db;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
+import org.openmrs.ChangeNotification;
 import org.openmrs.GlobalProperty;
 import org.openmrs.OpenmrsObject;
 import org.openmrs.reporting.AbstractReportObject;
@@ -152,4 +154,43 @@ public interface AdministrationDAO {
 	 * @see org.openmrs.api.AdministrationService#validate(Object, Errors)
 	 */
 	public void validate(Object object, Errors errors) throws DAOException;
+	
+	/**
+	 * Saves a notification about a change that other nodes need to know about
+	 * 
+	 * @param changeNotification the notification to save
+	 * @return the saved notification
+	 * @since 1.12
+	 */
+	public ChangeNotification saveChangeNotification(ChangeNotification changeNotification) throws DAOException;
+	
+	/**
+	 * @param changeNotificationId the id to start after
+	 * @return all notifications with an id greater than the given one, ordered by id
+	 * @since 1.12
+	 */
+	public List<ChangeNotification> getChangeNotificationsAfter(Integer changeNotificationId) throws DAOException;
+	
+	/**
+	 * @return the highest change notification id, or 0 if there are none
+	 * @since 1.12
+	 */
+	public Integer getLatestChangeNotificationId() throws DAOException;
+	
+	/**
+	 * Deletes all notifications that were created before the given date
+	 * 
+	 * @param date the date
+	 * @return the number of deleted notifications
+	 * @since 1.12
+	 */
+	public int deleteChangeNotificationsBefore(Date date) throws DAOException;
+	
+	/**
+	 * Evicts all instances of the given class from the second level cache
+	 * 
+	 * @param type the mapped class
+	 * @since 1.12
+	 */
+	public void evictFromSecondLevelCache(Class<?> type) throws DAOException;
 }
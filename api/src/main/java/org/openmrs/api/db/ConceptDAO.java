@@ -40,7 +40,9 @@ import org.openmrs.ConceptStopWord;
 import org.openmrs.Drug;
 import org.openmrs.DrugIngredient;
 import org.openmrs.api.APIException;
+import org.openmrs.api.ConceptDictionarySnapshot;
 import org.openmrs.api.ConceptService;
+import org.openmrs.collection.ListPart;
 
 /**
  * Concept-related database functions
@@ -91,6 +93,15 @@ public interface ConceptDAO {
 	 */
 	public ConceptName getConceptName(Integer conceptNameId) throws DAOException;
 	
+	/**
+	 * Loads the given concept names together with their concepts
+	 * 
+	 * @param conceptNameIds the ids of the concept names
+	 * @return the concept names that exist, in no particular order
+	 * @since 1.12
+	 */
+	public List<ConceptName> getConceptNames(Collection<Integer> conceptNameIds) throws DAOException;
+	
 	/**
 	 * @see org.openmrs.api.ConceptService#getAllConcepts(java.lang.String, boolean, boolean)
 	 */
@@ -324,9 +335,73 @@ public interface ConceptDAO {
 	public Integer getMaxConceptId();
 	
 	/**
+	 * Returns an iterator for the concepts with ids in the given range, including retired ones. The
+	 * concepts are read from the database in batches, the previous batch is evicted from the
+	 * session when the next one is read.
+	 * 
+	 * @param fromConceptId the lowest concept id to return, null to start with the first concept
+	 * @param toConceptId the highest concept id to return, null to end with the last concept
+	 * @param batchSize the number of concepts read at a time
+	 * @return the Iterator
 	 * @see org.openmrs.api.ConceptService#conceptIterator()
+	 * @since 1.12
+	 */
+	public Iterator<Concept> conceptIterator(Integer fromConceptId, Integer toConceptId, int batchSize);
+	
+	/**
+	 * Reads what a {@link ConceptDictionarySnapshot} holds about the given concepts. Only committed
+	 * changes are read, changes made in the current transaction are not seen.
+	 * 
+	 * @param conceptIds the ids of the concepts to read, or null to read all concepts
+	 * @return the entries of the concepts that exist
+	 * @throws DAOException
+	 * @since 1.12
+	 */
+	public List<ConceptDictionarySnapshot.Entry> getConceptDictionarySnapshotEntries(Collection<Integer> conceptIds)
+	        throws DAOException;
+	
+	/**
+	 * Reads the reference term codes the given concepts are mapped to
+	 * 
+	 * @param conceptIds the ids of the concepts, or null to read the mappings of all concepts
+	 * @return one row per mapping holding the concept id, the term code, the source name and the
+	 *         source hl7 code, in the order the mappings were created
+	 * @throws DAOException
+	 * @since 1.12
+	 */
+	public List<Object[]> getConceptMappingCodes(Collection<Integer> conceptIds) throws DAOException;
+	
+	/**
+	 * Reads the direct members of the given concept sets
+	 * 
+	 * @param conceptSetIds the ids of the concept sets, or null to read the members of all sets
+	 * @return one row per member holding the concept id of the set, the concept id of the member
+	 *         and whether the member is a set itself, ordered by set and sort weight
+	 * @throws DAOException
+	 * @since 1.12
+	 */
+	public List<Object[]> getConceptSetMembers(Collection<Integer> conceptSetIds) throws DAOException;
+	
+	/**
+	 * Reads the unvoided names of the given concepts, if they are not retired
+	 * 
+	 * @param conceptIds the ids of the concepts, or null to read the names of all concepts
+	 * @return one row per name holding the concept id, the name, its locale, whether it is
+	 *         preferred in its locale and its concept name type
+	 * @throws DAOException
+	 * @since 1.12
 	 */
-	public Iterator<Concept> conceptIterator();
+	public List<Object[]> getUnretiredConceptNames(Collection<Integer> conceptIds) throws DAOException;
+	
+	/**
+	 * Reads the names of the given drugs, if they are not retired
+	 * 
+	 * @param drugIds the ids of the drugs, or null to read the names of all drugs
+	 * @return one row per drug holding the drug id and the name
+	 * @throws DAOException
+	 * @since 1.12
+	 */
+	public List<Object[]> getUnretiredDrugNames(Collection<Integer> drugIds) throws DAOException;
 	
 	/**
 	 * @see org.openmrs.api.ConceptService@getConceptsByMapping(java.lang.String, java.lang.String)
@@ -464,6 +539,20 @@ public interface ConceptDAO {
 	public List<Drug> getDrugs(String drugName, Concept concept, boolean searchOnPhrase, boolean searchDrugConceptNames,
 	        boolean includeRetired, Integer start, Integer length) throws DAOException;
 	
+	/**
+	 * @see ConceptService#getDrugsPart(String, Concept, boolean, boolean, boolean, Integer, Integer)
+	 */
+	public ListPart<Drug> getDrugsPart(String drugName, Concept concept, boolean searchKeywords,
+	        boolean searchDrugConceptNames, boolean includeRetired, Integer start, Integer length) throws DAOException;
+	
+	/**
+	 * Inserts the concepts with JDBC batches, see {@link ConceptService#importConcepts(List)}
+	 * 
+	 * @param concepts new concepts with their creators set
+	 * @return the concepts that were skipped because their uuid or name is taken
+	 */
+	public List<Concept> insertConcepts(List<Concept> concepts) throws DAOException;
+	
 	/**
 	 * @see ConceptService#getDrugsByIngredient(Concept)
 	 */
@@ -15,6 +15,7 @@ package org.openmrs.api.db;
 
 import java.util.Properties;
 
+import org.openmrs.OpenmrsObject;
 import org.openmrs.User;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.context.ContextAuthenticationException;
@@ -136,6 +137,26 @@ public interface ContextDAO {
 	 */
 	public void updateSearchIndex();
 	
+	/**
+	 * @see Context#getSearchIndexProgress()
+	 */
+	public SearchIndexProgress getSearchIndexProgress();
+	
+	/**
+	 * @see Context#getSearchIndexVersion()
+	 */
+	public long getSearchIndexVersion();
+	
+	/**
+	 * @see Context#queueSearchIndexUpdate(OpenmrsObject)
+	 */
+	public void queueSearchIndexUpdate(OpenmrsObject object);
+	
+	/**
+	 * @see Context#flushSearchIndexUpdates()
+	 */
+	public void flushSearchIndexUpdates();
+	
 	/**
 	 * @see Context#updateSearchIndexForObject(Object)
 	 */
@@ -13,13 +13,17 @@
  */
 package org.openmrs.api.db;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Set;
 
 import org.openmrs.Location;
 import org.openmrs.Patient;
 import org.openmrs.PatientIdentifier;
 import org.openmrs.PatientIdentifierType;
 import org.openmrs.api.PatientService;
+import org.openmrs.patient.DuplicatePatientRecord;
 
 /**
  * Database methods for the PatientService
@@ -240,6 +244,80 @@ public interface PatientDAO {
 	 */
 	public List<Patient> getDuplicatePatientsByAttributes(List<String> attributes) throws DAOException;
 	
+	/**
+	 * @see org.openmrs.api.PatientService#getPatientIds(Date, Integer, int)
+	 */
+	public List<Integer> getPatientIds(Date changedSince, Integer afterPatientId, int maxResults) throws DAOException;
+	
+	/**
+	 * @see org.openmrs.api.PatientService#getDuplicatePatientRecords(Collection)
+	 */
+	public List<DuplicatePatientRecord> getDuplicatePatientRecords(Collection<Integer> patientIds) throws DAOException;
+	
+	/**
+	 * @see org.openmrs.api.PatientService#getDuplicatePatientCandidateIds(Collection)
+	 */
+	public Set<Integer> getDuplicatePatientCandidateIds(Collection<DuplicatePatientRecord> records) throws DAOException;
+	
+	/**
+	 * Checks whether the patient has orders that are not voided, which must not be merged
+	 * 
+	 * @param patient the patient
+	 * @return true if the patient has unvoided orders
+	 */
+	public boolean hasUnvoidedOrders(Patient patient) throws DAOException;
+	
+	/**
+	 * Moves all visits of one patient to another with bulk updates, including voided ones
+	 * 
+	 * @param notPreferred the patient to move the visits from
+	 * @param preferred the patient to move the visits to
+	 * @return the ids of the moved visits in ascending order
+	 */
+	public List<Integer> moveVisits(Patient notPreferred, Patient preferred) throws DAOException;
+	
+	/**
+	 * Moves all encounters of one patient to another with bulk updates, including voided ones
+	 * 
+	 * @param notPreferred the patient to move the encounters from
+	 * @param preferred the patient to move the encounters to
+	 * @return the ids of the moved encounters in ascending order
+	 */
+	public List<Integer> moveEncounters(Patient notPreferred, Patient preferred) throws DAOException;
+	
+	/**
+	 * Moves all observations of encounters of one patient to another with bulk updates, including
+	 * voided ones
+	 * 
+	 * @param notPreferred the patient to move the observations from
+	 * @param preferred the patient to move the observations to
+	 * @return the ids of the moved observations in ascending order
+	 */
+	public List<Integer> moveObservations(Patient notPreferred, Patient preferred) throws DAOException;
+	
+	/**
+	 * Copies the unvoided observations of one patient that are not part of an encounter to another
+	 * and voids the originals, like {@link org.openmrs.api.ObsService#saveObs(org.openmrs.Obs, String)}
+	 * does for a changed obs. The copies point to their original as previous version. The
+	 * observations are flushed and evicted from the session a chunk at a time.
+	 * 
+	 * @param notPreferred the patient to copy the observations from
+	 * @param preferred the patient to copy the observations to
+	 * @param voidReason the reason to void the original observations with
+	 * @return the uuids of the copies
+	 */
+	public List<String> copyObservationsNotContainedInEncounters(Patient notPreferred, Patient preferred,
+	        String voidReason) throws DAOException;
+	
+	/**
+	 * Moves all orders of one patient to another with bulk updates
+	 * 
+	 * @param notPreferred the patient to move the orders from
+	 * @param preferred the patient to move the orders to
+	 * @return the ids of the moved orders in ascending order
+	 */
+	public List<Integer> moveOrders(Patient notPreferred, Patient preferred) throws DAOException;
+	
 	/**
 	 * @see org.openmrs.api.PatientService#isIdentifierInUseByAnotherPatient(PatientIdentifier)
 	 */
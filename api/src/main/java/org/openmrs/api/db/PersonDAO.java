@@ -279,4 +279,9 @@ public interface PersonDAO {
 	 */
 	public PersonAddress savePersonAddress(PersonAddress personAddress);
 	
+	/**
+	 * @see org.openmrs.api.PersonService#updatePersonNamePhoneticKeys(int)
+	 */
+	public int updatePersonNamePhoneticKeys(int batchSize) throws DAOException;
+	
 }
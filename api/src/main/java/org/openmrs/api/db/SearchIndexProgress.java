@@ -0,0 +1,121 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.db;
+
+import java.util.Date;
+
+/**
+ * How far the last rebuild of the whole search index got, as returned by
+ * {@link org.openmrs.api.context.Context#getSearchIndexProgress()}. The numbers are copied when it
+ * is created and do not change afterwards.
+ * 
+ * @since 1.12
+ */
+public class SearchIndexProgress {
+	
+	private final boolean running;
+	
+	private final String currentType;
+	
+	private final int typesIndexed;
+	
+	private final int typeCount;
+	
+	private final long entitiesIndexed;
+	
+	private final long entityCount;
+	
+	private final Date startTime;
+	
+	private final Date endTime;
+	
+	private final String error;
+	
+	/**
+	 * Creates the progress of a rebuild that was never started
+	 */
+	public SearchIndexProgress() {
+		this(false, null, 0, 0, 0, 0, null, null, null);
+	}
+	
+	/**
+	 * @param running whether the rebuild is still running
+	 * @param currentType the simple name of the type that is being indexed
+	 * @param typesIndexed the number of types that are done
+	 * @param typeCount the number of types to index
+	 * @param entitiesIndexed the number of entities that are indexed
+	 * @param entityCount the number of entities to index, as counted when the rebuild started
+	 * @param startTime when the rebuild started
+	 * @param endTime when the rebuild finished or failed
+	 * @param error the message of the exception the rebuild failed with
+	 */
+	public SearchIndexProgress(boolean running, String currentType, int typesIndexed, int typeCount,
+	    long entitiesIndexed, long entityCount, Date startTime, Date endTime, String error) {
+		this.running = running;
+		this.currentType = currentType;
+		this.typesIndexed = typesIndexed;
+		this.typeCount = typeCount;
+		this.entitiesIndexed = entitiesIndexed;
+		this.entityCount = entityCount;
+		this.startTime = startTime;
+		this.endTime = endTime;
+		this.error = error;
+	}
+	
+	/**
+	 * @return the percentage of the entities that are indexed, 100 if there was nothing to index
+	 */
+	public int getPercentComplete() {
+		if (entityCount == 0) {
+			return running ? 0 : 100;
+		}
+		return (int) Math.min(100, entitiesIndexed * 100 / entityCount);
+	}
+	
+	public boolean isRunning() {
+		return running;
+	}
+	
+	public String getCurrentType() {
+		return currentType;
+	}
+	
+	public int getTypesIndexed() {
+		return typesIndexed;
+	}
+	
+	public int getTypeCount() {
+		return typeCount;
+	}
+	
+	public long getEntitiesIndexed() {
+		return entitiesIndexed;
+	}
+	
+	public long getEntityCount() {
+		return entityCount;
+	}
+	
+	public Date getStartTime() {
+		return startTime;
+	}
+	
+	public Date getEndTime() {
+		return endTime;
+	}
+	
+	public String getError() {
+		return error;
+	}
+}
@@ -0,0 +1,207 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.db.hibernate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.Concept;
+import org.openmrs.ConceptDescription;
+import org.openmrs.ConceptMap;
+import org.openmrs.ConceptName;
+import org.openmrs.ConceptReferenceTerm;
+
+/**
+ * Inserts new concepts with JDBC batches, past the hibernate session. Every table is written with
+ * one statement that is sent in batches, instead of one insert, flush and dirty check per object.
+ * The rows are written in the transaction of the session whose connection is used.
+ * 
+ * @see HibernateConceptDAO#insertConcepts(List)
+ * @since 1.12
+ */
+class ConceptBatchInserter {
+	
+	private static final Log log = LogFactory.getLog(ConceptBatchInserter.class);
+	
+	private static final int BATCH_SIZE = 100;
+	
+	private final Connection connection;
+	
+	/**
+	 * @param connection the connection of the current session
+	 */
+	ConceptBatchInserter(Connection connection) {
+		this.connection = connection;
+	}
+	
+	/**
+	 * Inserts the rows of the concept table, the ids are generated by the database
+	 * 
+	 * @param concepts the new concepts
+	 */
+	void insertConcepts(List<Concept> concepts) throws SQLException {
+		PreparedStatement statement = connection
+		        .prepareStatement("insert into concept (uuid, retired, is_set, datatype_id, class_id, creator, date_created, changed_by, date_changed) values (?, ?, ?, ?, ?, ?, ?, ?, ?)");
+		try {
+			int count = 0;
+			for (Concept concept : concepts) {
+				statement.setString(1, concept.getUuid());
+				statement.setBoolean(2, false);
+				statement.setBoolean(3, Boolean.TRUE.equals(concept.isSet()));
+				statement.setInt(4, concept.getDatatype().getConceptDatatypeId());
+				statement.setInt(5, concept.getConceptClass().getConceptClassId());
+				statement.setInt(6, concept.getCreator().getUserId());
+				statement.setTimestamp(7, toTimestamp(concept.getDateCreated()));
+				statement.setInt(8, concept.getChangedBy().getUserId());
+				statement.setTimestamp(9, toTimestamp(concept.getDateChanged()));
+				addBatch(statement, ++count);
+			}
+			statement.executeBatch();
+		}
+		finally {
+			close(statement);
+		}
+	}
+	
+	/**
+	 * Inserts new reference terms, the ids are generated by the database
+	 * 
+	 * @param terms the new terms
+	 */
+	void insertReferenceTerms(Collection<ConceptReferenceTerm> terms) throws SQLException {
+		PreparedStatement statement = connection
+		        .prepareStatement("insert into concept_reference_term (uuid, concept_source_id, code, name, retired, creator, date_created) values (?, ?, ?, ?, ?, ?, ?)");
+		try {
+			int count = 0;
+			for (ConceptReferenceTerm term : terms) {
+				statement.setString(1, term.getUuid());
+				statement.setInt(2, term.getConceptSource().getConceptSourceId());
+				statement.setString(3, term.getCode());
+				statement.setString(4, term.getName());
+				statement.setBoolean(5, false);
+				statement.setInt(6, term.getCreator().getUserId());
+				statement.setTimestamp(7, toTimestamp(term.getDateCreated()));
+				addBatch(statement, ++count);
+			}
+			statement.executeBatch();
+		}
+		finally {
+			close(statement);
+		}
+	}
+	
+	/**
+	 * Inserts the numeric rows, names, descriptions and mappings of the concepts. The concepts and
+	 * the reference terms of their mappings must have their ids.
+	 * 
+	 * @param concepts the inserted concepts
+	 */
+	void insertConceptDetails(List<Concept> concepts) throws SQLException {
+		PreparedStatement numericStatement = connection
+		        .prepareStatement("insert into concept_numeric (concept_id, precise) values (?, ?)");
+		PreparedStatement nameStatement = connection
+		        .prepareStatement("insert into concept_name (uuid, concept_id, name, locale, locale_preferred, concept_name_type, voided, creator, date_created) values (?, ?, ?, ?, ?, ?, ?, ?, ?)");
+		PreparedStatement descriptionStatement = connection
+		        .prepareStatement("insert into concept_description (uuid, concept_id, description, locale, creator, date_created) values (?, ?, ?, ?, ?, ?)");
+		PreparedStatement mapStatement = connection
+		        .prepareStatement("insert into concept_reference_map (uuid, concept_id, concept_reference_term_id, concept_map_type_id, creator, date_created) values (?, ?, ?, ?, ?, ?)");
+		try {
+			int numerics = 0;
+			int names = 0;
+			int descriptions = 0;
+			int maps = 0;
+			for (Concept concept : concepts) {
+				if (concept.getDatatype().isNumeric()) {
+					numericStatement.setInt(1, concept.getConceptId());
+					numericStatement.setBoolean(2, false);
+					addBatch(numericStatement, ++numerics);
+				}
+				
+				for (ConceptName name : concept.getNames()) {
+					nameStatement.setString(1, name.getUuid());
+					nameStatement.setInt(2, concept.getConceptId());
+					nameStatement.setString(3, name.getName());
+					nameStatement.setString(4, name.getLocale().toString());
+					nameStatement.setBoolean(5, Boolean.TRUE.equals(name.isLocalePreferred()));
+					nameStatement.setString(6, name.getConceptNameType() == null ? null : name.getConceptNameType()
+					        .name());
+					nameStatement.setBoolean(7, false);
+					nameStatement.setInt(8, name.getCreator().getUserId());
+					nameStatement.setTimestamp(9, toTimestamp(name.getDateCreated()));
+					addBatch(nameStatement, ++names);
+				}
+				
+				for (ConceptDescription description : concept.getDescriptions()) {
+					descriptionStatement.setString(1, description.getUuid());
+					descriptionStatement.setInt(2, concept.getConceptId());
+					descriptionStatement.setString(3, description.getDescription());
+					descriptionStatement.setString(4, description.getLocale().toString());
+					descriptionStatement.setInt(5, description.getCreator().getUserId());
+					descriptionStatement.setTimestamp(6, toTimestamp(description.getDateCreated()));
+					addBatch(descriptionStatement, ++descriptions);
+				}
+				
+				for (ConceptMap map : concept.getConceptMappings()) {
+					mapStatement.setString(1, map.getUuid());
+					mapStatement.setInt(2, concept.getConceptId());
+					mapStatement.setInt(3, map.getConceptReferenceTerm().getConceptReferenceTermId());
+					mapStatement.setInt(4, map.getConceptMapType().getConceptMapTypeId());
+					mapStatement.setInt(5, map.getCreator().getUserId());
+					mapStatement.setTimestamp(6, toTimestamp(map.getDateCreated()));
+					addBatch(mapStatement, ++maps);
+				}
+			}
+			numericStatement.executeBatch();
+			nameStatement.executeBatch();
+			descriptionStatement.executeBatch();
+			mapStatement.executeBatch();
+		}
+		finally {
+			close(numericStatement);
+			close(nameStatement);
+			close(descriptionStatement);
+			close(mapStatement);
+		}
+	}
+	
+	/**
+	 * Adds the current parameters to the batch and sends it once it is full
+	 */
+	private void addBatch(PreparedStatement statement, int count) throws SQLException {
+		statement.addBatch();
+		if (count % BATCH_SIZE == 0) {
+			statement.executeBatch();
+		}
+	}
+	
+	private Timestamp toTimestamp(Date date) {
+		return new Timestamp(date.getTime());
+	}
+	
+	private void close(PreparedStatement statement) {
+		try {
+			statement.close();
+		}
+		catch (SQLException e) {
+			log.debug("Unable to close the statement", e);
+		}
+	}
+}
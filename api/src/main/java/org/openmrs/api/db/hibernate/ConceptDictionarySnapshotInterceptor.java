@@ -0,0 +1,88 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.db.hibernate;
+
+import java.io.Serializable;
+
+import org.hibernate.CallbackException;
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.type.Type;
+import org.openmrs.ConceptClass;
+import org.openmrs.ConceptDatatype;
+import org.openmrs.api.context.Context;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Reads the concept dictionary snapshot again once a change to a concept class or datatype is
+ * committed, since the snapshot holds their names for every concept. The snapshot is left alone
+ * until then so that other threads never see a name that may still be rolled back, and it is read
+ * again only once per transaction however many classes and datatypes were changed.
+ *
+ * @see org.openmrs.api.ConceptService#getConceptDictionarySnapshot()
+ * @since 1.12
+ */
+public class ConceptDictionarySnapshotInterceptor extends EmptyInterceptor {
+	
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * Bound to the transaction once it has changed a class or datatype
+	 */
+	private static final Object CHANGED_KEY = new Object();
+	
+	/**
+	 * @see org.hibernate.EmptyInterceptor#onFlushDirty(java.lang.Object, java.io.Serializable,
+	 *      java.lang.Object[], java.lang.Object[], java.lang.String[], org.hibernate.type.Type[])
+	 */
+	@Override
+	public boolean onFlushDirty(Object entity, Serializable id, Object[] currentState, Object[] previousState,
+	        String[] propertyNames, Type[] types) throws CallbackException {
+		changed(entity);
+		return false;
+	}
+	
+	/**
+	 * @see org.hibernate.EmptyInterceptor#onDelete(java.lang.Object, java.io.Serializable,
+	 *      java.lang.Object[], java.lang.String[], org.hibernate.type.Type[])
+	 */
+	@Override
+	public void onDelete(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+		changed(entity);
+	}
+	
+	private void changed(Object entity) {
+		if (!(entity instanceof ConceptClass) && !(entity instanceof ConceptDatatype)) {
+			return;
+		}
+		
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			Context.getConceptService().refreshConceptDictionarySnapshot(null);
+		} else if (!TransactionSynchronizationManager.hasResource(CHANGED_KEY)) {
+			TransactionSynchronizationManager.bindResource(CHANGED_KEY, Boolean.TRUE);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				
+				@Override
+				public void afterCommit() {
+					Context.getConceptService().refreshConceptDictionarySnapshot(null);
+				}
+				
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResourceIfPossible(CHANGED_KEY);
+				}
+			});
+		}
+	}
+}
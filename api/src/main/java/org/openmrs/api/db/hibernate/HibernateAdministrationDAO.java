@@ -32,9 +32,11 @@ import org.hibernate.SessionFactory;
 import org.hibernate.cfg.Configuration;
 import org.hibernate.criterion.MatchMode;
 import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
 import org.hibernate.mapping.Column;
 import org.hibernate.mapping.PersistentClass;
+import org.openmrs.ChangeNotification;
 import org.openmrs.GlobalProperty;
 import org.openmrs.OpenmrsObject;
 import org.openmrs.User;
@@ -378,6 +380,53 @@ public class HibernateAdministrationDAO implements AdministrationDAO, Applicatio
 		}
 	}
 	
+	/**
+	 * @see org.openmrs.api.db.AdministrationDAO#saveChangeNotification(org.openmrs.ChangeNotification)
+	 */
+	@Override
+	public ChangeNotification saveChangeNotification(ChangeNotification changeNotification) throws DAOException {
+		sessionFactory.getCurrentSession().save(changeNotification);
+		return changeNotification;
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.AdministrationDAO#getChangeNotificationsAfter(java.lang.Integer)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<ChangeNotification> getChangeNotificationsAfter(Integer changeNotificationId) throws DAOException {
+		Criteria criteria = sessionFactory.getCurrentSession().createCriteria(ChangeNotification.class);
+		criteria.add(Restrictions.gt("changeNotificationId", changeNotificationId));
+		return criteria.addOrder(Order.asc("changeNotificationId")).list();
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.AdministrationDAO#getLatestChangeNotificationId()
+	 */
+	@Override
+	public Integer getLatestChangeNotificationId() throws DAOException {
+		Criteria criteria = sessionFactory.getCurrentSession().createCriteria(ChangeNotification.class);
+		Integer id = (Integer) criteria.setProjection(Projections.max("changeNotificationId")).uniqueResult();
+		return id == null ? 0 : id;
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.AdministrationDAO#deleteChangeNotificationsBefore(java.util.Date)
+	 */
+	@Override
+	public int deleteChangeNotificationsBefore(Date date) throws DAOException {
+		return sessionFactory.getCurrentSession().createQuery(
+		    "delete from ChangeNotification cn where cn.dateCreated < :date").setTimestamp("date", date).executeUpdate();
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.AdministrationDAO#evictFromSecondLevelCache(java.lang.Class)
+	 */
+	@Override
+	public void evictFromSecondLevelCache(Class<?> type) throws DAOException {
+		sessionFactory.getCache().evictEntityRegion(type);
+	}
+	
 	/**
 	 * Fetches all validators that are registered
 	 *
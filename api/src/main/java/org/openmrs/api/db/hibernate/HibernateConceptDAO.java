@@ -26,11 +26,10 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.Vector;
 
-import org.apache.commons.collections.CollectionUtils;
-import org.apache.commons.collections.Transformer;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -38,6 +37,7 @@ import org.hibernate.Criteria;
 import org.hibernate.FlushMode;
 import org.hibernate.Query;
 import org.hibernate.SQLQuery;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.MatchMode;
@@ -45,6 +45,7 @@ import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
 import org.hibernate.criterion.SimpleExpression;
+import org.hibernate.engine.EntityKey;
 import org.hibernate.transform.DistinctRootEntityResultTransformer;
 import org.openmrs.Concept;
 import org.openmrs.ConceptAnswer;
@@ -68,11 +69,14 @@ import org.openmrs.Drug;
 import org.openmrs.DrugIngredient;
 import org.openmrs.OpenmrsObject;
 import org.openmrs.api.APIException;
+import org.openmrs.api.ConceptDictionarySnapshot;
+import org.openmrs.api.ConceptNameType;
 import org.openmrs.api.ConceptService;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.db.ConceptDAO;
 import org.openmrs.api.db.DAOException;
 import org.openmrs.api.db.hibernate.search.LuceneQuery;
+import org.openmrs.api.db.hibernate.search.bridge.DrugConceptNamesBridge;
 import org.openmrs.collection.ListPart;
 import org.openmrs.util.ConceptMapTypeComparator;
 import org.openmrs.util.OpenmrsConstants;
@@ -289,6 +293,20 @@ public class HibernateConceptDAO implements ConceptDAO {
 		return (ConceptName) sessionFactory.getCurrentSession().get(ConceptName.class, conceptNameId);
 	}
 	
+	/**
+	 * @see org.openmrs.api.db.ConceptDAO#getConceptNames(java.util.Collection)
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public List<ConceptName> getConceptNames(Collection<Integer> conceptNameIds) throws DAOException {
+		if (conceptNameIds.isEmpty()) {
+			return new ArrayList<ConceptName>();
+		}
+		return sessionFactory.getCurrentSession().createQuery(
+		    "select cn from ConceptName cn join fetch cn.concept where cn.conceptNameId in (:conceptNameIds)")
+		        .setParameterList("conceptNameIds", conceptNameIds).list();
+	}
+	
 	/**
 	 * @see org.openmrs.api.db.ConceptDAO#getConceptAnswer(java.lang.Integer)
 	 */
@@ -597,7 +615,7 @@ public class HibernateConceptDAO implements ConceptDAO {
 		final StringBuilder query = new StringBuilder();
 		
 		query.append("(concept.conceptMappings.conceptReferenceTerm.code:(").append(escapedName).append(")^0.4 OR (");
-		final StringBuilder nameQuery = newNameQuery(tokenizedName, escapedName, searchKeywords);
+		final StringBuilder nameQuery = newNameQuery("name", tokenizedName, escapedName, searchKeywords);
 		query.append(nameQuery);
 		query.append(" localePreferred:true)^0.4 OR (");
 		query.append(nameQuery);
@@ -623,26 +641,26 @@ public class HibernateConceptDAO implements ConceptDAO {
 		return query.toString();
 	}
 	
-	private StringBuilder newNameQuery(final List<String> tokenizedName, final String escapedName,
+	private StringBuilder newNameQuery(final String field, final List<String> tokenizedName, final String escapedName,
 	        final boolean searchKeywords) {
 		final StringBuilder query = new StringBuilder();
 		query.append("(");
 		if (searchKeywords) {
 			//Put exact phrase higher
-			query.append(" name:(\"" + escapedName + "\")^0.7");
+			query.append(" " + field + ":(\"" + escapedName + "\")^0.7");
 			
 			if (!tokenizedName.isEmpty()) {
 				query.append(" OR (");
 				for (String token : tokenizedName) {
-					query.append(" (name:(");
+					query.append(" (" + field + ":(");
 					
 					//Include exact
 					query.append(token);
-					query.append(")^0.6 OR name:(");
+					query.append(")^0.6 OR " + field + ":(");
 					
 					//Include partial
 					query.append(token);
-					query.append("*)^0.3 OR name:(");
+					query.append("*)^0.3 OR " + field + ":(");
 					
 					//Include similar
 					query.append(token);
@@ -651,7 +669,7 @@ public class HibernateConceptDAO implements ConceptDAO {
 				query.append(")^0.3");
 			}
 		} else {
-			query.append(" name:\"" + escapedName + "\"");
+			query.append(" " + field + ":\"" + escapedName + "\"");
 		}
 		query.append(")");
 		return query;
@@ -961,45 +979,420 @@ public class HibernateConceptDAO implements ConceptDAO {
 	}
 	
 	/**
-	 * @see org.openmrs.api.db.ConceptDAO#conceptIterator()
+	 * Reads just the columns a snapshot needs with three projection queries instead of loading
+	 * the concepts, so building a snapshot of the whole dictionary neither fills the session nor
+	 * runs into the ConceptNumeric and ConceptComplex proxy problems. The queries run in a session
+	 * of their own, so that only changes which were committed end up in a snapshot.
+	 * 
+	 * @see org.openmrs.api.db.ConceptDAO#getConceptDictionarySnapshotEntries(java.util.Collection)
+	 */
+	public List<ConceptDictionarySnapshot.Entry> getConceptDictionarySnapshotEntries(Collection<Integer> conceptIds)
+	        throws DAOException {
+		Session session = sessionFactory.openSession();
+		try {
+			session.setFlushMode(FlushMode.MANUAL);
+			session.setDefaultReadOnly(true);
+			if (conceptIds == null) {
+				return readConceptDictionarySnapshotEntries(session, null);
+			}
+			
+			// keep the in clauses to a size all databases accept
+			List<Integer> ids = new ArrayList<Integer>(conceptIds);
+			List<ConceptDictionarySnapshot.Entry> entries = new ArrayList<ConceptDictionarySnapshot.Entry>(ids.size());
+			for (int from = 0; from < ids.size(); from += 1000) {
+				entries.addAll(readConceptDictionarySnapshotEntries(session, ids.subList(from, Math.min(from + 1000, ids
+				        .size()))));
+			}
+			return entries;
+		}
+		finally {
+			session.close();
+		}
+	}
+	
+	/**
+	 * @param session the session to read with
+	 * @param conceptIds the ids of the concepts to read, or null to read all concepts
+	 * @return the snapshot entries of the concepts
+	 */
+	@SuppressWarnings("unchecked")
+	private List<ConceptDictionarySnapshot.Entry> readConceptDictionarySnapshotEntries(Session session,
+	        List<Integer> conceptIds) {
+		Map<Integer, Map<Locale, String>> preferredNames = new HashMap<Integer, Map<Locale, String>>();
+		Map<Integer, Map<Locale, String>> fullySpecifiedNames = new HashMap<Integer, Map<Locale, String>>();
+		Map<Integer, Map<Locale, List<String>>> names = new HashMap<Integer, Map<Locale, List<String>>>();
+		Query query = createSnapshotQuery(session, "select cn.concept.conceptId, cn.name, cn.locale, cn.localePreferred, "
+		        + "cn.conceptNameType from ConceptName cn where cn.voided = false", "cn.concept.conceptId", null, conceptIds);
+		for (Object[] row : (List<Object[]>) query.list()) {
+			Integer conceptId = (Integer) row[0];
+			String name = (String) row[1];
+			Locale locale = (Locale) row[2];
+			if (Boolean.TRUE.equals(row[3])) {
+				getLocaleNames(preferredNames, conceptId).put(locale, name);
+			} else if (ConceptNameType.FULLY_SPECIFIED.equals(row[4])) {
+				getLocaleNames(fullySpecifiedNames, conceptId).put(locale, name);
+			}
+			
+			Map<Locale, List<String>> conceptNames = names.get(conceptId);
+			if (conceptNames == null) {
+				conceptNames = new HashMap<Locale, List<String>>();
+				names.put(conceptId, conceptNames);
+			}
+			List<String> localeNames = conceptNames.get(locale);
+			if (localeNames == null) {
+				localeNames = new ArrayList<String>();
+				conceptNames.put(locale, localeNames);
+			}
+			localeNames.add(name);
+		}
+		
+		Map<Integer, List<Integer>> answers = new HashMap<Integer, List<Integer>>();
+		query = createSnapshotQuery(session, "select ca.concept.conceptId, ca.answerConcept.conceptId from ConceptAnswer ca "
+		        + "where ca.answerConcept is not null", "ca.concept.conceptId", "ca.sortWeight", conceptIds);
+		for (Object[] row : (List<Object[]>) query.list()) {
+			Integer conceptId = (Integer) row[0];
+			List<Integer> conceptAnswers = answers.get(conceptId);
+			if (conceptAnswers == null) {
+				conceptAnswers = new ArrayList<Integer>();
+				answers.put(conceptId, conceptAnswers);
+			}
+			conceptAnswers.add((Integer) row[1]);
+		}
+		
+		query = createSnapshotQuery(session, "select c.conceptId, c.uuid, c.retired, c.set, c.datatype.name, "
+		        + "c.datatype.hl7Abbreviation, c.conceptClass.name from Concept c where c.conceptId is not null",
+		    "c.conceptId", null, conceptIds);
+		List<Object[]> rows = query.list();
+		List<ConceptDictionarySnapshot.Entry> entries = new ArrayList<ConceptDictionarySnapshot.Entry>(rows.size());
+		for (Object[] row : rows) {
+			Integer conceptId = (Integer) row[0];
+			// a name marked preferred wins over the fully specified name of the same locale
+			Map<Locale, String> conceptPreferredNames = getLocaleNames(fullySpecifiedNames, conceptId);
+			conceptPreferredNames.putAll(getLocaleNames(preferredNames, conceptId));
+			Map<Locale, List<String>> conceptNames = names.get(conceptId);
+			List<Integer> conceptAnswers = answers.get(conceptId);
+			entries.add(new ConceptDictionarySnapshot.Entry(conceptId, (String) row[1], Boolean.TRUE.equals(row[2]),
+			        Boolean.TRUE.equals(row[3]), (String) row[4], (String) row[5], (String) row[6], conceptPreferredNames,
+			        conceptNames == null ? Collections.<Locale, List<String>> emptyMap() : conceptNames,
+			        conceptAnswers == null ? Collections.<Integer> emptyList() : conceptAnswers));
+		}
+		return entries;
+	}
+	
+	/**
+	 * @param session the session to create the query in
+	 * @param hql a query with a where clause
+	 * @param conceptIdProperty the property the concept ids are matched against
+	 * @param orderBy the order by clause, may be null
+	 * @param conceptIds the ids of the concepts to read, or null to read all concepts
+	 * @return the query, restricted to the given concepts
+	 */
+	private Query createSnapshotQuery(Session session, String hql, String conceptIdProperty, String orderBy,
+	        List<Integer> conceptIds) {
+		if (conceptIds != null) {
+			hql += " and " + conceptIdProperty + " in (:conceptIds)";
+		}
+		if (orderBy != null) {
+			hql += " order by " + orderBy;
+		}
+		Query query = session.createQuery(hql);
+		if (conceptIds != null) {
+			query.setParameterList("conceptIds", conceptIds);
+		}
+		return query;
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.ConceptDAO#getConceptMappingCodes(java.util.Collection)
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Object[]> getConceptMappingCodes(Collection<Integer> conceptIds) throws DAOException {
+		String hql = "select map.concept.conceptId, term.code, source.name, source.hl7Code from ConceptMap map "
+		        + "join map.conceptReferenceTerm term join term.conceptSource source";
+		if (conceptIds == null) {
+			return sessionFactory.getCurrentSession().createQuery(hql + " order by map.conceptMapId").list();
+		}
+		
+		List<Integer> ids = new ArrayList<Integer>(conceptIds);
+		List<Object[]> rows = new ArrayList<Object[]>();
+		for (int from = 0; from < ids.size(); from += 1000) {
+			Query query = sessionFactory.getCurrentSession().createQuery(
+			    hql + " where map.concept.conceptId in (:conceptIds) order by map.conceptMapId");
+			query.setParameterList("conceptIds", ids.subList(from, Math.min(from + 1000, ids.size())));
+			rows.addAll(query.list());
+		}
+		return rows;
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.ConceptDAO#getConceptSetMembers(java.util.Collection)
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Object[]> getConceptSetMembers(Collection<Integer> conceptSetIds) throws DAOException {
+		String hql = "select cs.conceptSet.conceptId, member.conceptId, member.set from ConceptSet cs join cs.concept member";
+		String orderBy = " order by cs.conceptSet.conceptId, cs.sortWeight, cs.conceptSetId";
+		if (conceptSetIds == null) {
+			return sessionFactory.getCurrentSession().createQuery(hql + orderBy).list();
+		}
+		
+		List<Integer> ids = new ArrayList<Integer>(conceptSetIds);
+		List<Object[]> rows = new ArrayList<Object[]>();
+		for (int from = 0; from < ids.size(); from += 1000) {
+			Query query = sessionFactory.getCurrentSession().createQuery(
+			    hql + " where cs.conceptSet.conceptId in (:conceptSetIds)" + orderBy);
+			query.setParameterList("conceptSetIds", ids.subList(from, Math.min(from + 1000, ids.size())));
+			rows.addAll(query.list());
+		}
+		return rows;
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.ConceptDAO#getUnretiredConceptNames(java.util.Collection)
+	 */
+	public List<Object[]> getUnretiredConceptNames(Collection<Integer> conceptIds) throws DAOException {
+		return getRowsInBatches("select cn.concept.conceptId, cn.name, cn.locale, cn.localePreferred, cn.conceptNameType "
+		        + "from ConceptName cn where cn.voided = false and cn.concept.retired = false", "cn.concept.conceptId",
+		    conceptIds);
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.ConceptDAO#getUnretiredDrugNames(java.util.Collection)
+	 */
+	public List<Object[]> getUnretiredDrugNames(Collection<Integer> drugIds) throws DAOException {
+		return getRowsInBatches("select d.drugId, d.name from Drug d where d.retired = false", "d.drugId", drugIds);
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.ConceptDAO#insertConcepts(java.util.List)
+	 */
+	@Override
+	public List<Concept> insertConcepts(List<Concept> concepts) throws DAOException {
+		Set<String> uuids = new HashSet<String>();
+		Set<String> names = new HashSet<String>();
+		for (Concept concept : concepts) {
+			uuids.add(concept.getUuid());
+			for (ConceptName name : concept.getNames()) {
+				names.add(name.getName().toLowerCase());
+			}
+		}
+		
+		Set<String> takenUuids = new HashSet<String>();
+		for (Object[] row : getRowsInBatches("select c.uuid, c.conceptId from Concept c", "c.uuid", uuids)) {
+			takenUuids.add((String) row[0]);
+		}
+		Set<String> takenNames = new HashSet<String>();
+		for (Object[] row : getRowsInBatches("select lower(cn.name), cn.locale from ConceptName cn where cn.voided = false"
+		        + " and cn.concept.retired = false and (cn.conceptNameType = 'FULLY_SPECIFIED' or cn.localePreferred = true)",
+		    "lower(cn.name)", names)) {
+			takenNames.add(row[1] + "|" + row[0]);
+		}
+		
+		List<Concept> newConcepts = new ArrayList<Concept>();
+		List<Concept> skippedConcepts = new ArrayList<Concept>();
+		for (Concept concept : concepts) {
+			boolean taken = takenUuids.contains(concept.getUuid());
+			for (ConceptName name : concept.getNames()) {
+				if (name.isFullySpecifiedName() || Boolean.TRUE.equals(name.isLocalePreferred())) {
+					taken |= takenNames.contains(name.getLocale() + "|" + name.getName().toLowerCase());
+				}
+			}
+			if (taken) {
+				skippedConcepts.add(concept);
+			} else {
+				newConcepts.add(concept);
+			}
+		}
+		if (newConcepts.isEmpty()) {
+			return skippedConcepts;
+		}
+		
+		Session session = sessionFactory.getCurrentSession();
+		// pending changes of the session go in first, so that the new rows can refer to them
+		session.flush();
+		ConceptBatchInserter inserter = new ConceptBatchInserter(session.connection());
+		try {
+			inserter.insertConcepts(newConcepts);
+			Map<String, Integer> conceptIds = getIdsByUuid("select c.uuid, c.conceptId from Concept c", "c.uuid",
+			    newConcepts);
+			for (Concept concept : newConcepts) {
+				concept.setConceptId(conceptIds.get(concept.getUuid()));
+			}
+			
+			insertReferenceTerms(inserter, newConcepts);
+			inserter.insertConceptDetails(newConcepts);
+		}
+		catch (SQLException e) {
+			throw new DAOException("Unable to insert the concepts", e);
+		}
+		return skippedConcepts;
+	}
+	
+	/**
+	 * Gives the mappings of the concepts the existing reference terms with the same source and code,
+	 * and inserts the other terms once, even if several concepts map to them
+	 */
+	private void insertReferenceTerms(ConceptBatchInserter inserter, List<Concept> concepts) throws SQLException {
+		Map<String, ConceptReferenceTerm> terms = new HashMap<String, ConceptReferenceTerm>();
+		Set<String> codes = new HashSet<String>();
+		for (Concept concept : concepts) {
+			for (ConceptMap map : concept.getConceptMappings()) {
+				ConceptReferenceTerm term = map.getConceptReferenceTerm();
+				String key = term.getConceptSource().getConceptSourceId() + "|" + term.getCode();
+				if (terms.containsKey(key)) {
+					map.setConceptReferenceTerm(terms.get(key));
+				} else {
+					terms.put(key, term);
+					codes.add(term.getCode());
+				}
+			}
+		}
+		if (terms.isEmpty()) {
+			return;
+		}
+		
+		for (Object[] row : getRowsInBatches("select t.conceptSource.conceptSourceId, t.code, t.conceptReferenceTermId"
+		        + " from ConceptReferenceTerm t", "t.code", codes)) {
+			ConceptReferenceTerm term = terms.get(row[0] + "|" + row[1]);
+			if (term != null && term.getConceptReferenceTermId() == null) {
+				term.setConceptReferenceTermId((Integer) row[2]);
+			}
+		}
+		
+		List<ConceptReferenceTerm> newTerms = new ArrayList<ConceptReferenceTerm>();
+		for (ConceptReferenceTerm term : terms.values()) {
+			if (term.getConceptReferenceTermId() == null) {
+				newTerms.add(term);
+			}
+		}
+		if (!newTerms.isEmpty()) {
+			inserter.insertReferenceTerms(newTerms);
+			Map<String, Integer> termIds = getIdsByUuid(
+			    "select t.uuid, t.conceptReferenceTermId from ConceptReferenceTerm t", "t.uuid", newTerms);
+			for (ConceptReferenceTerm term : newTerms) {
+				term.setConceptReferenceTermId(termIds.get(term.getUuid()));
+			}
+		}
+	}
+	
+	/**
+	 * @param hql a query selecting the uuid and the id
+	 * @param uuidProperty the uuid property of the query
+	 * @param objects the objects whose ids are wanted
+	 * @return the ids by uuid
 	 */
-	public Iterator<Concept> conceptIterator() {
-		return new ConceptIterator();
+	private Map<String, Integer> getIdsByUuid(String hql, String uuidProperty, Collection<? extends OpenmrsObject> objects) {
+		List<String> uuids = new ArrayList<String>(objects.size());
+		for (OpenmrsObject object : objects) {
+			uuids.add(object.getUuid());
+		}
+		Map<String, Integer> ids = new HashMap<String, Integer>();
+		for (Object[] row : getRowsInBatches(hql, uuidProperty, uuids)) {
+			ids.put((String) row[0], (Integer) row[1]);
+		}
+		return ids;
 	}
 	
 	/**
-	 * An iterator that loops over all concepts in the dictionary one at a time
+	 * Runs the given query for at most 1000 ids at a time
+	 * 
+	 * @param hql the query, with or without a where clause
+	 * @param idProperty the property the ids are matched against
+	 * @param ids the ids or other values to match, or null to run the query once for all rows
+	 * @return the rows of all runs
+	 */
+	@SuppressWarnings("unchecked")
+	private List<Object[]> getRowsInBatches(String hql, String idProperty, Collection<?> ids) {
+		if (ids == null) {
+			return sessionFactory.getCurrentSession().createQuery(hql).list();
+		}
+		
+		List<Object> idList = new ArrayList<Object>(ids);
+		List<Object[]> rows = new ArrayList<Object[]>();
+		String batchHql = hql + (hql.contains(" where ") ? " and " : " where ") + idProperty + " in (:ids)";
+		for (int from = 0; from < idList.size(); from += 1000) {
+			Query query = sessionFactory.getCurrentSession().createQuery(batchHql);
+			query.setParameterList("ids", idList.subList(from, Math.min(from + 1000, idList.size())));
+			rows.addAll(query.list());
+		}
+		return rows;
+	}
+	
+	private Map<Locale, String> getLocaleNames(Map<Integer, Map<Locale, String>> namesByConcept, Integer conceptId) {
+		Map<Locale, String> localeNames = namesByConcept.get(conceptId);
+		if (localeNames == null) {
+			localeNames = new HashMap<Locale, String>();
+			namesByConcept.put(conceptId, localeNames);
+		}
+		return localeNames;
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.ConceptDAO#conceptIterator(java.lang.Integer, java.lang.Integer, int)
+	 */
+	public Iterator<Concept> conceptIterator(Integer fromConceptId, Integer toConceptId, int batchSize) {
+		return new ConceptIterator(fromConceptId, toConceptId, batchSize);
+	}
+	
+	/**
+	 * An iterator that loops over the concepts in the dictionary in order of their ids. The concepts
+	 * are read a batch at a time, starting after the highest id of the previous batch, and the names,
+	 * descriptions, answers and set members of a batch are fetched with one query each. Everything
+	 * that was loaded for the previous batch is evicted from the session when the next one is read,
+	 * so walking the whole dictionary does not fill up the session. Entities that were in the session
+	 * before a batch was read belong to the caller and are left there.
 	 */
 	private class ConceptIterator implements Iterator<Concept> {
 		
-		Concept currentConcept = null;
+		private final Integer toConceptId;
+		
+		private final int batchSize;
 		
-		Concept nextConcept;
+		private Integer lastConceptId;
 		
-		public ConceptIterator() {
-			final int firstConceptId = getMinConceptId();
-			nextConcept = getConcept(firstConceptId);
+		private List<Concept> batch = Collections.emptyList();
+		
+		private int position = 0;
+		
+		private boolean exhausted = false;
+		
+		/**
+		 * The entities that were put into the session by reading the current batch
+		 */
+		private Set<Object> loadedEntityKeys = Collections.emptySet();
+		
+		public ConceptIterator(Integer fromConceptId, Integer toConceptId, int batchSize) {
+			if (batchSize < 1) {
+				throw new IllegalArgumentException("batchSize must be at least 1");
+			}
+			
+			this.lastConceptId = fromConceptId == null ? null : fromConceptId - 1;
+			this.toConceptId = toConceptId;
+			this.batchSize = batchSize;
 		}
 		
 		/**
 		 * @see java.util.Iterator#hasNext()
 		 */
 		public boolean hasNext() {
-			return (nextConcept != null);
+			if (position < batch.size()) {
+				return true;
+			}
+			if (exhausted) {
+				return false;
+			}
+			
+			readNextBatch();
+			return position < batch.size();
 		}
 		
 		/**
 		 * @see java.util.Iterator#next()
 		 */
 		public Concept next() {
-			if (currentConcept != null) {
-				sessionFactory.getCurrentSession().evict(currentConcept);
+			if (!hasNext()) {
+				throw new NoSuchElementException();
 			}
-			
-			currentConcept = nextConcept;
-			nextConcept = getNextConcept(currentConcept);
-			
-			return currentConcept;
+			return batch.get(position++);
 		}
 		
 		/**
@@ -1009,6 +1402,61 @@ public class HibernateConceptDAO implements ConceptDAO {
 			throw new UnsupportedOperationException();
 		}
 		
+		@SuppressWarnings("unchecked")
+		private void readNextBatch() {
+			Session session = sessionFactory.getCurrentSession();
+			evictLoadedEntities(session);
+			Set<Object> entityKeysBefore = new HashSet<Object>(session.getStatistics().getEntityKeys());
+			
+			Criteria criteria = session.createCriteria(Concept.class);
+			if (lastConceptId != null) {
+				criteria.add(Restrictions.gt("conceptId", lastConceptId));
+			}
+			if (toConceptId != null) {
+				criteria.add(Restrictions.le("conceptId", toConceptId));
+			}
+			criteria.addOrder(Order.asc("conceptId"));
+			criteria.setMaxResults(batchSize);
+			
+			batch = criteria.list();
+			position = 0;
+			exhausted = batch.size() < batchSize;
+			if (batch.isEmpty()) {
+				return;
+			}
+			
+			List<Integer> conceptIds = new ArrayList<Integer>(batch.size());
+			for (Concept concept : batch) {
+				conceptIds.add(concept.getConceptId());
+			}
+			lastConceptId = conceptIds.get(conceptIds.size() - 1);
+			
+			// the fetch joins initialize the lazy collections of the concepts that were just loaded
+			for (String collection : new String[] { "names", "descriptions", "answers", "conceptSets" }) {
+				session.createQuery(
+				    "select distinct c from Concept c left join fetch c." + collection + " where c.conceptId in (:conceptIds)")
+				        .setParameterList("conceptIds", conceptIds).list();
+			}
+			
+			loadedEntityKeys = new HashSet<Object>(session.getStatistics().getEntityKeys());
+			loadedEntityKeys.removeAll(entityKeysBefore);
+		}
+		
+		/**
+		 * Evicts the concepts of the current batch, and the names, descriptions, answers and set
+		 * members that were loaded with them, unless the caller had them in the session already
+		 */
+		private void evictLoadedEntities(Session session) {
+			Set<?> entityKeys = session.getStatistics().getEntityKeys();
+			for (Object key : loadedEntityKeys) {
+				// evicting a concept cascades to its names, which may have been in the batch too
+				if (entityKeys.contains(key)) {
+					EntityKey entityKey = (EntityKey) key;
+					session.evict(session.get(entityKey.getEntityName(), entityKey.getIdentifier()));
+				}
+			}
+			loadedEntityKeys = Collections.emptySet();
+		}
 	}
 	
 	/**
@@ -1274,14 +1722,27 @@ public class HibernateConceptDAO implements ConceptDAO {
 	@Override
 	public List<Drug> getDrugs(String drugName, Concept concept, boolean searchKeywords, boolean searchDrugConceptNames,
 	        boolean includeRetired, Integer start, Integer length) throws DAOException {
+		return getDrugsPart(drugName, concept, searchKeywords, searchDrugConceptNames, includeRetired, start, length)
+		        .getList();
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.ConceptDAO#getDrugsPart(java.lang.String, org.openmrs.Concept, boolean,
+	 *      boolean, boolean, java.lang.Integer, java.lang.Integer)
+	 */
+	@Override
+	public ListPart<Drug> getDrugsPart(String drugName, Concept concept, boolean searchKeywords,
+	        boolean searchDrugConceptNames, boolean includeRetired, Integer start, Integer length) throws DAOException {
 		LuceneQuery<Drug> drugsQuery = newDrugQuery(drugName, searchKeywords, searchDrugConceptNames, Context.getLocale(),
 		    false, concept, includeRetired);
 		
 		if (drugsQuery == null) {
-			return Collections.emptyList();
+			Long first = (start != null) ? Long.valueOf(start) : null;
+			Long max = (length != null) ? Long.valueOf(length) : null;
+			return ListPart.newListPart(Collections.<Drug> emptyList(), first, max, 0L, true);
 		}
 		
-		return drugsQuery.listPart(start, length).getList();
+		return drugsQuery.listPart(start, length);
 	}
 	
 	private LuceneQuery<Drug> newDrugQuery(String drugName, boolean searchKeywords, boolean searchDrugConceptNames,
@@ -1298,29 +1759,22 @@ public class HibernateConceptDAO implements ConceptDAO {
 			List<String> tokenizedName = Arrays.asList(drugName.trim().split("\\+"));
 			String escapedName = LuceneQuery.escapeQuery(drugName);
 			query.append("(");
-			query.append(newNameQuery(tokenizedName, escapedName, searchKeywords));
+			query.append(newNameQuery("name", tokenizedName, escapedName, searchKeywords));
 			query.append(")^0.3 OR drugReferenceMaps.conceptReferenceTerm.code:(\"").append(escapedName).append("\")^0.6");
 		}
 		
 		if (concept != null) {
 			query.append(" OR concept.conceptId:(").append(concept.getConceptId()).append(")^0.1");
-		} else if (searchDrugConceptNames) {
-			LuceneQuery<ConceptName> conceptNameQuery = newConceptNameLuceneQuery(drugName, searchKeywords, Arrays
-			        .asList(locale), exactLocale, includeRetired, null, null, null, null, null);
-			List<Object> conceptIds = conceptNameQuery.listProjection("concept.conceptId");
-			if (!conceptIds.isEmpty()) {
-				CollectionUtils.transform(conceptIds, new Transformer() {
-					
-					@Override
-					public Object transform(Object input) {
-						return ((Object[]) input)[0].toString();
-					}
-				});
-				//The default Lucene clauses limit is 1024. We arbitrarily chose to use 512 here as it does not make sense to return more hits by concept name anyway.
-				int maxSize = (conceptIds.size() < 512) ? conceptIds.size() : 512;
-				query.append(" OR concept.conceptId:(").append(StringUtils.join(conceptIds.subList(0, maxSize), " OR "))
-				        .append(")^0.1");
+		} else if (searchDrugConceptNames && !StringUtils.isBlank(drugName)) {
+			// the names of the concept are part of the drug document, see DrugConceptNamesBridge
+			String escapedName = LuceneQuery.escapeQuery(drugName);
+			List<String> tokenizedName = tokenizeConceptName(escapedName, Collections.singleton(locale));
+			String field = DrugConceptNamesBridge.getField(DrugConceptNamesBridge.FIELD, locale, exactLocale);
+			query.append(" OR (+").append(newNameQuery(field, tokenizedName, escapedName, searchKeywords));
+			if (!includeRetired) {
+				query.append(" +concept.retired:false");
 			}
+			query.append(")^0.1");
 		}
 		
 		LuceneQuery<Drug> drugsQuery = LuceneQuery
@@ -15,12 +15,15 @@ package org.openmrs.api.db.hibernate;
 
 import java.io.File;
 import java.io.InputStream;
+import java.io.Serializable;
 import java.net.URL;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
@@ -39,10 +42,15 @@ import org.hibernate.stat.Statistics;
 import org.hibernate.type.StandardBasicTypes;
 import org.hibernate.util.ConfigHelper;
 import org.openmrs.GlobalProperty;
+import org.openmrs.OpenmrsObject;
 import org.openmrs.User;
+import org.openmrs.api.AdministrationService;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.context.ContextAuthenticationException;
 import org.openmrs.api.db.ContextDAO;
+import org.openmrs.api.db.SearchIndexProgress;
+import org.openmrs.api.db.hibernate.search.SearchIndexRebuilder;
+import org.openmrs.api.db.hibernate.search.SearchIndexUpdateQueue;
 import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.OpenmrsUtil;
 import org.openmrs.util.Security;
@@ -66,6 +74,21 @@ public class HibernateContextDAO implements ContextDAO {
 	 */
 	private SessionFactory sessionFactory;
 	
+	/**
+	 * Runs the current or last rebuild of the whole search index
+	 */
+	private volatile SearchIndexRebuilder searchIndexRebuilder;
+	
+	/**
+	 * Applies the queued search index updates, created when the first one is queued
+	 */
+	private SearchIndexUpdateQueue searchIndexUpdateQueue;
+	
+	/**
+	 * Counts the changes to the search index made outside of the update queue
+	 */
+	private final AtomicLong searchIndexChanges = new AtomicLong();
+	
 	/**
 	 * Session factory to use for this DAO. This is usually injected by spring and its application
 	 * context.
@@ -337,6 +360,13 @@ public class HibernateContextDAO implements ContextDAO {
 			showUsageStatistics();
 		}
 		
+		synchronized (this) {
+			if (searchIndexUpdateQueue != null) {
+				searchIndexUpdateQueue.shutdown();
+				searchIndexUpdateQueue = null;
+			}
+		}
+		
 		if (sessionFactory != null) {
 			
 			log.debug("Closing any open sessions");
@@ -446,6 +476,7 @@ public class HibernateContextDAO implements ContextDAO {
 		finally {
 			session.setFlushMode(flushMode);
 			session.setCacheMode(cacheMode);
+			searchIndexChanges.incrementAndGet();
 		}
 	}
 	
@@ -457,6 +488,7 @@ public class HibernateContextDAO implements ContextDAO {
 		FullTextSession session = Search.getFullTextSession(sessionFactory.getCurrentSession());
 		session.index(object);
 		session.flushToIndexes();
+		searchIndexChanges.incrementAndGet();
 	}
 	
 	/**
@@ -464,10 +496,12 @@ public class HibernateContextDAO implements ContextDAO {
 	 */
 	@Override
 	public void setupSearchIndex() {
-		String gp = Context.getAdministrationService().getGlobalProperty(OpenmrsConstants.GP_SEARCH_INDEX_VERSION, "");
+		AdministrationService adminService = Context.getAdministrationService();
+		String gp = adminService.getGlobalProperty(OpenmrsConstants.GP_SEARCH_INDEX_VERSION, "");
+		String checkpoint = adminService.getGlobalProperty(OpenmrsConstants.GP_SEARCH_INDEX_REBUILD_CHECKPOINT);
 		
-		if (!OpenmrsConstants.SEARCH_INDEX_VERSION.toString().equals(gp)) {
-			updateSearchIndex();
+		if (!OpenmrsConstants.SEARCH_INDEX_VERSION.toString().equals(gp) || StringUtils.isNotBlank(checkpoint)) {
+			rebuildSearchIndex(true);
 		}
 	}
 	
@@ -476,22 +510,155 @@ public class HibernateContextDAO implements ContextDAO {
 	 */
 	@Override
 	public void updateSearchIndex() {
+		rebuildSearchIndex(false);
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.ContextDAO#getSearchIndexProgress()
+	 */
+	@Override
+	public SearchIndexProgress getSearchIndexProgress() {
+		SearchIndexRebuilder rebuilder = searchIndexRebuilder;
+		return rebuilder == null ? new SearchIndexProgress() : rebuilder.getProgress();
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.ContextDAO#getSearchIndexVersion()
+	 */
+	@Override
+	public long getSearchIndexVersion() {
+		SearchIndexUpdateQueue queue;
+		synchronized (this) {
+			queue = searchIndexUpdateQueue;
+		}
+		return searchIndexChanges.get() + (queue == null ? 0 : queue.getBatchesApplied());
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.ContextDAO#queueSearchIndexUpdate(org.openmrs.OpenmrsObject)
+	 */
+	@Override
+	public void queueSearchIndexUpdate(OpenmrsObject object) {
+		getSearchIndexUpdateQueue().add(object);
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.ContextDAO#flushSearchIndexUpdates()
+	 */
+	@Override
+	public void flushSearchIndexUpdates() {
+		getSearchIndexUpdateQueue().flush();
+	}
+	
+	private synchronized SearchIndexUpdateQueue getSearchIndexUpdateQueue() {
+		if (searchIndexUpdateQueue == null) {
+			searchIndexUpdateQueue = new SearchIndexUpdateQueue(sessionFactory, getIntGlobalProperty(
+			    OpenmrsConstants.GP_SEARCH_INDEX_UPDATE_BATCH_SIZE, 100), getIntGlobalProperty(
+			    OpenmrsConstants.GP_SEARCH_INDEX_UPDATE_MAX_LAG, 1000));
+		}
+		return searchIndexUpdateQueue;
+	}
+	
+	/**
+	 * Rebuilds the index of every indexed type, recording in
+	 * {@link OpenmrsConstants#GP_SEARCH_INDEX_REBUILD_CHECKPOINT} how far it got
+	 *
+	 * @param resume whether to continue from the checkpoint of a rebuild that did not finish
+	 */
+	private synchronized void rebuildSearchIndex(boolean resume) {
+		final AdministrationService adminService = Context.getAdministrationService();
+		List<Class<?>> types = SearchIndexRebuilder.getIndexedTypes(sessionFactory);
+		
+		Class<?> resumeType = null;
+		Serializable resumeAfterId = null;
+		String checkpoint = adminService.getGlobalProperty(OpenmrsConstants.GP_SEARCH_INDEX_REBUILD_CHECKPOINT);
+		if (resume && StringUtils.isNotBlank(checkpoint)) {
+			// the checkpoint looks like <index version>:<type>:<id>
+			String[] parts = checkpoint.trim().split(":", 3);
+			if (parts.length == 3 && parts[0].equals(OpenmrsConstants.SEARCH_INDEX_VERSION.toString())) {
+				for (Class<?> type : types) {
+					if (type.getName().equals(parts[1])) {
+						resumeType = type;
+						resumeAfterId = parseId(type, parts[2]);
+					}
+				}
+			}
+			if (resumeAfterId == null) {
+				log.warn("Ignoring the search index checkpoint " + checkpoint + ", rebuilding the whole index");
+				resumeType = null;
+			}
+		}
+		
 		try {
 			log.info("Updating the search index... It may take a few minutes.");
-			Search.getFullTextSession(sessionFactory.getCurrentSession()).createIndexer().startAndWait();
+			SearchIndexRebuilder rebuilder = new SearchIndexRebuilder(sessionFactory, getIntGlobalProperty(
+			    OpenmrsConstants.GP_SEARCH_INDEX_REBUILD_THREADS, 4), getIntGlobalProperty(
+			    OpenmrsConstants.GP_SEARCH_INDEX_REBUILD_BATCH_SIZE, 500));
+			searchIndexRebuilder = rebuilder;
+			rebuilder.rebuild(types, resumeType, resumeAfterId, new SearchIndexRebuilder.Checkpoints() {
+				
+				@Override
+				public void reached(Class<?> type, Serializable lastId) {
+					searchIndexChanges.incrementAndGet();
+					saveGlobalProperty(adminService, OpenmrsConstants.GP_SEARCH_INDEX_REBUILD_CHECKPOINT,
+					    OpenmrsConstants.SEARCH_INDEX_VERSION + ":" + type.getName() + ":" + lastId);
+				}
+			});
 			
-			GlobalProperty gp = Context.getAdministrationService().getGlobalPropertyObject(
-			    OpenmrsConstants.GP_SEARCH_INDEX_VERSION);
-			if (gp == null) {
-				gp = new GlobalProperty(OpenmrsConstants.GP_SEARCH_INDEX_VERSION);
-			}
-			gp.setPropertyValue(OpenmrsConstants.SEARCH_INDEX_VERSION.toString());
-			Context.getAdministrationService().saveGlobalProperty(gp);
+			saveGlobalProperty(adminService, OpenmrsConstants.GP_SEARCH_INDEX_VERSION, OpenmrsConstants.SEARCH_INDEX_VERSION
+			        .toString());
+			saveGlobalProperty(adminService, OpenmrsConstants.GP_SEARCH_INDEX_REBUILD_CHECKPOINT, "");
 			log.info("Finished updating the search index");
 		}
 		catch (Exception e) {
 			throw new RuntimeException("Failed to update the search index", e);
 		}
+		finally {
+			searchIndexChanges.incrementAndGet();
+		}
+	}
+	
+	/**
+	 * @return the id as the type of the identifier of the given type, or null if it is not one
+	 */
+	private Serializable parseId(Class<?> type, String id) {
+		Class<?> idType = sessionFactory.getClassMetadata(type).getIdentifierType().getReturnedClass();
+		try {
+			if (Integer.class.equals(idType)) {
+				return Integer.valueOf(id);
+			} else if (Long.class.equals(idType)) {
+				return Long.valueOf(id);
+			} else if (String.class.equals(idType)) {
+				return id;
+			}
+		}
+		catch (NumberFormatException e) {
+			log.debug("Invalid id " + id + " of " + type, e);
+		}
+		return null;
+	}
+	
+	private int getIntGlobalProperty(String propertyName, int defaultValue) {
+		String value = Context.getAdministrationService().getGlobalProperty(propertyName);
+		if (StringUtils.isBlank(value)) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value.trim());
+		}
+		catch (NumberFormatException e) {
+			log.warn("Invalid value for " + propertyName + ": " + value);
+			return defaultValue;
+		}
+	}
+	
+	private void saveGlobalProperty(AdministrationService adminService, String propertyName, String value) {
+		GlobalProperty gp = adminService.getGlobalPropertyObject(propertyName);
+		if (gp == null) {
+			gp = new GlobalProperty(propertyName);
+		}
+		gp.setPropertyValue(value);
+		adminService.saveGlobalProperty(gp);
 	}
 	
 }
@@ -17,10 +17,18 @@ import java.lang.reflect.Field;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
 
@@ -29,19 +37,29 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hibernate.Criteria;
 import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.engine.EntityKey;
+import org.openmrs.Encounter;
 import org.openmrs.Location;
+import org.openmrs.Obs;
 import org.openmrs.Patient;
 import org.openmrs.PatientIdentifier;
 import org.openmrs.PatientIdentifierType;
 import org.openmrs.PatientIdentifierType.UniquenessBehavior;
 import org.openmrs.Person;
 import org.openmrs.PersonName;
+import org.openmrs.User;
+import org.openmrs.Visit;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.db.DAOException;
 import org.openmrs.api.db.PatientDAO;
+import org.openmrs.patient.DuplicatePatientRecord;
+import org.openmrs.util.OpenmrsUtil;
 
 /**
  * Hibernate specific database methods for the PatientService
@@ -54,6 +72,16 @@ public class HibernatePatientDAO implements PatientDAO {
 	
 	protected final Log log = LogFactory.getLog(getClass());
 	
+	/**
+	 * The maximum number of ids in one "in" clause
+	 */
+	static final int MAX_IN_CLAUSE_SIZE = 1000;
+	
+	/**
+	 * The maximum number of identifiers that are looked up with one query
+	 */
+	private static final int MAX_LIKE_CLAUSES = 100;
+	
 	/**
 	 * Hibernate session factory
 	 */
@@ -223,11 +251,54 @@ public class HibernatePatientDAO implements PatientDAO {
 			return Collections.emptyList();
 		}
 		
-		Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Patient.class);
-		criteria = new PatientSearchCriteria(sessionFactory, criteria).prepareCriteria(query);
-		setFirstAndMaxResult(criteria, start, length);
+		int firstResult = (start != null) ? Math.max(start, 0) : 0;
+		int maximumSearchResults = HibernatePersonDAO.getMaximumSearchResults();
+		int maxResults = maximumSearchResults;
+		if (length != null && length < maximumSearchResults) {
+			maxResults = length;
+		} else if (log.isDebugEnabled()) {
+			log.debug("Limiting the size of the number of matching patients to " + maximumSearchResults);
+		}
 		
-		return criteria.list();
+		List<Integer> patientIds = new PatientSearchIndexQuery(sessionFactory).getPatientIds(query, firstResult,
+		    maxResults);
+		// only a patient voided by another transaction whose index updates are still queued is left out here
+		return getPatientsInOrder(patientIds, false);
+	}
+	
+	/**
+	 * @param patientIds the ids of the patients to load
+	 * @param includeVoided whether voided patients are loaded too
+	 * @return the patients in the order of the given ids
+	 */
+	private List<Patient> getPatientsInOrder(List<Integer> patientIds, boolean includeVoided) {
+		if (patientIds.isEmpty()) {
+			return new ArrayList<Patient>();
+		}
+		
+		String hql = "from Patient p where p.patientId in (:patientIds)";
+		if (!includeVoided) {
+			hql += " and p.voided = false and p.personVoided = false";
+		}
+		
+		Map<Integer, Patient> patientsById = new HashMap<Integer, Patient>();
+		for (int from = 0; from < patientIds.size(); from += MAX_IN_CLAUSE_SIZE) {
+			@SuppressWarnings("unchecked")
+			List<Patient> patients = sessionFactory.getCurrentSession().createQuery(hql).setParameterList("patientIds",
+			    patientIds.subList(from, Math.min(from + MAX_IN_CLAUSE_SIZE, patientIds.size()))).list();
+			for (Patient patient : patients) {
+				patientsById.put(patient.getPatientId(), patient);
+			}
+		}
+		
+		List<Patient> orderedPatients = new ArrayList<Patient>(patientIds.size());
+		for (Integer patientId : patientIds) {
+			Patient patient = patientsById.get(patientId);
+			if (patient != null) {
+				orderedPatients.add(patient);
+			}
+		}
+		return orderedPatients;
 	}
 	
 	private void setFirstAndMaxResult(Criteria criteria, Integer start, Integer length) {
@@ -406,17 +477,16 @@ public class HibernatePatientDAO implements PatientDAO {
 	}
 	
 	/**
+	 * The rows are read sorted by the values of the attributes, so that the patients with the same
+	 * values follow each other and can be found in a single pass, instead of joining every patient
+	 * with every other one.
+	 *
 	 * @see org.openmrs.api.db.PatientDAO#getDuplicatePatientsByAttributes(java.util.List)
 	 */
-	@SuppressWarnings("unchecked")
 	public List<Patient> getDuplicatePatientsByAttributes(List<String> attributes) {
 		List<Patient> patients = new Vector<Patient>();
 		
 		if (attributes.size() > 0) {
-			String select = "select distinct p1 from Patient p1, Patient p2";
-			String where = " where p1 <> p2 ";
-			String orderBy = " order by ";
-			
 			Class patient = Patient.class;
 			Set<String> patientFieldNames = new HashSet<String>(patient.getDeclaredFields().length);
 			for (Field f : patient.getDeclaredFields()) {
@@ -445,53 +515,427 @@ public class HibernatePatientDAO implements PatientDAO {
 				log.debug(f.getName());
 			}
 			
-			if (!attributes.contains("includeVoided")) {
-				where += "and p1.voided = false and p2.voided = false ";
-			}
-			
+			List<String> columns = new ArrayList<String>();
+			String from = " from Patient p";
+			boolean joinedNames = false;
+			boolean joinedIdentifiers = false;
 			for (String s : attributes) {
-				if (patientFieldNames.contains(s)) {
-					where += " and p1." + s + " = p2." + s;
-					orderBy += "p1." + s + ", ";
-				} else if (personFieldNames.contains(s)) {
-					if (!select.contains("Person ")) {
-						select += ", Person person1, Person person2";
-						where += " and p1.patientId = person1.personId and p2.patientId = person2.personId ";
-					}
-					where += " and person1." + s + " = person2." + s;
-					orderBy += "person1." + s + ", ";
+				if (patientFieldNames.contains(s) || personFieldNames.contains(s)) {
+					columns.add("p." + s);
 				} else if (personNameFieldNames.contains(s)) {
-					if (!select.contains("PersonName")) {
-						select += ", PersonName pn1, PersonName pn2";
-						where += " and p1 = pn1.person and p2 = pn2.person ";
+					if (!joinedNames) {
+						from += " join p.names pn";
+						joinedNames = true;
 					}
-					where += " and pn1." + s + " = pn2." + s;
-					orderBy += "pn1." + s + ", ";
+					columns.add("pn." + s);
 				} else if (identifierFieldNames.contains(s)) {
-					if (!select.contains("PatientIdentifier")) {
-						select += ", PatientIdentifier pi1, PatientIdentifier pi2";
-						where += " and p1 = pi1.patient and p2 = pi2.patient ";
+					if (!joinedIdentifiers) {
+						from += " join p.identifiers pi";
+						joinedIdentifiers = true;
 					}
-					where += " and pi1." + s + " = pi2." + s;
-					orderBy += "pi1." + s + ", ";
-				} else {
+					columns.add("pi." + s);
+				} else if (!"includeVoided".equals(s)) {
 					log.warn("Unidentified attribute: " + s);
 				}
 			}
 			
-			int index = orderBy.lastIndexOf(", ");
-			orderBy = orderBy.substring(0, index);
+			if (columns.isEmpty()) {
+				return patients;
+			}
 			
-			select = select + where + orderBy;
+			String select = "select p.patientId";
+			String where = " where 1 = 1";
+			String orderBy = " order by ";
+			if (!attributes.contains("includeVoided")) {
+				where += " and p.voided = false";
+			}
+			for (String column : columns) {
+				select += ", " + column;
+				// null never equals anything, like in the comparison of a join
+				where += " and " + column + " is not null";
+				orderBy += column + ", ";
+			}
+			orderBy += "p.patientId";
 			
-			Query query = sessionFactory.getCurrentSession().createQuery(select);
+			Set<Integer> patientIds = new LinkedHashSet<Integer>();
+			ScrollableResults results = sessionFactory.getCurrentSession().createQuery(select + from + where + orderBy)
+			        .setFetchSize(1000).scroll(ScrollMode.FORWARD_ONLY);
+			try {
+				Object[] previous = null;
+				while (results.next()) {
+					Object[] row = results.get();
+					if (previous != null && !previous[0].equals(row[0]) && hasSameValues(previous, row)) {
+						patientIds.add((Integer) previous[0]);
+						patientIds.add((Integer) row[0]);
+					}
+					previous = row;
+				}
+			}
+			finally {
+				results.close();
+			}
 			
-			patients = query.list();
+			patients.addAll(getPatientsInOrder(new ArrayList<Integer>(patientIds), true));
 		}
 		
 		return patients;
 	}
 	
+	/**
+	 * @return true if the rows have the same values after the patient id, strings are compared
+	 *         ignoring case like most database collations do
+	 */
+	private boolean hasSameValues(Object[] row, Object[] otherRow) {
+		for (int i = 1; i < row.length; i++) {
+			if (row[i] instanceof String && otherRow[i] instanceof String) {
+				if (!((String) row[i]).equalsIgnoreCase((String) otherRow[i])) {
+					return false;
+				}
+			} else if (!OpenmrsUtil.nullSafeEquals(row[i], otherRow[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.PatientDAO#getPatientIds(java.util.Date, java.lang.Integer, int)
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Integer> getPatientIds(Date changedSince, Integer afterPatientId, int maxResults) {
+		StringBuilder hql = new StringBuilder("select p.patientId from Patient p where p.voided = false");
+		if (afterPatientId != null) {
+			hql.append(" and p.patientId > :afterPatientId");
+		}
+		if (changedSince != null) {
+			hql.append(" and (p.dateCreated >= :changedSince or p.dateChanged >= :changedSince").append(
+			    " or p.personDateChanged >= :changedSince").append(
+			    " or exists (select pn.personNameId from PersonName pn where pn.person = p").append(
+			    " and (pn.dateCreated >= :changedSince or pn.dateChanged >= :changedSince))").append(
+			    " or exists (select pi.patientIdentifierId from PatientIdentifier pi where pi.patient = p").append(
+			    " and (pi.dateCreated >= :changedSince or pi.dateChanged >= :changedSince)))");
+		}
+		hql.append(" order by p.patientId");
+		
+		Query query = sessionFactory.getCurrentSession().createQuery(hql.toString());
+		if (afterPatientId != null) {
+			query.setInteger("afterPatientId", afterPatientId);
+		}
+		if (changedSince != null) {
+			query.setTimestamp("changedSince", changedSince);
+		}
+		return query.setMaxResults(maxResults).list();
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.PatientDAO#getDuplicatePatientRecords(java.util.Collection)
+	 */
+	@SuppressWarnings("unchecked")
+	public List<DuplicatePatientRecord> getDuplicatePatientRecords(Collection<Integer> patientIds) {
+		Session session = sessionFactory.getCurrentSession();
+		Map<Integer, DuplicatePatientRecord> records = new LinkedHashMap<Integer, DuplicatePatientRecord>();
+		List<Integer> ids = new ArrayList<Integer>(patientIds);
+		for (int from = 0; from < ids.size(); from += MAX_IN_CLAUSE_SIZE) {
+			List<Integer> chunk = ids.subList(from, Math.min(from + MAX_IN_CLAUSE_SIZE, ids.size()));
+			
+			List<Object[]> rows = session.createQuery(
+			    "select p.patientId, p.gender, p.birthdate from Patient p where p.patientId in (:patientIds)")
+			        .setParameterList("patientIds", chunk).list();
+			for (Object[] row : rows) {
+				records.put((Integer) row[0], new DuplicatePatientRecord((Integer) row[0], (String) row[1], (Date) row[2]));
+			}
+			
+			rows = session.createQuery(
+			    "select pn.person.personId, pn.givenName, pn.familyName from PersonName pn"
+			            + " where pn.voided = false and pn.person.personId in (:patientIds)").setParameterList(
+			    "patientIds", chunk).list();
+			for (Object[] row : rows) {
+				DuplicatePatientRecord record = records.get(row[0]);
+				if (record != null) {
+					record.addName((String) row[1], (String) row[2]);
+				}
+			}
+			
+			rows = session.createQuery(
+			    "select pi.patient.patientId, pi.identifier from PatientIdentifier pi"
+			            + " where pi.voided = false and pi.patient.patientId in (:patientIds)").setParameterList(
+			    "patientIds", chunk).list();
+			for (Object[] row : rows) {
+				DuplicatePatientRecord record = records.get(row[0]);
+				if (record != null) {
+					record.addIdentifier((String) row[1]);
+				}
+			}
+		}
+		return new ArrayList<DuplicatePatientRecord>(records.values());
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.PatientDAO#getDuplicatePatientCandidateIds(java.util.Collection)
+	 */
+	@SuppressWarnings("unchecked")
+	public Set<Integer> getDuplicatePatientCandidateIds(Collection<DuplicatePatientRecord> records) {
+		// the keys are looked up as the pairs they form, not every soundex with every other one
+		Map<String, Set<String>> familyNameSoundexesByGivenNameSoundex = new HashMap<String, Set<String>>();
+		Map<List<Object>, Set<String>> familyNameMetaphonesByBirthYearAndGender = new HashMap<List<Object>, Set<String>>();
+		List<String> identifierFragments = new ArrayList<String>();
+		for (DuplicatePatientRecord record : records) {
+			for (DuplicatePatientRecord.Name name : record.getNames()) {
+				if (name.getGivenNameSoundex().length() > 0 && name.getFamilyNameSoundex().length() > 0) {
+					getValues(familyNameSoundexesByGivenNameSoundex, name.getGivenNameSoundex()).add(
+					    name.getFamilyNameSoundex());
+				}
+				if (name.getFamilyNameMetaphone().length() > 0 && record.getBirthYear() != null) {
+					List<Object> birthYearAndGender = Arrays.<Object> asList(record.getBirthYear(), StringUtils
+					        .defaultString(record.getGender()));
+					getValues(familyNameMetaphonesByBirthYearAndGender, birthYearAndGender).add(
+					    name.getFamilyNameMetaphone());
+				}
+			}
+			identifierFragments.addAll(record.getIdentifierFragments());
+		}
+		
+		Session session = sessionFactory.getCurrentSession();
+		Set<Integer> patientIds = new HashSet<Integer>();
+		for (Map.Entry<String, Set<String>> entry : familyNameSoundexesByGivenNameSoundex.entrySet()) {
+			patientIds.addAll(session.createQuery(
+			    "select distinct p.patientId from Patient p join p.names pn where p.voided = false and pn.voided = false"
+			            + " and pn.givenNameSoundex = :givenNameSoundex"
+			            + " and pn.familyNameSoundex in (:familyNameSoundexes)").setString("givenNameSoundex",
+			    entry.getKey()).setParameterList("familyNameSoundexes", entry.getValue()).list());
+		}
+		
+		Calendar calendar = Calendar.getInstance();
+		for (Map.Entry<List<Object>, Set<String>> entry : familyNameMetaphonesByBirthYearAndGender.entrySet()) {
+			calendar.clear();
+			calendar.set((Integer) entry.getKey().get(0), Calendar.JANUARY, 1);
+			Date from = calendar.getTime();
+			calendar.add(Calendar.YEAR, 1);
+			patientIds.addAll(session.createQuery(
+			    "select distinct p.patientId from Patient p join p.names pn where p.voided = false and pn.voided = false"
+			            + " and p.birthdate >= :from and p.birthdate < :to and coalesce(p.gender, '') = :gender"
+			            + " and pn.familyNameMetaphone in (:familyNameMetaphones)").setTimestamp("from", from)
+			        .setTimestamp("to", calendar.getTime()).setString("gender", (String) entry.getKey().get(1))
+			        .setParameterList("familyNameMetaphones", entry.getValue()).list());
+		}
+		
+		// the start of an identifier can be looked up in its index, wildcards in it only add candidates
+		for (int from = 0; from < identifierFragments.size(); from += MAX_LIKE_CLAUSES) {
+			List<String> chunk = identifierFragments.subList(from, Math.min(from + MAX_LIKE_CLAUSES,
+			    identifierFragments.size()));
+			StringBuilder hql = new StringBuilder(
+			        "select distinct pi.patient.patientId from PatientIdentifier pi where pi.voided = false"
+			                + " and pi.patient.voided = false and (");
+			for (int i = 0; i < chunk.size(); i++) {
+				if (i > 0) {
+					hql.append(" or ");
+				}
+				hql.append("pi.identifier like :identifier").append(i);
+			}
+			hql.append(")");
+			
+			Query query = session.createQuery(hql.toString());
+			for (int i = 0; i < chunk.size(); i++) {
+				query.setString("identifier" + i, chunk.get(i) + "%");
+			}
+			patientIds.addAll(query.list());
+		}
+		
+		return patientIds;
+	}
+	
+	private static <K> Set<String> getValues(Map<K, Set<String>> valuesByKey, K key) {
+		Set<String> values = valuesByKey.get(key);
+		if (values == null) {
+			values = new HashSet<String>();
+			valuesByKey.put(key, values);
+		}
+		return values;
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.PatientDAO#hasUnvoidedOrders(org.openmrs.Patient)
+	 */
+	public boolean hasUnvoidedOrders(Patient patient) {
+		Number count = (Number) sessionFactory.getCurrentSession().createQuery(
+		    "select count(*) from Order o where o.patient = :patient and o.voided = false").setParameter("patient",
+		    patient).uniqueResult();
+		return count.intValue() > 0;
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.PatientDAO#moveVisits(org.openmrs.Patient, org.openmrs.Patient)
+	 */
+	public List<Integer> moveVisits(Patient notPreferred, Patient preferred) {
+		List<Integer> visitIds = getIds("select v.visitId from Visit v where v.patient = :patient order by v.visitId",
+		    notPreferred);
+		moveRows("update Visit set patient = :preferred, changedBy = :changedBy, dateChanged = :dateChanged"
+		        + " where visitId in (:ids)", true, Visit.class, visitIds, preferred);
+		return visitIds;
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.PatientDAO#moveEncounters(org.openmrs.Patient, org.openmrs.Patient)
+	 */
+	public List<Integer> moveEncounters(Patient notPreferred, Patient preferred) {
+		List<Integer> encounterIds = getIds(
+		    "select e.encounterId from Encounter e where e.patient = :patient order by e.encounterId", notPreferred);
+		moveRows("update Encounter set patient = :preferred, changedBy = :changedBy, dateChanged = :dateChanged"
+		        + " where encounterId in (:ids)", true, Encounter.class, encounterIds, preferred);
+		return encounterIds;
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.PatientDAO#moveObservations(org.openmrs.Patient, org.openmrs.Patient)
+	 */
+	public List<Integer> moveObservations(Patient notPreferred, Patient preferred) {
+		List<Integer> obsIds = getIds("select o.obsId from Obs o where o.person = :patient"
+		        + " and o.encounter is not null order by o.obsId", notPreferred);
+		// observations are not changed in place elsewhere, so they have no changed by to set
+		moveRows("update Obs set person = :preferred where obsId in (:ids)", false, Obs.class, obsIds, preferred);
+		return obsIds;
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.PatientDAO#copyObservationsNotContainedInEncounters(org.openmrs.Patient,
+	 *      org.openmrs.Patient, java.lang.String)
+	 */
+	@SuppressWarnings("unchecked")
+	public List<String> copyObservationsNotContainedInEncounters(Patient notPreferred, Patient preferred,
+	        String voidReason) {
+		List<Integer> obsIds = getIds("select o.obsId from Obs o where o.person = :patient and o.encounter is null"
+		        + " and o.obsGroup is null and o.voided = false order by o.obsId", notPreferred);
+		Session session = sessionFactory.getCurrentSession();
+		User user = Context.getAuthenticatedUser();
+		Date date = new Date();
+		List<String> copyUuids = new ArrayList<String>();
+		for (int from = 0; from < obsIds.size(); from += MAX_IN_CLAUSE_SIZE) {
+			List<Obs> chunk = session.createQuery("from Obs o where o.obsId in (:ids) order by o.obsId")
+			        .setParameterList("ids", obsIds.subList(from, Math.min(from + MAX_IN_CLAUSE_SIZE, obsIds.size())))
+			        .list();
+			List<Obs> copies = new ArrayList<Obs>();
+			for (Obs original : chunk) {
+				// the same copy that ObsService#saveObs makes when an existing obs is changed
+				Obs copy = Obs.newInstance(original);
+				setPerson(copy, preferred);
+				copy.setVoided(false);
+				copy.setVoidReason(null);
+				copy.setDateVoided(null);
+				copy.setVoidedBy(null);
+				copy.setCreator(user);
+				copy.setDateCreated(date);
+				copy.setPreviousVersion(original);
+				session.save(copy);
+				copies.add(copy);
+				copyUuids.add(copy.getUuid());
+				
+				voidObs(original, user, date, voidReason);
+			}
+			// only the current chunk is kept in the session
+			session.flush();
+			for (Obs obs : chunk) {
+				session.evict(obs);
+			}
+			for (Obs copy : copies) {
+				session.evict(copy);
+			}
+		}
+		return copyUuids;
+	}
+	
+	private void setPerson(Obs obs, Patient person) {
+		obs.setPerson(person);
+		if (obs.hasGroupMembers(true)) {
+			for (Obs member : obs.getGroupMembers(true)) {
+				setPerson(member, person);
+			}
+		}
+	}
+	
+	private void voidObs(Obs obs, User voidedBy, Date dateVoided, String voidReason) {
+		if (!obs.isVoided()) {
+			obs.setVoided(true);
+			obs.setVoidedBy(voidedBy);
+			obs.setDateVoided(dateVoided);
+			obs.setVoidReason(voidReason);
+		}
+		if (obs.hasGroupMembers(true)) {
+			for (Obs member : obs.getGroupMembers(true)) {
+				voidObs(member, voidedBy, dateVoided, voidReason);
+			}
+		}
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.PatientDAO#moveOrders(org.openmrs.Patient, org.openmrs.Patient)
+	 */
+	public List<Integer> moveOrders(Patient notPreferred, Patient preferred) {
+		List<Integer> orderIds = getIds("select o.orderId from Order o where o.patient = :patient order by o.orderId",
+		    notPreferred);
+		Session session = sessionFactory.getCurrentSession();
+		session.flush();
+		// in hql the subclass tables of orders would make this a multi table update
+		for (int from = 0; from < orderIds.size(); from += MAX_IN_CLAUSE_SIZE) {
+			session.createSQLQuery("update orders set patient_id = :preferred where order_id in (:ids)")
+			        .addSynchronizedEntityClass(org.openmrs.Order.class).setInteger("preferred", preferred.getPatientId())
+			        .setParameterList("ids", orderIds.subList(from, Math.min(from + MAX_IN_CLAUSE_SIZE, orderIds.size())))
+			        .executeUpdate();
+		}
+		evict(org.openmrs.Order.class, orderIds);
+		return orderIds;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private List<Integer> getIds(String hql, Patient patient) {
+		return sessionFactory.getCurrentSession().createQuery(hql).setParameter("patient", patient).list();
+	}
+	
+	/**
+	 * Moves the given rows to the preferred patient, a chunk of ids per statement
+	 * 
+	 * @param hql the update with the :preferred and :ids parameters
+	 * @param changeable whether the update sets the :changedBy and :dateChanged parameters as well
+	 * @param entityClass the class of the rows
+	 * @param ids the ids of the rows
+	 * @param preferred the patient to move the rows to
+	 */
+	private void moveRows(String hql, boolean changeable, Class<?> entityClass, List<Integer> ids, Patient preferred) {
+		Session session = sessionFactory.getCurrentSession();
+		// the updates go straight to the database, pending changes must be written before them
+		session.flush();
+		Date dateChanged = new Date();
+		for (int from = 0; from < ids.size(); from += MAX_IN_CLAUSE_SIZE) {
+			Query query = session.createQuery(hql).setParameter("preferred", preferred).setParameterList("ids",
+			    ids.subList(from, Math.min(from + MAX_IN_CLAUSE_SIZE, ids.size())));
+			if (changeable) {
+				query.setParameter("changedBy", Context.getAuthenticatedUser()).setTimestamp("dateChanged", dateChanged);
+			}
+			query.executeUpdate();
+		}
+		evict(entityClass, ids);
+	}
+	
+	/**
+	 * Removes the given rows from the session after a bulk update, so that their stale state is
+	 * neither read nor written back
+	 * 
+	 * @param entityClass the class of the rows
+	 * @param ids the ids of the rows
+	 */
+	private void evict(Class<?> entityClass, Collection<Integer> ids) {
+		Session session = sessionFactory.getCurrentSession();
+		Set<Integer> idSet = new HashSet<Integer>(ids);
+		for (Object key : new ArrayList<Object>(session.getStatistics().getEntityKeys())) {
+			EntityKey entityKey = (EntityKey) key;
+			if (idSet.contains(entityKey.getIdentifier())) {
+				Object entity = session.get(entityKey.getEntityName(), entityKey.getIdentifier());
+				if (entityClass.isInstance(entity)) {
+					session.evict(entity);
+				}
+			}
+		}
+	}
+	
 	/**
 	 * @see org.openmrs.api.db.PatientDAO#getPatientByUuid(java.lang.String)
 	 */
@@ -612,12 +1056,6 @@ public class HibernatePatientDAO implements PatientDAO {
 			return 0L;
 		}
 		
-		Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Patient.class);
-		criteria = new PatientSearchCriteria(sessionFactory, criteria).prepareCriteria(query);
-		
-		// Using Hibernate projections did NOT work here, the resulting queries could not be executed due to
-		// missing group-by clauses. Hence the poor man's implementation of counting search results.
-		//
-		return (long) criteria.list().size();
+		return (long) new PatientSearchIndexQuery(sessionFactory).getCountOfPatients(query);
 	}
 }
@@ -13,17 +13,26 @@
  */
 package org.openmrs.api.db.hibernate;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
+import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hibernate.Criteria;
 import org.hibernate.Query;
 import org.hibernate.SQLQuery;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.Disjunction;
 import org.hibernate.criterion.MatchMode;
@@ -42,6 +51,8 @@ import org.openmrs.api.db.DAOException;
 import org.openmrs.api.db.PersonDAO;
 import org.openmrs.person.PersonMergeLog;
 import org.openmrs.util.OpenmrsConstants;
+import org.openmrs.util.OpenmrsUtil;
+import org.openmrs.util.PhoneticUtil;
 
 /**
  * Hibernate specific Person database methods. <br/>
@@ -61,6 +72,45 @@ public class HibernatePersonDAO implements PersonDAO {
 	
 	protected final static Log log = LogFactory.getLog(HibernatePersonDAO.class);
 	
+	/**
+	 * The points a name part scores when it matches the first, second or third word of a two or
+	 * three word search, in the order given name, middle name, family name, second family name
+	 */
+	private static final int[][] TWO_WORD_SCORES = { { 4, 3 }, { 3, 4 }, { 3, 4 }, { 3, 4 } };
+	
+	private static final int[][] THREE_WORD_SCORES = { { 3, 2, 1 }, { 2, 3, 1 }, { 1, 2, 3 }, { 1, 2, 3 } };
+	
+	/**
+	 * The number of names whose phonetic keys are written in one JDBC batch
+	 */
+	private static final int PHONETIC_KEYS_BATCH_SIZE = 100;
+	
+	/**
+	 * Sorts names by given, middle, family and second family name
+	 */
+	private static final Comparator<PersonName> NAME_PARTS_COMPARATOR = new Comparator<PersonName>() {
+		
+		@Override
+		public int compare(PersonName name1, PersonName name2) {
+			int ret = compareIgnoreCase(name1.getGivenName(), name2.getGivenName());
+			if (ret == 0) {
+				ret = compareIgnoreCase(name1.getMiddleName(), name2.getMiddleName());
+			}
+			if (ret == 0) {
+				ret = compareIgnoreCase(name1.getFamilyName(), name2.getFamilyName());
+			}
+			if (ret == 0) {
+				ret = compareIgnoreCase(name1.getFamilyName2(), name2.getFamilyName2());
+			}
+			return ret;
+		}
+		
+		private int compareIgnoreCase(String s1, String s2) {
+			return OpenmrsUtil.compareWithNullAsLowest(s1 == null ? null : s1.toLowerCase(), s2 == null ? null : s2
+			        .toLowerCase());
+		}
+	};
+	
 	/**
 	 * Hibernate session factory
 	 */
@@ -76,123 +126,219 @@ public class HibernatePersonDAO implements PersonDAO {
 	}
 	
 	/**
+	 * The candidates are looked up by the soundex and double metaphone keys of their name parts,
+	 * which are stored with every name, see {@link PersonName#updatePhoneticKeys()}. A name part
+	 * matches a word of the search if either of its keys is the same as the one of the word. The
+	 * candidates are then scored like this:
+	 * <ul>
+	 * <li>one word: any name part has to match the word</li>
+	 * <li>two words: every name part scores 1 if it is empty, or by the first word it matches, see
+	 * {@link #TWO_WORD_SCORES}, and the total has to be more than 6</li>
+	 * <li>three words: every name part scores by the first word it matches, see
+	 * {@link #THREE_WORD_SCORES}, and the total has to be at least 5</li>
+	 * <li>more words: every name part scores 1 if it matches any word, and the total has to be at
+	 * least three quarters of the number of words</li>
+	 * </ul>
+	 *
 	 * @see org.openmrs.api.PersonService#getSimilarPeople(java.lang.String, java.lang.Integer, java.lang.String, java.lang.String)
 	 * @see org.openmrs.api.db.PersonDAO#getSimilarPeople(String name, Integer birthyear, String gender)
 	 */
 	@SuppressWarnings("unchecked")
 	public Set<Person> getSimilarPeople(String name, Integer birthyear, String gender) throws DAOException {
-		if (birthyear == null) {
-			birthyear = 0;
-		}
-		
 		Set<Person> people = new LinkedHashSet<Person>();
 		
 		name = name.replaceAll("  ", " ");
 		name = name.replace(", ", " ");
 		String[] names = name.split(" ");
 		
+		String[] soundexes = new String[names.length];
+		String[] metaphones = new String[names.length];
+		Set<String> soundexKeys = new HashSet<String>();
+		Set<String> metaphoneKeys = new HashSet<String>();
+		for (int i = 0; i < names.length; i++) {
+			soundexes[i] = PhoneticUtil.getSoundex(names[i]);
+			metaphones[i] = PhoneticUtil.getDoubleMetaphone(names[i]);
+			if (soundexes[i].length() > 0) {
+				soundexKeys.add(soundexes[i]);
+			}
+			if (metaphones[i].length() > 0) {
+				metaphoneKeys.add(metaphones[i]);
+			}
+		}
+		
+		if (soundexKeys.isEmpty() && metaphoneKeys.isEmpty()) {
+			return people;
+		}
+		
 		StringBuilder q = new StringBuilder(
-		        "select p from Person p left join p.names as pname where p.personVoided = false and pname.voided = false and ");
+		        "select pname from PersonName pname join fetch pname.person p where p.personVoided = false and pname.voided = false and (");
+		if (!soundexKeys.isEmpty()) {
+			q.append(" pname.givenNameSoundex in (:soundexes) or pname.middleNameSoundex in (:soundexes)").append(
+			    " or pname.familyNameSoundex in (:soundexes) or pname.familyName2Soundex in (:soundexes)");
+		}
+		if (!metaphoneKeys.isEmpty()) {
+			if (!soundexKeys.isEmpty()) {
+				q.append(" or");
+			}
+			q.append(" pname.givenNameMetaphone in (:metaphones) or pname.middleNameMetaphone in (:metaphones)").append(
+			    " or pname.familyNameMetaphone in (:metaphones) or pname.familyName2Metaphone in (:metaphones)");
+		}
+		q.append(")");
+		
+		if (birthyear != null && birthyear != 0) {
+			q.append(" and (p.birthdate is null or (p.birthdate >= :minBirthdate and p.birthdate < :maxBirthdate))");
+		}
+		if (gender != null) {
+			q.append(" and (p.gender = :gender or p.gender = '')");
+		}
 		
+		Query query = sessionFactory.getCurrentSession().createQuery(q.toString());
+		if (!soundexKeys.isEmpty()) {
+			query.setParameterList("soundexes", soundexKeys);
+		}
+		if (!metaphoneKeys.isEmpty()) {
+			query.setParameterList("metaphones", metaphoneKeys);
+		}
+		if (birthyear != null && birthyear != 0) {
+			// anyone born the year before, in or after the given year
+			Calendar calendar = Calendar.getInstance();
+			calendar.clear();
+			calendar.set(birthyear - 1, Calendar.JANUARY, 1);
+			query.setTimestamp("minBirthdate", calendar.getTime());
+			calendar.add(Calendar.YEAR, 3);
+			query.setTimestamp("maxBirthdate", calendar.getTime());
+		}
+		if (gender != null) {
+			query.setString("gender", gender);
+		}
+		
+		int[][] scores;
+		int emptyScore = 0;
+		int minScore;
 		if (names.length == 1) {
-			q.append("(").append(" soundex(pname.givenName) = soundex(:n1)").append(
-			    " or soundex(pname.middleName) = soundex(:n1)").append(" or soundex(pname.familyName) = soundex(:n1) ")
-			        .append(" or soundex(pname.familyName2) = soundex(:n1) ").append(")");
+			scores = new int[][] { { 1 }, { 1 }, { 1 }, { 1 } };
+			minScore = 1;
 		} else if (names.length == 2) {
-			q.append("(").append(" case").append("  when pname.givenName is null then 1").append(
-			    "  when pname.givenName = '' then 1").append("  when soundex(pname.givenName) = soundex(:n1) then 4")
-			        .append("  when soundex(pname.givenName) = soundex(:n2) then 3").append("  else 0 ").append(" end")
-			        .append(" + ").append(" case").append("  when pname.middleName is null then 1").append(
-			            "  when pname.middleName = '' then 1").append(
-			            "  when soundex(pname.middleName) = soundex(:n1) then 3").append(
-			            "  when soundex(pname.middleName) = soundex(:n2) then 4").append("  else 0 ").append(" end").append(
-			            " + ").append(" case").append("  when pname.familyName is null then 1").append(
-			            "  when pname.familyName = '' then 1").append(
-			            "  when soundex(pname.familyName) = soundex(:n1) then 3").append(
-			            "  when soundex(pname.familyName) = soundex(:n2) then 4").append("  else 0 ").append(" end").append(
-			            " +").append(" case").append("  when pname.familyName2 is null then 1").append(
-			            "  when pname.familyName2 = '' then 1").append(
-			            "  when soundex(pname.familyName2) = soundex(:n1) then 3").append(
-			            "  when soundex(pname.familyName2) = soundex(:n2) then 4").append("  else 0 ").append(" end")
-			        .append(") > 6");
+			scores = TWO_WORD_SCORES;
+			emptyScore = 1;
+			minScore = 7;
 		} else if (names.length == 3) {
-			q.append("(").append(" case").append("  when pname.givenName is null then 0").append(
-			    "  when soundex(pname.givenName) = soundex(:n1) then 3").append(
-			    "  when soundex(pname.givenName) = soundex(:n2) then 2").append(
-			    "  when soundex(pname.givenName) = soundex(:n3) then 1").append("  else 0 ").append(" end").append(" + ")
-			        .append(" case").append("  when pname.middleName is null then 0").append(
-			            "  when soundex(pname.middleName) = soundex(:n1) then 2").append(
-			            "  when soundex(pname.middleName) = soundex(:n2) then 3").append(
-			            "  when soundex(pname.middleName) = soundex(:n3) then 1").append("  else 0").append(" end").append(
-			            " + ").append(" case").append("  when pname.familyName is null then 0").append(
-			            "  when soundex(pname.familyName) = soundex(:n1) then 1").append(
-			            "  when soundex(pname.familyName) = soundex(:n2) then 2").append(
-			            "  when soundex(pname.familyName) = soundex(:n3) then 3").append("  else 0").append(" end").append(
-			            " +").append(" case").append("  when pname.familyName2 is null then 0").append(
-			            "  when soundex(pname.familyName2) = soundex(:n1) then 1").append(
-			            "  when soundex(pname.familyName2) = soundex(:n2) then 2").append(
-			            "  when soundex(pname.familyName2) = soundex(:n3) then 3").append("  else 0").append(" end").append(
-			            ") >= 5");
+			scores = THREE_WORD_SCORES;
+			minScore = 5;
 		} else {
-			
-			// This is simply an alternative method of name matching which scales better
-			// for large names, although it is hard to imagine getting names with more than
-			// six or so tokens.  This can be easily updated to attain more desirable
-			// results; it is just a working alternative to throwing an exception.
-			
-			q.append("(").append(" case").append("  when pname.givenName is null then 0");
-			for (int i = 0; i < names.length; i++) {
-				q.append("  when soundex(pname.givenName) = soundex(:n").append(i + 1).append(") then 1");
-			}
-			q.append("  else 0").append(" end").append(")").append("+").append("(").append(" case").append(
-			    "  when pname.middleName is null then 0");
-			for (int i = 0; i < names.length; i++) {
-				q.append("  when soundex(pname.middleName) = soundex(:n").append(i + 1).append(") then 1");
-			}
-			q.append("  else 0").append(" end").append(")").append("+").append("(").append(" case").append(
-			    "  when pname.familyName is null then 0");
-			for (int i = 0; i < names.length; i++) {
-				q.append("  when soundex(pname.familyName) = soundex(:n").append(i + 1).append(") then 1");
+			scores = new int[4][names.length];
+			for (int[] partScores : scores) {
+				Arrays.fill(partScores, 1);
 			}
-			q.append("  else 0").append(" end").append(")").append("+").append("(").append(" case").append(
-			    "  when pname.familyName2 is null then 0");
-			for (int i = 0; i < names.length; i++) {
-				q.append("  when soundex(pname.familyName2) = soundex(:n").append(i + 1).append(") then 1");
-			}
-			q.append("  else 0").append(" end").append(") >= ").append((int) (names.length * .75)); // if most of the names have at least a hit somewhere
+			// if most of the names have at least a hit somewhere
+			minScore = (int) (names.length * .75);
 		}
 		
-		String birthdayMatch = " (year(p.birthdate) between " + (birthyear - 1) + " and " + (birthyear + 1)
-		        + " or p.birthdate is null) ";
-		
-		String genderMatch = " (p.gender = :gender or p.gender = '') ";
-		
-		if (birthyear != 0 && gender != null) {
-			q.append(" and (" + birthdayMatch + "and " + genderMatch + ") ");
-		} else if (birthyear != 0) {
-			q.append(" and " + birthdayMatch);
-		} else if (gender != null) {
-			q.append(" and " + genderMatch);
+		List<PersonName> matches = new ArrayList<PersonName>();
+		for (PersonName personName : (List<PersonName>) query.list()) {
+			if (getSimilarityScore(personName, soundexes, metaphones, scores, emptyScore) >= minScore) {
+				matches.add(personName);
+			}
 		}
 		
-		q.append(" order by pname.givenName asc,").append(" pname.middleName asc,").append(" pname.familyName asc").append(
-		    " pname.familyName2 asc");
-		
-		String qStr = q.toString();
-		Query query = sessionFactory.getCurrentSession().createQuery(qStr);
-		
-		for (int nameIndex = 0; nameIndex < names.length; nameIndex++) {
-			query.setString("n" + (nameIndex + 1), names[nameIndex]);
+		Collections.sort(matches, NAME_PARTS_COMPARATOR);
+		for (PersonName match : matches) {
+			people.add(match.getPerson());
 		}
 		
-		if (qStr.contains(":gender")) {
-			query.setString("gender", gender);
+		return people;
+	}
+	
+	/**
+	 * Scores a name against the words of a search, see {@link #getSimilarPeople(String, Integer, String)}
+	 *
+	 * @param personName the name to score
+	 * @param soundexes the soundex keys of the words
+	 * @param metaphones the double metaphone keys of the words
+	 * @param scores the points per name part and word
+	 * @param emptyScore the points of a name part without letters
+	 * @return the sum of the points of all name parts
+	 */
+	private int getSimilarityScore(PersonName personName, String[] soundexes, String[] metaphones, int[][] scores,
+	        int emptyScore) {
+		String[][] keys = { { personName.getGivenNameSoundex(), personName.getGivenNameMetaphone() },
+		        { personName.getMiddleNameSoundex(), personName.getMiddleNameMetaphone() },
+		        { personName.getFamilyNameSoundex(), personName.getFamilyNameMetaphone() },
+		        { personName.getFamilyName2Soundex(), personName.getFamilyName2Metaphone() } };
+		
+		int score = 0;
+		for (int part = 0; part < keys.length; part++) {
+			String soundex = keys[part][0];
+			String metaphone = keys[part][1];
+			if (StringUtils.isEmpty(soundex) && StringUtils.isEmpty(metaphone)) {
+				score += emptyScore;
+				continue;
+			}
+			for (int word = 0; word < soundexes.length; word++) {
+				if ((StringUtils.isNotEmpty(soundex) && soundex.equals(soundexes[word]))
+				        || (StringUtils.isNotEmpty(metaphone) && metaphone.equals(metaphones[word]))) {
+					score += scores[part][word];
+					break;
+				}
+			}
+		}
+		return score;
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.PersonDAO#updatePersonNamePhoneticKeys(int)
+	 */
+	@SuppressWarnings("unchecked")
+	public int updatePersonNamePhoneticKeys(int batchSize) throws DAOException {
+		Session session = sessionFactory.getCurrentSession();
+		List<Object[]> rows = session.createQuery(
+		    "select pn.personNameId, pn.givenName, pn.middleName, pn.familyName, pn.familyName2 from PersonName pn"
+		            + " where pn.givenNameSoundex is null order by pn.personNameId").setMaxResults(batchSize).list();
+		if (rows.isEmpty()) {
+			return 0;
 		}
 		
-		people.addAll(query.list());
+		// the names are updated past the session, so that they do not get a new date changed
+		PreparedStatement statement = null;
+		try {
+			statement = session.connection().prepareStatement(
+			    "update person_name set given_name_soundex = ?, middle_name_soundex = ?, family_name_soundex = ?,"
+			            + " family_name2_soundex = ?, given_name_metaphone = ?, middle_name_metaphone = ?,"
+			            + " family_name_metaphone = ?, family_name2_metaphone = ? where person_name_id = ?");
+			int count = 0;
+			for (Object[] row : rows) {
+				for (int part = 0; part < 4; part++) {
+					statement.setString(part + 1, PhoneticUtil.getSoundex((String) row[part + 1]));
+					statement.setString(part + 5, PhoneticUtil.getDoubleMetaphone((String) row[part + 1]));
+				}
+				statement.setInt(9, (Integer) row[0]);
+				statement.addBatch();
+				if (++count % PHONETIC_KEYS_BATCH_SIZE == 0) {
+					statement.executeBatch();
+				}
+			}
+			statement.executeBatch();
+		}
+		catch (SQLException e) {
+			throw new DAOException("Unable to update the phonetic keys of the person names", e);
+		}
+		finally {
+			if (statement != null) {
+				try {
+					statement.close();
+				}
+				catch (SQLException e) {
+					log.debug("Unable to close the statement", e);
+				}
+			}
+		}
 		
-		return people;
+		if (log.isDebugEnabled()) {
+			log.debug("Updated the phonetic keys of " + rows.size() + " person names");
+		}
+		return rows.size();
 	}
+
 	
 	/**
 	 * @see org.openmrs.api.db.PersonDAO#getPeople(java.lang.String, java.lang.Boolean)
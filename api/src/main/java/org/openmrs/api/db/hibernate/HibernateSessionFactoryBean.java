@@ -31,8 +31,10 @@ import org.apache.commons.logging.LogFactory;
 import org.hibernate.HibernateException;
 import org.hibernate.Interceptor;
 import org.hibernate.cfg.Configuration;
+import org.hibernate.event.EventListeners;
 import org.hibernate.util.ConfigHelper;
 import org.openmrs.api.context.Context;
+import org.openmrs.api.db.hibernate.search.SearchIndexEventListener;
 import org.openmrs.module.Module;
 import org.openmrs.module.ModuleFactory;
 import org.openmrs.util.OpenmrsUtil;
@@ -128,9 +130,34 @@ public class HibernateSessionFactoryBean extends AnnotationSessionFactoryBean {
 		
 		config.setInterceptor(chainingInterceptor);
 		
+		// counts the lazy collections fetched per request, see QueryProfiler
+		config.setListener("load-collection", new QueryProfilingCollectionListener());
+		
+		// replaces the listener that Hibernate Search registers by itself, so that the types that are
+		// indexed through the SearchIndexUpdateQueue are not indexed a second time
+		config.setProperty("hibernate.search.autoregister_listeners", "false");
+		SearchIndexEventListener searchIndexListener = new SearchIndexEventListener();
+		EventListeners listeners = config.getEventListeners();
+		listeners.setPostInsertEventListeners(append(listeners.getPostInsertEventListeners(), searchIndexListener));
+		listeners.setPostUpdateEventListeners(append(listeners.getPostUpdateEventListeners(), searchIndexListener));
+		listeners.setPostDeleteEventListeners(append(listeners.getPostDeleteEventListeners(), searchIndexListener));
+		listeners.setPostCollectionRecreateEventListeners(append(listeners.getPostCollectionRecreateEventListeners(),
+		    searchIndexListener));
+		listeners.setPostCollectionRemoveEventListeners(append(listeners.getPostCollectionRemoveEventListeners(),
+		    searchIndexListener));
+		listeners.setPostCollectionUpdateEventListeners(append(listeners.getPostCollectionUpdateEventListeners(),
+		    searchIndexListener));
+		listeners.setFlushEventListeners(append(listeners.getFlushEventListeners(), searchIndexListener));
+		
 		return config;
 	}
 	
+	private static <T> T[] append(T[] listeners, T listener) {
+		T[] result = Arrays.copyOf(listeners, listeners.length + 1);
+		result[listeners.length] = listener;
+		return result;
+	}
+	
 	/**
 	 * Collect the mapping resources for future use because the mappingResources object is defined
 	 * as 'private' instead of 'protected'
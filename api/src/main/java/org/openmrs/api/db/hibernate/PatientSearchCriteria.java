@@ -302,7 +302,7 @@ public class PatientSearchCriteria {
 	 * @param regex
 	 * @return identifier without the padding.
 	 */
-	private String removePadding(String identifier, String regex) {
+	String removePadding(String identifier, String regex) {
 		String padding = regex.substring(regex.indexOf("^") + 1, regex.indexOf("*"));
 		Pattern pattern = Pattern.compile("^" + padding + "+");
 		identifier = pattern.matcher(identifier).replaceFirst("");
@@ -451,7 +451,7 @@ public class PatientSearchCriteria {
 	 * @param identifierSearched the user entered search string
 	 * @return substituted search strings.
 	 */
-	private String replaceSearchString(String regex, String identifierSearched) {
+	String replaceSearchString(String regex, String identifierSearched) {
 		String returnString = regex.replaceAll("@SEARCH@", identifierSearched);
 		if (identifierSearched.length() > 1) {
 			// for 2 or more character searches, we allow regex to use last character as check digit
@@ -0,0 +1,511 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.db.hibernate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermDocs;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.FieldCache;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.WildcardQuery;
+import org.apache.lucene.search.regex.JavaUtilRegexCapabilities;
+import org.apache.lucene.search.regex.RegexQuery;
+import org.apache.lucene.util.OpenBitSet;
+import org.hibernate.Criteria;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.criterion.MatchMode;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.search.FullTextQuery;
+import org.hibernate.search.Search;
+import org.hibernate.search.SearchFactory;
+import org.hibernate.search.reader.ReaderProvider;
+import org.hibernate.search.store.DirectoryProvider;
+import org.openmrs.OpenmrsObject;
+import org.openmrs.Patient;
+import org.openmrs.PatientIdentifier;
+import org.openmrs.Person;
+import org.openmrs.PersonAttribute;
+import org.openmrs.PersonName;
+import org.openmrs.api.AdministrationService;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.db.DAOException;
+import org.openmrs.api.db.hibernate.search.LuceneQuery;
+import org.openmrs.api.db.hibernate.search.SearchIndexUpdateQueue;
+import org.openmrs.api.db.hibernate.search.bridge.PatientSearchBridge;
+import org.openmrs.util.OpenmrsConstants;
+
+/**
+ * Finds patients by name, identifier or searchable attribute in the search index, following the
+ * same rules as {@link PatientSearchCriteria#prepareCriteria(String)}. The names, identifiers and
+ * attributes of patients are indexed by the {@link PatientSearchBridge}, so a search is a single
+ * query over their documents instead of a join of the person, name, identifier and attribute
+ * tables.<br/>
+ * <br/>
+ * The documents of patients whose names, identifiers or attributes were saved in the current
+ * transaction are only updated once it commits. Those patients are left out of the index query and
+ * searched in the database instead, so that the search sees the changes of the transaction, e.g. a
+ * patient that was just voided is not found anymore.
+ * 
+ * @since 1.12
+ */
+class PatientSearchIndexQuery {
+	
+	private static final String[] NAME_FIELDS = { PatientSearchBridge.GIVEN_NAME, PatientSearchBridge.MIDDLE_NAME,
+	        PatientSearchBridge.FAMILY_NAME, PatientSearchBridge.FAMILY_NAME2 };
+	
+	private static final Class<?>[] TYPES = { PersonName.class, PatientIdentifier.class, PersonAttribute.class };
+	
+	/**
+	 * The least number of documents that are read from the index at a time, a patient can have
+	 * several matching documents
+	 */
+	private static final int MIN_DOCUMENTS_PER_READ = 50;
+	
+	/**
+	 * Orders patients by sort name like the index query
+	 */
+	private static final Comparator<Map.Entry<Integer, String>> SORT_NAME_ORDER = new Comparator<Map.Entry<Integer, String>>() {
+		
+		@Override
+		public int compare(Map.Entry<Integer, String> a, Map.Entry<Integer, String> b) {
+			return a.getValue().compareTo(b.getValue());
+		}
+	};
+	
+	private final SessionFactory sessionFactory;
+	
+	private final PatientSearchCriteria patientSearchCriteria;
+	
+	private final PersonSearchCriteria personSearchCriteria = new PersonSearchCriteria();
+	
+	/**
+	 * @param sessionFactory
+	 */
+	PatientSearchIndexQuery(SessionFactory sessionFactory) {
+		this.sessionFactory = sessionFactory;
+		this.patientSearchCriteria = new PatientSearchCriteria(sessionFactory, null);
+	}
+	
+	/**
+	 * Runs the search. A patient with several matching names, identifiers or attributes is only
+	 * included once. Only the documents up to the end of the page are read from the index.
+	 * 
+	 * @param query the name, identifier or attribute values to search for
+	 * @param firstResult the number of matching patients to skip
+	 * @param maxResults the maximum number of patients to return
+	 * @return the ids of the matching patients ordered by name
+	 * @should find patients by name identifier and attribute
+	 * @should find a patient with several matching names once
+	 * @should find patients saved in the current transaction
+	 * @should return the requested page of patients
+	 */
+	List<Integer> getPatientIds(String query, int firstResult, int maxResults) {
+		int wanted = firstResult + maxResults;
+		Set<Integer> changedPatientIds = getPatientIdsChangedInTransaction();
+		LuceneQuery<PersonName> luceneQuery = newLuceneQuery(prepareQuery(query), changedPatientIds);
+		
+		// the documents are read straight from the index, no entity is loaded
+		Map<Integer, String> sortNames = new LinkedHashMap<Integer, String>();
+		int firstDocument = 0;
+		while (sortNames.size() < wanted) {
+			int documents = Math.max(wanted - sortNames.size(), MIN_DOCUMENTS_PER_READ);
+			List<Object> rows = luceneQuery.listPartProjection(firstDocument, documents, FullTextQuery.DOCUMENT)
+			        .getList();
+			for (Object row : rows) {
+				Document document = (Document) ((Object[]) row)[0];
+				String personId = document.get(PatientSearchBridge.PERSON_ID);
+				if (personId != null && !sortNames.containsKey(Integer.valueOf(personId))) {
+					sortNames.put(Integer.valueOf(personId), document.get(PatientSearchBridge.SORT_NAME));
+				}
+			}
+			if (rows.size() < documents) {
+				break;
+			}
+			firstDocument += rows.size();
+		}
+		
+		// both lists are ordered by sort name, so they are merged
+		List<Map.Entry<Integer, String>> patients = new ArrayList<Map.Entry<Integer, String>>(sortNames.entrySet());
+		patients.addAll(getChangedPatientSortNames(query, changedPatientIds).entrySet());
+		Collections.sort(patients, SORT_NAME_ORDER);
+		
+		List<Integer> patientIds = new ArrayList<Integer>();
+		for (int i = firstResult; i < Math.min(wanted, patients.size()); i++) {
+			patientIds.add(patients.get(i).getKey());
+		}
+		return patientIds;
+	}
+	
+	/**
+	 * Counts the patients matching the search. The matching documents are counted by the id of
+	 * their patient, none of them is read from the index.
+	 * 
+	 * @param query the name, identifier or attribute values to search for
+	 * @return the number of matching patients
+	 * @should count a patient with several matching names once
+	 */
+	int getCountOfPatients(String query) {
+		Set<Integer> changedPatientIds = getPatientIdsChangedInTransaction();
+		Query patientQuery = prepareQuery(query);
+		
+		SearchFactory searchFactory = Search.getFullTextSession(sessionFactory.getCurrentSession()).getSearchFactory();
+		List<DirectoryProvider<?>> directoryProviders = new ArrayList<DirectoryProvider<?>>();
+		for (Class<?> type : TYPES) {
+			Collections.addAll(directoryProviders, searchFactory.getDirectoryProviders(type));
+		}
+		ReaderProvider readerProvider = searchFactory.getReaderProvider();
+		IndexReader reader = readerProvider.openReader(directoryProviders.toArray(new DirectoryProvider<?>[directoryProviders
+		        .size()]));
+		try {
+			PatientIdCollector collector = new PatientIdCollector();
+			Filter filter = changedPatientIds.isEmpty() ? null : new ExcludedPatientsFilter(changedPatientIds);
+			new IndexSearcher(reader).search(patientQuery, filter, collector);
+			return collector.patientIds.size() + getChangedPatientSortNames(query, changedPatientIds).size();
+		}
+		catch (IOException e) {
+			throw new DAOException("Unable to count the patients matching " + query, e);
+		}
+		finally {
+			readerProvider.closeReader(reader);
+		}
+	}
+	
+	private LuceneQuery<PersonName> newLuceneQuery(final Query patientQuery, final Set<Integer> excludedPatientIds) {
+		Session session = sessionFactory.getCurrentSession();
+		return new LuceneQuery<PersonName>(PersonName.class, session) {
+			
+			@Override
+			protected Query prepareQuery() {
+				return patientQuery;
+			}
+			
+			@Override
+			protected Class<?>[] getTypes() {
+				return TYPES;
+			}
+			
+			@Override
+			protected void adjustFullTextQuery(FullTextQuery fullTextQuery) {
+				fullTextQuery.setSort(new Sort(new SortField(PatientSearchBridge.SORT_NAME, SortField.STRING)));
+				if (!excludedPatientIds.isEmpty()) {
+					fullTextQuery.setFilter(new ExcludedPatientsFilter(excludedPatientIds));
+				}
+			}
+		};
+	}
+	
+	/**
+	 * @return the ids of the patients whose index documents are queued to be updated when the
+	 *         current transaction commits
+	 */
+	private Set<Integer> getPatientIdsChangedInTransaction() {
+		Set<Integer> patientIds = new HashSet<Integer>();
+		for (OpenmrsObject entity : SearchIndexUpdateQueue.getPendingEntities()) {
+			Person person = null;
+			if (entity instanceof PersonName) {
+				person = ((PersonName) entity).getPerson();
+			} else if (entity instanceof PatientIdentifier) {
+				person = ((PatientIdentifier) entity).getPatient();
+			} else if (entity instanceof PersonAttribute) {
+				person = ((PersonAttribute) entity).getPerson();
+			}
+			if (person != null && person.getPersonId() != null) {
+				patientIds.add(person.getPersonId());
+			}
+		}
+		return patientIds;
+	}
+	
+	/**
+	 * Searches the patients changed in the current transaction in the database, by the same rules
+	 * 
+	 * @return the sort names of the matching patients by their ids
+	 */
+	private Map<Integer, String> getChangedPatientSortNames(String query, Collection<Integer> changedPatientIds) {
+		Map<Integer, String> sortNames = new LinkedHashMap<Integer, String>();
+		if (changedPatientIds.isEmpty()) {
+			return sortNames;
+		}
+		
+		List<Integer> patientIds = new ArrayList<Integer>(changedPatientIds);
+		for (int from = 0; from < patientIds.size(); from += HibernatePatientDAO.MAX_IN_CLAUSE_SIZE) {
+			Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Patient.class);
+			new PatientSearchCriteria(sessionFactory, criteria).prepareCriteria(query);
+			criteria.add(Restrictions.eq("personVoided", false));
+			criteria.add(Restrictions.in("patientId", patientIds.subList(from, Math.min(from
+			        + HibernatePatientDAO.MAX_IN_CLAUSE_SIZE, patientIds.size()))));
+			@SuppressWarnings("unchecked")
+			List<Patient> patients = criteria.list();
+			for (Patient patient : patients) {
+				sortNames.put(patient.getPatientId(), PatientSearchBridge.getSortName(patient.getPersonName()));
+			}
+		}
+		return sortNames;
+	}
+	
+	/**
+	 * @param query the name, identifier or attribute values to search for
+	 * @return a query matching the documents of names, identifiers or attributes that match
+	 */
+	Query prepareQuery(String query) {
+		BooleanQuery disjunction = new BooleanQuery();
+		String[] queryParts = patientSearchCriteria.getQueryParts(query);
+		if (queryParts.length > 0) {
+			disjunction.add(prepareQueryForName(queryParts), Occur.SHOULD);
+			
+			Query attributeQuery = prepareQueryForAttribute(queryParts);
+			if (attributeQuery != null) {
+				disjunction.add(attributeQuery, Occur.SHOULD);
+			}
+		}
+		disjunction.add(prepareQueryForIdentifier(query), Occur.SHOULD);
+		
+		return disjunction;
+	}
+	
+	/**
+	 * Every part has to match the same name, either on its own or together with the parts before it
+	 * 
+	 * @see PatientSearchCriteria#prepareCriteria(String)
+	 */
+	private Query prepareQueryForName(String[] nameParts) {
+		BooleanQuery conjunction = new BooleanQuery();
+		StringBuilder multiName = new StringBuilder(nameParts[0]);
+		
+		for (int i = 0; i < nameParts.length; i++) {
+			Query query = getQueryForName(nameParts[i]);
+			
+			if (i > 0) {
+				multiName.append(" ");
+				multiName.append(nameParts[i]);
+				BooleanQuery disjunction = new BooleanQuery();
+				disjunction.add(query, Occur.SHOULD);
+				disjunction.add(getQueryForName(multiName.toString()), Occur.SHOULD);
+				query = disjunction;
+			}
+			
+			conjunction.add(query, Occur.MUST);
+		}
+		
+		return conjunction;
+	}
+	
+	/**
+	 * Short names have to match exactly, longer ones according to the configured match mode
+	 */
+	private Query getQueryForName(String name) {
+		String prefix = "";
+		String suffix = "";
+		if (!patientSearchCriteria.isShortName(name)) {
+			suffix = "%";
+			if (patientSearchCriteria.getMatchMode() == MatchMode.ANYWHERE) {
+				prefix = "%";
+			}
+		}
+		
+		BooleanQuery disjunction = new BooleanQuery();
+		for (String field : NAME_FIELDS) {
+			disjunction.add(newLikeQuery(field, prefix, name, suffix), Occur.SHOULD);
+		}
+		return disjunction;
+	}
+	
+	/**
+	 * Every part has to match the same attribute of a searchable type
+	 */
+	private Query prepareQueryForAttribute(String[] queryParts) {
+		@SuppressWarnings("unchecked")
+		List<Integer> searchableTypeIds = sessionFactory.getCurrentSession().createQuery(
+		    "select personAttributeTypeId from PersonAttributeType where searchable = true").list();
+		if (searchableTypeIds.isEmpty()) {
+			return null;
+		}
+		
+		BooleanQuery types = new BooleanQuery();
+		for (Integer typeId : searchableTypeIds) {
+			types.add(new TermQuery(new Term(PatientSearchBridge.ATTRIBUTE_TYPE, typeId.toString())), Occur.SHOULD);
+		}
+		
+		BooleanQuery conjunction = new BooleanQuery();
+		conjunction.add(types, Occur.MUST);
+		
+		String wildcard = (personSearchCriteria.getAttributeMatchMode() == MatchMode.ANYWHERE) ? "%" : "";
+		for (String queryPart : queryParts) {
+			conjunction.add(newLikeQuery(PatientSearchBridge.ATTRIBUTE_VALUE, wildcard, queryPart, wildcard), Occur.MUST);
+		}
+		return conjunction;
+	}
+	
+	/**
+	 * The whole query has to match an identifier, by the configured search patterns, regular
+	 * expression or prefix and suffix
+	 */
+	private Query prepareQueryForIdentifier(String identifier) {
+		AdministrationService adminService = Context.getAdministrationService();
+		String regex = adminService.getGlobalProperty(OpenmrsConstants.GLOBAL_PROPERTY_PATIENT_IDENTIFIER_REGEX, "");
+		String patternSearch = adminService.getGlobalProperty(
+		    OpenmrsConstants.GLOBAL_PROPERTY_PATIENT_IDENTIFIER_SEARCH_PATTERN, "");
+		
+		// remove padding from identifier search string
+		if (Pattern.matches("^\\^.{1}\\*.*$", regex)) {
+			identifier = patientSearchCriteria.removePadding(identifier, regex);
+		}
+		
+		if (StringUtils.isNotEmpty(patternSearch)) {
+			BooleanQuery disjunction = new BooleanQuery();
+			for (String pattern : patternSearch.split(",")) {
+				String value = PatientSearchBridge.normalize(patientSearchCriteria.replaceSearchString(pattern, identifier));
+				disjunction.add(new TermQuery(new Term(PatientSearchBridge.IDENTIFIER, value)), Occur.SHOULD);
+			}
+			return disjunction;
+		} else if (regex.equals("")) {
+			String prefix = adminService.getGlobalProperty(OpenmrsConstants.GLOBAL_PROPERTY_PATIENT_IDENTIFIER_PREFIX, "");
+			String suffix = adminService.getGlobalProperty(OpenmrsConstants.GLOBAL_PROPERTY_PATIENT_IDENTIFIER_SUFFIX, "");
+			return newLikeQuery(PatientSearchBridge.IDENTIFIER, prefix, identifier, suffix);
+		}
+		
+		// like the sql regexp the expression only has to be found somewhere in the identifier
+		regex = patientSearchCriteria.replaceSearchString(regex, identifier);
+		RegexQuery regexQuery = new RegexQuery(new Term(PatientSearchBridge.IDENTIFIER, ".*(?:" + regex + ").*"));
+		regexQuery.setRegexImplementation(new JavaUtilRegexCapabilities(JavaUtilRegexCapabilities.FLAG_CASE_INSENSITIVE));
+		return regexQuery;
+	}
+	
+	/**
+	 * Creates the equivalent of an sql like on an indexed field
+	 * 
+	 * @param field the field to search
+	 * @param prefix the sql like pattern before the value, e.g. %
+	 * @param value the value, searched literally
+	 * @param suffix the sql like pattern after the value
+	 * @return the query
+	 * @should match the value literally
+	 */
+	Query newLikeQuery(String field, String prefix, String value, String suffix) {
+		if (!StringUtils.containsAny(prefix + suffix, "%_")) {
+			return new TermQuery(new Term(field, PatientSearchBridge.normalize(prefix + value + suffix)));
+		}
+		
+		// wildcard queries cannot escape * and ?, a regular expression can
+		if (StringUtils.containsAny(prefix + value + suffix, "*?")) {
+			String regex = toRegex(prefix) + Pattern.quote(PatientSearchBridge.normalize(value)) + toRegex(suffix);
+			return new RegexQuery(new Term(field, regex));
+		}
+		
+		String wildcard = prefix.replace('%', '*').replace('_', '?') + value + suffix.replace('%', '*').replace('_', '?');
+		return new WildcardQuery(new Term(field, PatientSearchBridge.normalize(wildcard)));
+	}
+	
+	private String toRegex(String likePattern) {
+		StringBuilder regex = new StringBuilder();
+		for (char c : PatientSearchBridge.normalize(likePattern).toCharArray()) {
+			if (c == '%') {
+				regex.append(".*");
+			} else if (c == '_') {
+				regex.append('.');
+			} else {
+				regex.append(Pattern.quote(String.valueOf(c)));
+			}
+		}
+		return regex.toString();
+	}
+	
+	/**
+	 * Leaves out the documents of the given patients
+	 */
+	private static class ExcludedPatientsFilter extends Filter {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final Set<Integer> patientIds;
+		
+		private ExcludedPatientsFilter(Set<Integer> patientIds) {
+			this.patientIds = patientIds;
+		}
+		
+		@Override
+		public DocIdSet getDocIdSet(IndexReader reader) throws IOException {
+			OpenBitSet documents = new OpenBitSet(reader.maxDoc());
+			documents.set(0, reader.maxDoc());
+			for (Integer patientId : patientIds) {
+				TermDocs termDocs = reader.termDocs(new Term(PatientSearchBridge.PERSON_ID, patientId.toString()));
+				try {
+					while (termDocs.next()) {
+						documents.clear(termDocs.doc());
+					}
+				}
+				finally {
+					termDocs.close();
+				}
+			}
+			return documents;
+		}
+	}
+	
+	/**
+	 * Collects the distinct patient ids of the matching documents from the field cache
+	 */
+	private static class PatientIdCollector extends Collector {
+		
+		private final Set<String> patientIds = new HashSet<String>();
+		
+		private String[] readerPatientIds;
+		
+		@Override
+		public void setScorer(Scorer scorer) {
+		}
+		
+		@Override
+		public void collect(int doc) {
+			if (readerPatientIds[doc] != null) {
+				patientIds.add(readerPatientIds[doc]);
+			}
+		}
+		
+		@Override
+		public void setNextReader(IndexReader reader, int docBase) throws IOException {
+			readerPatientIds = FieldCache.DEFAULT.getStrings(reader, PatientSearchBridge.PERSON_ID);
+		}
+		
+		@Override
+		public boolean acceptsDocsOutOfOrder() {
+			return true;
+		}
+	}
+}
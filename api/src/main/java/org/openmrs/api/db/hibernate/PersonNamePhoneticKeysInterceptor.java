@@ -0,0 +1,88 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.db.hibernate;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.hibernate.CallbackException;
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.type.Type;
+import org.openmrs.PersonName;
+import org.openmrs.util.OpenmrsUtil;
+
+/**
+ * Computes the phonetic keys of a {@link PersonName} whenever it is inserted or updated, so that
+ * they always match the name that is stored in the database.
+ *
+ * @see PersonName#updatePhoneticKeys()
+ * @since 1.12
+ */
+public class PersonNamePhoneticKeysInterceptor extends EmptyInterceptor {
+	
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * @see org.hibernate.EmptyInterceptor#onSave(java.lang.Object, java.io.Serializable,
+	 *      java.lang.Object[], java.lang.String[], org.hibernate.type.Type[])
+	 * @should set the phonetic keys of a new name
+	 */
+	@Override
+	public boolean onSave(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+		return setPhoneticKeys(entity, state, propertyNames);
+	}
+	
+	/**
+	 * @see org.hibernate.EmptyInterceptor#onFlushDirty(java.lang.Object, java.io.Serializable,
+	 *      java.lang.Object[], java.lang.Object[], java.lang.String[], org.hibernate.type.Type[])
+	 * @should update the phonetic keys of a changed name
+	 */
+	@Override
+	public boolean onFlushDirty(Object entity, Serializable id, Object[] currentState, Object[] previousState,
+	        String[] propertyNames, Type[] types) throws CallbackException {
+		return setPhoneticKeys(entity, currentState, propertyNames);
+	}
+	
+	/**
+	 * @return true if one of the keys in the state was changed
+	 */
+	private boolean setPhoneticKeys(Object entity, Object[] state, String[] propertyNames) {
+		if (!(entity instanceof PersonName) || propertyNames == null) {
+			return false;
+		}
+		
+		PersonName name = (PersonName) entity;
+		name.updatePhoneticKeys();
+		
+		Map<String, String> keys = new LinkedHashMap<String, String>();
+		keys.put("givenNameSoundex", name.getGivenNameSoundex());
+		keys.put("middleNameSoundex", name.getMiddleNameSoundex());
+		keys.put("familyNameSoundex", name.getFamilyNameSoundex());
+		keys.put("familyName2Soundex", name.getFamilyName2Soundex());
+		keys.put("givenNameMetaphone", name.getGivenNameMetaphone());
+		keys.put("middleNameMetaphone", name.getMiddleNameMetaphone());
+		keys.put("familyNameMetaphone", name.getFamilyNameMetaphone());
+		keys.put("familyName2Metaphone", name.getFamilyName2Metaphone());
+		
+		boolean changed = false;
+		for (int i = 0; i < propertyNames.length; i++) {
+			if (keys.containsKey(propertyNames[i]) && !OpenmrsUtil.nullSafeEquals(state[i], keys.get(propertyNames[i]))) {
+				state[i] = keys.get(propertyNames[i]);
+				changed = true;
+			}
+		}
+		return changed;
+	}
+}
@@ -0,0 +1,41 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.db.hibernate;
+
+import org.hibernate.HibernateException;
+import org.hibernate.event.InitializeCollectionEvent;
+import org.hibernate.event.def.DefaultInitializeCollectionEventListener;
+import org.openmrs.util.QueryProfiler;
+
+/**
+ * Tells the {@link QueryProfiler} about every lazy collection that is fetched, so that a
+ * collection being fetched once per owner in a loop can be spotted
+ *
+ * @since 1.12
+ */
+public class QueryProfilingCollectionListener extends DefaultInitializeCollectionEventListener {
+	
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * @see org.hibernate.event.def.DefaultInitializeCollectionEventListener#onInitializeCollection(org.hibernate.event.InitializeCollectionEvent)
+	 */
+	@Override
+	public void onInitializeCollection(InitializeCollectionEvent event) throws HibernateException {
+		if (!event.getCollection().wasInitialized()) {
+			QueryProfiler.collectionFetched(event.getCollection().getRole());
+		}
+		super.onInitializeCollection(event);
+	}
+}
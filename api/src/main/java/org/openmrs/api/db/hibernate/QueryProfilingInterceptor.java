@@ -0,0 +1,50 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.db.hibernate;
+
+import java.io.Serializable;
+
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.type.Type;
+import org.openmrs.util.QueryProfiler;
+
+/**
+ * Tells the {@link QueryProfiler} about every SQL statement that is prepared and every entity
+ * that is loaded, so that the statements can be counted per request
+ *
+ * @since 1.12
+ */
+public class QueryProfilingInterceptor extends EmptyInterceptor {
+	
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * @see org.hibernate.EmptyInterceptor#onPrepareStatement(java.lang.String)
+	 */
+	@Override
+	public String onPrepareStatement(String sql) {
+		QueryProfiler.statementPrepared(sql);
+		return sql;
+	}
+	
+	/**
+	 * @see org.hibernate.EmptyInterceptor#onLoad(java.lang.Object, java.io.Serializable,
+	 *      java.lang.Object[], java.lang.String[], org.hibernate.type.Type[])
+	 */
+	@Override
+	public boolean onLoad(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+		QueryProfiler.entityLoaded();
+		return false;
+	}
+}
@@ -195,6 +195,19 @@ public abstract class LuceneQuery<T> extends SearchQuery<T> {
 	protected void adjustFullTextQuery(FullTextQuery fullTextQuery) {
 	}
 	
+	/**
+	 * It is called by the constructor to get the types the query runs on.
+	 * <p>
+	 * You can override it to search the documents of several types with one query, by default only
+	 * the given type is searched.
+	 * 
+	 * @return the types
+	 * @since 1.12
+	 */
+	protected Class<?>[] getTypes() {
+		return new Class<?>[] { getType() };
+	}
+	
 	/**
 	 * You can use it in {@link #prepareQuery()}.
 	 * 
@@ -328,7 +341,7 @@ public abstract class LuceneQuery<T> extends SearchQuery<T> {
 			throw new IllegalStateException("Invalid query", e);
 		}
 		
-		fullTextQuery = getFullTextSession().createFullTextQuery(query, getType());
+		fullTextQuery = getFullTextSession().createFullTextQuery(query, getTypes());
 		adjustFullTextQuery(fullTextQuery);
 	}
 	
@@ -0,0 +1,88 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.db.hibernate.search;
+
+import org.hibernate.event.PostCollectionRecreateEvent;
+import org.hibernate.event.PostCollectionRemoveEvent;
+import org.hibernate.event.PostCollectionUpdateEvent;
+import org.hibernate.event.PostInsertEvent;
+import org.hibernate.event.PostUpdateEvent;
+import org.hibernate.search.event.FullTextIndexEventListener;
+
+/**
+ * Indexes the saved entities like the listener that Hibernate Search registers by itself, except
+ * for the {@link SearchIndexUpdateQueue#QUEUED_TYPES} that the services queue. Those are indexed
+ * once by the queue after their transaction commits. Deleted entities of these types are still
+ * removed from the index here, since the queue has nothing to load for them.
+ *
+ * @since 1.12
+ */
+public class SearchIndexEventListener extends FullTextIndexEventListener {
+	
+	private static final long serialVersionUID = 1L;
+	
+	public SearchIndexEventListener() {
+		super(Installation.SINGLE_INSTANCE);
+	}
+	
+	/**
+	 * @see org.hibernate.search.event.FullTextIndexEventListener#onPostInsert(org.hibernate.event.PostInsertEvent)
+	 */
+	@Override
+	public void onPostInsert(PostInsertEvent event) {
+		if (!SearchIndexUpdateQueue.isQueuedType(event.getEntity())) {
+			super.onPostInsert(event);
+		}
+	}
+	
+	/**
+	 * @see org.hibernate.search.event.FullTextIndexEventListener#onPostUpdate(org.hibernate.event.PostUpdateEvent)
+	 */
+	@Override
+	public void onPostUpdate(PostUpdateEvent event) {
+		if (!SearchIndexUpdateQueue.isQueuedType(event.getEntity())) {
+			super.onPostUpdate(event);
+		}
+	}
+	
+	/**
+	 * @see org.hibernate.search.event.FullTextIndexEventListener#onPostRecreateCollection(org.hibernate.event.PostCollectionRecreateEvent)
+	 */
+	@Override
+	public void onPostRecreateCollection(PostCollectionRecreateEvent event) {
+		if (!SearchIndexUpdateQueue.isQueuedType(event.getAffectedOwnerOrNull())) {
+			super.onPostRecreateCollection(event);
+		}
+	}
+	
+	/**
+	 * @see org.hibernate.search.event.FullTextIndexEventListener#onPostRemoveCollection(org.hibernate.event.PostCollectionRemoveEvent)
+	 */
+	@Override
+	public void onPostRemoveCollection(PostCollectionRemoveEvent event) {
+		if (!SearchIndexUpdateQueue.isQueuedType(event.getAffectedOwnerOrNull())) {
+			super.onPostRemoveCollection(event);
+		}
+	}
+	
+	/**
+	 * @see org.hibernate.search.event.FullTextIndexEventListener#onPostUpdateCollection(org.hibernate.event.PostCollectionUpdateEvent)
+	 */
+	@Override
+	public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+		if (!SearchIndexUpdateQueue.isQueuedType(event.getAffectedOwnerOrNull())) {
+			super.onPostUpdateCollection(event);
+		}
+	}
+}
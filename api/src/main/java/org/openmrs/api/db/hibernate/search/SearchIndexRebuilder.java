@@ -0,0 +1,393 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.db.hibernate.search;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.CacheMode;
+import org.hibernate.Criteria;
+import org.hibernate.EntityMode;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.metadata.ClassMetadata;
+import org.hibernate.search.FullTextSession;
+import org.hibernate.search.Search;
+import org.hibernate.search.annotations.Indexed;
+import org.openmrs.api.db.SearchIndexProgress;
+
+/**
+ * Rebuilds the search index of the given types. The ids of a type are read in order a batch at a
+ * time, and every batch is loaded and indexed by one of the threads of the pool of that type, each
+ * in a session of its own. The calling thread waits for the batches in the order they were read
+ * and reports the last id of every finished batch to the {@link Checkpoints}, so a rebuild that did
+ * not finish can be continued after that id.
+ * 
+ * @since 1.12
+ */
+public class SearchIndexRebuilder {
+	
+	private static final Log log = LogFactory.getLog(SearchIndexRebuilder.class);
+	
+	/**
+	 * The number of batches per thread that are read ahead of the ones that are being indexed
+	 */
+	private static final int BATCHES_AHEAD_PER_THREAD = 2;
+	
+	private final SessionFactory sessionFactory;
+	
+	private final int threads;
+	
+	private final int batchSize;
+	
+	private final AtomicLong entitiesIndexed = new AtomicLong();
+	
+	private volatile boolean running;
+	
+	private volatile String currentType;
+	
+	private volatile int typesIndexed;
+	
+	private volatile int typeCount;
+	
+	private volatile long entityCount;
+	
+	private volatile Date startTime;
+	
+	private volatile Date endTime;
+	
+	private volatile String error;
+	
+	/**
+	 * Receives the progress of a rebuild so that it can be continued
+	 */
+	public interface Checkpoints {
+		
+		/**
+		 * Called by the thread that runs the rebuild once every entity of the type up to and
+		 * including the given id is indexed
+		 * 
+		 * @param type the type that is being indexed
+		 * @param lastId the id of the last entity that is indexed
+		 */
+		public void reached(Class<?> type, Serializable lastId);
+	}
+	
+	/**
+	 * @param sessionFactory the session factory to open the sessions of the threads with
+	 * @param threads the number of threads per type that load and index entities
+	 * @param batchSize the number of entities that one thread loads and indexes at a time
+	 */
+	public SearchIndexRebuilder(SessionFactory sessionFactory, int threads, int batchSize) {
+		this.sessionFactory = sessionFactory;
+		this.threads = Math.max(1, threads);
+		this.batchSize = Math.max(1, batchSize);
+	}
+	
+	/**
+	 * Indexes the given types one after the other. Every type is purged before it is indexed,
+	 * except for the one that is continued from a checkpoint.
+	 * 
+	 * @param types the types to index
+	 * @param resumeType the type to continue with, the types before it are skipped, null to index
+	 *            all types
+	 * @param resumeAfterId the id of the last entity of the resume type that is already indexed
+	 * @param checkpoints receives the last indexed id of every finished batch, may be null
+	 * @throws InterruptedException if the calling thread is interrupted while it waits
+	 * @throws ExecutionException if a batch could not be indexed
+	 * @should continue after the checkpoint of a rebuild that was interrupted
+	 */
+	public void rebuild(List<Class<?>> types, Class<?> resumeType, Serializable resumeAfterId, Checkpoints checkpoints)
+	        throws InterruptedException, ExecutionException {
+		List<Class<?>> remainingTypes = new ArrayList<Class<?>>(types);
+		int resumeIndex = resumeType == null ? -1 : remainingTypes.indexOf(resumeType);
+		if (resumeIndex > 0) {
+			remainingTypes = remainingTypes.subList(resumeIndex, remainingTypes.size());
+		} else if (resumeIndex < 0) {
+			resumeAfterId = null;
+		}
+		
+		startTime = new Date();
+		endTime = null;
+		error = null;
+		typeCount = types.size();
+		typesIndexed = types.size() - remainingTypes.size();
+		entitiesIndexed.set(0);
+		running = true;
+		try {
+			entityCount = countEntities(remainingTypes, resumeAfterId);
+			for (Class<?> type : remainingTypes) {
+				rebuildType(type, type.equals(resumeType) ? resumeAfterId : null, checkpoints);
+				typesIndexed++;
+			}
+			currentType = null;
+		}
+		catch (InterruptedException e) {
+			error = e.toString();
+			throw e;
+		}
+		catch (ExecutionException e) {
+			error = e.getCause().toString();
+			throw e;
+		}
+		catch (RuntimeException e) {
+			error = e.toString();
+			throw e;
+		}
+		finally {
+			running = false;
+			endTime = new Date();
+		}
+	}
+	
+	/**
+	 * @return a copy of how far the current or last rebuild got
+	 */
+	public SearchIndexProgress getProgress() {
+		return new SearchIndexProgress(running, currentType, typesIndexed, typeCount, entitiesIndexed.get(), entityCount,
+		        startTime, endTime, error);
+	}
+	
+	/**
+	 * @param sessionFactory the session factory
+	 * @return the mapped types that are annotated with {@link Indexed} and do not extend another
+	 *         one, ordered by name
+
+	 * @should return the indexed root types ordered by name
+	 */
+	public static List<Class<?>> getIndexedTypes(SessionFactory sessionFactory) {
+		List<Class<?>> indexedTypes = new ArrayList<Class<?>>();
+		for (ClassMetadata classMetadata : sessionFactory.getAllClassMetadata().values()) {
+			Class<?> entityClass = classMetadata.getMappedClass(EntityMode.POJO);
+			if (entityClass != null && entityClass.isAnnotationPresent(Indexed.class)) {
+				indexedTypes.add(entityClass);
+			}
+		}
+		
+		// indexing a type also indexes its subclasses
+		List<Class<?>> rootTypes = new ArrayList<Class<?>>();
+		for (Class<?> indexedType : indexedTypes) {
+			boolean root = true;
+			for (Class<?> otherType : indexedTypes) {
+				if (!otherType.equals(indexedType) && otherType.isAssignableFrom(indexedType)) {
+					root = false;
+					break;
+				}
+			}
+			if (root) {
+				rootTypes.add(indexedType);
+			}
+		}
+		
+		Collections.sort(rootTypes, new Comparator<Class<?>>() {
+			
+			@Override
+			public int compare(Class<?> a, Class<?> b) {
+				return a.getName().compareTo(b.getName());
+			}
+		});
+		return rootTypes;
+	}
+	
+	private void rebuildType(final Class<?> type, Serializable afterId, Checkpoints checkpoints)
+	        throws InterruptedException, ExecutionException {
+		currentType = type.getSimpleName();
+		log.info("Indexing " + type.getName() + (afterId == null ? "" : " after id " + afterId));
+		if (afterId == null) {
+			purge(type);
+		}
+		
+		final String idProperty = sessionFactory.getClassMetadata(type).getIdentifierPropertyName();
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new IndexerThreadFactory(type));
+		LinkedList<Batch> pending = new LinkedList<Batch>();
+		Session session = sessionFactory.openSession();
+		try {
+			Serializable lastId = afterId;
+			List<Serializable> ids;
+			do {
+				ids = getIdsAfter(session, type, idProperty, lastId);
+				if (ids.isEmpty()) {
+					break;
+				}
+				lastId = ids.get(ids.size() - 1);
+				
+				final List<Serializable> batchIds = ids;
+				pending.add(new Batch(executor.submit(new Callable<Integer>() {
+					
+					@Override
+					public Integer call() {
+						return indexBatch(type, idProperty, batchIds);
+					}
+				}), lastId));
+				
+				// keep a few batches ahead of the threads, but report the ones that are done as early as possible
+				while (pending.size() >= threads * BATCHES_AHEAD_PER_THREAD
+				        || (!pending.isEmpty() && pending.getFirst().future.isDone())) {
+					finishBatch(type, pending.removeFirst(), checkpoints);
+				}
+			} while (ids.size() == batchSize);
+			
+			while (!pending.isEmpty()) {
+				finishBatch(type, pending.removeFirst(), checkpoints);
+			}
+		}
+		finally {
+			session.close();
+			executor.shutdownNow();
+		}
+	}
+	
+	private void finishBatch(Class<?> type, Batch batch, Checkpoints checkpoints) throws InterruptedException,
+	        ExecutionException {
+		entitiesIndexed.addAndGet(batch.future.get());
+		if (checkpoints != null) {
+			checkpoints.reached(type, batch.lastId);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private List<Serializable> getIdsAfter(Session session, Class<?> type, String idProperty, Serializable afterId) {
+		session.clear();
+		return createCriteria(session, type, idProperty, afterId).setProjection(Projections.id()).addOrder(
+		    Order.asc(idProperty)).setMaxResults(batchSize).list();
+	}
+	
+	private Criteria createCriteria(Session session, Class<?> type, String idProperty, Serializable afterId) {
+		Criteria criteria = session.createCriteria(type);
+		if (afterId != null) {
+			criteria.add(Restrictions.gt(idProperty, afterId));
+		}
+		return criteria;
+	}
+	
+	private long countEntities(List<Class<?>> types, Serializable resumeAfterId) {
+		long count = 0;
+		Session session = sessionFactory.openSession();
+		try {
+			for (int i = 0; i < types.size(); i++) {
+				Class<?> type = types.get(i);
+				String idProperty = sessionFactory.getClassMetadata(type).getIdentifierPropertyName();
+				Serializable afterId = i == 0 ? resumeAfterId : null;
+				count += ((Number) createCriteria(session, type, idProperty, afterId).setProjection(Projections.rowCount())
+				        .uniqueResult()).longValue();
+			}
+		}
+		finally {
+			session.close();
+		}
+		return count;
+	}
+	
+	private void purge(Class<?> type) {
+		Session session = sessionFactory.openSession();
+		try {
+			FullTextSession fullTextSession = Search.getFullTextSession(session);
+			Transaction transaction = fullTextSession.beginTransaction();
+			fullTextSession.purgeAll(type);
+			fullTextSession.flushToIndexes();
+			transaction.commit();
+		}
+		finally {
+			session.close();
+		}
+	}
+	
+	/**
+	 * Loads the entities with the given ids and indexes them, runs on one of the threads of the
+	 * pool of the type
+	 * 
+	 * @return the number of indexed entities
+	 */
+	private int indexBatch(Class<?> type, String idProperty, List<Serializable> ids) {
+		Session session = sessionFactory.openSession();
+		try {
+			session.setFlushMode(FlushMode.MANUAL);
+			session.setCacheMode(CacheMode.IGNORE);
+			FullTextSession fullTextSession = Search.getFullTextSession(session);
+			Transaction transaction = fullTextSession.beginTransaction();
+			try {
+				List<?> entities = fullTextSession.createCriteria(type).add(Restrictions.in(idProperty, ids)).list();
+				for (Object entity : entities) {
+					fullTextSession.index(entity);
+				}
+				fullTextSession.flushToIndexes();
+				transaction.commit();
+				return entities.size();
+			}
+			catch (RuntimeException e) {
+				transaction.rollback();
+				throw e;
+			}
+		}
+		finally {
+			session.close();
+		}
+	}
+	
+	/**
+	 * A batch that was handed to the pool, together with the last of its ids
+	 */
+	private static class Batch {
+		
+		private final Future<Integer> future;
+		
+		private final Serializable lastId;
+		
+		private Batch(Future<Integer> future, Serializable lastId) {
+			this.future = future;
+			this.lastId = lastId;
+		}
+	}
+	
+	/**
+	 * Names the threads after the type they index
+	 */
+	private static class IndexerThreadFactory implements ThreadFactory {
+		
+		private final String namePrefix;
+		
+		private final AtomicInteger threadNumber = new AtomicInteger();
+		
+		private IndexerThreadFactory(Class<?> type) {
+			namePrefix = "SearchIndexRebuilder-" + type.getSimpleName() + "-";
+		}
+		
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, namePrefix + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
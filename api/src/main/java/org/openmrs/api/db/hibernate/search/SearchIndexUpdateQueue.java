@@ -0,0 +1,488 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.db.hibernate.search;
+
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.CacheMode;
+import org.hibernate.FlushMode;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.search.FullTextSession;
+import org.hibernate.search.Search;
+import org.openmrs.Concept;
+import org.openmrs.ConceptName;
+import org.openmrs.Drug;
+import org.openmrs.OpenmrsObject;
+import org.openmrs.PatientIdentifier;
+import org.openmrs.PersonAttribute;
+import org.openmrs.PersonName;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Updates the search index in the background. Entities that are added during a transaction are
+ * kept with the transaction until it commits, and are then indexed by a single thread in batches,
+ * each in one session and one write to the index. Updates are discarded if the transaction rolls
+ * back.<br/>
+ * <br/>
+ * Nothing of a transaction is written to the index before it commits, so a search in the same
+ * transaction does not find the entities yet, unless it looks them up with
+ * {@link #getPendingEntities()}. Only the {@link #QUEUED_TYPES} can be queued, the
+ * {@link SearchIndexEventListener} skips them so that they are indexed only once.
+ * 
+ * @since 1.12
+ */
+public class SearchIndexUpdateQueue implements SearchIndexUpdateQueueMBean {
+	
+	private static final Log log = LogFactory.getLog(SearchIndexUpdateQueue.class);
+	
+	private static final String MBEAN_NAME = "org.openmrs:type=SearchIndexUpdateQueue";
+	
+	/**
+	 * The types whose index updates are queued by the services, including their subclasses
+	 */
+	public static final List<Class<? extends OpenmrsObject>> QUEUED_TYPES = Collections.unmodifiableList(Arrays
+	        .<Class<? extends OpenmrsObject>> asList(Concept.class, ConceptName.class, Drug.class, PersonName.class,
+	            PatientIdentifier.class, PersonAttribute.class));
+	
+	/**
+	 * The number of batches that can be queued before committing transactions have to wait for the
+	 * indexer, so that it cannot fall behind without limit
+	 */
+	private static final int MAX_QUEUED_BATCHES = 100;
+	
+	private final SessionFactory sessionFactory;
+	
+	private final int batchSize;
+	
+	private final long maxLagMillis;
+	
+	private final BlockingQueue<Update> queue;
+	
+	/**
+	 * Guards {@link #outstanding}, which counts the updates that are queued or being applied
+	 */
+	private final Object lock = new Object();
+	
+	private int outstanding = 0;
+	
+	private final AtomicLong updatesApplied = new AtomicLong();
+	
+	private final AtomicLong batchesApplied = new AtomicLong();
+	
+	private final AtomicLong failedBatches = new AtomicLong();
+	
+	private volatile long lastLagMillis;
+	
+	private Thread indexer;
+	
+	/**
+	 * @param sessionFactory the session factory to open the sessions of the indexer with
+	 * @param batchSize the maximum number of updates that are applied at a time
+	 * @param maxLagMillis how long the indexer waits for more updates to fill a batch
+	 */
+	public SearchIndexUpdateQueue(SessionFactory sessionFactory, int batchSize, long maxLagMillis) {
+		this.sessionFactory = sessionFactory;
+		this.batchSize = Math.max(1, batchSize);
+		this.maxLagMillis = Math.max(0, maxLagMillis);
+		this.queue = new LinkedBlockingQueue<Update>(this.batchSize * MAX_QUEUED_BATCHES);
+	}
+	
+	/**
+	 * @param entity an entity or the owner of a collection
+	 * @return true if the entity is one of the {@link #QUEUED_TYPES}
+	 */
+	public static boolean isQueuedType(Object entity) {
+		for (Class<? extends OpenmrsObject> type : QUEUED_TYPES) {
+			if (type.isInstance(entity)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Queues the entity to be indexed once the current transaction commits, or right away if there
+	 * is no transaction
+	 * 
+	 * @param entity the entity to index, one of the {@link #QUEUED_TYPES}
+	 * @throws IllegalArgumentException if the entity is not one of the queued types, it would be
+	 *             indexed a second time when it is flushed
+	 * @should index the entity once the transaction commits
+	 * @should discard the entity if the transaction rolls back
+	 * @should not index the entity before the transaction commits
+	 * @should reject entities that are not of a queued type
+	 */
+	public void add(OpenmrsObject entity) {
+		if (!isQueuedType(entity)) {
+			throw new IllegalArgumentException("The index updates of " + entity.getClass().getName()
+			        + " are not queued, they are applied when the session is flushed");
+		}
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			PendingUpdates pending = (PendingUpdates) TransactionSynchronizationManager.getResource(this);
+			if (pending == null) {
+				pending = new PendingUpdates(this);
+				TransactionSynchronizationManager.bindResource(this, pending);
+				TransactionSynchronizationManager.registerSynchronization(pending);
+			}
+			pending.entities.add(entity);
+		} else {
+			List<OpenmrsObject> entities = new ArrayList<OpenmrsObject>();
+			entities.add(entity);
+			offer(entities);
+		}
+	}
+	
+	/**
+	 * Tells which entities are queued to be indexed when the current transaction commits, e.g. to
+	 * search them in the database since the index does not know their changes yet
+	 * 
+	 * @return the entities queued during the current transaction, by any queue
+	 * @should return the entities queued during the current transaction
+	 */
+	public static List<OpenmrsObject> getPendingEntities() {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			return Collections.emptyList();
+		}
+		List<OpenmrsObject> entities = new ArrayList<OpenmrsObject>();
+		for (Object resource : TransactionSynchronizationManager.getResourceMap().values()) {
+			if (resource instanceof PendingUpdates) {
+				entities.addAll(((PendingUpdates) resource).entities);
+			}
+		}
+		return entities;
+	}
+	
+	/**
+	 * Waits until every update that was committed before is applied, the ones of the current
+	 * transaction are left until it commits
+	 * 
+	 * @should apply the updates of committed transactions
+	 */
+	public void flush() {
+		List<Update> updates = new ArrayList<Update>();
+		queue.drainTo(updates);
+		if (!updates.isEmpty()) {
+			apply(updates);
+		}
+		
+		synchronized (lock) {
+			while (outstanding > 0) {
+				try {
+					lock.wait();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Stops the indexer, the updates that are still queued are applied by the calling thread
+	 */
+	public void shutdown() {
+		Thread thread;
+		synchronized (lock) {
+			thread = indexer;
+			indexer = null;
+		}
+		if (thread == null) {
+			return;
+		}
+		
+		thread.interrupt();
+		try {
+			thread.join(maxLagMillis + 1000);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		
+		List<Update> updates = new ArrayList<Update>();
+		queue.drainTo(updates);
+		if (!updates.isEmpty()) {
+			apply(updates);
+		}
+		
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(MBEAN_NAME));
+		}
+		catch (Exception e) {
+			log.debug("Unable to unregister " + MBEAN_NAME, e);
+		}
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.hibernate.search.SearchIndexUpdateQueueMBean#getQueueDepth()
+	 */
+	@Override
+	public int getQueueDepth() {
+		return queue.size();
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.hibernate.search.SearchIndexUpdateQueueMBean#getUpdatesApplied()
+	 */
+	@Override
+	public long getUpdatesApplied() {
+		return updatesApplied.get();
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.hibernate.search.SearchIndexUpdateQueueMBean#getBatchesApplied()
+	 */
+	@Override
+	public long getBatchesApplied() {
+		return batchesApplied.get();
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.hibernate.search.SearchIndexUpdateQueueMBean#getFailedBatches()
+	 */
+	@Override
+	public long getFailedBatches() {
+		return failedBatches.get();
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.hibernate.search.SearchIndexUpdateQueueMBean#getLastLagMillis()
+	 */
+	@Override
+	public long getLastLagMillis() {
+		return lastLagMillis;
+	}
+	
+	/**
+	 * Hands the entities of a committed transaction to the indexer, waits if it is too far behind
+	 */
+	private void offer(List<OpenmrsObject> entities) {
+		List<Update> updates = new ArrayList<Update>(entities.size());
+		for (OpenmrsObject entity : entities) {
+			if (entity.getId() != null) {
+				updates.add(new Update(Hibernate.getClass(entity), entity.getId()));
+			}
+		}
+		if (updates.isEmpty()) {
+			return;
+		}
+		
+		synchronized (lock) {
+			outstanding += updates.size();
+			if (indexer == null) {
+				startIndexer();
+			}
+		}
+		for (int i = 0; i < updates.size(); i++) {
+			try {
+				queue.put(updates.get(i));
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				log.warn("Interrupted while queueing " + (updates.size() - i) + " search index updates, they are lost");
+				finished(updates.size() - i);
+				return;
+			}
+		}
+	}
+	
+	private void startIndexer() {
+		indexer = new Thread(new Runnable() {
+			
+			@Override
+			public void run() {
+				runIndexer();
+			}
+		}, "SearchIndexUpdateQueue");
+		indexer.setDaemon(true);
+		indexer.start();
+		
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(MBEAN_NAME);
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+			server.registerMBean(this, name);
+		}
+		catch (Exception e) {
+			log.warn("Unable to register MBean " + MBEAN_NAME, e);
+		}
+	}
+	
+	/**
+	 * Takes the updates off the queue a batch at a time. A batch is applied once it is full or its
+	 * first update waited for the maximum lag.
+	 */
+	private void runIndexer() {
+		while (!Thread.currentThread().isInterrupted()) {
+			List<Update> batch = new ArrayList<Update>(batchSize);
+			try {
+				Update first = queue.take();
+				batch.add(first);
+				long deadline = first.queuedTime + maxLagMillis;
+				while (batch.size() < batchSize) {
+					long wait = deadline - System.currentTimeMillis();
+					if (queue.drainTo(batch, batchSize - batch.size()) == 0) {
+						Update next = wait > 0 ? queue.poll(wait, TimeUnit.MILLISECONDS) : null;
+						if (next == null) {
+							break;
+						}
+						batch.add(next);
+					}
+				}
+			}
+			catch (InterruptedException e) {
+				// put back what was taken, shutdown() applies it
+				queue.addAll(batch);
+				return;
+			}
+			
+			apply(batch);
+		}
+	}
+	
+	/**
+	 * Loads the entities of the updates in a session of its own and indexes them, the ones that do
+	 * not exist anymore are removed from the index
+	 */
+	private void apply(List<Update> updates) {
+		Map<Class<?>, Set<Serializable>> idsByType = new LinkedHashMap<Class<?>, Set<Serializable>>();
+		long oldest = Long.MAX_VALUE;
+		for (Update update : updates) {
+			Set<Serializable> ids = idsByType.get(update.type);
+			if (ids == null) {
+				ids = new LinkedHashSet<Serializable>();
+				idsByType.put(update.type, ids);
+			}
+			ids.add(update.id);
+			oldest = Math.min(oldest, update.queuedTime);
+		}
+		
+		Session session = sessionFactory.openSession();
+		try {
+			session.setFlushMode(FlushMode.MANUAL);
+			session.setCacheMode(CacheMode.IGNORE);
+			FullTextSession fullTextSession = Search.getFullTextSession(session);
+			Transaction transaction = fullTextSession.beginTransaction();
+			try {
+				for (Map.Entry<Class<?>, Set<Serializable>> entry : idsByType.entrySet()) {
+					Class<?> type = entry.getKey();
+					String idProperty = sessionFactory.getClassMetadata(type).getIdentifierPropertyName();
+					Set<Serializable> missingIds = new HashSet<Serializable>(entry.getValue());
+					for (Object entity : fullTextSession.createCriteria(type).add(
+					    Restrictions.in(idProperty, entry.getValue())).list()) {
+						fullTextSession.index(entity);
+						missingIds.remove(((OpenmrsObject) entity).getId());
+					}
+					for (Serializable id : missingIds) {
+						fullTextSession.purge(type, id);
+					}
+				}
+				fullTextSession.flushToIndexes();
+				transaction.commit();
+			}
+			catch (RuntimeException e) {
+				transaction.rollback();
+				throw e;
+			}
+			
+			updatesApplied.addAndGet(updates.size());
+			batchesApplied.incrementAndGet();
+			lastLagMillis = System.currentTimeMillis() - oldest;
+		}
+		catch (RuntimeException e) {
+			failedBatches.incrementAndGet();
+			log.error("Failed to apply " + updates.size() + " search index updates", e);
+		}
+		finally {
+			session.close();
+			finished(updates.size());
+		}
+	}
+	
+	private void finished(int updates) {
+		synchronized (lock) {
+			outstanding -= updates;
+			lock.notifyAll();
+		}
+	}
+	
+	/**
+	 * An entity to index
+	 */
+	private static class Update {
+		
+		private final Class<?> type;
+		
+		private final Serializable id;
+		
+		private final long queuedTime = System.currentTimeMillis();
+		
+		private Update(Class<?> type, Serializable id) {
+			this.type = type;
+			this.id = id;
+		}
+	}
+	
+	/**
+	 * The entities added during one transaction, handed to the indexer when it commits
+	 */
+	private static class PendingUpdates extends TransactionSynchronizationAdapter {
+		
+		private final SearchIndexUpdateQueue queue;
+		
+		private final List<OpenmrsObject> entities = new ArrayList<OpenmrsObject>();
+		
+		private PendingUpdates(SearchIndexUpdateQueue queue) {
+			this.queue = queue;
+		}
+		
+		@Override
+		public void afterCommit() {
+			if (!entities.isEmpty()) {
+				queue.offer(entities);
+			}
+		}
+		
+		@Override
+		public void afterCompletion(int status) {
+			TransactionSynchronizationManager.unbindResourceIfPossible(queue);
+		}
+	}
+}
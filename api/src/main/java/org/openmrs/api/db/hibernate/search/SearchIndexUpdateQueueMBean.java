@@ -0,0 +1,39 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.db.hibernate.search;
+
+/**
+ * JMX view of the {@link SearchIndexUpdateQueue}
+ * 
+ * @since 1.12
+ */
+public interface SearchIndexUpdateQueueMBean {
+	
+	/**
+	 * @return the number of committed updates that are not applied yet
+	 */
+	public int getQueueDepth();
+	
+	public long getUpdatesApplied();
+	
+	public long getBatchesApplied();
+	
+	public long getFailedBatches();
+	
+	/**
+	 * @return how long the oldest update of the last batch waited between its commit and being
+	 *         applied
+	 */
+	public long getLastLagMillis();
+}
@@ -0,0 +1,103 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.db.hibernate.search.bridge;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Locale;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.ReusableAnalyzerBase;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.util.Version;
+import org.hibernate.search.bridge.FieldBridge;
+import org.hibernate.search.bridge.LuceneOptions;
+import org.openmrs.Concept;
+import org.openmrs.ConceptName;
+import org.openmrs.Drug;
+
+/**
+ * Indexes the names of the concept of a {@link Drug} into the document of the drug, so that a drug
+ * can be found by the name of its concept with a single query on drugs. Every unvoided name is
+ * added to a field named after its locale, e.g. conceptNames.en_GB, and to a field named after its
+ * language, e.g. conceptNames.language.en. The names are analyzed like the ones of
+ * {@link ConceptName} documents, which the analyzer of the drug document would not do for fields
+ * whose names are only known here. The bridge builds that analyzer itself, so that it does not
+ * depend on how the search factory of the running indexer can be reached.
+ * 
+ * @since 1.12
+ */
+public class DrugConceptNamesBridge implements FieldBridge {
+	
+	/**
+	 * The name of the class bridge on {@link Drug}
+	 */
+	public static final String FIELD = "conceptNames";
+	
+	/**
+	 * Analyzes like the ConceptNameAnalyzer definition on {@link ConceptName}, any change to one
+	 * has to be made to the other
+	 */
+	private static final Analyzer ANALYZER = new ReusableAnalyzerBase() {
+		
+		@Override
+		protected TokenStreamComponents createComponents(String fieldName, Reader reader) {
+			StandardTokenizer tokenizer = new StandardTokenizer(Version.LUCENE_31, reader);
+			TokenStream stream = new StandardFilter(Version.LUCENE_31, tokenizer);
+			return new TokenStreamComponents(tokenizer, new LowerCaseFilter(Version.LUCENE_31, stream));
+		}
+	};
+	
+	/**
+	 * @see org.hibernate.search.bridge.FieldBridge#set(java.lang.String, java.lang.Object,
+	 *      org.apache.lucene.document.Document, org.hibernate.search.bridge.LuceneOptions)
+	 */
+	@Override
+	public void set(String name, Object value, Document document, LuceneOptions luceneOptions) {
+		Concept concept = ((Drug) value).getConcept();
+		if (concept == null) {
+			return;
+		}
+		
+		for (ConceptName conceptName : concept.getNames(true)) {
+			Locale locale = conceptName.getLocale();
+			if (!conceptName.isVoided() && locale != null && conceptName.getName() != null) {
+				addField(document, getField(name, locale, true), conceptName.getName(), luceneOptions);
+				addField(document, getField(name, locale, false), conceptName.getName(), luceneOptions);
+			}
+		}
+	}
+	
+	private void addField(Document document, String field, String value, LuceneOptions luceneOptions) {
+		Field analyzedField = new Field(field, ANALYZER.tokenStream(field, new StringReader(value)));
+		analyzedField.setBoost(luceneOptions.getBoost());
+		document.add(analyzedField);
+	}
+	
+	/**
+	 * @param name the name of the class bridge, i.e. {@link #FIELD}
+	 * @param locale the locale of the names to search
+	 * @param exactLocale whether only names in exactly the locale or names in its language are
+	 *            searched
+	 * @return the field holding those names
+	 */
+	public static String getField(String name, Locale locale, boolean exactLocale) {
+		return exactLocale ? name + "." + locale : name + ".language." + locale.getLanguage();
+	}
+}
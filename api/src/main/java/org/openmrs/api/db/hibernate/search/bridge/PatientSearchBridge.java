@@ -0,0 +1,145 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.db.hibernate.search.bridge;
+
+import org.apache.lucene.document.Document;
+import org.hibernate.search.bridge.FieldBridge;
+import org.hibernate.search.bridge.LuceneOptions;
+import org.openmrs.Patient;
+import org.openmrs.PatientIdentifier;
+import org.openmrs.Person;
+import org.openmrs.PersonAttribute;
+import org.openmrs.PersonName;
+
+/**
+ * Indexes the {@link PersonName}s, {@link PatientIdentifier}s and {@link PersonAttribute}s of
+ * patients for the patient search. Names, identifiers and attribute values are added lower case
+ * and untokenized, so that they can be matched as a whole, together with the id of the patient
+ * and the preferred name of the patient to sort by. Nothing is added for voided entries or for
+ * persons that are voided or not patients, so they are never found.
+ * 
+ * @since 1.12
+ */
+public class PatientSearchBridge implements FieldBridge {
+	
+	/**
+	 * The name of the class bridge on {@link PersonName}, {@link PatientIdentifier} and
+	 * {@link PersonAttribute}
+	 */
+	public static final String FIELD = "patientSearch";
+	
+	public static final String PERSON_ID = FIELD + ".personId";
+	
+	public static final String SORT_NAME = FIELD + ".sortName";
+	
+	public static final String GIVEN_NAME = FIELD + ".givenName";
+	
+	public static final String MIDDLE_NAME = FIELD + ".middleName";
+	
+	public static final String FAMILY_NAME = FIELD + ".familyName";
+	
+	public static final String FAMILY_NAME2 = FIELD + ".familyName2";
+	
+	public static final String IDENTIFIER = FIELD + ".identifier";
+	
+	public static final String ATTRIBUTE_VALUE = FIELD + ".attributeValue";
+	
+	public static final String ATTRIBUTE_TYPE = FIELD + ".attributeType";
+	
+	/**
+	 * Separates the parts of a name in {@link #SORT_NAME}, it sorts before any other character
+	 */
+	private static final char SORT_NAME_SEPARATOR = '\u0001';
+	
+	/**
+	 * @see org.hibernate.search.bridge.FieldBridge#set(java.lang.String, java.lang.Object,
+	 *      org.apache.lucene.document.Document, org.hibernate.search.bridge.LuceneOptions)
+	 */
+	@Override
+	public void set(String name, Object value, Document document, LuceneOptions luceneOptions) {
+		if (value instanceof PersonName) {
+			PersonName personName = (PersonName) value;
+			if (personName.isVoided() || !isPatient(personName.getPerson())) {
+				return;
+			}
+			addField(GIVEN_NAME, personName.getGivenName(), document, luceneOptions);
+			addField(MIDDLE_NAME, personName.getMiddleName(), document, luceneOptions);
+			addField(FAMILY_NAME, personName.getFamilyName(), document, luceneOptions);
+			addField(FAMILY_NAME2, personName.getFamilyName2(), document, luceneOptions);
+			addPersonFields(personName.getPerson(), personName, document, luceneOptions);
+		} else if (value instanceof PatientIdentifier) {
+			PatientIdentifier identifier = (PatientIdentifier) value;
+			if (identifier.isVoided() || !isPatient(identifier.getPatient())) {
+				return;
+			}
+			addField(IDENTIFIER, identifier.getIdentifier(), document, luceneOptions);
+			addPersonFields(identifier.getPatient(), identifier.getPatient().getPersonName(), document, luceneOptions);
+		} else if (value instanceof PersonAttribute) {
+			PersonAttribute attribute = (PersonAttribute) value;
+			if (attribute.isVoided() || attribute.getAttributeType() == null || !isPatient(attribute.getPerson())) {
+				return;
+			}
+			addField(ATTRIBUTE_VALUE, attribute.getValue(), document, luceneOptions);
+			luceneOptions.addFieldToDocument(ATTRIBUTE_TYPE, attribute.getAttributeType().getPersonAttributeTypeId()
+			        .toString(), document);
+			addPersonFields(attribute.getPerson(), attribute.getPerson().getPersonName(), document, luceneOptions);
+		}
+	}
+	
+	/**
+	 * Brings a name, identifier or attribute value into the form it is indexed in
+	 * 
+	 * @param value the value
+	 * @return the value in lower case
+	 */
+	public static String normalize(String value) {
+		return value.toLowerCase();
+	}
+	
+	/**
+	 * @param personName the preferred name of a patient, may be null
+	 * @return the value the patient is sorted by
+	 */
+	public static String getSortName(PersonName personName) {
+		StringBuilder sortValue = new StringBuilder();
+		if (personName != null) {
+			sortValue.append(normalize(nullToEmpty(personName.getGivenName()))).append(SORT_NAME_SEPARATOR);
+			sortValue.append(normalize(nullToEmpty(personName.getMiddleName()))).append(SORT_NAME_SEPARATOR);
+			sortValue.append(normalize(nullToEmpty(personName.getFamilyName())));
+		}
+		return sortValue.toString();
+	}
+	
+	private boolean isPatient(Person person) {
+		return person != null && !person.isVoided() && (person instanceof Patient || person.isPatient());
+	}
+	
+	private void addPersonFields(Person person, PersonName sortName, Document document, LuceneOptions luceneOptions) {
+		if (person.getPersonId() == null) {
+			return;
+		}
+		luceneOptions.addFieldToDocument(PERSON_ID, person.getPersonId().toString(), document);
+		luceneOptions.addFieldToDocument(SORT_NAME, getSortName(sortName), document);
+	}
+	
+	private void addField(String field, String value, Document document, LuceneOptions luceneOptions) {
+		if (value != null) {
+			luceneOptions.addFieldToDocument(field, normalize(value), document);
+		}
+	}
+	
+	private static String nullToEmpty(String value) {
+		return value == null ? "" : value;
+	}
+}
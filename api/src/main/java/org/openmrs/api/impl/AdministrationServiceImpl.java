@@ -21,8 +21,10 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -32,14 +34,18 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.openmrs.ChangeNotification;
 import org.openmrs.Concept;
 import org.openmrs.ConceptClass;
 import org.openmrs.ConceptDatatype;
 import org.openmrs.ConceptProposal;
 import org.openmrs.ConceptSource;
+import org.openmrs.Drug;
 import org.openmrs.EncounterType;
 import org.openmrs.FieldType;
 import org.openmrs.GlobalProperty;
@@ -58,6 +64,7 @@ import org.openmrs.api.AdministrationService;
 import org.openmrs.api.EventListeners;
 import org.openmrs.api.GlobalPropertyListener;
 import org.openmrs.api.context.Context;
+import org.openmrs.api.context.UserContext;
 import org.openmrs.api.db.AdministrationDAO;
 import org.openmrs.customdatatype.CustomDatatypeUtil;
 import org.openmrs.module.Module;
@@ -70,9 +77,12 @@ import org.openmrs.util.LocaleUtility;
 import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.OpenmrsUtil;
 import org.openmrs.util.PrivilegeConstants;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.StringUtils;
 import org.springframework.validation.Errors;
 
@@ -97,6 +107,77 @@ public class AdministrationServiceImpl extends BaseOpenmrsService implements Adm
 	
 	private HttpClient implementationIdHttpClient;
 	
+	/**
+	 * Marks a global property that does not exist in {@link #globalPropertyCache}, compared by
+	 * identity
+	 */
+	private static final String MISSING_GLOBAL_PROPERTY = new String();
+	
+	/**
+	 * Global property values keyed on the lower cased property name, so that
+	 * {@link #getGlobalProperty(String)} only goes to the database on a miss
+	 */
+	private final Map<String, CachedGlobalProperty> globalPropertyCache = new ConcurrentHashMap<String, CachedGlobalProperty>();
+	
+	/**
+	 * Cached global property values are read from the database again after this time, in case
+	 * another node sharing the database changed them and the change notification was missed or
+	 * polling is disabled
+	 */
+	private static final long GLOBAL_PROPERTY_CACHE_TIME_TO_LIVE = 60 * 1000;
+	
+	/**
+	 * Incremented on every eviction from {@link #globalPropertyCache}, guarded by the cache itself.
+	 * A value read from the database is only cached if no eviction happened while it was read.
+	 */
+	private long globalPropertyCacheVersion = 0;
+	
+	/**
+	 * Binds the global property values written by the current transaction to it, they are only put
+	 * in {@link #globalPropertyCache} by the first read after the transaction completed
+	 */
+	private final Object writtenGlobalPropertiesKey = new Object();
+	
+	/**
+	 * Change notifications older than this are deleted, every node is expected to have processed
+	 * them long before
+	 */
+	private static final long CHANGE_NOTIFICATION_MAX_AGE = 24 * 60 * 60 * 1000;
+	
+	private static final long CHANGE_NOTIFICATION_PURGE_INTERVAL = 60 * 60 * 1000;
+	
+	/**
+	 * How long ids skipped by {@link #processChangeNotifications()} are looked for again. An id is
+	 * skipped when a higher one was read first, because the transaction that took the lower id had
+	 * not committed yet or was rolled back.
+	 */
+	private static final long CHANGE_NOTIFICATION_COMMIT_LAG = 10 * 60 * 1000;
+	
+	/**
+	 * At most this many skipped ids are looked for again, e.g. if the database increments ids by more
+	 * than one
+	 */
+	private static final int MAX_SKIPPED_CHANGE_NOTIFICATIONS = 1000;
+	
+	/**
+	 * Identifies this node among all the nodes that share the database
+	 */
+	private final String nodeId = UUID.randomUUID().toString();
+	
+	/**
+	 * The last change notification seen by {@link #processChangeNotifications()}, null until it
+	 * first runs. Guarded by this.
+	 */
+	private Integer lastChangeNotificationId;
+	
+	/**
+	 * The ids below {@link #lastChangeNotificationId} that were not read yet, with the time they
+	 * were first skipped. Guarded by this.
+	 */
+	private final Map<Integer, Long> skippedChangeNotificationIds = new HashMap<Integer, Long>();
+	
+	private long lastChangeNotificationPurge = System.currentTimeMillis();
+	
 	/**
 	 * Default empty constructor
 	 */
@@ -615,7 +696,34 @@ public class AdministrationServiceImpl extends BaseOpenmrsService implements Adm
 			return null;
 		}
 		
-		return dao.getGlobalProperty(propertyName);
+		String key = getGlobalPropertyCacheKey(propertyName);
+		Map<String, String> writtenValues = getWrittenGlobalProperties(false);
+		String value = writtenValues == null ? null : writtenValues.get(key);
+		if (value == null) {
+			CachedGlobalProperty cached = globalPropertyCache.get(key);
+			if (cached != null && !cached.isExpired()) {
+				value = cached.value;
+			}
+		}
+		if (value == null) {
+			long version;
+			synchronized (globalPropertyCache) {
+				version = globalPropertyCacheVersion;
+			}
+			
+			value = dao.getGlobalProperty(propertyName);
+			if (value == null) {
+				value = MISSING_GLOBAL_PROPERTY;
+			}
+			
+			synchronized (globalPropertyCache) {
+				if (version == globalPropertyCacheVersion) {
+					globalPropertyCache.put(key, new CachedGlobalProperty(value));
+				}
+			}
+		}
+		
+		return value == MISSING_GLOBAL_PROPERTY ? null : value;
 	}
 	
 	/**
@@ -692,6 +800,8 @@ public class AdministrationServiceImpl extends BaseOpenmrsService implements Adm
 		}
 		gp.setPropertyValue(propertyValue);
 		dao.saveGlobalProperty(gp);
+		cacheGlobalProperty(gp.getProperty(), gp.getPropertyValue());
+		notifyOtherNodes(GlobalProperty.class, gp.getProperty());
 	}
 	
 	/**
@@ -753,6 +863,8 @@ public class AdministrationServiceImpl extends BaseOpenmrsService implements Adm
 	public void purgeGlobalProperty(GlobalProperty globalProperty) throws APIException {
 		notifyGlobalPropertyDelete(globalProperty.getProperty());
 		dao.deleteGlobalProperty(globalProperty);
+		cacheGlobalProperty(globalProperty.getProperty(), null);
+		notifyOtherNodes(GlobalProperty.class, globalProperty.getProperty());
 	}
 	
 	/**
@@ -781,6 +893,8 @@ public class AdministrationServiceImpl extends BaseOpenmrsService implements Adm
 		if (gp.getProperty() != null && gp.getProperty().length() > 0) {
 			CustomDatatypeUtil.saveIfDirty(gp);
 			dao.saveGlobalProperty(gp);
+			cacheGlobalProperty(gp.getProperty(), gp.getPropertyValue());
+			notifyOtherNodes(GlobalProperty.class, gp.getProperty());
 			notifyGlobalPropertyChange(gp);
 			return gp;
 		}
@@ -796,7 +910,267 @@ public class AdministrationServiceImpl extends BaseOpenmrsService implements Adm
 			return null;
 		}
 		
-		return dao.executeSQL(sql, selectOnly);
+		List<List<Object>> result = dao.executeSQL(sql, selectOnly);
+		if (!selectOnly) {
+			// the statement may have changed global properties behind our back
+			clearGlobalPropertyCache();
+		}
+		return result;
+	}
+	
+	/**
+	 * Drops all cached global property values, so that they are read from the database again. This
+	 * needs to be called if the global_property table is changed without going through this
+	 * service.
+	 * 
+	 * @since 1.12
+	 */
+	public void clearGlobalPropertyCache() {
+		synchronized (globalPropertyCache) {
+			globalPropertyCacheVersion++;
+			globalPropertyCache.clear();
+		}
+	}
+	
+	/**
+	 * Records a value written by this service. Inside a transaction the value is not visible to
+	 * other threads before it is committed, so it is only evicted from the global property cache and
+	 * kept for the current transaction. The entry is evicted again when the transaction completes,
+	 * so that a read that raced with the commit cannot leave the old value cached.
+	 * 
+	 * @param propertyName the name of the global property
+	 * @param propertyValue the new value, or null if the property was deleted
+	 */
+	private void cacheGlobalProperty(String propertyName, String propertyValue) {
+		String key = getGlobalPropertyCacheKey(propertyName);
+		String value = propertyValue == null ? MISSING_GLOBAL_PROPERTY : propertyValue;
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			synchronized (globalPropertyCache) {
+				globalPropertyCacheVersion++;
+				globalPropertyCache.put(key, new CachedGlobalProperty(value));
+			}
+			return;
+		}
+		
+		evictGlobalProperty(key);
+		getWrittenGlobalProperties(true).put(key, value);
+	}
+	
+	/**
+	 * @param create whether to bind a new map to the current transaction if there is none yet
+	 * @return the global property values written by the current transaction keyed like
+	 *         {@link #globalPropertyCache}, null if it has not written any or there is no transaction
+	 */
+	@SuppressWarnings("unchecked")
+	private Map<String, String> getWrittenGlobalProperties(boolean create) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			return null;
+		}
+		
+		Map<String, String> writtenValues = (Map<String, String>) TransactionSynchronizationManager
+		        .getResource(writtenGlobalPropertiesKey);
+		if (writtenValues == null && create) {
+			final Map<String, String> newValues = new HashMap<String, String>();
+			TransactionSynchronizationManager.bindResource(writtenGlobalPropertiesKey, newValues);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResourceIfPossible(writtenGlobalPropertiesKey);
+					for (String key : newValues.keySet()) {
+						evictGlobalProperty(key);
+					}
+				}
+			});
+			writtenValues = newValues;
+		}
+		return writtenValues;
+	}
+	
+	/**
+	 * Removes the given key from the global property cache
+	 * 
+	 * @param key the lower cased property name
+	 */
+	private void evictGlobalProperty(String key) {
+		synchronized (globalPropertyCache) {
+			globalPropertyCacheVersion++;
+			globalPropertyCache.remove(key);
+		}
+	}
+	
+	/**
+	 * Global property names are case insensitive, so they are cached on their lower cased name
+	 * 
+	 * @param propertyName the name of the global property
+	 * @return the key in the global property cache
+	 */
+	private String getGlobalPropertyCacheKey(String propertyName) {
+		return propertyName.toLowerCase(Locale.ENGLISH);
+	}
+	
+	/**
+	 * @see org.openmrs.api.AdministrationService#saveChangeNotification(java.lang.Class,
+	 *      java.lang.String)
+	 */
+	public void saveChangeNotification(Class<?> type, String identifier) throws APIException {
+		notifyOtherNodes(type, identifier);
+	}
+	
+	/**
+	 * Records a change for the other nodes on behalf of the services that make it, whose callers do
+	 * not need to be allowed to save change notifications themselves
+	 * 
+	 * @param type the class of the changed object
+	 * @param identifier identifies the changed object, may be null
+	 * @see org.openmrs.api.AdministrationService#saveChangeNotification(Class, String)
+	 */
+	static void saveChangeNotificationAsProxy(Class<?> type, String identifier) {
+		try {
+			Context.addProxyPrivilege(PrivilegeConstants.MANAGE_CHANGE_NOTIFICATIONS);
+			Context.getAdministrationService().saveChangeNotification(type, identifier);
+		}
+		finally {
+			Context.removeProxyPrivilege(PrivilegeConstants.MANAGE_CHANGE_NOTIFICATIONS);
+		}
+	}
+	
+	/**
+	 * @see org.openmrs.api.AdministrationService#processChangeNotifications()
+	 */
+	public synchronized int processChangeNotifications() throws APIException {
+		if (lastChangeNotificationId == null) {
+			// everything before now is already reflected in what this node reads from the database
+			lastChangeNotificationId = dao.getLatestChangeNotificationId();
+			return 0;
+		}
+		
+		long now = System.currentTimeMillis();
+		Integer scanAfter = lastChangeNotificationId;
+		for (Iterator<Map.Entry<Integer, Long>> it = skippedChangeNotificationIds.entrySet().iterator(); it.hasNext();) {
+			Map.Entry<Integer, Long> skipped = it.next();
+			if (now - skipped.getValue() > CHANGE_NOTIFICATION_COMMIT_LAG) {
+				it.remove();
+			} else if (skipped.getKey() <= scanAfter) {
+				scanAfter = skipped.getKey() - 1;
+			}
+		}
+		
+		Set<String> changedGlobalProperties = new LinkedHashSet<String>();
+		Set<String> changedTypes = new HashSet<String>();
+		Set<Integer> changedConceptIds = new HashSet<Integer>();
+		Set<Integer> changedDrugIds = new HashSet<Integer>();
+		boolean allConceptsChanged = false;
+		int count = 0;
+		for (ChangeNotification notification : dao.getChangeNotificationsAfter(scanAfter)) {
+			Integer id = notification.getChangeNotificationId();
+			if (id > lastChangeNotificationId) {
+				for (int skippedId = lastChangeNotificationId + 1; skippedId < id
+				        && skippedChangeNotificationIds.size() < MAX_SKIPPED_CHANGE_NOTIFICATIONS; skippedId++) {
+					skippedChangeNotificationIds.put(skippedId, now);
+				}
+				lastChangeNotificationId = id;
+			} else if (skippedChangeNotificationIds.remove(id) == null) {
+				// processed by an earlier call
+				continue;
+			}
+			
+			if (nodeId.equals(notification.getOrigin())) {
+				continue;
+			}
+			
+			if (log.isDebugEnabled()) {
+				log.debug("Processing " + notification);
+			}
+			
+			count++;
+			if (GlobalProperty.class.getName().equals(notification.getType())) {
+				changedGlobalProperties.add(notification.getIdentifier());
+			} else if (Concept.class.getName().equals(notification.getType())) {
+				if (notification.getIdentifier() == null) {
+					// e.g. after an import, too many concepts changed to name them one by one
+					allConceptsChanged = true;
+				} else {
+					changedConceptIds.add(Integer.valueOf(notification.getIdentifier()));
+				}
+			} else if (Drug.class.getName().equals(notification.getType()) && notification.getIdentifier() != null) {
+				changedDrugIds.add(Integer.valueOf(notification.getIdentifier()));
+			} else {
+				changedTypes.add(notification.getType());
+			}
+		}
+		
+		for (String propertyName : changedGlobalProperties) {
+			evictGlobalProperty(getGlobalPropertyCacheKey(propertyName));
+			GlobalProperty gp = dao.getGlobalPropertyObject(propertyName);
+			if (gp == null) {
+				notifyGlobalPropertyDelete(propertyName);
+			} else {
+				notifyGlobalPropertyChange(gp);
+			}
+		}
+		if (!changedGlobalProperties.isEmpty()) {
+			// the search locales are computed from global properties
+			Context.getRegisteredComponent("apiCacheManager", CacheManager.class).getCache("userSearchLocales").clear();
+		}
+		
+		boolean privilegesChanged = false;
+		for (Class<?> type : new Class<?>[] { Privilege.class, Role.class, User.class }) {
+			if (changedTypes.contains(type.getName())) {
+				dao.evictFromSecondLevelCache(type);
+				privilegesChanged = true;
+			}
+		}
+		if (privilegesChanged) {
+			UserContext.invalidatePrivileges();
+		}
+		
+		if (allConceptsChanged) {
+			dao.evictFromSecondLevelCache(Concept.class);
+			Context.getConceptService().refreshConceptDictionarySnapshot(null);
+		} else if (!changedConceptIds.isEmpty()) {
+			dao.evictFromSecondLevelCache(Concept.class);
+			Context.getConceptService().refreshConceptDictionarySnapshot(changedConceptIds);
+		}
+		if (!changedDrugIds.isEmpty()) {
+			dao.evictFromSecondLevelCache(Drug.class);
+			Context.getConceptService().refreshDrugAutocompleteIndex(changedDrugIds);
+		}
+		
+		if (System.currentTimeMillis() - lastChangeNotificationPurge > CHANGE_NOTIFICATION_PURGE_INTERVAL) {
+			lastChangeNotificationPurge = System.currentTimeMillis();
+			dao.deleteChangeNotificationsBefore(new Date(lastChangeNotificationPurge - CHANGE_NOTIFICATION_MAX_AGE));
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * Records a change made on this node for the other nodes sharing the database, unless polling
+	 * for changes is disabled. The notification is part of the current transaction, so it is only
+	 * seen if the change is committed.
+	 * 
+	 * @param type the changed class
+	 * @param identifier identifies the changed object, may be null
+	 */
+	private void notifyOtherNodes(Class<?> type, String identifier) {
+		if (!isPollingForChanges()) {
+			return;
+		}
+		dao.saveChangeNotification(new ChangeNotification(type.getName(), identifier, nodeId));
+	}
+	
+	/**
+	 * @return true if the nodes sharing the database poll for the changes made by each other
+	 */
+	private boolean isPollingForChanges() {
+		String pollInterval = getGlobalProperty(OpenmrsConstants.GP_CHANGE_NOTIFICATION_POLL_INTERVAL);
+		try {
+			return pollInterval != null && Integer.parseInt(pollInterval.trim()) > 0;
+		}
+		catch (NumberFormatException e) {
+			return false;
+		}
 	}
 	
 	/**
@@ -1308,4 +1682,22 @@ public class AdministrationServiceImpl extends BaseOpenmrsService implements Adm
 	private List<GlobalPropertyListener> getGlobalPropertyListeners() {
 		return Context.getRegisteredComponent("openmrsEventListeners", EventListeners.class).getGlobalPropertyListeners();
 	}
+	
+	/**
+	 * A value in the global property cache
+	 */
+	private static class CachedGlobalProperty {
+		
+		private final String value;
+		
+		private final long cachedAt = System.currentTimeMillis();
+		
+		private CachedGlobalProperty(String value) {
+			this.value = value;
+		}
+		
+		private boolean isExpired() {
+			return System.currentTimeMillis() - cachedAt > GLOBAL_PROPERTY_CACHE_TIME_TO_LIVE;
+		}
+	}
 }
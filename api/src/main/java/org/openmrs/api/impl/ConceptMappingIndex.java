@@ -0,0 +1,202 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.api.db.ConceptDAO;
+
+/**
+ * Maps a reference term code and the name or hl7 code of its source to the ids of the concepts
+ * that are mapped to the term, so that {@link ConceptServiceImpl#getConceptsByMapping} does not
+ * have to join concept_map, concept_reference_term and concept_reference_source for every lookup.
+ * The index is read from the database on the first lookup. After that, only the mappings of
+ * concepts that were marked as changed are read again, while a change to a reference term or
+ * source drops the whole index. Changes are applied to a copy of the index which then replaces
+ * it, so lookups never see an index that is half updated. Codes and sources are matched ignoring
+ * case, like the database does with its default collation.
+ *
+ * @since 1.12
+ */
+class ConceptMappingIndex {
+	
+	private static final Log log = LogFactory.getLog(ConceptMappingIndex.class);
+	
+	/**
+	 * The concept ids mapped to each source and code, neither the map nor the lists are changed
+	 * once the map is published. Null until the index is read.
+	 */
+	private volatile Map<String, List<Integer>> conceptIdsByMapping;
+	
+	/**
+	 * The keys each concept is listed under, the sets are never changed once they are put in,
+	 * guarded by this
+	 */
+	private Map<Integer, Set<String>> mappingsByConceptId;
+	
+	/**
+	 * Concepts whose mappings have to be read again, guarded by this
+	 */
+	private final Set<Integer> changedConceptIds = new HashSet<Integer>();
+	
+	private volatile boolean outdated = false;
+	
+	/**
+	 * @param code the code of a reference term
+	 * @param sourceNameOrHl7Code the name or hl7 code of the source of the term
+	 * @param dao used to read the index when needed
+	 * @return the ids of the concepts that are mapped to the term, in the order they were mapped
+	 * @should find concepts by the name or hl7 code of the source ignoring case
+	 * @should read the mappings of changed concepts again
+	 * @should not change the results of earlier lookups
+	 */
+	List<Integer> getConceptIds(String code, String sourceNameOrHl7Code, ConceptDAO dao) {
+		if (code == null || sourceNameOrHl7Code == null) {
+			return Collections.emptyList();
+		}
+		
+		Map<String, List<Integer>> index = conceptIdsByMapping;
+		if (index == null || outdated) {
+			index = update(dao);
+		}
+		List<Integer> conceptIds = index.get(getKey(sourceNameOrHl7Code, code));
+		return conceptIds == null ? Collections.<Integer> emptyList() : conceptIds;
+	}
+	
+	/**
+	 * Marks concepts whose mappings have to be read again on the next lookup
+	 *
+	 * @param conceptIds the ids of the changed concepts
+	 */
+	synchronized void conceptsChanged(Collection<Integer> conceptIds) {
+		if (conceptIdsByMapping != null) {
+			changedConceptIds.addAll(conceptIds);
+			outdated = true;
+		}
+	}
+	
+	/**
+	 * Drops the whole index, it is read again on the next lookup
+	 */
+	synchronized void clear() {
+		conceptIdsByMapping = null;
+		mappingsByConceptId = null;
+		changedConceptIds.clear();
+		outdated = false;
+	}
+	
+	private synchronized Map<String, List<Integer>> update(ConceptDAO dao) {
+		if (conceptIdsByMapping == null) {
+			long start = System.currentTimeMillis();
+			Map<String, List<Integer>> index = new HashMap<String, List<Integer>>();
+			Map<Integer, Set<String>> keysByConceptId = new HashMap<Integer, Set<String>>();
+			for (Object[] row : dao.getConceptMappingCodes(null)) {
+				add(index, keysByConceptId, row);
+			}
+			changedConceptIds.clear();
+			outdated = false;
+			mappingsByConceptId = keysByConceptId;
+			conceptIdsByMapping = Collections.unmodifiableMap(index);
+			if (log.isDebugEnabled()) {
+				log.debug("Read the mappings of " + keysByConceptId.size() + " concepts in "
+				        + (System.currentTimeMillis() - start) + " ms");
+			}
+		} else if (outdated) {
+			List<Integer> conceptIds = new ArrayList<Integer>(changedConceptIds);
+			List<Object[]> rows = dao.getConceptMappingCodes(conceptIds);
+			
+			// lookups keep using the published index until the changed one replaces it
+			Map<String, List<Integer>> index = new HashMap<String, List<Integer>>(conceptIdsByMapping);
+			Map<Integer, Set<String>> keysByConceptId = new HashMap<Integer, Set<String>>(mappingsByConceptId);
+			for (Integer conceptId : conceptIds) {
+				remove(index, keysByConceptId, conceptId);
+			}
+			for (Object[] row : rows) {
+				add(index, keysByConceptId, row);
+			}
+			
+			changedConceptIds.removeAll(conceptIds);
+			outdated = !changedConceptIds.isEmpty();
+			mappingsByConceptId = keysByConceptId;
+			conceptIdsByMapping = Collections.unmodifiableMap(index);
+		}
+		return conceptIdsByMapping;
+	}
+	
+	/**
+	 * @param index the index to add to
+	 * @param keysByConceptId the keys each concept is listed under
+	 * @param row the concept id, term code, source name and source hl7 code of a mapping
+	 */
+	private void add(Map<String, List<Integer>> index, Map<Integer, Set<String>> keysByConceptId, Object[] row) {
+		Integer conceptId = (Integer) row[0];
+		String code = (String) row[1];
+		add(index, keysByConceptId, conceptId, getKey((String) row[2], code));
+		if (row[3] != null) {
+			add(index, keysByConceptId, conceptId, getKey((String) row[3], code));
+		}
+	}
+	
+	private void add(Map<String, List<Integer>> index, Map<Integer, Set<String>> keysByConceptId, Integer conceptId,
+	        String key) {
+		List<Integer> conceptIds = index.get(key);
+		if (conceptIds != null && conceptIds.contains(conceptId)) {
+			return;
+		}
+		
+		List<Integer> copy = new ArrayList<Integer>(conceptIds == null ? 1 : conceptIds.size() + 1);
+		if (conceptIds != null) {
+			copy.addAll(conceptIds);
+		}
+		copy.add(conceptId);
+		index.put(key, Collections.unmodifiableList(copy));
+		
+		// the set may be shared with the index this one was copied from
+		Set<String> keys = keysByConceptId.get(conceptId);
+		Set<String> keysCopy = keys == null ? new HashSet<String>() : new HashSet<String>(keys);
+		keysCopy.add(key);
+		keysByConceptId.put(conceptId, keysCopy);
+	}
+	
+	private void remove(Map<String, List<Integer>> index, Map<Integer, Set<String>> keysByConceptId, Integer conceptId) {
+		Set<String> keys = keysByConceptId.remove(conceptId);
+		if (keys == null) {
+			return;
+		}
+		
+		for (String key : keys) {
+			List<Integer> copy = new ArrayList<Integer>(index.get(key));
+			copy.remove(conceptId);
+			if (copy.isEmpty()) {
+				index.remove(key);
+			} else {
+				index.put(key, Collections.unmodifiableList(copy));
+			}
+		}
+	}
+	
+	private String getKey(String sourceNameOrHl7Code, String code) {
+		return (sourceNameOrHl7Code + '\n' + code).toLowerCase(Locale.ENGLISH);
+	}
+}
@@ -0,0 +1,295 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.impl;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.Concept;
+import org.openmrs.OpenmrsObject;
+
+/**
+ * Keeps the results of the latest concept searches, so that the same phrase typed again into an
+ * autocomplete does not run the full text query again. A search is identified by its
+ * {@link Key}, the cached value is the list of ids of the concept names it found, which
+ * {@link ConceptServiceImpl#getConcepts} turns back into search results. The least recently used
+ * search is dropped once the cache is full, and a search expires after a time to live. All
+ * searches are dropped when a concept is changed or the search index is updated.
+ *
+ * @since 1.12
+ */
+class ConceptSearchCache implements ConceptSearchCacheMBean {
+	
+	private static final Log log = LogFactory.getLog(ConceptSearchCache.class);
+	
+	private static final String MBEAN_NAME = "org.openmrs:type=ConceptSearchCache";
+	
+	/**
+	 * Guarded by this, ordered from the least to the most recently used
+	 */
+	private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+		
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+			return size() > maxSize;
+		}
+	};
+	
+	private int maxSize = 0;
+	
+	private long timeToLiveMillis = 0;
+	
+	/**
+	 * The version of the search index the entries were found in
+	 */
+	private long indexVersion = Long.MIN_VALUE;
+	
+	/**
+	 * Incremented whenever the entries are dropped, so that a search that started before cannot put
+	 * its outdated result in
+	 */
+	private long generation = 0;
+	
+	private final AtomicLong hits = new AtomicLong();
+	
+	private final AtomicLong misses = new AtomicLong();
+	
+	private boolean registered = false;
+	
+	/**
+	 * Sets the size and time to live, evicting entries if the cache shrinks
+	 * 
+	 * @param maxSize the maximum number of cached searches
+	 * @param timeToLiveMillis how long a search is cached
+	 * @should evict the least recently used searches
+	 */
+	synchronized void configure(int maxSize, long timeToLiveMillis) {
+		if (!registered) {
+			registered = true;
+			registerMBean();
+		}
+		
+		this.timeToLiveMillis = timeToLiveMillis;
+		this.maxSize = maxSize;
+		Iterator<Key> eldest = entries.keySet().iterator();
+		while (entries.size() > maxSize && eldest.hasNext()) {
+			eldest.next();
+			eldest.remove();
+		}
+	}
+	
+	/**
+	 * Called before every lookup with the current version of the search index, drops the entries
+	 * if the index was updated since they were found
+	 * 
+	 * @param currentIndexVersion the version of the search index
+	 * @return the generation to pass to {@link #put(Key, List, long)}
+	 */
+	synchronized long begin(long currentIndexVersion) {
+		if (currentIndexVersion != indexVersion) {
+			indexVersion = currentIndexVersion;
+			clear();
+		}
+		return generation;
+	}
+	
+	/**
+	 * @param key the search
+	 * @return the ids of the concept names the search found, or null if it is not cached
+	 * @should not return a search after its time to live
+	 */
+	synchronized List<Integer> get(Key key) {
+		Entry entry = entries.get(key);
+		if (entry != null && System.currentTimeMillis() - entry.created > timeToLiveMillis) {
+			entries.remove(key);
+			entry = null;
+		}
+		
+		if (entry == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		return entry.conceptNameIds;
+	}
+	
+	/**
+	 * Caches the result of a search, unless the cache was cleared since the search started
+	 * 
+	 * @param key the search
+	 * @param conceptNameIds the ids of the concept names it found
+	 * @param searchGeneration the value {@link #begin(long)} returned before the search
+	 * @should not cache a search that started before the cache was cleared
+	 */
+	synchronized void put(Key key, List<Integer> conceptNameIds, long searchGeneration) {
+		if (searchGeneration == generation && maxSize > 0) {
+			entries.put(key, new Entry(Collections.unmodifiableList(new ArrayList<Integer>(conceptNameIds))));
+		}
+	}
+	
+	/**
+	 * @see org.openmrs.api.impl.ConceptSearchCacheMBean#clear()
+	 */
+	@Override
+	public synchronized void clear() {
+		entries.clear();
+		generation++;
+	}
+	
+	/**
+	 * @see org.openmrs.api.impl.ConceptSearchCacheMBean#getSize()
+	 */
+	@Override
+	public synchronized int getSize() {
+		return entries.size();
+	}
+	
+	/**
+	 * @see org.openmrs.api.impl.ConceptSearchCacheMBean#getHits()
+	 */
+	@Override
+	public long getHits() {
+		return hits.get();
+	}
+	
+	/**
+	 * @see org.openmrs.api.impl.ConceptSearchCacheMBean#getMisses()
+	 */
+	@Override
+	public long getMisses() {
+		return misses.get();
+	}
+	
+	/**
+	 * @see org.openmrs.api.impl.ConceptSearchCacheMBean#getHitRatio()
+	 */
+	@Override
+	public double getHitRatio() {
+		long hitCount = hits.get();
+		long lookups = hitCount + misses.get();
+		return lookups == 0 ? 0 : (double) hitCount / lookups;
+	}
+	
+	private void registerMBean() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(MBEAN_NAME);
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+			server.registerMBean(new StandardMBean(this, ConceptSearchCacheMBean.class), name);
+		}
+		catch (Exception e) {
+			log.warn("Unable to register MBean " + MBEAN_NAME, e);
+		}
+	}
+	
+	/**
+	 * A cached search result
+	 */
+	private static class Entry {
+		
+		private final List<Integer> conceptNameIds;
+		
+		private final long created = System.currentTimeMillis();
+		
+		private Entry(List<Integer> conceptNameIds) {
+			this.conceptNameIds = conceptNameIds;
+		}
+	}
+	
+	/**
+	 * Identifies a search by everything that decides its result. The phrase is trimmed, lower
+	 * cased and its whitespace collapsed, like the full text query treats it.
+	 */
+	static class Key {
+		
+		private final List<Object> parts = new ArrayList<Object>();
+		
+		/**
+		 * @param phrase the searched phrase
+		 * @param locales the locales to search in, their order does not matter
+		 * @param includeRetired whether retired concepts are found
+		 * @param requireClasses the classes a concept must have one of
+		 * @param excludeClasses the classes a concept must not have
+		 * @param requireDatatypes the datatypes a concept must have one of
+		 * @param excludeDatatypes the datatypes a concept must not have
+		 * @param answersToConcept the concept the found ones must be answers to, may be null
+		 * @param start the index of the first result
+		 * @param size the maximum number of results
+		 * @should ignore the case and whitespace of the phrase and the order of the locales
+		 */
+		Key(String phrase, Collection<?> locales, boolean includeRetired, Collection<? extends OpenmrsObject> requireClasses,
+		    Collection<? extends OpenmrsObject> excludeClasses, Collection<? extends OpenmrsObject> requireDatatypes,
+		    Collection<? extends OpenmrsObject> excludeDatatypes, Concept answersToConcept, Integer start, Integer size) {
+			parts.add(phrase == null ? "" : StringUtils.join(StringUtils.split(phrase.toLowerCase()), ' '));
+			parts.add(toSortedStrings(locales));
+			parts.add(includeRetired);
+			parts.add(getIds(requireClasses));
+			parts.add(getIds(excludeClasses));
+			parts.add(getIds(requireDatatypes));
+			parts.add(getIds(excludeDatatypes));
+			parts.add(answersToConcept == null ? null : answersToConcept.getConceptId());
+			parts.add(start);
+			parts.add(size);
+		}
+		
+		private static List<String> toSortedStrings(Collection<?> values) {
+			TreeSet<String> strings = new TreeSet<String>();
+			if (values != null) {
+				for (Object value : values) {
+					strings.add(String.valueOf(value));
+				}
+			}
+			return new ArrayList<String>(strings);
+		}
+		
+		private static List<String> getIds(Collection<? extends OpenmrsObject> objects) {
+			List<Object> ids = new ArrayList<Object>();
+			if (objects != null) {
+				for (OpenmrsObject object : objects) {
+					ids.add(object.getId());
+				}
+			}
+			return toSortedStrings(ids);
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Key && parts.equals(((Key) obj).parts);
+		}
+		
+		@Override
+		public int hashCode() {
+			return parts.hashCode();
+		}
+	}
+}
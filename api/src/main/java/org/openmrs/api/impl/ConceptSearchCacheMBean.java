@@ -0,0 +1,38 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.impl;
+
+/**
+ * JMX view of the cache of concept search results
+ * 
+ * @since 1.12
+ */
+public interface ConceptSearchCacheMBean {
+	
+	public int getSize();
+	
+	public long getHits();
+	
+	public long getMisses();
+	
+	/**
+	 * @return the fraction of the lookups that were answered from the cache, between 0 and 1
+	 */
+	public double getHitRatio();
+	
+	/**
+	 * Drops all cached results
+	 */
+	public void clear();
+}
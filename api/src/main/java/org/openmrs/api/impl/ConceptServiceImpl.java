@@ -55,8 +55,11 @@ import org.openmrs.ConceptSource;
 import org.openmrs.ConceptStopWord;
 import org.openmrs.Drug;
 import org.openmrs.Obs;
+import org.openmrs.User;
 import org.openmrs.api.APIException;
 import org.openmrs.api.AdministrationService;
+import org.openmrs.api.AutocompleteResult;
+import org.openmrs.api.ConceptDictionarySnapshot;
 import org.openmrs.api.ConceptInUseException;
 import org.openmrs.api.ConceptNameInUseException;
 import org.openmrs.api.ConceptService;
@@ -65,10 +68,13 @@ import org.openmrs.api.ConceptsLockedException;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.db.ConceptDAO;
 import org.openmrs.api.db.DAOException;
+import org.openmrs.collection.ListPart;
 import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.OpenmrsUtil;
 import org.openmrs.validator.ValidateUtil;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.StringUtils;
 
 /**
@@ -87,6 +93,34 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	
 	private static Concept falseConcept;
 	
+	private static final int DEFAULT_CONCEPT_ITERATOR_BATCH_SIZE = 100;
+	
+	private static final Object dictionarySnapshotLock = new Object();
+	
+	private static volatile ConceptDictionarySnapshot dictionarySnapshot;
+	
+	/**
+	 * The concepts that changed since the snapshot was built, guarded by dictionarySnapshotLock
+	 */
+	private static final Set<Integer> changedSnapshotConceptIds = new HashSet<Integer>();
+	
+	private static volatile boolean dictionarySnapshotOutdated = false;
+	
+	private static final ConceptMappingIndex conceptMappingIndex = new ConceptMappingIndex();
+	
+	private static final ConceptSetClosure conceptSetClosure = new ConceptSetClosure();
+	
+	private static final ConceptSearchCache conceptSearchCache = new ConceptSearchCache();
+	
+	private static final NameAutocompleteIndex conceptAutocompleteIndex = NameAutocompleteIndex.forConcepts();
+	
+	private static final NameAutocompleteIndex drugAutocompleteIndex = NameAutocompleteIndex.forDrugs();
+	
+	/**
+	 * Only searches for at most this many results are cached, i.e. the ones of an autocomplete
+	 */
+	private static final int MAX_CACHED_SEARCH_SIZE = 100;
+	
 	/**
 	 * @see org.openmrs.api.ConceptService#setConceptDAO(org.openmrs.api.db.ConceptDAO)
 	 */
@@ -283,19 +317,39 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 		concept.setChangedBy(Context.getAuthenticatedUser());
 		
 		Concept conceptToReturn = dao.saveConcept(concept);
+		queueSearchIndexUpdates(conceptToReturn);
 		
-		// add/remove entries in the concept_word table (used for searching)
-		this.updateConceptIndex(conceptToReturn);
+		conceptChanged(conceptToReturn);
 		
 		return conceptToReturn;
 	}
 	
+	/**
+	 * The search index is updated in the background once the transaction commits. The documents of
+	 * the names of a concept contain its fields and the names are part of the documents of its drugs
+	 * as well, so they are all updated whenever the concept is saved.
+	 * 
+	 * @param concept the saved concept
+	 */
+	private void queueSearchIndexUpdates(Concept concept) {
+		Context.queueSearchIndexUpdate(concept);
+		for (ConceptName name : concept.getNames(true)) {
+			Context.queueSearchIndexUpdate(name);
+		}
+		for (Drug drug : dao.getDrugs(null, concept, true)) {
+			Context.queueSearchIndexUpdate(drug);
+		}
+	}
+	
 	/**
 	 * @see org.openmrs.api.ConceptService#saveDrug(org.openmrs.Drug)
 	 */
 	public Drug saveDrug(Drug drug) throws APIException {
 		checkIfLocked();
-		return dao.saveDrug(drug);
+		Drug savedDrug = dao.saveDrug(drug);
+		Context.queueSearchIndexUpdate(savedDrug);
+		drugChanged(savedDrug);
+		return savedDrug;
 	}
 	
 	/**
@@ -315,6 +369,8 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 		}
 		
 		dao.purgeConcept(concept);
+		
+		conceptChanged(concept);
 	}
 	
 	/**
@@ -331,7 +387,10 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 			
 			concept.setRetired(true);
 			concept.setRetireReason(reason);
-			return dao.saveConcept(concept);
+			Concept retiredConcept = dao.saveConcept(concept);
+			queueSearchIndexUpdates(retiredConcept);
+			conceptChanged(retiredConcept);
+			return retiredConcept;
 			
 		}
 		
@@ -343,14 +402,20 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	 * @throws APIException
 	 */
 	public Drug retireDrug(Drug drug, String reason) throws APIException {
-		return dao.saveDrug(drug);
+		Drug savedDrug = dao.saveDrug(drug);
+		Context.queueSearchIndexUpdate(savedDrug);
+		drugChanged(savedDrug);
+		return savedDrug;
 	}
 	
 	/**
 	 * @see org.openmrs.api.ConceptService#unretireDrug(org.openmrs.Drug)
 	 */
 	public Drug unretireDrug(Drug drug) throws APIException {
-		return dao.saveDrug(drug);
+		Drug savedDrug = dao.saveDrug(drug);
+		Context.queueSearchIndexUpdate(savedDrug);
+		drugChanged(savedDrug);
+		return savedDrug;
 	}
 	
 	/**
@@ -358,6 +423,7 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	 * @throws APIException
 	 */
 	public void purgeDrug(Drug drug) throws APIException {
+		drugChanged(drug);
 		dao.purgeDrug(drug);
 	}
 	
@@ -455,9 +521,37 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 		if (!StringUtils.hasText(name)) {
 			return null;
 		}
+		
+		if (dictionarySnapshot != null) {
+			// the snapshot only holds committed names, so the concept is checked against the session
+			Locale locale = Context.getLocale();
+			ConceptDictionarySnapshot.Entry entry = getConceptDictionarySnapshot().getConceptByName(name, locale);
+			if (entry != null) {
+				Concept concept = dao.getConcept(entry.getConceptId());
+				if (concept != null && !concept.isRetired() && hasName(concept, name, locale)) {
+					return concept;
+				}
+			}
+		}
 		return dao.getConceptByName(name);
 	}
 	
+	/**
+	 * @param concept the concept to check
+	 * @param name the name to look for, case is ignored
+	 * @param locale the locale the name must be in, names in the same language count as well
+	 * @return true if the concept has a name that is not voided that matches
+	 */
+	private boolean hasName(Concept concept, String name, Locale locale) {
+		for (ConceptName conceptName : concept.getNames()) {
+			if (!conceptName.isVoided() && conceptName.getName().equalsIgnoreCase(name)
+			        && conceptName.getLocale().getLanguage().equals(locale.getLanguage())) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
 	/**
 	 * @see org.openmrs.api.ConceptService#getConceptByIdOrName(java.lang.String)
 	 * @deprecated use {@link #getConcept(String)}
@@ -848,12 +942,32 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	 */
 	@Transactional(readOnly = true)
 	public List<Concept> getConceptsByConceptSet(Concept c) {
-		Set<Integer> alreadySeen = new HashSet<Integer>();
 		List<Concept> ret = new ArrayList<Concept>();
-		explodeConceptSetHelper(c, ret, alreadySeen);
+		if (c.getConceptId() == null) {
+			return ret;
+		}
+		
+		for (Integer conceptId : conceptSetClosure.getConceptIds(c.getConceptId(), dao)) {
+			Concept concept = dao.getConcept(conceptId);
+			if (concept != null) {
+				ret.add(concept);
+			}
+		}
 		return ret;
 	}
 	
+	/**
+	 * @see org.openmrs.api.ConceptService#isConceptInSet(org.openmrs.Concept, org.openmrs.Concept)
+	 */
+	@Transactional(readOnly = true)
+	public boolean isConceptInSet(Concept concept, Concept conceptSet) {
+		if (concept.getConceptId() == null || conceptSet.getConceptId() == null) {
+			return false;
+		}
+		
+		return conceptSetClosure.contains(concept.getConceptId(), conceptSet.getConceptId(), dao);
+	}
+	
 	/**
 	 * @see org.openmrs.api.ConceptService#getSetsContainingConcept(org.openmrs.Concept)
 	 */
@@ -1124,30 +1238,6 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 		return dao.getMaxConceptId();
 	}
 	
-	/**
-	 * Utility method used by getConceptsInSet(Concept concept)
-	 * 
-	 * @param concept
-	 * @param ret
-	 * @param alreadySeen
-	 */
-	private void explodeConceptSetHelper(Concept concept, Collection<Concept> ret, Collection<Integer> alreadySeen) {
-		if (alreadySeen.contains(concept.getConceptId())) {
-			return;
-		}
-		alreadySeen.add(concept.getConceptId());
-		List<ConceptSet> cs = getConceptSets(concept);
-		for (ConceptSet set : cs) {
-			Concept c = set.getConcept();
-			if (c.isSet()) {
-				ret.add(c);
-				explodeConceptSetHelper(c, ret, alreadySeen);
-			} else {
-				ret.add(c);
-			}
-		}
-	}
-	
 	/**
 	 * @see org.openmrs.api.ConceptService#getConceptNameTagByName(java.lang.String)
 	 */
@@ -1194,7 +1284,7 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	 * @see org.openmrs.api.ConceptService#purgeConceptSource(org.openmrs.ConceptSource)
 	 */
 	public ConceptSource purgeConceptSource(ConceptSource cs) throws APIException {
-		
+		referenceTermsChanged();
 		return dao.deleteConceptSource(cs);
 	}
 	
@@ -1203,6 +1293,7 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	 */
 	public ConceptSource retireConceptSource(ConceptSource cs, String reason) throws APIException {
 		// retireReason is automatically set in BaseRetireHandler
+		referenceTermsChanged();
 		return dao.saveConceptSource(cs);
 	}
 	
@@ -1210,6 +1301,10 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	 * @see org.openmrs.api.ConceptService#saveConceptSource(org.openmrs.ConceptSource)
 	 */
 	public ConceptSource saveConceptSource(ConceptSource conceptSource) throws APIException {
+		if (conceptSource.getConceptSourceId() != null) {
+			// the name or hl7 code may have changed
+			referenceTermsChanged();
+		}
 		return dao.saveConceptSource(conceptSource);
 	}
 	
@@ -1227,7 +1322,257 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	 */
 	@Transactional(readOnly = true)
 	public Iterator<Concept> conceptIterator() {
-		return dao.conceptIterator();
+		return dao.conceptIterator(null, null, getConceptIteratorBatchSize());
+	}
+	
+	/**
+	 * @return the number of concepts a concept iterator reads at a time
+	 */
+	private int getConceptIteratorBatchSize() {
+		Integer batchSize = Context.getAdministrationService().getGlobalPropertyValue(
+		    OpenmrsConstants.GP_CONCEPT_ITERATOR_BATCH_SIZE, DEFAULT_CONCEPT_ITERATOR_BATCH_SIZE);
+		return batchSize > 0 ? batchSize : DEFAULT_CONCEPT_ITERATOR_BATCH_SIZE;
+	}
+	
+	/**
+	 * @see org.openmrs.api.ConceptService#getConceptDictionarySnapshot()
+	 */
+	@Transactional(readOnly = true)
+	public ConceptDictionarySnapshot getConceptDictionarySnapshot() throws APIException {
+		ConceptDictionarySnapshot snapshot = dictionarySnapshot;
+		if (snapshot != null && !dictionarySnapshotOutdated) {
+			return snapshot;
+		}
+		
+		synchronized (dictionarySnapshotLock) {
+			List<Integer> changedConceptIds = new ArrayList<Integer>(changedSnapshotConceptIds);
+			changedSnapshotConceptIds.clear();
+			dictionarySnapshotOutdated = false;
+			
+			if (dictionarySnapshot == null) {
+				long start = System.currentTimeMillis();
+				dictionarySnapshot = new ConceptDictionarySnapshot(dao.getConceptDictionarySnapshotEntries(null));
+				log.info("Read " + dictionarySnapshot.size() + " concepts into the dictionary snapshot in "
+				        + (System.currentTimeMillis() - start) + " ms");
+			} else if (!changedConceptIds.isEmpty()) {
+				List<ConceptDictionarySnapshot.Entry> changedEntries = dao
+				        .getConceptDictionarySnapshotEntries(changedConceptIds);
+				Set<Integer> purgedConceptIds = new HashSet<Integer>(changedConceptIds);
+				for (ConceptDictionarySnapshot.Entry entry : changedEntries) {
+					purgedConceptIds.remove(entry.getConceptId());
+				}
+				dictionarySnapshot = dictionarySnapshot.update(changedEntries, purgedConceptIds);
+			}
+			return dictionarySnapshot;
+		}
+	}
+	
+	/**
+	 * @see org.openmrs.api.ConceptService#refreshConceptDictionarySnapshot(java.util.Collection)
+	 */
+	public void refreshConceptDictionarySnapshot(Collection<Integer> conceptIds) throws APIException {
+		refreshConceptIndexes(conceptIds);
+		markDictionarySnapshotOutdated(conceptIds);
+	}
+	
+	/**
+	 * Marks concepts to be read again into the concept mapping index, the concept set closure and
+	 * the autocomplete index, and clears the concept search cache
+	 * 
+	 * @param conceptIds the ids of the changed concepts, or null if all concepts may have changed
+	 */
+	private void refreshConceptIndexes(Collection<Integer> conceptIds) {
+		if (conceptIds == null) {
+			conceptMappingIndex.clear();
+			conceptSetClosure.clear();
+			conceptAutocompleteIndex.clear();
+		} else {
+			conceptMappingIndex.conceptsChanged(conceptIds);
+			conceptSetClosure.conceptsChanged(conceptIds);
+			conceptAutocompleteIndex.changed(conceptIds);
+		}
+		conceptSearchCache.clear();
+	}
+	
+	/**
+	 * Marks concepts to be read again into the dictionary snapshot the next time it is asked for.
+	 * This must only be called once the changes are committed, the entries are read in a session of
+	 * their own which does not see changes that are not.
+	 * 
+	 * @param conceptIds the ids of the changed concepts, or null if all concepts may have changed
+	 */
+	private void markDictionarySnapshotOutdated(Collection<Integer> conceptIds) {
+		synchronized (dictionarySnapshotLock) {
+			if (conceptIds == null) {
+				dictionarySnapshot = null;
+				changedSnapshotConceptIds.clear();
+			} else if (dictionarySnapshot != null) {
+				changedSnapshotConceptIds.addAll(conceptIds);
+				dictionarySnapshotOutdated = true;
+			}
+		}
+	}
+	
+	/**
+	 * @see org.openmrs.api.ConceptService#getConceptAutocompleteResults(java.lang.String,
+	 *      java.util.Locale, int)
+	 */
+	@Transactional(readOnly = true)
+	public List<AutocompleteResult> getConceptAutocompleteResults(String phrase, Locale locale, int maxResults)
+	        throws APIException {
+		return conceptAutocompleteIndex.find(phrase, locale == null ? Context.getLocale() : locale, maxResults, dao);
+	}
+	
+	/**
+	 * @see org.openmrs.api.ConceptService#getDrugAutocompleteResults(java.lang.String, int)
+	 */
+	@Transactional(readOnly = true)
+	public List<AutocompleteResult> getDrugAutocompleteResults(String phrase, int maxResults) throws APIException {
+		return drugAutocompleteIndex.find(phrase, null, maxResults, dao);
+	}
+	
+	/**
+	 * @see org.openmrs.api.ConceptService#refreshDrugAutocompleteIndex(java.util.Collection)
+	 */
+	public void refreshDrugAutocompleteIndex(Collection<Integer> drugIds) throws APIException {
+		if (drugIds == null) {
+			drugAutocompleteIndex.clear();
+		} else {
+			drugAutocompleteIndex.changed(drugIds);
+		}
+	}
+	
+	/**
+	 * @see org.openmrs.api.ConceptService#importConcepts(java.util.List)
+	 */
+	public List<Concept> importConcepts(List<Concept> concepts) throws APIException {
+		checkIfLocked();
+		User user = Context.getAuthenticatedUser();
+		Date now = new Date();
+		for (Concept concept : concepts) {
+			if (concept.getConceptId() != null) {
+				throw new APIException("Only new concepts can be imported, concept " + concept.getConceptId()
+				        + " is saved already");
+			}
+			concept.setCreator(user);
+			concept.setDateCreated(now);
+			concept.setChangedBy(user);
+			concept.setDateChanged(now);
+			for (ConceptName name : concept.getNames()) {
+				name.setCreator(user);
+				name.setDateCreated(now);
+			}
+			for (ConceptDescription description : concept.getDescriptions()) {
+				description.setCreator(user);
+				description.setDateCreated(now);
+			}
+			for (ConceptMap map : concept.getConceptMappings()) {
+				map.setCreator(user);
+				map.setDateCreated(now);
+				map.getConceptReferenceTerm().setCreator(user);
+				map.getConceptReferenceTerm().setDateCreated(now);
+			}
+		}
+		
+		List<Concept> skippedConcepts = dao.insertConcepts(concepts);
+		final List<Integer> conceptIds = new ArrayList<Integer>();
+		for (Concept concept : concepts) {
+			if (concept.getConceptId() != null) {
+				conceptIds.add(concept.getConceptId());
+			}
+		}
+		if (!conceptIds.isEmpty()) {
+			// one notification for the whole batch, the other nodes read all concepts again
+			AdministrationServiceImpl.saveChangeNotificationAsProxy(Concept.class, null);
+			conceptsChanged(conceptIds);
+			referenceTermsChanged();
+		}
+		return skippedConcepts;
+	}
+	
+	/**
+	 * Marks a saved, retired or purged drug to be read again into the drug autocomplete index, now
+	 * and again when the transaction completes, and tells the other nodes about it
+	 * 
+	 * @param drug the changed drug
+	 */
+	private void drugChanged(Drug drug) {
+		final Integer drugId = drug.getDrugId();
+		if (drugId == null) {
+			return;
+		}
+		
+		AdministrationServiceImpl.saveChangeNotificationAsProxy(Drug.class, drugId.toString());
+		refreshDrugAutocompleteIndex(Collections.singleton(drugId));
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				
+				@Override
+				public void afterCompletion(int status) {
+					refreshDrugAutocompleteIndex(Collections.singleton(drugId));
+				}
+			});
+		}
+	}
+	
+	/**
+	 * Drops the concept mapping index, now and again when the transaction completes
+	 */
+	private void referenceTermsChanged() {
+		conceptMappingIndex.clear();
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				
+				@Override
+				public void afterCompletion(int status) {
+					conceptMappingIndex.clear();
+				}
+			});
+		}
+	}
+	
+	/**
+	 * Marks a saved, retired or purged concept to be read again into the dictionary snapshot, the
+	 * concept mapping index and the concept set closure, and tells the other nodes about it
+	 * 
+	 * @param concept the changed concept
+	 */
+	private void conceptChanged(Concept concept) {
+		Integer conceptId = concept.getConceptId();
+		if (conceptId == null) {
+			return;
+		}
+		
+		AdministrationServiceImpl.saveChangeNotificationAsProxy(Concept.class, conceptId.toString());
+		conceptsChanged(Collections.singleton(conceptId));
+	}
+	
+	/**
+	 * Marks changed concepts to be read again into the indexes now and again when the transaction
+	 * completes, so that they end up with the committed state and not with changes that were rolled
+	 * back. The dictionary snapshot is only marked once the transaction is committed, since it is
+	 * shared by all threads and must not hold changes that may still be rolled back.
+	 * 
+	 * @param conceptIds the ids of the changed concepts
+	 */
+	private void conceptsChanged(final Collection<Integer> conceptIds) {
+		refreshConceptIndexes(conceptIds);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				
+				@Override
+				public void afterCommit() {
+					markDictionarySnapshotOutdated(conceptIds);
+				}
+				
+				@Override
+				public void afterCompletion(int status) {
+					refreshConceptIndexes(conceptIds);
+				}
+			});
+		} else {
+			markDictionarySnapshotOutdated(conceptIds);
+		}
 	}
 	
 	/**
@@ -1235,6 +1580,16 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	 */
 	@Transactional(readOnly = true)
 	public Concept getConceptByUuid(String uuid) {
+		if (dictionarySnapshot != null && uuid != null) {
+			// the id is enough to get the concept from the session or the second level cache
+			ConceptDictionarySnapshot.Entry entry = getConceptDictionarySnapshot().getConceptByUuid(uuid);
+			if (entry != null) {
+				Concept concept = dao.getConcept(entry.getConceptId());
+				if (concept != null && uuid.equals(concept.getUuid())) {
+					return concept;
+				}
+			}
+		}
 		return dao.getConceptByUuid(uuid);
 	}
 	
@@ -1374,7 +1729,24 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	 */
 	@Transactional(readOnly = true)
 	public List<Concept> getConceptsByMapping(String code, String sourceName, boolean includeRetired) throws APIException {
-		return dao.getConceptsByMapping(code, sourceName, includeRetired);
+		List<Concept> concepts = new ArrayList<Concept>();
+		List<Concept> retiredConcepts = new ArrayList<Concept>();
+		for (Integer conceptId : conceptMappingIndex.getConceptIds(code, sourceName, dao)) {
+			// concepts are in the second level cache, so this does not usually hit the database
+			Concept concept = dao.getConcept(conceptId);
+			if (concept == null) {
+				continue;
+			}
+			if (!concept.isRetired()) {
+				concepts.add(concept);
+			} else if (includeRetired) {
+				retiredConcepts.add(concept);
+			}
+		}
+		
+		// sort retired concepts to the end of the list
+		concepts.addAll(retiredConcepts);
+		return concepts;
 	}
 	
 	/**
@@ -1640,9 +2012,61 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 			excludeDatatypes = new Vector<ConceptDatatype>();
 		}
 		
-		return dao.getConcepts(phrase, locales, includeRetired, requireClasses, excludeClasses, requireDatatypes,
-		    excludeDatatypes, answersToConcept, start, size);
+		int cacheSize = Context.getAdministrationService().getGlobalPropertyValue(
+		    OpenmrsConstants.GP_CONCEPT_SEARCH_CACHE_SIZE, 500);
+		if (cacheSize <= 0 || size == null || size > MAX_CACHED_SEARCH_SIZE) {
+			return dao.getConcepts(phrase, locales, includeRetired, requireClasses, excludeClasses, requireDatatypes,
+			    excludeDatatypes, answersToConcept, start, size);
+		}
 		
+		int timeToLive = Context.getAdministrationService().getGlobalPropertyValue(
+		    OpenmrsConstants.GP_CONCEPT_SEARCH_CACHE_TIME_TO_LIVE, 300);
+		conceptSearchCache.configure(cacheSize, timeToLive * 1000L);
+		long generation = conceptSearchCache.begin(Context.getSearchIndexVersion());
+		
+		ConceptSearchCache.Key key = new ConceptSearchCache.Key(phrase, locales == null ? Arrays.asList(Context
+		        .getLocale()) : locales, includeRetired, requireClasses, excludeClasses, requireDatatypes, excludeDatatypes,
+		        answersToConcept, start, size);
+		List<Integer> conceptNameIds = conceptSearchCache.get(key);
+		if (conceptNameIds != null) {
+			List<ConceptSearchResult> results = getCachedConceptSearchResults(phrase, conceptNameIds);
+			if (results != null) {
+				return results;
+			}
+		}
+		
+		List<ConceptSearchResult> results = dao.getConcepts(phrase, locales, includeRetired, requireClasses,
+		    excludeClasses, requireDatatypes, excludeDatatypes, answersToConcept, start, size);
+		conceptNameIds = new ArrayList<Integer>(results.size());
+		for (ConceptSearchResult result : results) {
+			conceptNameIds.add(result.getConceptName().getConceptNameId());
+		}
+		conceptSearchCache.put(key, conceptNameIds, generation);
+		return results;
+	}
+	
+	/**
+	 * Turns a cached concept search back into its results
+	 * 
+	 * @param phrase the searched phrase
+	 * @param conceptNameIds the ids of the concept names that were found, in order
+	 * @return the results, or null if one of the names no longer exists
+	 */
+	private List<ConceptSearchResult> getCachedConceptSearchResults(String phrase, List<Integer> conceptNameIds) {
+		Map<Integer, ConceptName> namesById = new HashMap<Integer, ConceptName>();
+		for (ConceptName name : dao.getConceptNames(conceptNameIds)) {
+			namesById.put(name.getConceptNameId(), name);
+		}
+		
+		List<ConceptSearchResult> results = new ArrayList<ConceptSearchResult>(conceptNameIds.size());
+		for (Integer conceptNameId : conceptNameIds) {
+			ConceptName name = namesById.get(conceptNameId);
+			if (name == null) {
+				return null;
+			}
+			results.add(new ConceptSearchResult(phrase, name.getConcept(), name));
+		}
+		return results;
 	}
 	
 	/**
@@ -1650,13 +2074,9 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	 */
 	@Override
 	public void updateConceptIndexes(Integer conceptIdStart, Integer conceptIdEnd) throws APIException {
-		Integer i = conceptIdStart;
-		ConceptService cs = Context.getConceptService();
-		while (i++ <= conceptIdEnd) {
-			Concept concept = cs.getConcept(i);
-			if (concept != null) {
-				Context.updateSearchIndexForObject(concept);
-			}
+		Iterator<Concept> concepts = dao.conceptIterator(conceptIdStart, conceptIdEnd, getConceptIteratorBatchSize());
+		while (concepts.hasNext()) {
+			Context.updateSearchIndexForObject(concepts.next());
 		}
 	}
 	
@@ -1721,6 +2141,15 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 		return dao.getDrugs(drugName, concept, searchOnPhrase, searchDrugConceptNames, includeRetired, start, length);
 	}
 	
+	/**
+	 * @see ConceptService#getDrugsPart(String, Concept, boolean, boolean, boolean, Integer, Integer)
+	 */
+	@Transactional(readOnly = true)
+	public ListPart<Drug> getDrugsPart(String drugName, Concept concept, boolean searchKeywords,
+	        boolean searchDrugConceptNames, boolean includeRetired, Integer start, Integer length) throws APIException {
+		return dao.getDrugsPart(drugName, concept, searchKeywords, searchDrugConceptNames, includeRetired, start, length);
+	}
+	
 	/**
 	 * @see ConceptService#getConcepts(String, Locale, boolean)
 	 */
@@ -1910,6 +2339,10 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	 */
 	@Override
 	public ConceptReferenceTerm saveConceptReferenceTerm(ConceptReferenceTerm conceptReferenceTerm) throws APIException {
+		if (conceptReferenceTerm.getConceptReferenceTermId() != null) {
+			// the code or source may have changed, new terms are not mapped to concepts yet
+			referenceTermsChanged();
+		}
 		return dao.saveConceptReferenceTerm(conceptReferenceTerm);
 	}
 	
@@ -1923,6 +2356,7 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 			retireReason = Context.getMessageSourceService().getMessage("general.default.retireReason");
 		}
 		conceptReferenceTerm.setRetireReason(retireReason);
+		referenceTermsChanged();
 		return dao.saveConceptReferenceTerm(conceptReferenceTerm);
 	}
 	
@@ -1931,6 +2365,7 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	 */
 	@Override
 	public ConceptReferenceTerm unretireConceptReferenceTerm(ConceptReferenceTerm conceptReferenceTerm) throws APIException {
+		referenceTermsChanged();
 		return dao.saveConceptReferenceTerm(conceptReferenceTerm);
 	}
 	
@@ -1942,6 +2377,7 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 		if (dao.isConceptReferenceTermInUse(conceptReferenceTerm)) {
 			throw new APIException(Context.getMessageSourceService().getMessage("ConceptRefereceTerm.inUse"));
 		}
+		referenceTermsChanged();
 		dao.deleteConceptReferenceTerm(conceptReferenceTerm);
 	}
 	
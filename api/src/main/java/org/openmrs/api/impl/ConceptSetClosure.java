@@ -0,0 +1,234 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.api.db.ConceptDAO;
+
+/**
+ * Keeps the concept set hierarchy in memory, so that {@link ConceptServiceImpl} can expand a set
+ * into all of its members and answer whether a concept is in a set without walking concept_set
+ * one level at a time. The direct members of all sets are read on the first use. After that, only
+ * the members of sets that were marked as changed, and of the sets directly containing them, are
+ * read again. An expanded set is remembered until one of the sets it is made of changes.
+ *
+ * @since 1.12
+ */
+class ConceptSetClosure {
+	
+	private static final Log log = LogFactory.getLog(ConceptSetClosure.class);
+	
+	/**
+	 * The direct members of each set ordered by sort weight, null until the closure is read
+	 */
+	private Map<Integer, List<Integer>> membersBySet;
+	
+	/**
+	 * The sets each concept is a direct member of
+	 */
+	private Map<Integer, Set<Integer>> setsByMember;
+	
+	/**
+	 * Members that are sets themselves, only these are expanded
+	 */
+	private Set<Integer> memberSets;
+	
+	/**
+	 * The expanded sets that were asked for, the lists are never changed once they are put in
+	 */
+	private final Map<Integer, List<Integer>> expandedSets = new HashMap<Integer, List<Integer>>();
+	
+	private final Set<Integer> changedConceptIds = new HashSet<Integer>();
+	
+	/**
+	 * Returns the members of a set and of all the sets in it, in the same order as a depth first
+	 * walk over the sets ordered by sort weight. A concept is listed as many times as it is a member
+	 * of a set in the hierarchy, while every set in it is expanded only once.
+	 *
+	 * @param conceptSetId the concept id of the set
+	 * @param dao used to read the closure when needed
+	 * @return the concept ids of the members
+	 */
+	synchronized List<Integer> getConceptIds(Integer conceptSetId, ConceptDAO dao) {
+		update(dao);
+		List<Integer> conceptIds = expandedSets.get(conceptSetId);
+		if (conceptIds == null) {
+			conceptIds = new ArrayList<Integer>();
+			expand(conceptSetId, conceptIds, new HashSet<Integer>());
+			conceptIds = Collections.unmodifiableList(conceptIds);
+			expandedSets.put(conceptSetId, conceptIds);
+		}
+		return conceptIds;
+	}
+	
+	/**
+	 * @param conceptId the concept id of the possible member
+	 * @param conceptSetId the concept id of the set
+	 * @param dao used to read the closure when needed
+	 * @return true if the concept is returned by {@link #getConceptIds(Integer, ConceptDAO)} for the
+	 *         set
+	 */
+	synchronized boolean contains(Integer conceptId, Integer conceptSetId, ConceptDAO dao) {
+		update(dao);
+		
+		// walk up from the concept, only going through the sets that would be expanded
+		Set<Integer> seen = new HashSet<Integer>();
+		LinkedList<Integer> toVisit = new LinkedList<Integer>(getSets(conceptId));
+		while (!toVisit.isEmpty()) {
+			Integer setId = toVisit.removeFirst();
+			if (setId.equals(conceptSetId)) {
+				return true;
+			}
+			if (seen.add(setId) && memberSets.contains(setId)) {
+				toVisit.addAll(getSets(setId));
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Marks concepts whose set members have to be read again on the next use
+	 *
+	 * @param conceptIds the ids of the changed concepts
+	 */
+	synchronized void conceptsChanged(Collection<Integer> conceptIds) {
+		if (membersBySet != null) {
+			changedConceptIds.addAll(conceptIds);
+		}
+	}
+	
+	/**
+	 * Drops the whole closure, it is read again on the next use
+	 */
+	synchronized void clear() {
+		membersBySet = null;
+		setsByMember = null;
+		memberSets = null;
+		expandedSets.clear();
+		changedConceptIds.clear();
+	}
+	
+	private void update(ConceptDAO dao) {
+		if (membersBySet == null) {
+			long start = System.currentTimeMillis();
+			membersBySet = new HashMap<Integer, List<Integer>>();
+			setsByMember = new HashMap<Integer, Set<Integer>>();
+			memberSets = new HashSet<Integer>();
+			expandedSets.clear();
+			changedConceptIds.clear();
+			addMembers(dao.getConceptSetMembers(null));
+			if (log.isDebugEnabled()) {
+				log.debug("Read the members of " + membersBySet.size() + " concept sets in "
+				        + (System.currentTimeMillis() - start) + " ms");
+			}
+		} else if (!changedConceptIds.isEmpty()) {
+			// a changed concept may have been taken out of its sets or have stopped being a set
+			Set<Integer> conceptSetIds = new HashSet<Integer>(changedConceptIds);
+			for (Integer conceptId : changedConceptIds) {
+				conceptSetIds.addAll(getSets(conceptId));
+			}
+			changedConceptIds.clear();
+			
+			dropExpandedSets(conceptSetIds);
+			for (Integer conceptSetId : conceptSetIds) {
+				List<Integer> members = membersBySet.remove(conceptSetId);
+				if (members != null) {
+					for (Integer member : members) {
+						getSets(member).remove(conceptSetId);
+					}
+				}
+			}
+			addMembers(dao.getConceptSetMembers(conceptSetIds));
+		}
+	}
+	
+	/**
+	 * @param rows the concept id of the set, the concept id of the member and whether the member is a
+	 *            set, ordered by set and sort weight
+	 */
+	private void addMembers(List<Object[]> rows) {
+		for (Object[] row : rows) {
+			Integer conceptSetId = (Integer) row[0];
+			Integer memberId = (Integer) row[1];
+			
+			List<Integer> members = membersBySet.get(conceptSetId);
+			if (members == null) {
+				members = new ArrayList<Integer>();
+				membersBySet.put(conceptSetId, members);
+			}
+			members.add(memberId);
+			
+			Set<Integer> sets = setsByMember.get(memberId);
+			if (sets == null) {
+				sets = new HashSet<Integer>();
+				setsByMember.put(memberId, sets);
+			}
+			sets.add(conceptSetId);
+			
+			if (Boolean.TRUE.equals(row[2])) {
+				memberSets.add(memberId);
+			} else {
+				memberSets.remove(memberId);
+			}
+		}
+	}
+	
+	/**
+	 * Forgets the expansions of the given sets and of all sets they are part of
+	 */
+	private void dropExpandedSets(Set<Integer> conceptSetIds) {
+		Set<Integer> seen = new HashSet<Integer>();
+		LinkedList<Integer> toVisit = new LinkedList<Integer>(conceptSetIds);
+		while (!toVisit.isEmpty()) {
+			Integer setId = toVisit.removeFirst();
+			if (seen.add(setId)) {
+				expandedSets.remove(setId);
+				toVisit.addAll(getSets(setId));
+			}
+		}
+	}
+	
+	private void expand(Integer conceptSetId, List<Integer> conceptIds, Set<Integer> alreadySeen) {
+		if (!alreadySeen.add(conceptSetId)) {
+			return;
+		}
+		
+		List<Integer> members = membersBySet.get(conceptSetId);
+		if (members == null) {
+			return;
+		}
+		for (Integer member : members) {
+			conceptIds.add(member);
+			if (memberSets.contains(member)) {
+				expand(member, conceptIds, alreadySeen);
+			}
+		}
+	}
+	
+	private Set<Integer> getSets(Integer conceptId) {
+		Set<Integer> sets = setsByMember.get(conceptId);
+		return sets == null ? Collections.<Integer> emptySet() : sets;
+	}
+}
@@ -0,0 +1,625 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.api.AutocompleteResult;
+import org.openmrs.api.ConceptNameType;
+import org.openmrs.api.db.ConceptDAO;
+import org.openmrs.util.SharedMap;
+
+/**
+ * Keeps the words of all concept names or all drug names in memory, sorted, so that
+ * {@link ConceptServiceImpl} can suggest concepts and drugs for every key a user types without
+ * running a full text query or loading entities. The words are kept in a tree with one node per
+ * character, so the words starting with what was typed are one branch of it. Every node keeps the
+ * best ranked names of its branch, so a search usually only looks at a few names however short the
+ * typed word is. The names are read on the first use. After that, only the names of concepts or
+ * drugs that were marked as changed are read again.<br/>
+ * <br/>
+ * The tree is never modified once it is published. Changed names are put into copies of the nodes
+ * on the paths of their words, which share all other nodes with the published tree. Searches use
+ * the latest tree without locking, only the very first search waits for the names to be read.
+ *
+ * @since 1.12
+ */
+abstract class NameAutocompleteIndex {
+	
+	private static final Log log = LogFactory.getLog(NameAutocompleteIndex.class);
+	
+	/**
+	 * The most names a node keeps in ranked order, a search that needs more reads its whole branch
+	 */
+	private static final int RANKED_NAMES_PER_NODE = 30;
+	
+	/**
+	 * Preferred names first, then shorter ones
+	 */
+	private static final Comparator<Name> RANK_ORDER = new Comparator<Name>() {
+		
+		@Override
+		public int compare(Name a, Name b) {
+			if (a.rank != b.rank) {
+				return b.rank - a.rank;
+			}
+			if (a.name.length() != b.name.length()) {
+				return a.name.length() - b.name.length();
+			}
+			int result = a.normalized.compareTo(b.normalized);
+			return result != 0 ? result : a.id.compareTo(b.id);
+		}
+	};
+	
+	/**
+	 * The words and names of the index, null until the index is read
+	 */
+	private volatile Snapshot snapshot;
+	
+	private final Set<Integer> changedIds = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+	
+	/**
+	 * Held while names are read and the next snapshot is built, so that it is done by one thread
+	 * at a time
+	 */
+	private final ReentrantLock updateLock = new ReentrantLock();
+	
+	/**
+	 * @return an index of the names of all unretired concepts
+	 */
+	static NameAutocompleteIndex forConcepts() {
+		return new NameAutocompleteIndex() {
+			
+			@Override
+			protected void readNames(Collection<Integer> conceptIds, ConceptDAO dao, List<Name> names) {
+				for (Object[] row : dao.getUnretiredConceptNames(conceptIds)) {
+					int rank = 0;
+					if (Boolean.TRUE.equals(row[3])) {
+						rank = 2;
+					} else if (ConceptNameType.FULLY_SPECIFIED.equals(row[4])) {
+						rank = 1;
+					}
+					names.add(new Name((Integer) row[0], (String) row[1], (Locale) row[2], rank));
+				}
+			}
+		};
+	}
+	
+	/**
+	 * @return an index of the names of all unretired drugs
+	 */
+	static NameAutocompleteIndex forDrugs() {
+		return new NameAutocompleteIndex() {
+			
+			@Override
+			protected void readNames(Collection<Integer> drugIds, ConceptDAO dao, List<Name> names) {
+				for (Object[] row : dao.getUnretiredDrugNames(drugIds)) {
+					names.add(new Name((Integer) row[0], (String) row[1], null, 0));
+				}
+			}
+		};
+	}
+	
+	/**
+	 * Reads names from the database
+	 *
+	 * @param ids the ids of the concepts or drugs, or null to read all names
+	 * @param dao the dao to read with
+	 * @param names the list to add the names to
+	 */
+	protected abstract void readNames(Collection<Integer> ids, ConceptDAO dao, List<Name> names);
+	
+	/**
+	 * Finds the names that have a word starting with each of the typed words. Names starting with
+	 * the whole phrase come first, then preferred names, then shorter ones.
+	 *
+	 * @param phrase what was typed
+	 * @param locale the locale of the names to find, names in just its language are found as well,
+	 *            null to find names in all locales
+	 * @param maxResults the maximum number of concepts or drugs to return
+	 * @param dao used to read the index when needed
+	 * @return one result per concept or drug
+	 * @should find names by the beginning of any of their words
+	 * @should only find names having all the typed words
+	 * @should return the preferred name in the locale as display name
+	 * @should read the names of changed ids again
+	 * @should not wait while the names of changed ids are read
+	 * @should find the best ranked names when more names start with the typed word than a node keeps
+	 * @should find names a node does not keep when the names it keeps do not match
+	 */
+	List<AutocompleteResult> find(String phrase, Locale locale, int maxResults, ConceptDAO dao) {
+		List<String> words = getWords(phrase);
+		if (words.isEmpty() || maxResults <= 0) {
+			return Collections.emptyList();
+		}
+		Snapshot current = update(dao);
+		
+		// the longest word has the fewest names to check
+		String longestWord = words.get(0);
+		for (String word : words) {
+			if (word.length() > longestWord.length()) {
+				longestWord = word;
+			}
+		}
+		
+		List<AutocompleteResult> results = new ArrayList<AutocompleteResult>();
+		Set<Integer> seenIds = new HashSet<Integer>();
+		String normalizedPhrase = StringUtils.join(words, ' ');
+		// names starting with the whole phrase come first, their first word starts with the first typed word
+		Node first = current.getNode(words.get(0));
+		if (first != null) {
+			addResults(current, first, words.get(0), words, normalizedPhrase, true, locale, maxResults, results,
+			    seenIds);
+		}
+		Node longest = current.getNode(longestWord);
+		if (longest != null) {
+			addResults(current, longest, null, words, normalizedPhrase, false, locale, maxResults, results, seenIds);
+		}
+		return results;
+	}
+	
+	/**
+	 * Adds the matching names of a branch in ranked order, until there are enough results. The
+	 * ranked names of the node are checked first, the whole branch is only read if they are not
+	 * enough.
+	 *
+	 * @param leadingPrefix the prefix of the node to only check the names whose first word starts
+	 *            with it, null to check all names of the branch
+	 */
+	private void addResults(Snapshot current, Node node, String leadingPrefix, List<String> words,
+	        String normalizedPhrase, boolean startingWithPhrase, Locale locale, int maxResults,
+	        List<AutocompleteResult> results, Set<Integer> seenIds) {
+		List<Name> ranked = leadingPrefix != null ? node.rankedLeading : node.ranked;
+		addResults(current, ranked, words, normalizedPhrase, startingWithPhrase, locale, maxResults, results, seenIds);
+		if (results.size() < maxResults && !(leadingPrefix != null ? node.rankedLeadingComplete : node.rankedComplete)) {
+			// the ranked names are the first ones of the whole branch
+			List<Name> all = node.getBranchNames(leadingPrefix);
+			addResults(current, all.subList(ranked.size(), all.size()), words, normalizedPhrase, startingWithPhrase,
+			    locale, maxResults, results, seenIds);
+		}
+	}
+	
+	private void addResults(Snapshot current, List<Name> names, List<String> words, String normalizedPhrase,
+	        boolean startingWithPhrase, Locale locale, int maxResults, List<AutocompleteResult> results,
+	        Set<Integer> seenIds) {
+		for (Name name : names) {
+			if (results.size() == maxResults) {
+				return;
+			}
+			if (name.normalized.startsWith(normalizedPhrase) == startingWithPhrase && isInLocale(name, locale)
+			        && name.hasWordsStartingWith(words) && seenIds.add(name.id)) {
+				results.add(new AutocompleteResult(name.id, getDisplayName(current, name, locale), name.name));
+			}
+		}
+	}
+	
+	/**
+	 * Marks concepts or drugs whose names have to be read again on the next use
+	 *
+	 * @param ids the ids of the changed concepts or drugs
+	 */
+	void changed(Collection<Integer> ids) {
+		changedIds.addAll(ids);
+	}
+	
+	/**
+	 * Drops the whole index, it is read again on the next use
+	 */
+	void clear() {
+		updateLock.lock();
+		try {
+			snapshot = null;
+			changedIds.clear();
+		}
+		finally {
+			updateLock.unlock();
+		}
+	}
+	
+	/**
+	 * Reads the names if the index was not read yet, or the names of the changed ids. While another
+	 * thread is doing that, the current snapshot is used.
+	 *
+	 * @return the snapshot to search
+	 */
+	private Snapshot update(ConceptDAO dao) {
+		Snapshot current = snapshot;
+		if (current != null && (changedIds.isEmpty() || !updateLock.tryLock())) {
+			return current;
+		}
+		if (current == null) {
+			updateLock.lock();
+		}
+		
+		try {
+			current = snapshot;
+			if (current == null) {
+				long start = System.currentTimeMillis();
+				// ids changed while the names are read are read again on the next use
+				changedIds.clear();
+				List<Name> names = new ArrayList<Name>();
+				readNames(null, dao, names);
+				current = new Snapshot().with(Collections.<Integer> emptySet(), names);
+				if (log.isDebugEnabled()) {
+					log.debug("Read " + names.size() + " names of " + current.namesById.size() + " ids in "
+					        + (System.currentTimeMillis() - start) + " ms");
+				}
+			} else if (!changedIds.isEmpty()) {
+				Set<Integer> ids = new HashSet<Integer>(changedIds);
+				changedIds.removeAll(ids);
+				List<Name> names = new ArrayList<Name>();
+				try {
+					readNames(ids, dao, names);
+				}
+				catch (RuntimeException e) {
+					changedIds.addAll(ids);
+					throw e;
+				}
+				current = current.with(ids, names);
+			}
+			snapshot = current;
+			return current;
+		}
+		finally {
+			updateLock.unlock();
+		}
+	}
+	
+	/**
+	 * @return the best ranked name in the locale of the concept or drug the given name belongs to
+	 */
+	private static String getDisplayName(Snapshot snapshot, Name matched, Locale locale) {
+		Name best = matched;
+		for (Name name : snapshot.namesById.get(matched.id)) {
+			if (name.rank > best.rank && isInLocale(name, locale == null ? matched.locale : locale)) {
+				best = name;
+			}
+		}
+		return best.name;
+	}
+	
+	private static boolean isInLocale(Name name, Locale locale) {
+		if (locale == null || name.locale == null || name.locale.equals(locale)) {
+			return true;
+		}
+		return StringUtils.isBlank(name.locale.getCountry()) && name.locale.getLanguage().equals(locale.getLanguage());
+	}
+	
+	/**
+	 * @return the lower cased words of the given text, in order and without duplicates
+	 */
+	static List<String> getWords(String text) {
+		Set<String> words = new LinkedHashSet<String>();
+		if (text != null) {
+			for (String word : text.toLowerCase().split("[^\\p{L}\\p{N}]+")) {
+				if (word.length() > 0) {
+					words.add(word);
+				}
+			}
+		}
+		return new ArrayList<String>(words);
+	}
+	
+	/**
+	 * The words and names of the index at one point, it is not modified once it is published
+	 */
+	private static class Snapshot {
+		
+		/**
+		 * The node of the empty prefix
+		 */
+		private final Node root;
+		
+		/**
+		 * The names of each concept or drug
+		 */
+		private final SharedMap<Integer, List<Name>> namesById;
+		
+		private Snapshot() {
+			this(new Node(), new SharedMap<Integer, List<Name>>(0));
+		}
+		
+		private Snapshot(Node root, SharedMap<Integer, List<Name>> namesById) {
+			this.root = root;
+			this.namesById = namesById;
+		}
+		
+		/**
+		 * @param prefix the beginning of a word
+		 * @return the node of the prefix, null if no word starts with it
+		 */
+		private Node getNode(String prefix) {
+			Node node = root;
+			for (int i = 0; i < prefix.length() && node != null; i++) {
+				node = node.children.get(prefix.charAt(i));
+			}
+			return node;
+		}
+		
+		/**
+		 * Copies the snapshot, replacing the names of the given ids. Only the nodes on the paths of
+		 * the words of the changed names are copied, the others are shared with this snapshot.
+		 *
+		 * @param ids the ids whose names are replaced
+		 * @param names the new names of the ids
+		 * @return the new snapshot
+		 */
+		private Snapshot with(Set<Integer> ids, List<Name> names) {
+			Set<Node> copied = Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+			Node newRoot = root.copy();
+			copied.add(newRoot);
+			
+			// a null list removes the id
+			Map<Integer, List<Name>> changedNames = new HashMap<Integer, List<Name>>();
+			for (Integer id : ids) {
+				List<Name> oldNames = namesById.get(id);
+				if (oldNames != null) {
+					for (Name name : oldNames) {
+						for (String word : name.words) {
+							getCopy(newRoot, word, copied).removeName(name);
+						}
+					}
+				}
+				changedNames.put(id, null);
+			}
+			
+			for (Name name : names) {
+				List<Name> idNames = changedNames.get(name.id);
+				if (idNames == null) {
+					idNames = new ArrayList<Name>(2);
+					changedNames.put(name.id, idNames);
+				}
+				idNames.add(name);
+				
+				for (String word : name.words) {
+					getCopy(newRoot, word, copied).addName(name);
+				}
+			}
+			
+			newRoot.rank("", copied);
+			return new Snapshot(newRoot, namesById.with(changedNames));
+		}
+		
+		/**
+		 * @return the node of the word, it and the nodes on its path are copied the first time they
+		 *         are changed
+		 */
+		private static Node getCopy(Node root, String word, Set<Node> copied) {
+			Node node = root;
+			for (int i = 0; i < word.length(); i++) {
+				Character c = word.charAt(i);
+				Node child = node.children.get(c);
+				if (child == null || !copied.contains(child)) {
+					child = child == null ? new Node() : child.copy();
+					copied.add(child);
+					if (node.children.isEmpty()) {
+						node.children = new HashMap<Character, Node>(2);
+					}
+					node.children.put(c, child);
+				}
+				node = child;
+			}
+			return node;
+		}
+	}
+	
+	/**
+	 * A node of the tree of words. The path to it spells a prefix of words, and it keeps the best
+	 * ranked names having a word that starts with the prefix. It is only changed while it is a new
+	 * copy that is not published yet.
+	 */
+	private static class Node {
+		
+		/**
+		 * The nodes of the longer prefixes, by the next character
+		 */
+		private Map<Character, Node> children = Collections.emptyMap();
+		
+		/**
+		 * The names having the word that is spelled by the path to this node
+		 */
+		private List<Name> names = Collections.emptyList();
+		
+		/**
+		 * The best ranked names having a word that starts with the prefix
+		 */
+		private List<Name> ranked = Collections.emptyList();
+		
+		/**
+		 * The best ranked names whose first word starts with the prefix
+		 */
+		private List<Name> rankedLeading = Collections.emptyList();
+		
+		private boolean rankedComplete = true;
+		
+		private boolean rankedLeadingComplete = true;
+		
+		/**
+		 * @return a copy that can be changed, the children are shared
+		 */
+		private Node copy() {
+			Node copy = new Node();
+			copy.children = children.isEmpty() ? children : new HashMap<Character, Node>(children);
+			copy.names = names.isEmpty() ? names : new ArrayList<Name>(names);
+			copy.ranked = ranked;
+			copy.rankedLeading = rankedLeading;
+			copy.rankedComplete = rankedComplete;
+			copy.rankedLeadingComplete = rankedLeadingComplete;
+			return copy;
+		}
+		
+		private void addName(Name name) {
+			if (names.isEmpty()) {
+				names = new ArrayList<Name>(1);
+			}
+			names.add(name);
+		}
+		
+		private void removeName(Name name) {
+			if (!names.isEmpty()) {
+				names.remove(name);
+			}
+		}
+		
+		/**
+		 * Drops the copied children that have no names left and ranks the names of the copied nodes
+		 * again, starting with the deepest ones
+		 *
+		 * @param prefix the prefix spelled by the path to this node
+		 * @param copied the nodes that were copied
+		 */
+		private void rank(String prefix, Set<Node> copied) {
+			List<Name> candidates = new ArrayList<Name>(names);
+			List<Name> leadingCandidates = new ArrayList<Name>();
+			for (Name name : names) {
+				if (name.words[0].equals(prefix)) {
+					leadingCandidates.add(name);
+				}
+			}
+			
+			boolean childrenComplete = true;
+			boolean childrenLeadingComplete = true;
+			for (Iterator<Map.Entry<Character, Node>> i = children.entrySet().iterator(); i.hasNext();) {
+				Map.Entry<Character, Node> entry = i.next();
+				Node child = entry.getValue();
+				if (copied.contains(child)) {
+					child.rank(prefix + entry.getKey(), copied);
+					if (child.names.isEmpty() && child.children.isEmpty()) {
+						i.remove();
+						continue;
+					}
+				}
+				candidates.addAll(child.ranked);
+				leadingCandidates.addAll(child.rankedLeading);
+				childrenComplete &= child.rankedComplete;
+				childrenLeadingComplete &= child.rankedLeadingComplete;
+			}
+			
+			ranked = getBest(candidates);
+			rankedComplete = childrenComplete && ranked.size() == candidates.size();
+			rankedLeading = getBest(leadingCandidates);
+			rankedLeadingComplete = childrenLeadingComplete && rankedLeading.size() == leadingCandidates.size();
+		}
+		
+		/**
+		 * @param leadingPrefix the prefix of this node to only return the names whose first word
+		 *            starts with it, null to return all names
+		 * @return the names of the whole branch in ranked order
+		 */
+		private List<Name> getBranchNames(String leadingPrefix) {
+			Set<Name> branchNames = Collections.newSetFromMap(new IdentityHashMap<Name, Boolean>());
+			addBranchNames(branchNames);
+			List<Name> result = new ArrayList<Name>(branchNames.size());
+			for (Name name : branchNames) {
+				if (leadingPrefix == null || name.words[0].startsWith(leadingPrefix)) {
+					result.add(name);
+				}
+			}
+			Collections.sort(result, RANK_ORDER);
+			return result;
+		}
+		
+		private void addBranchNames(Set<Name> branchNames) {
+			branchNames.addAll(names);
+			for (Node child : children.values()) {
+				child.addBranchNames(branchNames);
+			}
+		}
+		
+		/**
+		 * @return the best ranked of the given names, without duplicates
+		 */
+		private static List<Name> getBest(List<Name> candidates) {
+			Set<Name> unique = Collections.newSetFromMap(new IdentityHashMap<Name, Boolean>());
+			unique.addAll(candidates);
+			if (unique.size() < candidates.size()) {
+				candidates.clear();
+				candidates.addAll(unique);
+			}
+			Collections.sort(candidates, RANK_ORDER);
+			if (candidates.isEmpty()) {
+				return Collections.emptyList();
+			}
+			return Collections.unmodifiableList(new ArrayList<Name>(candidates.subList(0, Math.min(candidates.size(),
+			    RANKED_NAMES_PER_NODE))));
+		}
+	}
+	
+	/**
+	 * A name of a concept or drug
+	 */
+	protected static class Name {
+		
+		private final Integer id;
+		
+		private final String name;
+		
+		private final String normalized;
+		
+		private final String[] words;
+		
+		private final Locale locale;
+		
+		private final int rank;
+		
+		/**
+		 * @param id the concept id or drug id
+		 * @param name the name
+		 * @param locale the locale of the name, null if it has none
+		 * @param rank the higher, the more the name is preferred for display
+		 */
+		protected Name(Integer id, String name, Locale locale, int rank) {
+			this.id = id;
+			this.name = name;
+			List<String> nameWords = getWords(name);
+			this.normalized = StringUtils.join(nameWords, ' ');
+			this.words = nameWords.toArray(new String[nameWords.size()]);
+			this.locale = locale;
+			this.rank = rank;
+		}
+		
+		private boolean hasWordsStartingWith(List<String> prefixes) {
+			for (String prefix : prefixes) {
+				boolean found = false;
+				for (String word : words) {
+					if (word.startsWith(prefix)) {
+						found = true;
+						break;
+					}
+				}
+				if (!found) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
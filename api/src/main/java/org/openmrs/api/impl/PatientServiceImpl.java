@@ -62,6 +62,7 @@ import org.openmrs.api.UserService;
 import org.openmrs.api.VisitService;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.db.PatientDAO;
+import org.openmrs.patient.DuplicatePatientRecord;
 import org.openmrs.patient.IdentifierValidator;
 import org.openmrs.patient.impl.LuhnIdentifierValidator;
 import org.openmrs.person.PersonMergeLog;
@@ -198,7 +199,9 @@ public class PatientServiceImpl extends BaseOpenmrsService implements PatientSer
 			}
 		}
 		
-		return dao.savePatient(patient);
+		Patient savedPatient = dao.savePatient(patient);
+		PersonServiceImpl.queueSearchIndexUpdates(savedPatient);
+		return savedPatient;
 	}
 	
 	/**
@@ -451,7 +454,9 @@ public class PatientServiceImpl extends BaseOpenmrsService implements PatientSer
 		
 		// patient and patientidentifier attributes taken care of by the BaseVoidHandler
 		//call the DAO layer directly to avoid any further AOP around save*
-		return dao.savePatient(patient);
+		Patient savedPatient = dao.savePatient(patient);
+		PersonServiceImpl.queueSearchIndexUpdates(savedPatient);
+		return savedPatient;
 	}
 	
 	/**
@@ -464,7 +469,9 @@ public class PatientServiceImpl extends BaseOpenmrsService implements PatientSer
 		
 		// patient and patientidentifier attributes taken care of by the BaseUnvoidHandler
 		
-		return dao.savePatient(patient);
+		Patient savedPatient = dao.savePatient(patient);
+		PersonServiceImpl.queueSearchIndexUpdates(savedPatient);
+		return savedPatient;
 	}
 	
 	/**
@@ -771,6 +778,36 @@ public class PatientServiceImpl extends BaseOpenmrsService implements PatientSer
 		return dao.getDuplicatePatientsByAttributes(attributes);
 	}
 	
+	/**
+	 * @see org.openmrs.api.PatientService#getPatientIds(java.util.Date, java.lang.Integer, int)
+	 */
+	@Transactional(readOnly = true)
+	public List<Integer> getPatientIds(Date changedSince, Integer afterPatientId, int maxResults) throws APIException {
+		return dao.getPatientIds(changedSince, afterPatientId, maxResults);
+	}
+	
+	/**
+	 * @see org.openmrs.api.PatientService#getDuplicatePatientRecords(java.util.Collection)
+	 */
+	@Transactional(readOnly = true)
+	public List<DuplicatePatientRecord> getDuplicatePatientRecords(Collection<Integer> patientIds) throws APIException {
+		if (patientIds == null || patientIds.isEmpty()) {
+			return new ArrayList<DuplicatePatientRecord>();
+		}
+		return dao.getDuplicatePatientRecords(patientIds);
+	}
+	
+	/**
+	 * @see org.openmrs.api.PatientService#getDuplicatePatientCandidateIds(java.util.Collection)
+	 */
+	@Transactional(readOnly = true)
+	public Set<Integer> getDuplicatePatientCandidateIds(Collection<DuplicatePatientRecord> records) throws APIException {
+		if (records == null || records.isEmpty()) {
+			return new HashSet<Integer>();
+		}
+		return dao.getDuplicatePatientCandidateIds(records);
+	}
+	
 	/**
 	 * generate a relationship hash for use in mergePatients; follows the convention:
 	 * [relationshipType][A|B][relativeId]
@@ -815,6 +852,74 @@ public class PatientServiceImpl extends BaseOpenmrsService implements PatientSer
 		mergeProgramEnrolments(preferred, notPreferred, mergedData);
 		mergeRelationships(preferred, notPreferred, mergedData);
 		mergeObservationsNotContainedInEncounters(preferred, notPreferred, mergedData);
+		finishMerge(preferred, notPreferred, mergedData);
+	}
+	
+	/**
+	 * @see org.openmrs.api.PatientService#mergePatientsInBulk(org.openmrs.Patient, org.openmrs.Patient)
+	 */
+	public void mergePatientsInBulk(Patient preferred, Patient notPreferred) throws APIException, SerializationException {
+		if (preferred.getPatientId().equals(notPreferred.getPatientId())) {
+			throw new APIException("Merge operation cancelled: Cannot merge user " + preferred.getPatientId() + " to self");
+		}
+		if (dao.hasUnvoidedOrders(notPreferred)) {
+			throw new APIException("Cannot merge patients where the not preferred patient has unvoided orders");
+		}
+		
+		long start = System.currentTimeMillis();
+		PersonMergeLogData mergedData = new PersonMergeLogData();
+		mergedData.setMovedVisitIds(dao.moveVisits(notPreferred, preferred));
+		mergedData.setMovedEncounterIds(dao.moveEncounters(notPreferred, preferred));
+		mergedData.setMovedObservationIds(dao.moveObservations(notPreferred, preferred));
+		for (String uuid : dao.copyObservationsNotContainedInEncounters(notPreferred, preferred, "Merged from patient #"
+		        + notPreferred.getPatientId())) {
+			mergedData.addMovedIndependentObservation(uuid);
+		}
+		mergedData.setMovedOrderIds(dao.moveOrders(notPreferred, preferred));
+		mergeProgramEnrolments(preferred, notPreferred, mergedData);
+		mergeRelationships(preferred, notPreferred, mergedData);
+		finishMerge(preferred, notPreferred, mergedData);
+		
+		if (log.isDebugEnabled()) {
+			log.debug("Merged patient " + notPreferred.getPatientId() + " into " + preferred.getPatientId() + " in "
+			        + (System.currentTimeMillis() - start) + " ms");
+		}
+	}
+	
+	/**
+	 * @see org.openmrs.api.PatientService#mergePatientsInBulk(java.util.Map)
+	 */
+	public void mergePatientsInBulk(Map<Patient, List<Patient>> duplicates) throws APIException, SerializationException {
+		// check the whole batch first, so that it fails before anything is merged
+		Set<Integer> notPreferredIds = new HashSet<Integer>();
+		for (List<Patient> notPreferred : duplicates.values()) {
+			for (Patient patient : notPreferred) {
+				if (!notPreferredIds.add(patient.getPatientId())) {
+					throw new APIException("Patient " + patient.getPatientId() + " can not be merged twice");
+				}
+			}
+		}
+		for (Patient preferred : duplicates.keySet()) {
+			if (notPreferredIds.contains(preferred.getPatientId())) {
+				throw new APIException("Patient " + preferred.getPatientId()
+				        + " can not be merged and have patients merged into it at once");
+			}
+		}
+		
+		for (Map.Entry<Patient, List<Patient>> entry : duplicates.entrySet()) {
+			for (Patient notPreferred : entry.getValue()) {
+				mergePatientsInBulk(entry.getKey(), notPreferred);
+			}
+		}
+	}
+	
+	/**
+	 * The last steps of every merge: copies the identifiers, names, addresses, attributes and
+	 * demographics that <code>preferred</code> is missing, voids <code>notPreferred</code> and saves
+	 * the merge log
+	 */
+	private void finishMerge(Patient preferred, Patient notPreferred, PersonMergeLogData mergedData)
+	        throws SerializationException {
 		mergeIdentifiers(preferred, notPreferred, mergedData);
 		
 		mergeNames(preferred, notPreferred, mergedData);
@@ -1593,7 +1698,9 @@ public class PatientServiceImpl extends BaseOpenmrsService implements PatientSer
 			Context.requirePrivilege(PrivilegeConstants.EDIT_PATIENT_IDENTIFIERS);
 		}
 		
-		return dao.savePatientIdentifier(patientIdentifier);
+		PatientIdentifier savedIdentifier = dao.savePatientIdentifier(patientIdentifier);
+		PersonServiceImpl.queueSearchIndexUpdates(savedIdentifier.getPatient());
+		return savedIdentifier;
 	}
 	
 	/**
@@ -28,6 +28,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.openmrs.GlobalProperty;
 import org.openmrs.Patient;
+import org.openmrs.PatientIdentifier;
 import org.openmrs.Person;
 import org.openmrs.PersonAddress;
 import org.openmrs.PersonAttribute;
@@ -475,7 +476,33 @@ public class PersonServiceImpl extends BaseOpenmrsService implements PersonServi
 			}
 		}
 		
-		return dao.savePerson(person);
+		Person savedPerson = dao.savePerson(person);
+		queueSearchIndexUpdates(savedPerson);
+		return savedPerson;
+	}
+	
+	/**
+	 * The search index documents of the names, identifiers and attributes of a patient depend on
+	 * whether the patient is voided and on the preferred name, so they are updated whenever the
+	 * patient is saved, also when it is saved as a person
+	 * 
+	 * @param person the saved person
+	 */
+	static void queueSearchIndexUpdates(Person person) {
+		if (person instanceof Patient) {
+			for (PatientIdentifier identifier : ((Patient) person).getIdentifiers()) {
+				Context.queueSearchIndexUpdate(identifier);
+			}
+		} else if (!person.isPatient()) {
+			return;
+		}
+		
+		for (PersonName name : person.getNames()) {
+			Context.queueSearchIndexUpdate(name);
+		}
+		for (PersonAttribute attribute : person.getAttributes()) {
+			Context.queueSearchIndexUpdate(attribute);
+		}
 	}
 	
 	/**
@@ -507,7 +534,9 @@ public class PersonServiceImpl extends BaseOpenmrsService implements PersonServi
 			return null;
 		}
 		
-		return dao.savePerson(person);
+		Person savedPerson = dao.savePerson(person);
+		queueSearchIndexUpdates(savedPerson);
+		return savedPerson;
 	}
 	
 	/**
@@ -518,7 +547,9 @@ public class PersonServiceImpl extends BaseOpenmrsService implements PersonServi
 			return null;
 		}
 		
-		return dao.savePerson(person);
+		Person savedPerson = dao.savePerson(person);
+		queueSearchIndexUpdates(savedPerson);
+		return savedPerson;
 	}
 	
 	/**
@@ -981,7 +1012,9 @@ public class PersonServiceImpl extends BaseOpenmrsService implements PersonServi
 	 */
 	public PersonName savePersonName(PersonName personName) throws APIException {
 		ValidateUtil.validate(personName.getPerson());
-		return dao.savePersonName(personName);
+		PersonName savedName = dao.savePersonName(personName);
+		queueSearchIndexUpdates(savedName.getPerson());
+		return savedName;
 	}
 	
 	/**
@@ -1240,6 +1273,13 @@ public class PersonServiceImpl extends BaseOpenmrsService implements PersonServi
 		return dao.savePersonAddress(personAddress);
 	}
 	
+	/**
+	 * @see org.openmrs.api.PersonService#updatePersonNamePhoneticKeys(int)
+	 */
+	public int updatePersonNamePhoneticKeys(int batchSize) throws APIException {
+		return dao.updatePersonNamePhoneticKeys(batchSize);
+	}
+	
 	public void checkIfPersonAttributeTypesAreLocked() {
 		String locked = Context.getAdministrationService().getGlobalProperty(
 		    OpenmrsConstants.GLOBAL_PROPERTY_PERSON_ATRIBUTE_TYPES_LOCKED, "false");
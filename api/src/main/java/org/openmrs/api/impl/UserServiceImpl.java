@@ -34,6 +34,7 @@ import org.openmrs.api.APIException;
 import org.openmrs.api.CannotDeleteRoleWithChildrenException;
 import org.openmrs.api.UserService;
 import org.openmrs.api.context.Context;
+import org.openmrs.api.context.UserContext;
 import org.openmrs.api.db.DAOException;
 import org.openmrs.api.db.UserDAO;
 import org.openmrs.patient.impl.LuhnIdentifierValidator;
@@ -107,7 +108,10 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 			OpenmrsUtil.validatePassword(user.getUsername(), password, user.getSystemId());
 		}
 		
-		return dao.saveUser(user, password);
+		User savedUser = dao.saveUser(user, password);
+		UserContext.invalidatePrivileges();
+		AdministrationServiceImpl.saveChangeNotificationAsProxy(User.class, savedUser.getUuid());
+		return savedUser;
 	}
 	
 	/**
@@ -266,13 +270,18 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 		}
 		
 		dao.deletePrivilege(privilege);
+		UserContext.invalidatePrivileges();
+		AdministrationServiceImpl.saveChangeNotificationAsProxy(Privilege.class, privilege.getPrivilege());
 	}
 	
 	/**
 	 * @see org.openmrs.api.UserService#savePrivilege(org.openmrs.Privilege)
 	 */
 	public Privilege savePrivilege(Privilege privilege) throws APIException {
-		return dao.savePrivilege(privilege);
+		Privilege savedPrivilege = dao.savePrivilege(privilege);
+		UserContext.invalidatePrivileges();
+		AdministrationServiceImpl.saveChangeNotificationAsProxy(Privilege.class, savedPrivilege.getPrivilege());
+		return savedPrivilege;
 	}
 	
 	/**
@@ -330,6 +339,8 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 		}
 		
 		dao.deleteRole(role);
+		UserContext.invalidatePrivileges();
+		AdministrationServiceImpl.saveChangeNotificationAsProxy(Role.class, role.getRole());
 	}
 	
 	/**
@@ -345,7 +356,10 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 		
 		checkPrivileges(role);
 		
-		return dao.saveRole(role);
+		Role savedRole = dao.saveRole(role);
+		UserContext.invalidatePrivileges();
+		AdministrationServiceImpl.saveChangeNotificationAsProxy(Role.class, savedRole.getRole());
+		return savedRole;
 	}
 	
 	/**
@@ -571,6 +585,8 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 	 */
 	public void purgeUser(User user) throws APIException {
 		dao.deleteUser(user);
+		UserContext.invalidatePrivileges();
+		AdministrationServiceImpl.saveChangeNotificationAsProxy(User.class, user.getUuid());
 	}
 	
 	/**
@@ -582,6 +598,8 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 		}
 		
 		dao.deleteUser(user);
+		UserContext.invalidatePrivileges();
+		AdministrationServiceImpl.saveChangeNotificationAsProxy(User.class, user.getUuid());
 	}
 	
 	/**
@@ -0,0 +1,170 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.dictionary;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+import org.openmrs.Concept;
+import org.openmrs.ConceptAnswer;
+import org.openmrs.ConceptDescription;
+import org.openmrs.ConceptName;
+import org.openmrs.ConceptSet;
+import org.openmrs.annotation.Handler;
+
+/**
+ * Writes the concept dictionary in a compact binary format that terminology tools can map into
+ * memory and walk without parsing text. All numbers are big endian, as written by a
+ * {@link DataOutputStream}, and strings are written as their length in bytes followed by their
+ * UTF-8 bytes, with a length of -1 for null.
+ * 
+ * <pre>
+ * header:  the 8 ascii bytes "OMRSDICT", int format version
+ * record:  int length of the rest of the record, int concept id, byte flags (1 = set),
+ *          string name, string description, string class, string datatype,
+ *          int synonym count, the synonyms as strings,
+ *          int answer count, the answer concept ids as ints,
+ *          int set member count, the member concept ids as ints
+ * footer:  int -1, int number of records
+ * </pre>
+ * 
+ * The length in front of every record lets a reader skip from one record to the next without
+ * decoding them. Answers that are drugs are not written.
+ * 
+ * @since 1.12
+ */
+@Handler
+public class BinaryConceptDictionaryExporter implements ConceptDictionaryExporter {
+	
+	public static final byte[] MAGIC = { 'O', 'M', 'R', 'S', 'D', 'I', 'C', 'T' };
+	
+	public static final int VERSION = 1;
+	
+	public static final int END_OF_RECORDS = -1;
+	
+	public static final byte FLAG_SET = 1;
+	
+	/**
+	 * @see org.openmrs.dictionary.ConceptDictionaryExporter#getFormat()
+	 */
+	public String getFormat() {
+		return "bin";
+	}
+	
+	/**
+	 * @see org.openmrs.dictionary.ConceptDictionaryExporter#getContentType()
+	 */
+	public String getContentType() {
+		return "application/octet-stream";
+	}
+	
+	/**
+	 * @see org.openmrs.dictionary.ConceptDictionaryExporter#getFileExtension()
+	 */
+	public String getFileExtension() {
+		return "bin";
+	}
+	
+	/**
+	 * @see org.openmrs.dictionary.ConceptDictionaryExporter#export(java.util.Iterator,
+	 *      java.util.Locale, java.io.OutputStream)
+	 * @should write a header, one record per non retired concept and a footer
+	 */
+	public void export(Iterator<Concept> concepts, Locale locale, OutputStream out) throws IOException {
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+		data.write(MAGIC);
+		data.writeInt(VERSION);
+		
+		// every record is put together here first, because its length is written in front of it
+		ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+		DataOutputStream record = new DataOutputStream(recordBytes);
+		int records = 0;
+		while (concepts.hasNext()) {
+			Concept concept = concepts.next();
+			if (concept.isRetired()) {
+				continue;
+			}
+			
+			recordBytes.reset();
+			writeConcept(record, concept, locale);
+			record.flush();
+			data.writeInt(recordBytes.size());
+			recordBytes.writeTo(data);
+			records++;
+		}
+		
+		data.writeInt(END_OF_RECORDS);
+		data.writeInt(records);
+		data.flush();
+	}
+	
+	private void writeConcept(DataOutputStream record, Concept concept, Locale locale) throws IOException {
+		record.writeInt(concept.getConceptId());
+		record.writeByte(concept.isSet() ? FLAG_SET : 0);
+		
+		ConceptName name = concept.getName(locale);
+		writeString(record, name == null ? null : name.getName());
+		ConceptDescription description = concept.getDescription(locale);
+		writeString(record, description == null ? null : description.getDescription());
+		writeString(record, concept.getConceptClass() == null ? null : concept.getConceptClass().getName());
+		writeString(record, concept.getDatatype() == null ? null : concept.getDatatype().getName());
+		
+		Collection<ConceptName> synonyms = concept.getNames();
+		record.writeInt(synonyms.size());
+		for (ConceptName synonym : synonyms) {
+			writeString(record, synonym.getName());
+		}
+		
+		List<Integer> answerIds = new ArrayList<Integer>();
+		for (ConceptAnswer answer : concept.getAnswers(false)) {
+			if (answer.getAnswerConcept() != null) {
+				answerIds.add(answer.getAnswerConcept().getConceptId());
+			}
+		}
+		writeInts(record, answerIds);
+		
+		List<Integer> setMemberIds = new ArrayList<Integer>();
+		for (ConceptSet conceptSet : concept.getConceptSets()) {
+			if (conceptSet.getConcept() != null) {
+				setMemberIds.add(conceptSet.getConcept().getConceptId());
+			}
+		}
+		writeInts(record, setMemberIds);
+	}
+	
+	private void writeString(DataOutputStream record, String value) throws IOException {
+		if (value == null) {
+			record.writeInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes("UTF-8");
+		record.writeInt(bytes.length);
+		record.write(bytes);
+	}
+	
+	private void writeInts(DataOutputStream record, List<Integer> values) throws IOException {
+		record.writeInt(values.size());
+		for (Integer value : values) {
+			record.writeInt(value);
+		}
+	}
+}
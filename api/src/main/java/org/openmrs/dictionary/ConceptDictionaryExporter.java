@@ -0,0 +1,60 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.dictionary;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.Locale;
+
+import org.openmrs.Concept;
+
+/**
+ * Writes the concept dictionary to a stream in one download format. Exporters are picked up by
+ * their {@link org.openmrs.annotation.Handler} annotation and looked up by
+ * {@link #getFormat()}, so modules can add formats of their own.<br/>
+ * <br/>
+ * Implementations must write every concept as soon as it is read from the iterator and must not
+ * hold on to it afterwards, so that the dictionary never has to fit in memory.
+ * 
+ * @since 1.12
+ */
+public interface ConceptDictionaryExporter {
+	
+	/**
+	 * @return the name of the format, e.g. "csv", as used in the download url
+	 */
+	public String getFormat();
+	
+	/**
+	 * @return the mime type of the written content
+	 */
+	public String getContentType();
+	
+	/**
+	 * @return the extension of the downloaded file, without the leading dot
+	 */
+	public String getFileExtension();
+	
+	/**
+	 * Writes the non retired concepts of the given iterator to the stream. The stream is flushed
+	 * but not closed.
+	 * 
+	 * @param concepts the concepts to write
+	 * @param locale the locale of the names and descriptions to write
+	 * @param out the stream to write to
+	 * @throws IOException if writing to the stream fails
+	 */
+	public void export(Iterator<Concept> concepts, Locale locale, OutputStream out) throws IOException;
+}
@@ -0,0 +1,115 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.dictionary;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What a run of the {@link ConceptDictionaryImporter} did and how fast it was
+ * 
+ * @since 1.12
+ */
+public class ConceptDictionaryImportResult {
+	
+	/**
+	 * The number of rejected rows whose reasons are kept, so that importing a broken file cannot use
+	 * up the memory
+	 */
+	private static final int MAX_ERRORS = 1000;
+	
+	private int imported;
+	
+	private int rejected;
+	
+	private final List<String> errors = new ArrayList<String>();
+	
+	private long elapsedMillis;
+	
+	private long indexMillis;
+	
+	void addImported(int count) {
+		imported += count;
+	}
+	
+	void addRejected(int line, String reason) {
+		rejected++;
+		if (errors.size() < MAX_ERRORS) {
+			errors.add("Line " + line + ": " + reason);
+		}
+	}
+	
+	void setElapsedMillis(long elapsedMillis) {
+		this.elapsedMillis = elapsedMillis;
+	}
+	
+	void setIndexMillis(long indexMillis) {
+		this.indexMillis = indexMillis;
+	}
+	
+	/**
+	 * @return the number of concepts that were inserted
+	 */
+	public int getImported() {
+		return imported;
+	}
+	
+	/**
+	 * @return the number of concepts that were not inserted because they are invalid or exist
+	 *         already
+	 */
+	public int getRejected() {
+		return rejected;
+	}
+	
+	/**
+	 * @return why concepts were rejected, one entry with the line number per concept, only the first
+	 *         1000 are kept
+	 */
+	public List<String> getErrors() {
+		return Collections.unmodifiableList(errors);
+	}
+	
+	/**
+	 * @return how long the whole import took, including the update of the search index
+	 */
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+	
+	/**
+	 * @return how long the update of the search index at the end took
+	 */
+	public long getIndexMillis() {
+		return indexMillis;
+	}
+	
+	/**
+	 * @return the number of concepts read from the file per second
+	 */
+	public double getConceptsPerSecond() {
+		return elapsedMillis == 0 ? 0 : (imported + rejected) * 1000d / elapsedMillis;
+	}
+	
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "Imported " + imported + " concepts and rejected " + rejected + " in " + elapsedMillis + " ms ("
+		        + Math.round(getConceptsPerSecond()) + " concepts per second), updating the search index took "
+		        + indexMillis + " ms";
+	}
+}
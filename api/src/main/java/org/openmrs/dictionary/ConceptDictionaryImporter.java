@@ -0,0 +1,474 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.dictionary;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.Concept;
+import org.openmrs.ConceptClass;
+import org.openmrs.ConceptDatatype;
+import org.openmrs.ConceptDescription;
+import org.openmrs.ConceptMap;
+import org.openmrs.ConceptMapType;
+import org.openmrs.ConceptName;
+import org.openmrs.ConceptReferenceTerm;
+import org.openmrs.ConceptSource;
+import org.openmrs.api.APIException;
+import org.openmrs.api.ConceptNameType;
+import org.openmrs.api.ConceptService;
+import org.openmrs.api.context.Context;
+import org.openmrs.util.LocaleUtility;
+
+/**
+ * Loads a whole concept dictionary from comma separated values much faster than saving every
+ * concept with {@link ConceptService#saveConcept(Concept)}. The rows are streamed from the file and
+ * handled in chunks: the concepts of a chunk are validated in parallel and then inserted with
+ * batched statements by {@link ConceptService#importConcepts(List)}, each chunk in its own
+ * transaction. The search index is only updated once, after the last chunk.<br/>
+ * <br/>
+ * The first line names the columns, in any order: Uuid, Class, Datatype, Is Set, Locale, Fully
+ * Specified Name, Short Name, Synonyms, Description, Mappings and Map Type. Class, Datatype and
+ * Fully Specified Name are required. Synonyms and mappings are separated by line breaks, a mapping
+ * is written as source name and code separated by a colon, e.g. "SNOMED CT:271649006". The
+ * mappings get the given map type, or the default one. Rows that follow each other with the same
+ * uuid add the names and descriptions in another locale to the same concept.<br/>
+ * <br/>
+ * The concepts are validated with the same rules as the ConceptValidatorChangeSet: the class and
+ * datatype must exist, every locale must be allowed and have one fully specified name, and the
+ * fully specified names must be unique in their locale among the names of the concept, the
+ * existing concepts and the concepts before it in the file. Concepts breaking a rule are rejected,
+ * the reasons are part of the {@link ConceptDictionaryImportResult}.
+ * 
+ * @since 1.12
+ */
+public class ConceptDictionaryImporter {
+	
+	private static final Log log = LogFactory.getLog(ConceptDictionaryImporter.class);
+	
+	public static final int DEFAULT_CHUNK_SIZE = 500;
+	
+	private static final String UUID = "uuid";
+	
+	private static final String CLASS = "class";
+	
+	private static final String DATATYPE = "datatype";
+	
+	private static final String IS_SET = "is set";
+	
+	private static final String LOCALE = "locale";
+	
+	private static final String FULLY_SPECIFIED_NAME = "fully specified name";
+	
+	private static final String SHORT_NAME = "short name";
+	
+	private static final String SYNONYMS = "synonyms";
+	
+	private static final String DESCRIPTION = "description";
+	
+	private static final String MAPPINGS = "mappings";
+	
+	private static final String MAP_TYPE = "map type";
+	
+	private static final String[] REQUIRED_COLUMNS = { CLASS, DATATYPE, FULLY_SPECIFIED_NAME };
+	
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+	
+	private int threads = Runtime.getRuntime().availableProcessors();
+	
+	private boolean updateSearchIndex = true;
+	
+	private Map<String, Integer> columns;
+	
+	private Map<String, ConceptClass> conceptClasses;
+	
+	private Map<String, ConceptDatatype> conceptDatatypes;
+	
+	private Map<String, ConceptSource> conceptSources;
+	
+	private Map<String, ConceptMapType> conceptMapTypes;
+	
+	private ConceptMapType defaultConceptMapType;
+	
+	private Set<Locale> allowedLocales;
+	
+	/**
+	 * @param chunkSize the number of concepts inserted in one transaction
+	 */
+	public void setChunkSize(int chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+	
+	/**
+	 * @param threads the number of threads validating the concepts
+	 */
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+	
+	/**
+	 * @param updateSearchIndex false if the search index is rebuilt later on anyway, e.g. after
+	 *            importing several files
+	 */
+	public void setUpdateSearchIndex(boolean updateSearchIndex) {
+		this.updateSearchIndex = updateSearchIndex;
+	}
+	
+	/**
+	 * Imports the concepts of the given file. The concepts of chunks that were imported stay in the
+	 * database if a later chunk fails.
+	 * 
+	 * @param in the file, encoded in UTF-8
+	 * @return the numbers of imported and rejected concepts and the throughput
+	 * @throws IOException if the file cannot be read
+	 * @should import concepts with names descriptions and mappings
+	 * @should add rows with the same uuid to one concept
+	 * @should reject invalid concepts and import the others
+	 * @should reject concepts with the name of an existing concept
+	 * @should reject concepts with the name of a concept before them in the file
+	 * @should fail if a required column is missing
+	 */
+	public ConceptDictionaryImportResult importDictionary(InputStream in) throws IOException {
+		long start = System.currentTimeMillis();
+		ConceptDictionaryImportResult result = new ConceptDictionaryImportResult();
+		CsvRecordReader reader = new CsvRecordReader(new BufferedReader(new InputStreamReader(in, "UTF-8")));
+		readColumns(reader.readRecord());
+		readMetadata();
+		
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			Set<String> importedNames = new HashSet<String>();
+			List<Row> chunk = new ArrayList<Row>(chunkSize);
+			Row row = null;
+			String[] record;
+			while ((record = reader.readRecord()) != null) {
+				String uuid = getValue(record, UUID);
+				if (row != null && uuid != null && uuid.equals(row.concept.getUuid())) {
+					addNames(row, record);
+					continue;
+				}
+				
+				if (row != null) {
+					chunk.add(row);
+					if (chunk.size() == chunkSize) {
+						importChunk(chunk, importedNames, executor, result);
+						chunk.clear();
+						log.info("Imported " + result.getImported() + " concepts so far in "
+						        + (System.currentTimeMillis() - start) + " ms");
+					}
+				}
+				row = newRow(record, reader.getRecordLine());
+			}
+			if (row != null) {
+				chunk.add(row);
+			}
+			importChunk(chunk, importedNames, executor, result);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		
+		if (updateSearchIndex && result.getImported() > 0) {
+			long indexStart = System.currentTimeMillis();
+			for (Class<?> type : new Class<?>[] { Concept.class, ConceptName.class, ConceptMap.class,
+			        ConceptReferenceTerm.class }) {
+				Context.updateSearchIndexForType(type);
+			}
+			result.setIndexMillis(System.currentTimeMillis() - indexStart);
+		}
+		result.setElapsedMillis(System.currentTimeMillis() - start);
+		log.info(result);
+		return result;
+	}
+	
+	/**
+	 * Validates the concepts of the chunk in parallel and inserts the valid ones
+	 */
+	private void importChunk(List<Row> chunk, Set<String> importedNames, ExecutorService executor,
+	        ConceptDictionaryImportResult result) {
+		List<Callable<Void>> validations = new ArrayList<Callable<Void>>(chunk.size());
+		for (final Row row : chunk) {
+			validations.add(new Callable<Void>() {
+				
+				@Override
+				public Void call() {
+					validate(row);
+					return null;
+				}
+			});
+		}
+		try {
+			for (Future<Void> validation : executor.invokeAll(validations)) {
+				validation.get();
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new APIException("The import of the concept dictionary was interrupted", e);
+		}
+		catch (ExecutionException e) {
+			throw new APIException("Unable to validate the concepts", e.getCause());
+		}
+		
+		List<Concept> concepts = new ArrayList<Concept>(chunk.size());
+		Map<Concept, Row> rows = new IdentityHashMap<Concept, Row>();
+		for (Row row : chunk) {
+			// checked in the order of the file, so that the first concept with a name wins
+			if (row.error == null) {
+				for (ConceptName name : row.concept.getNames()) {
+					if (name.isFullySpecifiedName() && !importedNames.add(getNameKey(name))) {
+						row.error = "The fully specified name '" + name.getName() + "' is used by a concept before";
+					}
+				}
+			}
+			if (row.error == null) {
+				concepts.add(row.concept);
+				rows.put(row.concept, row);
+			} else {
+				result.addRejected(row.line, row.error);
+			}
+		}
+		if (concepts.isEmpty()) {
+			return;
+		}
+		
+		List<Concept> skipped = Context.getConceptService().importConcepts(concepts);
+		for (Concept concept : skipped) {
+			result.addRejected(rows.get(concept).line, "A concept with the uuid " + concept.getUuid()
+			        + " or one of its fully specified names exists already");
+		}
+		result.addImported(concepts.size() - skipped.size());
+	}
+	
+	/**
+	 * Checks a concept, it must not touch the database as it runs on one of the validation threads
+	 */
+	private void validate(Row row) {
+		if (row.error != null) {
+			return;
+		}
+		Concept concept = row.concept;
+		if (concept.getDatatype().isComplex()) {
+			row.error = "Complex concepts need a handler and cannot be imported";
+			return;
+		}
+		
+		Map<Locale, Set<String>> namesByLocale = new HashMap<Locale, Set<String>>();
+		Set<Locale> fullySpecifiedLocales = new HashSet<Locale>();
+		for (ConceptName name : concept.getNames()) {
+			if (name.isFullySpecifiedName()) {
+				fullySpecifiedLocales.add(name.getLocale());
+			}
+			Set<String> names = namesByLocale.get(name.getLocale());
+			if (names == null) {
+				names = new HashSet<String>();
+				namesByLocale.put(name.getLocale(), names);
+			}
+			if (!names.add(name.getName().toLowerCase())) {
+				row.error = "The name '" + name.getName() + "' is given more than once in locale " + name.getLocale();
+				return;
+			}
+		}
+		for (Locale locale : namesByLocale.keySet()) {
+			if (!allowedLocales.contains(locale) && !allowedLocales.contains(new Locale(locale.getLanguage()))) {
+				row.error = "The locale " + locale + " is not allowed";
+				return;
+			}
+			if (!fullySpecifiedLocales.contains(locale)) {
+				row.error = "There is no fully specified name in locale " + locale;
+				return;
+			}
+		}
+	}
+	
+	private Row newRow(String[] record, int line) {
+		Row row = new Row(line);
+		Concept concept = row.concept;
+		String uuid = getValue(record, UUID);
+		if (uuid != null) {
+			concept.setUuid(uuid);
+		}
+		concept.setSet("true".equalsIgnoreCase(getValue(record, IS_SET)) || "1".equals(getValue(record, IS_SET)));
+		
+		String className = getValue(record, CLASS);
+		concept.setConceptClass(className == null ? null : conceptClasses.get(className.toLowerCase()));
+		if (concept.getConceptClass() == null) {
+			row.error = className == null ? "The class is missing" : "There is no class named '" + className + "'";
+		}
+		String datatypeName = getValue(record, DATATYPE);
+		concept.setDatatype(datatypeName == null ? null : conceptDatatypes.get(datatypeName.toLowerCase()));
+		if (concept.getDatatype() == null) {
+			row.error = datatypeName == null ? "The datatype is missing" : "There is no datatype named '" + datatypeName
+			        + "'";
+		}
+		
+		String mappings = getValue(record, MAPPINGS);
+		if (mappings != null) {
+			ConceptMapType mapType = getMapType(row, getValue(record, MAP_TYPE));
+			for (String mapping : mappings.split("\n")) {
+				if (StringUtils.isBlank(mapping)) {
+					continue;
+				}
+				int separator = mapping.indexOf(':');
+				ConceptSource source = separator < 0 ? null : conceptSources.get(mapping.substring(0, separator).trim()
+				        .toLowerCase());
+				String code = separator < 0 ? null : StringUtils.trimToNull(mapping.substring(separator + 1));
+				if (source == null || code == null) {
+					row.error = "The mapping '" + mapping.trim() + "' does not name an existing source and a code";
+				} else {
+					concept.addConceptMapping(new ConceptMap(new ConceptReferenceTerm(source, code, null), mapType));
+				}
+			}
+		}
+		
+		addNames(row, record);
+		return row;
+	}
+	
+	private void addNames(Row row, String[] record) {
+		String localeName = getValue(record, LOCALE);
+		Locale locale = localeName == null ? LocaleUtility.getDefaultLocale() : LocaleUtility
+		        .fromSpecification(localeName);
+		if (locale == null) {
+			row.error = "The locale '" + localeName + "' is not valid";
+			return;
+		}
+		
+		Concept concept = row.concept;
+		String fullySpecifiedName = getValue(record, FULLY_SPECIFIED_NAME);
+		if (fullySpecifiedName != null) {
+			ConceptName name = new ConceptName(fullySpecifiedName, locale);
+			name.setConceptNameType(ConceptNameType.FULLY_SPECIFIED);
+			name.setLocalePreferred(true);
+			concept.addName(name);
+		}
+		String shortName = getValue(record, SHORT_NAME);
+		if (shortName != null) {
+			ConceptName name = new ConceptName(shortName, locale);
+			name.setConceptNameType(ConceptNameType.SHORT);
+			concept.addName(name);
+		}
+		String synonyms = getValue(record, SYNONYMS);
+		if (synonyms != null) {
+			for (String synonym : synonyms.split("\n")) {
+				if (StringUtils.isNotBlank(synonym)) {
+					concept.addName(new ConceptName(synonym.trim(), locale));
+				}
+			}
+		}
+		String description = getValue(record, DESCRIPTION);
+		if (description != null) {
+			concept.addDescription(new ConceptDescription(description, locale));
+		}
+	}
+	
+	private ConceptMapType getMapType(Row row, String mapTypeName) {
+		if (mapTypeName == null) {
+			if (defaultConceptMapType == null) {
+				defaultConceptMapType = Context.getConceptService().getDefaultConceptMapType();
+			}
+			return defaultConceptMapType;
+		}
+		ConceptMapType mapType = conceptMapTypes.get(mapTypeName.toLowerCase());
+		if (mapType == null) {
+			row.error = "There is no map type named '" + mapTypeName + "'";
+		}
+		return mapType;
+	}
+	
+	private void readColumns(String[] header) {
+		columns = new HashMap<String, Integer>();
+		if (header != null) {
+			for (int i = 0; i < header.length; i++) {
+				columns.put(header[i].trim().toLowerCase(), i);
+			}
+		}
+		for (String column : REQUIRED_COLUMNS) {
+			if (!columns.containsKey(column)) {
+				throw new APIException("The concept dictionary has no '" + column + "' column");
+			}
+		}
+	}
+	
+	/**
+	 * Reads everything the concepts refer to by name, so that the rows can be resolved without
+	 * queries
+	 */
+	private void readMetadata() {
+		ConceptService conceptService = Context.getConceptService();
+		conceptClasses = new HashMap<String, ConceptClass>();
+		for (ConceptClass conceptClass : conceptService.getAllConceptClasses(false)) {
+			conceptClasses.put(conceptClass.getName().toLowerCase(), conceptClass);
+		}
+		conceptDatatypes = new HashMap<String, ConceptDatatype>();
+		for (ConceptDatatype datatype : conceptService.getAllConceptDatatypes(false)) {
+			conceptDatatypes.put(datatype.getName().toLowerCase(), datatype);
+		}
+		conceptSources = new HashMap<String, ConceptSource>();
+		for (ConceptSource source : conceptService.getAllConceptSources(false)) {
+			conceptSources.put(source.getName().toLowerCase(), source);
+		}
+		conceptMapTypes = new HashMap<String, ConceptMapType>();
+		for (ConceptMapType mapType : conceptService.getConceptMapTypes(false, true)) {
+			conceptMapTypes.put(mapType.getName().toLowerCase(), mapType);
+		}
+		allowedLocales = new HashSet<Locale>(Context.getAdministrationService().getAllowedLocales());
+	}
+	
+	private String getValue(String[] record, String column) {
+		Integer index = columns.get(column);
+		if (index == null || index >= record.length) {
+			return null;
+		}
+		return StringUtils.trimToNull(record[index]);
+	}
+	
+	private static String getNameKey(ConceptName name) {
+		return name.getLocale() + "|" + name.getName().toLowerCase();
+	}
+	
+	/**
+	 * A concept read from the file, with the line it starts on and the first reason to reject it
+	 */
+	private static class Row {
+		
+		private final int line;
+		
+		private final Concept concept = new Concept();
+		
+		private String error;
+		
+		private Row(int line) {
+			this.line = line;
+		}
+	}
+}
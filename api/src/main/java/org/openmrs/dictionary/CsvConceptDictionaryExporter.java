@@ -0,0 +1,148 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.dictionary;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.Locale;
+
+import org.openmrs.Concept;
+import org.openmrs.ConceptAnswer;
+import org.openmrs.ConceptDescription;
+import org.openmrs.ConceptName;
+import org.openmrs.ConceptSet;
+import org.openmrs.User;
+import org.openmrs.annotation.Handler;
+
+/**
+ * Writes the concept dictionary as comma separated values, one line per concept. This is the
+ * format of the dictionary download link.
+ * 
+ * @since 1.12
+ */
+@Handler
+public class CsvConceptDictionaryExporter implements ConceptDictionaryExporter {
+	
+	private static final String HEADER = "Concept Id,Name,Description,Synonyms,Answers,Set Members,Class,Datatype,Changed By,Creator\n";
+	
+	/**
+	 * @see org.openmrs.dictionary.ConceptDictionaryExporter#getFormat()
+	 */
+	public String getFormat() {
+		return "csv";
+	}
+	
+	/**
+	 * @see org.openmrs.dictionary.ConceptDictionaryExporter#getContentType()
+	 */
+	public String getContentType() {
+		return "text/csv;charset=UTF-8";
+	}
+	
+	/**
+	 * @see org.openmrs.dictionary.ConceptDictionaryExporter#getFileExtension()
+	 */
+	public String getFileExtension() {
+		return "csv";
+	}
+	
+	/**
+	 * @see org.openmrs.dictionary.ConceptDictionaryExporter#export(java.util.Iterator,
+	 *      java.util.Locale, java.io.OutputStream)
+	 * @should write a header and one line per non retired concept
+	 * @should escape quotes in values
+	 */
+	public void export(Iterator<Concept> concepts, Locale locale, OutputStream out) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, "UTF-8"));
+		writer.write(HEADER);
+		while (concepts.hasNext()) {
+			Concept concept = concepts.next();
+			if (!concept.isRetired()) {
+				writeConcept(writer, concept, locale);
+			}
+		}
+		writer.flush();
+	}
+	
+	private void writeConcept(Writer writer, Concept concept, Locale locale) throws IOException {
+		writer.write(concept.getConceptId().toString());
+		writer.write(',');
+		
+		ConceptName name = concept.getName(locale);
+		writeValue(writer, name == null ? null : name.getName());
+		writer.write(',');
+		
+		ConceptDescription description = concept.getDescription(locale);
+		writeValue(writer, description == null ? null : description.getDescription());
+		writer.write(',');
+		
+		StringBuilder synonyms = new StringBuilder();
+		for (ConceptName synonym : concept.getNames()) {
+			synonyms.append(synonym).append("\n");
+		}
+		writeValue(writer, synonyms.toString().trim());
+		writer.write(',');
+		
+		StringBuilder answers = new StringBuilder();
+		for (ConceptAnswer answer : concept.getAnswers(false)) {
+			if (answer.getAnswerConcept() != null) {
+				answers.append(answer.getAnswerConcept().getName()).append("\n");
+			} else if (answer.getAnswerDrug() != null) {
+				answers.append(answer.getAnswerDrug().getFullName(locale)).append("\n");
+			}
+		}
+		writeValue(writer, answers.toString().trim());
+		writer.write(',');
+		
+		StringBuilder setMembers = new StringBuilder();
+		for (ConceptSet conceptSet : concept.getConceptSets()) {
+			if (conceptSet.getConcept() != null && conceptSet.getConcept().getName() != null) {
+				setMembers.append(conceptSet.getConcept().getName()).append("\n");
+			}
+		}
+		writeValue(writer, setMembers.toString().trim());
+		writer.write(',');
+		
+		writeValue(writer, concept.getConceptClass() == null ? null : concept.getConceptClass().getName());
+		writer.write(',');
+		writeValue(writer, concept.getDatatype() == null ? null : concept.getDatatype().getName());
+		writer.write(',');
+		writeValue(writer, getPersonName(concept.getChangedBy()));
+		writer.write(',');
+		writeValue(writer, getPersonName(concept.getCreator()));
+		writer.write('\n');
+	}
+	
+	/**
+	 * Writes the value in quotes, with the quotes inside of it doubled
+	 */
+	private void writeValue(Writer writer, String value) throws IOException {
+		writer.write('"');
+		if (value != null) {
+			writer.write(value.replace("\"", "\"\""));
+		}
+		writer.write('"');
+	}
+	
+	private String getPersonName(User user) {
+		if (user == null || user.getPersonName() == null) {
+			return null;
+		}
+		return user.getPersonName().toString();
+	}
+}
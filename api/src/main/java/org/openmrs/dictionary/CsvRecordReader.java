@@ -0,0 +1,118 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.dictionary;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads comma separated values one record at a time, so that a file of any size can be streamed.
+ * Values may be quoted, a quoted value can contain commas, line breaks and doubled quotes, just like
+ * the ones written by {@link CsvConceptDictionaryExporter}. Empty lines are skipped.
+ * 
+ * @since 1.12
+ */
+class CsvRecordReader {
+	
+	private final Reader reader;
+	
+	private int line = 1;
+	
+	private int recordLine;
+	
+	private int next = -2;
+	
+	/**
+	 * @param reader the reader to read from, should be buffered
+	 */
+	CsvRecordReader(Reader reader) {
+		this.reader = reader;
+	}
+	
+	/**
+	 * @return the values of the next record, or null at the end of the input
+	 * @should read quoted values with commas line breaks and quotes
+	 * @should skip empty lines
+	 * @should return null at the end of the input
+	 */
+	String[] readRecord() throws IOException {
+		int c = read();
+		while (c == '\r' || c == '\n') {
+			c = read();
+		}
+		if (c == -1) {
+			return null;
+		}
+		recordLine = line;
+		
+		List<String> values = new ArrayList<String>();
+		StringBuilder value = new StringBuilder();
+		boolean quoted = false;
+		while (true) {
+			if (quoted) {
+				if (c == -1) {
+					throw new IOException("Unterminated quoted value in the record on line " + recordLine);
+				} else if (c == '"') {
+					if (peek() == '"') {
+						value.append('"');
+						read();
+					} else {
+						quoted = false;
+					}
+				} else {
+					value.append((char) c);
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == ',') {
+				values.add(value.toString());
+				value.setLength(0);
+			} else if (c == '\r' || c == '\n' || c == -1) {
+				if (c == '\r' && peek() == '\n') {
+					read();
+				}
+				values.add(value.toString());
+				return values.toArray(new String[values.size()]);
+			} else {
+				value.append((char) c);
+			}
+			c = read();
+		}
+	}
+	
+	/**
+	 * @return the line on which the last record that was read started
+	 */
+	int getRecordLine() {
+		return recordLine;
+	}
+	
+	private int read() throws IOException {
+		int c = next == -2 ? reader.read() : next;
+		next = -2;
+		if (c == '\n') {
+			line++;
+		}
+		return c;
+	}
+	
+	private int peek() throws IOException {
+		if (next == -2) {
+			next = reader.read();
+		}
+		return next;
+	}
+}
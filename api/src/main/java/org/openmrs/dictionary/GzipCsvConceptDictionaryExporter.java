@@ -0,0 +1,70 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.dictionary;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+import org.openmrs.Concept;
+import org.openmrs.annotation.Handler;
+
+/**
+ * Writes the concept dictionary in the format of the {@link CsvConceptDictionaryExporter},
+ * compressed with gzip while it is written.
+ * 
+ * @since 1.12
+ */
+@Handler
+public class GzipCsvConceptDictionaryExporter extends CsvConceptDictionaryExporter {
+	
+	/**
+	 * @see org.openmrs.dictionary.CsvConceptDictionaryExporter#getFormat()
+	 */
+	@Override
+	public String getFormat() {
+		return "csv.gz";
+	}
+	
+	/**
+	 * @see org.openmrs.dictionary.CsvConceptDictionaryExporter#getContentType()
+	 */
+	@Override
+	public String getContentType() {
+		return "application/gzip";
+	}
+	
+	/**
+	 * @see org.openmrs.dictionary.CsvConceptDictionaryExporter#getFileExtension()
+	 */
+	@Override
+	public String getFileExtension() {
+		return "csv.gz";
+	}
+	
+	/**
+	 * @see org.openmrs.dictionary.CsvConceptDictionaryExporter#export(java.util.Iterator,
+	 *      java.util.Locale, java.io.OutputStream)
+	 * @should write the csv compressed with gzip
+	 */
+	@Override
+	public void export(Iterator<Concept> concepts, Locale locale, OutputStream out) throws IOException {
+		GZIPOutputStream gzip = new GZIPOutputStream(out, 8192);
+		super.export(concepts, locale, gzip);
+		gzip.finish();
+		out.flush();
+	}
+}
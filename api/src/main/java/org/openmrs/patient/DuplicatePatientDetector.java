@@ -0,0 +1,357 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.patient;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.api.APIException;
+import org.openmrs.api.PatientService;
+import org.openmrs.api.context.Context;
+
+/**
+ * Finds patients that are likely the same person without comparing every patient with every other
+ * one. The patients are read a page at a time. For every page the patients sharing a blocking key
+ * with them are looked up, see {@link DuplicatePatientRecord#getBlockingKeys()}, and only those
+ * pairs are scored, on several threads. The duplicates are passed to a
+ * {@link DuplicatePatientHandler} page by page.<br/>
+ * <br/>
+ * A run can be limited to the patients that were created or changed since a given date, e.g. the
+ * start of the previous run. Those patients are still compared with all other patients, but
+ * patients that did not change are not compared with each other again.<br/>
+ * <br/>
+ * The score of a pair is the sum of the points for the most similar of their names, the
+ * birthdate, the gender and a shared identifier, at most 1:
+ * <ul>
+ * <li>given name: 0.25 if it is the same, 0.2 if it sounds the same</li>
+ * <li>family name: 0.3 if it is the same, 0.25 if it sounds the same</li>
+ * <li>birthdate: 0.25 if it is the same, 0.15 if it is in the same year</li>
+ * <li>gender: 0.1 if it is the same</li>
+ * <li>identifier: 0.3 if they share one, not counting the check digit</li>
+ * </ul>
+ * 
+ * @since 1.12
+ */
+public class DuplicatePatientDetector {
+	
+	private static final Log log = LogFactory.getLog(DuplicatePatientDetector.class);
+	
+	public static final int DEFAULT_PAGE_SIZE = 500;
+	
+	public static final double DEFAULT_MIN_SCORE = 0.7;
+	
+	private static final Comparator<DuplicatePatientMatch> BY_SCORE = new Comparator<DuplicatePatientMatch>() {
+		
+		@Override
+		public int compare(DuplicatePatientMatch match1, DuplicatePatientMatch match2) {
+			return Double.compare(match2.getScore(), match1.getScore());
+		}
+	};
+	
+	private int pageSize = DEFAULT_PAGE_SIZE;
+	
+	private int threads = Runtime.getRuntime().availableProcessors();
+	
+	private double minScore = DEFAULT_MIN_SCORE;
+	
+	/**
+	 * @param pageSize the number of patients that are read and compared at a time
+	 */
+	public void setPageSize(int pageSize) {
+		this.pageSize = pageSize;
+	}
+	
+	/**
+	 * @param threads the number of threads scoring the pairs of patients
+	 * @throws IllegalArgumentException if the number is less than 1
+	 * @should reject less than one thread
+	 */
+	public void setThreads(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("At least one thread is needed to score the pairs of patients");
+		}
+		this.threads = threads;
+	}
+	
+	/**
+	 * @param minScore the score a pair of patients needs to be reported as duplicates
+	 */
+	public void setMinScore(double minScore) {
+		this.minScore = minScore;
+	}
+	
+	/**
+	 * Compares all patients
+	 * 
+	 * @param handler receives the duplicates
+	 * @return the number of duplicates that were found
+	 * @see #findDuplicates(Date, DuplicatePatientHandler)
+	 */
+	public int findDuplicates(DuplicatePatientHandler handler) throws APIException {
+		return findDuplicates(null, handler);
+	}
+	
+	/**
+	 * Compares the patients that were created or changed since the given date with all other
+	 * patients. Every pair of duplicates is reported once.
+	 * 
+	 * @param changedSince the date of the previous run, or null to compare all patients
+	 * @param handler receives the duplicates
+	 * @return the number of duplicates that were found
+	 * @should find patients with similar names and birthdates
+	 * @should find patients sharing an identifier
+	 * @should report every pair once
+	 * @should only compare patients changed since the given date
+	 */
+	public int findDuplicates(Date changedSince, DuplicatePatientHandler handler) throws APIException {
+		PatientService patientService = Context.getPatientService();
+		long start = System.currentTimeMillis();
+		int found = 0;
+		
+		// the patients that changed are usually few, they are all needed to report every pair once
+		Set<Integer> changedIds = null;
+		List<Integer> pendingIds = null;
+		if (changedSince != null) {
+			pendingIds = getAllPatientIds(patientService, changedSince);
+			changedIds = new HashSet<Integer>(pendingIds);
+		}
+		
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			Integer lastPatientId = null;
+			while (true) {
+				List<Integer> patientIds;
+				if (pendingIds == null) {
+					patientIds = patientService.getPatientIds(null, lastPatientId, pageSize);
+				} else {
+					patientIds = pendingIds.subList(0, Math.min(pageSize, pendingIds.size()));
+				}
+				if (patientIds.isEmpty()) {
+					break;
+				}
+				
+				List<DuplicatePatientMatch> matches = findDuplicates(patientService, patientIds, changedIds, executor);
+				if (!matches.isEmpty()) {
+					found += matches.size();
+					handler.handle(matches);
+				}
+				
+				if (pendingIds == null) {
+					lastPatientId = patientIds.get(patientIds.size() - 1);
+				} else {
+					patientIds.clear();
+				}
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		
+		if (log.isInfoEnabled()) {
+			log.info("Found " + found + " duplicate patients in " + (System.currentTimeMillis() - start) + " ms");
+		}
+		return found;
+	}
+	
+	/**
+	 * Finds the duplicates of one page of patients
+	 * 
+	 * @param patientIds the patients of the page
+	 * @param changedIds the patients compared in this run, null if all of them are
+	 * @return the duplicates, the most similar first
+	 */
+	private List<DuplicatePatientMatch> findDuplicates(PatientService patientService, List<Integer> patientIds,
+	        Set<Integer> changedIds, ExecutorService executor) {
+		List<DuplicatePatientRecord> records = patientService.getDuplicatePatientRecords(patientIds);
+		Set<Integer> candidateIds = patientService.getDuplicatePatientCandidateIds(records);
+		candidateIds.removeAll(patientIds);
+		
+		Map<String, List<DuplicatePatientRecord>> blocks = new HashMap<String, List<DuplicatePatientRecord>>();
+		addToBlocks(blocks, records);
+		if (!candidateIds.isEmpty()) {
+			addToBlocks(blocks, patientService.getDuplicatePatientRecords(candidateIds));
+		}
+		
+		List<DuplicatePatientRecord[]> pairs = new ArrayList<DuplicatePatientRecord[]>();
+		for (DuplicatePatientRecord record : records) {
+			Set<Integer> paired = new HashSet<Integer>();
+			for (String key : record.getBlockingKeys()) {
+				for (DuplicatePatientRecord other : blocks.get(key)) {
+					Integer otherId = other.getPatientId();
+					if (otherId.equals(record.getPatientId()) || !paired.add(otherId)) {
+						continue;
+					}
+					// a pair of patients that are both compared in this run is only scored from the lower id
+					boolean otherCompared = changedIds == null || changedIds.contains(otherId);
+					if (otherCompared && otherId < record.getPatientId()) {
+						continue;
+					}
+					pairs.add(new DuplicatePatientRecord[] { record, other });
+				}
+			}
+		}
+		
+		return score(pairs, executor);
+	}
+	
+	/**
+	 * Scores the pairs on the threads of the executor
+	 * 
+	 * @return the pairs that scored at least the minimum score, the most similar first
+	 */
+	private List<DuplicatePatientMatch> score(List<DuplicatePatientRecord[]> pairs, ExecutorService executor) {
+		List<DuplicatePatientMatch> matches = new ArrayList<DuplicatePatientMatch>();
+		if (pairs.isEmpty()) {
+			return matches;
+		}
+		
+		int slice = (pairs.size() + threads - 1) / threads;
+		List<Callable<List<DuplicatePatientMatch>>> tasks = new ArrayList<Callable<List<DuplicatePatientMatch>>>();
+		for (int from = 0; from < pairs.size(); from += slice) {
+			final List<DuplicatePatientRecord[]> slicePairs = pairs.subList(from, Math.min(from + slice, pairs.size()));
+			tasks.add(new Callable<List<DuplicatePatientMatch>>() {
+				
+				@Override
+				public List<DuplicatePatientMatch> call() {
+					List<DuplicatePatientMatch> sliceMatches = new ArrayList<DuplicatePatientMatch>();
+					for (DuplicatePatientRecord[] pair : slicePairs) {
+						double score = getScore(pair[0], pair[1]);
+						if (score >= minScore) {
+							sliceMatches.add(new DuplicatePatientMatch(pair[0].getPatientId(), pair[1].getPatientId(),
+							        score));
+						}
+					}
+					return sliceMatches;
+				}
+			});
+		}
+		
+		try {
+			for (Future<List<DuplicatePatientMatch>> future : executor.invokeAll(tasks)) {
+				matches.addAll(future.get());
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new APIException("The search for duplicate patients was interrupted", e);
+		}
+		catch (ExecutionException e) {
+			throw new APIException("Unable to compare the patients", e.getCause());
+		}
+		
+		Collections.sort(matches, BY_SCORE);
+		return matches;
+	}
+	
+	/**
+	 * Scores how similar two patients are, it must not touch the database as it runs on one of the
+	 * scoring threads
+	 * 
+	 * @param record one patient
+	 * @param other the other patient
+	 * @return the score between 0 and 1
+	 * @should score the same patient 1
+	 * @should score patients with sound alike names lower than patients with the same names
+	 */
+	public static double getScore(DuplicatePatientRecord record, DuplicatePatientRecord other) {
+		double score = 0;
+		
+		double nameScore = 0;
+		for (DuplicatePatientRecord.Name name : record.getNames()) {
+			for (DuplicatePatientRecord.Name otherName : other.getNames()) {
+				double givenNameScore = getNameScore(name.getGivenName(), name.getGivenNameSoundex(), name
+				        .getGivenNameMetaphone(), otherName.getGivenName(), otherName.getGivenNameSoundex(), otherName
+				        .getGivenNameMetaphone(), 0.25, 0.2);
+				double familyNameScore = getNameScore(name.getFamilyName(), name.getFamilyNameSoundex(), name
+				        .getFamilyNameMetaphone(), otherName.getFamilyName(), otherName.getFamilyNameSoundex(), otherName
+				        .getFamilyNameMetaphone(), 0.3, 0.25);
+				nameScore = Math.max(nameScore, givenNameScore + familyNameScore);
+			}
+		}
+		score += nameScore;
+		
+		if (record.getBirthdate() != null && other.getBirthdate() != null) {
+			if (record.getBirthdate().getTime() == other.getBirthdate().getTime()) {
+				score += 0.25;
+			} else if (record.getBirthYear().equals(other.getBirthYear())) {
+				score += 0.15;
+			}
+		}
+		
+		if (StringUtils.isNotEmpty(record.getGender()) && record.getGender().equalsIgnoreCase(other.getGender())) {
+			score += 0.1;
+		}
+		
+		if (!Collections.disjoint(record.getIdentifierFragments(), other.getIdentifierFragments())) {
+			score += 0.3;
+		}
+		
+		return Math.min(score, 1);
+	}
+	
+	private static double getNameScore(String name, String soundex, String metaphone, String otherName,
+	        String otherSoundex, String otherMetaphone, double sameScore, double soundAlikeScore) {
+		if (name.length() > 0 && name.equalsIgnoreCase(otherName)) {
+			return sameScore;
+		}
+		if ((soundex.length() > 0 && soundex.equals(otherSoundex))
+		        || (metaphone.length() > 0 && metaphone.equals(otherMetaphone))) {
+			return soundAlikeScore;
+		}
+		return 0;
+	}
+	
+	private void addToBlocks(Map<String, List<DuplicatePatientRecord>> blocks, Collection<DuplicatePatientRecord> records) {
+		for (DuplicatePatientRecord record : records) {
+			for (String key : record.getBlockingKeys()) {
+				List<DuplicatePatientRecord> block = blocks.get(key);
+				if (block == null) {
+					block = new ArrayList<DuplicatePatientRecord>();
+					blocks.put(key, block);
+				}
+				block.add(record);
+			}
+		}
+	}
+	
+	private List<Integer> getAllPatientIds(PatientService patientService, Date changedSince) {
+		List<Integer> patientIds = new ArrayList<Integer>();
+		Integer lastPatientId = null;
+		List<Integer> page;
+		do {
+			page = patientService.getPatientIds(changedSince, lastPatientId, pageSize);
+			patientIds.addAll(page);
+			if (!page.isEmpty()) {
+				lastPatientId = page.get(page.size() - 1);
+			}
+		} while (page.size() == pageSize);
+		return patientIds;
+	}
+}
@@ -0,0 +1,32 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.patient;
+
+import java.util.List;
+
+/**
+ * Receives the duplicates found by the {@link DuplicatePatientDetector} one page at a time, so that
+ * they never have to be held in memory all at once
+ * 
+ * @since 1.12
+ */
+public interface DuplicatePatientHandler {
+	
+	/**
+	 * Called for every page of patients that has duplicates
+	 * 
+	 * @param matches the duplicates of the patients of the page, the most similar first
+	 */
+	public void handle(List<DuplicatePatientMatch> matches);
+}
@@ -0,0 +1,59 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.patient;
+
+/**
+ * Two patients that the {@link DuplicatePatientDetector} found to be likely the same person
+ * 
+ * @since 1.12
+ */
+public class DuplicatePatientMatch {
+	
+	private final Integer patientId;
+	
+	private final Integer otherPatientId;
+	
+	private final double score;
+	
+	/**
+	 * @param patientId the id of one patient
+	 * @param otherPatientId the id of the other patient
+	 * @param score how similar the patients are, between 0 and 1
+	 */
+	public DuplicatePatientMatch(Integer patientId, Integer otherPatientId, double score) {
+		this.patientId = patientId;
+		this.otherPatientId = otherPatientId;
+		this.score = score;
+	}
+	
+	public Integer getPatientId() {
+		return patientId;
+	}
+	
+	public Integer getOtherPatientId() {
+		return otherPatientId;
+	}
+	
+	public double getScore() {
+		return score;
+	}
+	
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "DuplicatePatientMatch[" + patientId + ", " + otherPatientId + ", " + score + "]";
+	}
+}
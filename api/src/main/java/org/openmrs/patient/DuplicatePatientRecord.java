@@ -0,0 +1,212 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.patient;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.openmrs.util.PhoneticUtil;
+
+/**
+ * The parts of a patient that are compared by the {@link DuplicatePatientDetector}: gender,
+ * birthdate, the given and family names and the identifiers. A record is plain data that is not
+ * attached to a hibernate session, so records can be compared on any thread.
+ * 
+ * @since 1.12
+ */
+public class DuplicatePatientRecord {
+	
+	/**
+	 * Identifiers are only used as blocking keys when the part before the check digit has at least
+	 * this many characters
+	 */
+	private static final int MIN_IDENTIFIER_FRAGMENT_LENGTH = 3;
+	
+	private final Integer patientId;
+	
+	private final String gender;
+	
+	private final Date birthdate;
+	
+	private final List<Name> names = new ArrayList<Name>();
+	
+	private final Set<String> identifierFragments = new LinkedHashSet<String>();
+	
+	/**
+	 * @param patientId the id of the patient
+	 * @param gender the gender of the patient
+	 * @param birthdate the birthdate of the patient, may be null
+	 */
+	public DuplicatePatientRecord(Integer patientId, String gender, Date birthdate) {
+		this.patientId = patientId;
+		this.gender = gender;
+		this.birthdate = birthdate;
+	}
+	
+	/**
+	 * Adds a name of the patient, names without given and family name are ignored
+	 * 
+	 * @param givenName the given name
+	 * @param familyName the family name
+	 */
+	public void addName(String givenName, String familyName) {
+		if (StringUtils.isNotBlank(givenName) || StringUtils.isNotBlank(familyName)) {
+			names.add(new Name(givenName, familyName));
+		}
+	}
+	
+	/**
+	 * Adds an identifier of the patient, see {@link #getIdentifierFragment(String)}
+	 * 
+	 * @param identifier the identifier
+	 */
+	public void addIdentifier(String identifier) {
+		String fragment = getIdentifierFragment(identifier);
+		if (fragment.length() >= MIN_IDENTIFIER_FRAGMENT_LENGTH) {
+			identifierFragments.add(fragment);
+		}
+	}
+	
+	/**
+	 * Gets the keys that group this patient with the patients it has to be compared with. Patients
+	 * are only compared if they have at least one key in common:
+	 * <ul>
+	 * <li>the soundex keys of the given and family name of a name</li>
+	 * <li>the double metaphone key of the family name of a name, the birth year and the gender</li>
+	 * <li>an identifier without its check digit</li>
+	 * </ul>
+	 * 
+	 * @return the blocking keys of the patient
+	 * @should return the name, birth year and identifier keys
+	 * @should skip the birth year key if the birthdate is not known
+	 */
+	public Set<String> getBlockingKeys() {
+		Set<String> keys = new LinkedHashSet<String>();
+		Integer birthYear = getBirthYear();
+		for (Name name : names) {
+			if (name.givenNameSoundex.length() > 0 && name.familyNameSoundex.length() > 0) {
+				keys.add("name:" + name.givenNameSoundex + ":" + name.familyNameSoundex);
+			}
+			if (name.familyNameMetaphone.length() > 0 && birthYear != null) {
+				keys.add("birth:" + name.familyNameMetaphone + ":" + birthYear + ":" + StringUtils.defaultString(gender));
+			}
+		}
+		for (String fragment : identifierFragments) {
+			keys.add("identifier:" + fragment);
+		}
+		return keys;
+	}
+	
+	/**
+	 * @param identifier a patient identifier
+	 * @return the identifier without the check digit that follows the last hyphen
+	 * @should remove the check digit
+	 */
+	public static String getIdentifierFragment(String identifier) {
+		if (identifier == null) {
+			return "";
+		}
+		String fragment = identifier.trim();
+		int hyphen = fragment.lastIndexOf('-');
+		return hyphen > 0 ? fragment.substring(0, hyphen) : fragment;
+	}
+	
+	/**
+	 * @return the year of the birthdate or null if it is not known
+	 */
+	public Integer getBirthYear() {
+		if (birthdate == null) {
+			return null;
+		}
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTime(birthdate);
+		return calendar.get(Calendar.YEAR);
+	}
+	
+	public Integer getPatientId() {
+		return patientId;
+	}
+	
+	public String getGender() {
+		return gender;
+	}
+	
+	public Date getBirthdate() {
+		return birthdate;
+	}
+	
+	public List<Name> getNames() {
+		return names;
+	}
+	
+	public Set<String> getIdentifierFragments() {
+		return identifierFragments;
+	}
+	
+	/**
+	 * A given and family name with their phonetic keys
+	 */
+	public static class Name {
+		
+		private final String givenName;
+		
+		private final String familyName;
+		
+		private final String givenNameSoundex;
+		
+		private final String givenNameMetaphone;
+		
+		private final String familyNameSoundex;
+		
+		private final String familyNameMetaphone;
+		
+		private Name(String givenName, String familyName) {
+			this.givenName = StringUtils.trimToEmpty(givenName);
+			this.familyName = StringUtils.trimToEmpty(familyName);
+			givenNameSoundex = PhoneticUtil.getSoundex(givenName);
+			givenNameMetaphone = PhoneticUtil.getDoubleMetaphone(givenName);
+			familyNameSoundex = PhoneticUtil.getSoundex(familyName);
+			familyNameMetaphone = PhoneticUtil.getDoubleMetaphone(familyName);
+		}
+		
+		public String getGivenName() {
+			return givenName;
+		}
+		
+		public String getFamilyName() {
+			return familyName;
+		}
+		
+		public String getGivenNameSoundex() {
+			return givenNameSoundex;
+		}
+		
+		public String getGivenNameMetaphone() {
+			return givenNameMetaphone;
+		}
+		
+		public String getFamilyNameSoundex() {
+			return familyNameSoundex;
+		}
+		
+		public String getFamilyNameMetaphone() {
+			return familyNameMetaphone;
+		}
+	}
+}
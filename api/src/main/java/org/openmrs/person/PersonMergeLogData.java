@@ -14,6 +14,7 @@
 package org.openmrs.person;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -93,6 +94,26 @@ public class PersonMergeLogData {
 	 */
 	private List<String> movedUsers;
 	
+	/**
+	 * Ids of visits moved from non-preferred to preferred by a bulk merge, as ranges like 1-5,9
+	 */
+	private String movedVisitIds;
+	
+	/**
+	 * Ids of encounters moved from non-preferred to preferred by a bulk merge, as ranges
+	 */
+	private String movedEncounterIds;
+	
+	/**
+	 * Ids of observations moved from non-preferred to preferred by a bulk merge, as ranges
+	 */
+	private String movedObservationIds;
+	
+	/**
+	 * Ids of orders moved from non-preferred to preferred by a bulk merge, as ranges
+	 */
+	private String movedOrderIds;
+	
 	/**
 	 * Value of gender of preferred person as it was before the merge occurred
 	 */
@@ -147,6 +168,70 @@ public class PersonMergeLogData {
 		movedEncounters.add(uuid);
 	}
 	
+	/**
+	 * @return the ids of the visits moved by a bulk merge, empty for other merges
+	 * @since 1.12
+	 */
+	public List<Integer> getMovedVisitIds() {
+		return fromIdRanges(movedVisitIds);
+	}
+	
+	/**
+	 * @param ids the ids of the visits moved by a bulk merge
+	 * @since 1.12
+	 */
+	public void setMovedVisitIds(Collection<Integer> ids) {
+		movedVisitIds = toIdRanges(ids);
+	}
+	
+	/**
+	 * @return the ids of the encounters moved by a bulk merge, empty for other merges
+	 * @since 1.12
+	 */
+	public List<Integer> getMovedEncounterIds() {
+		return fromIdRanges(movedEncounterIds);
+	}
+	
+	/**
+	 * @param ids the ids of the encounters moved by a bulk merge
+	 * @since 1.12
+	 */
+	public void setMovedEncounterIds(Collection<Integer> ids) {
+		movedEncounterIds = toIdRanges(ids);
+	}
+	
+	/**
+	 * @return the ids of the observations moved by a bulk merge, empty for other merges
+	 * @since 1.12
+	 */
+	public List<Integer> getMovedObservationIds() {
+		return fromIdRanges(movedObservationIds);
+	}
+	
+	/**
+	 * @param ids the ids of the observations moved by a bulk merge
+	 * @since 1.12
+	 */
+	public void setMovedObservationIds(Collection<Integer> ids) {
+		movedObservationIds = toIdRanges(ids);
+	}
+	
+	/**
+	 * @return the ids of the orders moved by a bulk merge, empty for other merges
+	 * @since 1.12
+	 */
+	public List<Integer> getMovedOrderIds() {
+		return fromIdRanges(movedOrderIds);
+	}
+	
+	/**
+	 * @param ids the ids of the orders moved by a bulk merge
+	 * @since 1.12
+	 */
+	public void setMovedOrderIds(Collection<Integer> ids) {
+		movedOrderIds = toIdRanges(ids);
+	}
+	
 	public List<String> getCreatedPrograms() {
 		return createdPrograms;
 	}
@@ -349,6 +434,18 @@ public class PersonMergeLogData {
 		if (getMovedUsers() != null) {
 			str += getMovedUsers().toString();
 		}
+		if (movedVisitIds != null) {
+			str += movedVisitIds;
+		}
+		if (movedEncounterIds != null) {
+			str += movedEncounterIds;
+		}
+		if (movedObservationIds != null) {
+			str += movedObservationIds;
+		}
+		if (movedOrderIds != null) {
+			str += movedOrderIds;
+		}
 		str += getPriorCauseOfDeath();
 		str += getPriorGender();
 		str += (getPriorDateOfBirth() != null) ? getPriorDateOfBirth().toString() : getPriorDateOfBirth();
@@ -357,4 +454,70 @@ public class PersonMergeLogData {
 		return str.hashCode();
 	}
 	
+	/**
+	 * Writes ids in a compact form, consecutive ids are written as a range, so that a merge moving
+	 * tens of thousands of rows still has a small log
+	 * 
+	 * @param ids the ids in ascending order
+	 * @return the ids like 1-5,9,12-13, or null if there are none
+	 * @should write consecutive ids as ranges
+	 */
+	static String toIdRanges(Collection<Integer> ids) {
+		if (ids == null || ids.isEmpty()) {
+			return null;
+		}
+		StringBuilder ranges = new StringBuilder();
+		Integer start = null;
+		Integer end = null;
+		for (Integer id : ids) {
+			if (end != null && id == end + 1) {
+				end = id;
+				continue;
+			}
+			appendIdRange(ranges, start, end);
+			start = id;
+			end = id;
+		}
+		appendIdRange(ranges, start, end);
+		return ranges.toString();
+	}
+	
+	private static void appendIdRange(StringBuilder ranges, Integer start, Integer end) {
+		if (start == null) {
+			return;
+		}
+		if (ranges.length() > 0) {
+			ranges.append(',');
+		}
+		ranges.append(start);
+		if (!start.equals(end)) {
+			ranges.append('-').append(end);
+		}
+	}
+	
+	/**
+	 * Reads ids written by {@link #toIdRanges(Collection)}
+	 * 
+	 * @param ranges the ids like 1-5,9,12-13
+	 * @return the ids, empty if ranges is null
+	 * @should read the ids written as ranges
+	 */
+	static List<Integer> fromIdRanges(String ranges) {
+		List<Integer> ids = new ArrayList<Integer>();
+		if (ranges == null || ranges.length() == 0) {
+			return ids;
+		}
+		for (String range : ranges.split(",")) {
+			int hyphen = range.indexOf('-');
+			if (hyphen < 0) {
+				ids.add(Integer.valueOf(range));
+			} else {
+				int end = Integer.parseInt(range.substring(hyphen + 1));
+				for (int id = Integer.parseInt(range.substring(0, hyphen)); id <= end; id++) {
+					ids.add(id);
+				}
+			}
+		}
+		return ids;
+	}
 }
@@ -0,0 +1,95 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.scheduler.tasks;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.dictionary.ConceptDictionaryImportResult;
+import org.openmrs.dictionary.ConceptDictionaryImporter;
+import org.openmrs.scheduler.TaskDefinition;
+
+/**
+ * A task that imports a concept dictionary file with the {@link ConceptDictionaryImporter}, e.g.
+ * scheduled to run once when a new reference dictionary is loaded. The task properties are "file",
+ * the path of the file, and optionally "chunkSize" and "threads". The result is logged.
+ * 
+ * @since 1.12
+ */
+public class ImportConceptDictionaryTask extends AbstractTask {
+	
+	private static final Log log = LogFactory.getLog(ImportConceptDictionaryTask.class);
+	
+	private String file;
+	
+	private String chunkSize;
+	
+	private String threads;
+	
+	/**
+	 * @see org.openmrs.scheduler.tasks.AbstractTask#initialize(TaskDefinition)
+	 */
+	@Override
+	public void initialize(TaskDefinition definition) {
+		super.initialize(definition);
+		file = definition.getProperty("file");
+		chunkSize = definition.getProperty("chunkSize");
+		threads = definition.getProperty("threads");
+	}
+	
+	/**
+	 * @see org.openmrs.scheduler.tasks.AbstractTask#execute()
+	 */
+	@Override
+	public void execute() {
+		if (isExecuting) {
+			return;
+		}
+		if (StringUtils.isBlank(file)) {
+			log.error("The 'file' property of the concept dictionary import task is not set");
+			return;
+		}
+		
+		startExecuting();
+		try {
+			ConceptDictionaryImporter importer = new ConceptDictionaryImporter();
+			if (StringUtils.isNotBlank(chunkSize)) {
+				importer.setChunkSize(Integer.parseInt(chunkSize.trim()));
+			}
+			if (StringUtils.isNotBlank(threads)) {
+				importer.setThreads(Integer.parseInt(threads.trim()));
+			}
+			
+			InputStream in = new FileInputStream(file);
+			try {
+				ConceptDictionaryImportResult result = importer.importDictionary(in);
+				for (String error : result.getErrors()) {
+					log.warn(error);
+				}
+			}
+			finally {
+				in.close();
+			}
+		}
+		catch (Exception e) {
+			log.error("Error while importing the concept dictionary " + file, e);
+		}
+		finally {
+			stopExecuting();
+		}
+	}
+}
@@ -0,0 +1,79 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.scheduler.tasks;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.api.context.Context;
+import org.openmrs.scheduler.TaskDefinition;
+
+/**
+ * A task that computes the phonetic keys of all person names that do not have them yet, e.g. after
+ * an upgrade. The names are updated in batches of "batchSize" names, 1000 by default, and every
+ * batch is committed on its own. Once all names have keys a run only costs a single query.
+ * 
+ * @see org.openmrs.api.PersonService#updatePersonNamePhoneticKeys(int)
+ * @since 1.12
+ */
+public class UpdatePersonNamePhoneticKeysTask extends AbstractTask {
+	
+	private static final Log log = LogFactory.getLog(UpdatePersonNamePhoneticKeysTask.class);
+	
+	private static final int DEFAULT_BATCH_SIZE = 1000;
+	
+	private int batchSize = DEFAULT_BATCH_SIZE;
+	
+	/**
+	 * @see org.openmrs.scheduler.tasks.AbstractTask#initialize(TaskDefinition)
+	 */
+	@Override
+	public void initialize(TaskDefinition definition) {
+		super.initialize(definition);
+		String value = definition.getProperty("batchSize");
+		if (StringUtils.isNotBlank(value)) {
+			batchSize = Integer.parseInt(value.trim());
+		}
+	}
+	
+	/**
+	 * @see org.openmrs.scheduler.tasks.AbstractTask#execute()
+	 */
+	@Override
+	public void execute() {
+		if (isExecuting) {
+			return;
+		}
+		
+		startExecuting();
+		try {
+			int total = 0;
+			int updated;
+			do {
+				updated = Context.getPersonService().updatePersonNamePhoneticKeys(batchSize);
+				total += updated;
+			} while (updated == batchSize && taskDefinition != null);
+			
+			if (total > 0) {
+				log.info("Updated the phonetic keys of " + total + " person names");
+			}
+		}
+		catch (Exception e) {
+			log.error("Error while updating the phonetic keys of the person names", e);
+		}
+		finally {
+			stopExecuting();
+		}
+	}
+}
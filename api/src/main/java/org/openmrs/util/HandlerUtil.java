@@ -19,6 +19,7 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -42,6 +43,22 @@ public class HandlerUtil implements ApplicationListener<ContextRefreshedEvent> {
 	
 	private static volatile Map<Key, List<?>> cachedHandlers = new WeakHashMap<HandlerUtil.Key, List<?>>();
 	
+	private static final List<CachedHandlersListener> cachedHandlersListeners = new CopyOnWriteArrayList<CachedHandlersListener>();
+	
+	/**
+	 * Is notified when the cached handlers are cleared, so that what was derived from them can be
+	 * dropped as well
+	 * 
+	 * @since 1.12
+	 */
+	public interface CachedHandlersListener {
+		
+		/**
+		 * Called after the cached handlers were cleared
+		 */
+		public void cachedHandlersCleared();
+	}
+	
 	private static class Key {
 		
 		public final Class<?> handlerType;
@@ -88,6 +105,17 @@ public class HandlerUtil implements ApplicationListener<ContextRefreshedEvent> {
 	
 	public static void clearCachedHandlers() {
 		cachedHandlers = new WeakHashMap<HandlerUtil.Key, List<?>>();
+		for (CachedHandlersListener listener : cachedHandlersListeners) {
+			listener.cachedHandlersCleared();
+		}
+	}
+	
+	/**
+	 * @param listener the listener to notify whenever the cached handlers are cleared
+	 * @since 1.12
+	 */
+	public static void addCachedHandlersListener(CachedHandlersListener listener) {
+		cachedHandlersListeners.add(listener);
 	}
 	
 	/**
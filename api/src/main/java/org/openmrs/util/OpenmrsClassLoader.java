@@ -406,6 +406,8 @@ public class OpenmrsClassLoader extends URLClassLoader {
 		
 		OpenmrsClassScanner.destroyInstance();
 		
+		PersonAttributeHydrator.clear();
+		
 		OpenmrsClassLoaderHolder.INSTANCE = null;
 	}
 	
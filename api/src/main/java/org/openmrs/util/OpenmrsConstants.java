@@ -1100,7 +1100,104 @@ public final class OpenmrsConstants {
 	 * 
 	 * @since 1.11
 	 */
-	public static final Integer SEARCH_INDEX_VERSION = 3;
+	public static final Integer SEARCH_INDEX_VERSION = 5;
+	
+	/**
+	 * The number of threads per indexed type that load entities and build their documents when the
+	 * whole search index is rebuilt
+	 * 
+	 * @since 1.12
+	 */
+	public static final String GP_SEARCH_INDEX_REBUILD_THREADS = "search.indexRebuildThreads";
+	
+	/**
+	 * The number of entities that one thread loads and indexes at a time when the whole search index
+	 * is rebuilt
+	 * 
+	 * @since 1.12
+	 */
+	public static final String GP_SEARCH_INDEX_REBUILD_BATCH_SIZE = "search.indexRebuildBatchSize";
+	
+	/**
+	 * The type and id of the last entity that is known to be indexed by a rebuild of the search
+	 * index that did not finish, blank if there is none. A rebuild that is started at startup
+	 * continues from there.
+	 * 
+	 * @since 1.12
+	 */
+	public static final String GP_SEARCH_INDEX_REBUILD_CHECKPOINT = "search.indexRebuildCheckpoint";
+	
+	/**
+	 * The maximum number of search index updates of saved concepts that the background indexer
+	 * applies at a time
+	 * 
+	 * @since 1.12
+	 */
+	public static final String GP_SEARCH_INDEX_UPDATE_BATCH_SIZE = "search.indexUpdateBatchSize";
+	
+	/**
+	 * The number of milliseconds the background indexer waits for more search index updates to fill
+	 * a batch
+	 * 
+	 * @since 1.12
+	 */
+	public static final String GP_SEARCH_INDEX_UPDATE_MAX_LAG = "search.indexUpdateMaxLag";
+	
+	/**
+	 * The number of seconds between polls for changes made by other nodes sharing the database, 0
+	 * (the default) disables polling
+	 * 
+	 * @since 1.12
+	 */
+	public static final String GP_CHANGE_NOTIFICATION_POLL_INTERVAL = "changeNotification.pollInterval";
+	
+	/**
+	 * Requests and sessions that run more SQL statements than this are logged by the
+	 * {@link QueryProfiler}, 0 disables the profiler
+	 * 
+	 * @since 1.12
+	 */
+	public static final String GP_QUERY_PROFILER_STATEMENT_THRESHOLD = "queryProfiler.statementThreshold";
+	
+	/**
+	 * Requests and sessions that run the same SQL statement or fetch the same lazy collection this
+	 * many times are logged by the {@link QueryProfiler} as a likely N+1 select
+	 * 
+	 * @since 1.12
+	 */
+	public static final String GP_QUERY_PROFILER_REPEAT_THRESHOLD = "queryProfiler.repeatThreshold";
+	
+	/**
+	 * Whether the in-memory concept dictionary snapshot is built at startup instead of on its first
+	 * use
+	 * 
+	 * @since 1.12
+	 * @see org.openmrs.api.ConceptService#getConceptDictionarySnapshot()
+	 */
+	public static final String GP_CONCEPT_DICTIONARY_SNAPSHOT_LOAD_AT_STARTUP = "concept.dictionarySnapshot.loadAtStartup";
+	
+	/**
+	 * The number of concepts that are read from the database at a time when iterating over the
+	 * dictionary
+	 * 
+	 * @since 1.12
+	 * @see org.openmrs.api.ConceptService#conceptIterator()
+	 */
+	public static final String GP_CONCEPT_ITERATOR_BATCH_SIZE = "concept.iteratorBatchSize";
+	
+	/**
+	 * The number of concept searches whose results are cached, 0 disables the cache
+	 * 
+	 * @since 1.12
+	 */
+	public static final String GP_CONCEPT_SEARCH_CACHE_SIZE = "concept.searchCacheSize";
+	
+	/**
+	 * The number of seconds the results of a concept search are cached
+	 * 
+	 * @since 1.12
+	 */
+	public static final String GP_CONCEPT_SEARCH_CACHE_TIME_TO_LIVE = "concept.searchCacheTimeToLive";
 	
 	/**
 	 * At OpenMRS startup these global properties/default values/descriptions are inserted into the
@@ -1557,6 +1654,52 @@ public final class OpenmrsConstants {
 		props.add(new GlobalProperty(GP_SEARCH_INDEX_VERSION, "",
 		        "Indicates the index version. If it is blank, the index needs to be rebuilt."));
 		
+		props.add(new GlobalProperty(GP_SEARCH_INDEX_REBUILD_THREADS, "4",
+		        "The number of threads per indexed type that load and index entities when the search index is rebuilt"));
+		
+		props.add(new GlobalProperty(GP_SEARCH_INDEX_REBUILD_BATCH_SIZE, "500",
+		        "The number of entities that each thread loads and indexes at a time when the search index is rebuilt"));
+		
+		props.add(new GlobalProperty(GP_SEARCH_INDEX_REBUILD_CHECKPOINT, "",
+		        "Where an unfinished rebuild of the search index left off, it is continued from there at startup. "
+		                + "Blank if the last rebuild finished."));
+		
+		props.add(new GlobalProperty(GP_SEARCH_INDEX_UPDATE_BATCH_SIZE, "100",
+		        "The maximum number of search index updates that are applied at a time after concepts are saved. "
+		                + "Requires a restart."));
+		
+		props.add(new GlobalProperty(GP_SEARCH_INDEX_UPDATE_MAX_LAG, "1000",
+		        "The number of milliseconds a search index update may wait for more updates to be applied with, "
+		                + "after the concept was saved. Requires a restart."));
+		
+		props.add(new GlobalProperty(GP_CHANGE_NOTIFICATION_POLL_INTERVAL, "0",
+		        "The number of seconds between checks for global properties and other metadata changed by other "
+		                + "OpenMRS instances that share this database, e.g. 5. 0 disables the checks, which is only "
+		                + "safe if no other instance uses this database. Requires a restart of all instances."));
+		
+		props.add(new GlobalProperty(GP_QUERY_PROFILER_STATEMENT_THRESHOLD, "0",
+		        "Web requests and sessions that run more SQL statements than this are logged together with the queries "
+		                + "they repeated most, 0 disables the query profiler"));
+		
+		props.add(new GlobalProperty(GP_QUERY_PROFILER_REPEAT_THRESHOLD, "10",
+		        "Web requests and sessions that run the same SQL statement or fetch the same collection this many times "
+		                + "are logged as a likely N+1 select, when the query profiler is enabled"));
+		
+		props.add(new GlobalProperty(GP_CONCEPT_DICTIONARY_SNAPSHOT_LOAD_AT_STARTUP, "false",
+		        "true/false whether the read-only in-memory copy of the concept dictionary is built at startup "
+		                + "instead of the first time it is used", BooleanDatatype.class, null));
+		
+		props.add(new GlobalProperty(GP_CONCEPT_ITERATOR_BATCH_SIZE, "100",
+		        "The number of concepts that are read from the database at a time, together with their names, "
+		                + "descriptions, answers and set members, when iterating over the whole concept dictionary"));
+		
+		props.add(new GlobalProperty(GP_CONCEPT_SEARCH_CACHE_SIZE, "500",
+		        "The number of the most recent concept searches whose results are kept in memory, so that typing the "
+		                + "same phrase again does not search the index again. 0 disables the cache."));
+		
+		props.add(new GlobalProperty(GP_CONCEPT_SEARCH_CACHE_TIME_TO_LIVE, "300",
+		        "The number of seconds the results of a concept search are kept in memory"));
+		
 		props.add(new GlobalProperty(GLOBAL_PROPERTY_ALLOW_OVERLAPPING_VISITS, "true",
 		        "true/false whether or not to allow visits of a given patient to overlap", BooleanDatatype.class, null));
 		
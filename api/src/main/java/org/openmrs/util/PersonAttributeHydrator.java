@@ -0,0 +1,107 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.util;
+
+import java.lang.reflect.Constructor;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.Attributable;
+import org.openmrs.PersonAttribute;
+
+/**
+ * Hydrates the values of person attributes, see {@link PersonAttribute#getHydratedObject()}. The
+ * class named by the format of an attribute type is loaded only once, together with the way its
+ * values are hydrated. The values themselves are hydrated on every call, so that formats like
+ * Concept, Location and User always go through their services. The loaded classes are forgotten
+ * when the {@link OpenmrsClassLoader} is destroyed.
+ *
+ * @since 1.12
+ */
+public class PersonAttributeHydrator {
+	
+	private static final Log log = LogFactory.getLog(PersonAttributeHydrator.class);
+	
+	private static final ConcurrentMap<String, Hydration> hydrations = new ConcurrentHashMap<String, Hydration>();
+	
+	/**
+	 * Creates an object of the class named by the format. If that class is {@link Attributable},
+	 * hydrate(value) is called, if it cannot be instantiated without arguments its String
+	 * constructor is called, otherwise the value itself is returned.
+	 *
+	 * @param format the format of a person attribute type, i.e. a class name
+	 * @param value the value of a person attribute
+	 * @return the hydrated object or the value
+	 * @throws Exception if the class cannot be loaded or instantiated
+	 * @should hydrate attributable values through their class
+	 * @should call the String constructor of a class without a no-arg constructor
+	 * @should return the value if the class is not attributable
+	 * @should load the class of a format only once
+	 */
+	public static Object hydrate(String format, String value) throws Exception {
+		Hydration hydration = hydrations.get(format);
+		if (hydration == null) {
+			hydration = new Hydration(OpenmrsClassLoader.getInstance().loadClass(format));
+			hydrations.putIfAbsent(format, hydration);
+		}
+		
+		if (hydration.stringConstructor != null) {
+			return hydration.stringConstructor.newInstance(value);
+		}
+		if (!hydration.attributable) {
+			log.debug("Returning value: '" + value + "'");
+			return value;
+		}
+		return ((Attributable<?>) hydration.type.newInstance()).hydrate(value);
+	}
+	
+	/**
+	 * Forgets all loaded classes
+	 */
+	public static void clear() {
+		hydrations.clear();
+	}
+	
+	/**
+	 * @return the number of formats whose class is loaded
+	 */
+	static int getLoadedFormatCount() {
+		return hydrations.size();
+	}
+	
+	/**
+	 * The loaded class of one format and how its values are hydrated
+	 */
+	private static class Hydration {
+		
+		private final Class<?> type;
+		
+		private boolean attributable;
+		
+		private Constructor<?> stringConstructor;
+		
+		private Hydration(Class<?> type) throws Exception {
+			this.type = type;
+			try {
+				attributable = type.newInstance() instanceof Attributable;
+			}
+			catch (InstantiationException e) {
+				log.trace("Unable to call no-arg constructor for class: " + type.getName());
+				stringConstructor = type.getConstructor(String.class);
+			}
+		}
+	}
+}
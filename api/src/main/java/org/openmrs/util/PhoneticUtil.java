@@ -0,0 +1,75 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.util;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+import org.apache.commons.codec.language.DoubleMetaphone;
+import org.apache.commons.codec.language.Soundex;
+
+/**
+ * Computes the phonetic keys that are stored with every {@link org.openmrs.PersonName}, so that
+ * similar names can be found with plain equality lookups instead of calling soundex() in the
+ * database. Accents are removed and everything but the letters A to Z is ignored before a name
+ * is encoded.
+ *
+ * @since 1.12
+ */
+public class PhoneticUtil {
+	
+	private static final Soundex SOUNDEX = new Soundex();
+	
+	private static final DoubleMetaphone DOUBLE_METAPHONE = new DoubleMetaphone();
+	
+	/**
+	 * @param name a name or a part of it
+	 * @return the soundex key of the name, or an empty string if the name has no letters
+	 * @should encode the name
+	 * @should ignore accents and other characters
+	 * @should return empty string if the name has no letters
+	 */
+	public static String getSoundex(String name) {
+		String letters = getLetters(name);
+		return letters.length() == 0 ? "" : SOUNDEX.encode(letters);
+	}
+	
+	/**
+	 * @param name a name or a part of it
+	 * @return the primary double metaphone key of the name, or an empty string if the name has no
+	 *         letters
+	 * @should encode the name
+	 * @should return empty string if the name has no letters
+	 */
+	public static String getDoubleMetaphone(String name) {
+		String letters = getLetters(name);
+		if (letters.length() == 0) {
+			return "";
+		}
+		String key = DOUBLE_METAPHONE.doubleMetaphone(letters);
+		return key == null ? "" : key;
+	}
+	
+	/**
+	 * @param name a name
+	 * @return the upper case letters A to Z of the name without their accents
+	 */
+	private static String getLetters(String name) {
+		if (name == null) {
+			return "";
+		}
+		String stripped = Normalizer.normalize(name, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+		return stripped.toUpperCase(Locale.ENGLISH).replaceAll("[^A-Z]", "");
+	}
+}
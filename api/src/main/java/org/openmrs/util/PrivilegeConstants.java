@@ -881,4 +881,7 @@ public class PrivilegeConstants {
 	
 	@AddOnStartup(description = "Able to get Care Settings")
 	public static final String GET_CARE_SETTINGS = "Get Care Settings";
+	
+	@AddOnStartup(description = "Able to record and process the changes of the nodes sharing a database")
+	public static final String MANAGE_CHANGE_NOTIFICATIONS = "Manage Change Notifications";
 }
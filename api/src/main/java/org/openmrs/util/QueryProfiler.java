@@ -0,0 +1,381 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.GlobalProperty;
+import org.openmrs.api.GlobalPropertyListener;
+import org.openmrs.api.context.Context;
+
+/**
+ * Counts the SQL statements, entity loads and collection fetches of one unit of work, i.e. an HTTP
+ * request passing through the OpenmrsFilter or the code between {@link Context#openSession()} and
+ * {@link Context#closeSession()}. The same statement or lazy collection being loaded over and over
+ * is flagged as an N+1 pattern, together with the code that triggered it. The numbers are logged
+ * when the unit of work crosses one of the thresholds set by
+ * {@link OpenmrsConstants#GP_QUERY_PROFILER_STATEMENT_THRESHOLD} and
+ * {@link OpenmrsConstants#GP_QUERY_PROFILER_REPEAT_THRESHOLD}.<br/>
+ * <br/>
+ * The counts are fed by the QueryProfilingInterceptor and QueryProfilingCollectionListener in the
+ * hibernate layer.
+ *
+ * @since 1.12
+ */
+public class QueryProfiler implements GlobalPropertyListener {
+	
+	private static final Log log = LogFactory.getLog(QueryProfiler.class);
+	
+	private static final int DEFAULT_REPEAT_THRESHOLD = 10;
+	
+	/**
+	 * The number of repeated statements and collections listed when a unit of work is logged
+	 */
+	private static final int TOP_OFFENDERS = 5;
+	
+	/**
+	 * Distinct statements and collections that are tracked per unit of work, so that a very long
+	 * one cannot use up the memory
+	 */
+	private static final int MAX_TRACKED = 1000;
+	
+	/**
+	 * The number of openmrs stack frames that make up a call site
+	 */
+	private static final int CALL_SITE_FRAMES = 3;
+	
+	private static final ThreadLocal<Profile> currentProfile = new ThreadLocal<Profile>();
+	
+	private static volatile boolean configured = false;
+	
+	private static volatile int statementThreshold = 0;
+	
+	private static volatile int repeatThreshold = DEFAULT_REPEAT_THRESHOLD;
+	
+	/**
+	 * Starts profiling a unit of work on the current thread, does nothing if the profiler is
+	 * disabled. If the thread is already being profiled the unit of work is counted as part of the
+	 * outer one, so every call must be matched by a call to {@link #stop()}.
+	 *
+	 * @param name describes the unit of work in the log, e.g. the request URI
+	 * @should count statements and entity loads
+	 * @should flag repeated statements with their call site
+	 */
+	public static void start(String name) {
+		Profile profile = currentProfile.get();
+		if (profile != null) {
+			profile.depth++;
+			return;
+		}
+		
+		configure();
+		if (statementThreshold > 0) {
+			currentProfile.set(new Profile(name));
+		}
+	}
+	
+	/**
+	 * Stops profiling the unit of work started by the matching call to {@link #start(String)} and
+	 * logs it if it crossed a threshold
+	 *
+	 * @return the finished profile, or null if the profiler is disabled or an outer unit of work is
+	 *         still running
+	 * @should only finish the outermost unit of work
+	 */
+	public static Profile stop() {
+		Profile profile = currentProfile.get();
+		if (profile == null || --profile.depth > 0) {
+			return null;
+		}
+		
+		currentProfile.remove();
+		profile.elapsed = System.currentTimeMillis() - profile.startTime;
+		if (profile.statements > statementThreshold || profile.getMaxRepeatCount() >= repeatThreshold) {
+			log.warn(profile.getReport());
+		}
+		return profile;
+	}
+	
+	/**
+	 * Called before every SQL statement is prepared
+	 *
+	 * @param sql the statement
+	 */
+	public static void statementPrepared(String sql) {
+		Profile profile = currentProfile.get();
+		if (profile != null) {
+			profile.statements++;
+			profile.track(profile.repeatedStatements, sql);
+		}
+	}
+	
+	/**
+	 * Called for every entity that is loaded from the database
+	 */
+	public static void entityLoaded() {
+		Profile profile = currentProfile.get();
+		if (profile != null) {
+			profile.entityLoads++;
+		}
+	}
+	
+	/**
+	 * Called for every lazy collection that is fetched from the database
+	 *
+	 * @param role the role of the collection, e.g. org.openmrs.Concept.names
+	 */
+	public static void collectionFetched(String role) {
+		Profile profile = currentProfile.get();
+		if (profile != null) {
+			profile.collectionFetches++;
+			profile.track(profile.repeatedCollections, "collection " + role);
+		}
+	}
+	
+	/**
+	 * Reads the thresholds from the global properties the first time they are needed
+	 */
+	private static void configure() {
+		if (configured || !Context.isSessionOpen()) {
+			return;
+		}
+		
+		// set first, so that a failing lookup is not retried for every unit of work
+		configured = true;
+		try {
+			statementThreshold = getIntGlobalProperty(OpenmrsConstants.GP_QUERY_PROFILER_STATEMENT_THRESHOLD, 0);
+			repeatThreshold = getIntGlobalProperty(OpenmrsConstants.GP_QUERY_PROFILER_REPEAT_THRESHOLD,
+			    DEFAULT_REPEAT_THRESHOLD);
+		}
+		catch (Exception e) {
+			log.debug("Unable to read the query profiler thresholds", e);
+		}
+	}
+	
+	/**
+	 * @see org.openmrs.api.GlobalPropertyListener#supportsPropertyName(java.lang.String)
+	 */
+	@Override
+	public boolean supportsPropertyName(String propertyName) {
+		return OpenmrsConstants.GP_QUERY_PROFILER_STATEMENT_THRESHOLD.equals(propertyName)
+		        || OpenmrsConstants.GP_QUERY_PROFILER_REPEAT_THRESHOLD.equals(propertyName);
+	}
+	
+	/**
+	 * @see org.openmrs.api.GlobalPropertyListener#globalPropertyChanged(org.openmrs.GlobalProperty)
+	 */
+	@Override
+	public void globalPropertyChanged(GlobalProperty newValue) {
+		configured = false;
+	}
+	
+	/**
+	 * @see org.openmrs.api.GlobalPropertyListener#globalPropertyDeleted(java.lang.String)
+	 */
+	@Override
+	public void globalPropertyDeleted(String propertyName) {
+		configured = false;
+	}
+	
+	/**
+	 * @return the first few openmrs methods on the current stack outside of the data access layer
+	 */
+	private static String getCallSite() {
+		StringBuilder callSite = new StringBuilder();
+		int frames = 0;
+		for (StackTraceElement element : new Throwable().getStackTrace()) {
+			String className = element.getClassName();
+			if (!className.startsWith("org.openmrs.") || className.startsWith("org.openmrs.api.db.")
+			        || className.startsWith("org.openmrs.aop.") || className.startsWith(QueryProfiler.class.getName())
+			        || className.contains("$$")) {
+				continue;
+			}
+			
+			if (frames > 0) {
+				callSite.append(" <- ");
+			}
+			callSite.append(element);
+			if (++frames == CALL_SITE_FRAMES) {
+				break;
+			}
+		}
+		return frames == 0 ? "unknown" : callSite.toString();
+	}
+	
+	private static int getIntGlobalProperty(String propertyName, int defaultValue) {
+		String value = Context.getAdministrationService().getGlobalProperty(propertyName);
+		if (StringUtils.isBlank(value)) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value.trim());
+		}
+		catch (NumberFormatException e) {
+			log.warn("Invalid value for " + propertyName + ": " + value);
+			return defaultValue;
+		}
+	}
+	
+	/**
+	 * The numbers of one unit of work
+	 */
+	public static class Profile {
+		
+		private final String name;
+		
+		private final long startTime = System.currentTimeMillis();
+		
+		private long elapsed;
+		
+		private int depth = 1;
+		
+		private int statements;
+		
+		private int entityLoads;
+		
+		private int collectionFetches;
+		
+		private final Map<String, Repeat> repeatedStatements = new HashMap<String, Repeat>();
+		
+		private final Map<String, Repeat> repeatedCollections = new HashMap<String, Repeat>();
+		
+		private Profile(String name) {
+			this.name = name;
+		}
+		
+		private void track(Map<String, Repeat> repeats, String description) {
+			Repeat repeat = repeats.get(description);
+			if (repeat == null) {
+				if (repeats.size() >= MAX_TRACKED) {
+					return;
+				}
+				repeat = new Repeat(description);
+				repeats.put(description, repeat);
+			}
+			
+			// only walk the stack once it looks like an N+1 pattern
+			if (++repeat.count == repeatThreshold) {
+				repeat.callSite = getCallSite();
+			}
+		}
+		
+		private int getMaxRepeatCount() {
+			List<Repeat> repeats = getRepeats();
+			return repeats.isEmpty() ? 0 : repeats.get(0).count;
+		}
+		
+		/**
+		 * @return the statements and collections that were loaded more than once, most frequent
+		 *         first
+		 */
+		public List<Repeat> getRepeats() {
+			List<Repeat> repeats = new ArrayList<Repeat>();
+			for (Repeat repeat : repeatedStatements.values()) {
+				if (repeat.count > 1) {
+					repeats.add(repeat);
+				}
+			}
+			for (Repeat repeat : repeatedCollections.values()) {
+				if (repeat.count > 1) {
+					repeats.add(repeat);
+				}
+			}
+			Collections.sort(repeats, new Comparator<Repeat>() {
+				
+				@Override
+				public int compare(Repeat a, Repeat b) {
+					return b.count - a.count;
+				}
+			});
+			return repeats;
+		}
+		
+		/**
+		 * @return a description of the unit of work and its worst offenders, as it is logged
+		 */
+		public String getReport() {
+			StringBuilder report = new StringBuilder();
+			report.append(name).append(" ran ").append(statements).append(" statements, loaded ").append(entityLoads)
+			        .append(" entities and fetched ").append(collectionFetches).append(" collections in ").append(
+			            elapsed).append(" ms");
+			int listed = 0;
+			for (Repeat repeat : getRepeats()) {
+				if (repeat.count < repeatThreshold || listed++ == TOP_OFFENDERS) {
+					break;
+				}
+				report.append("\n  ").append(repeat.count).append("x ").append(repeat.description).append("\n    at ")
+				        .append(repeat.callSite);
+			}
+			return report.toString();
+		}
+		
+		public String getName() {
+			return name;
+		}
+		
+		public int getStatements() {
+			return statements;
+		}
+		
+		public int getEntityLoads() {
+			return entityLoads;
+		}
+		
+		public int getCollectionFetches() {
+			return collectionFetches;
+		}
+	}
+	
+	/**
+	 * A statement or lazy collection that was loaded repeatedly during one unit of work
+	 */
+	public static class Repeat {
+		
+		private final String description;
+		
+		private int count;
+		
+		private String callSite;
+		
+		private Repeat(String description) {
+			this.description = description;
+		}
+		
+		/**
+		 * @return the sql of the statement or the role of the collection
+		 */
+		public String getDescription() {
+			return description;
+		}
+		
+		public int getCount() {
+			return count;
+		}
+		
+		/**
+		 * @return the code that loaded it once it was repeated often enough, null before that
+		 */
+		public String getCallSite() {
+			return callSite;
+		}
+	}
+}
@@ -0,0 +1,177 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.util;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A map that is never changed once it is built. Its entries are spread over buckets, and a map
+ * made by {@link #with(Map)} shares all buckets but the changed ones with the map it was made
+ * from, so a change costs about the square root of the size of the map instead of its size. It
+ * is meant for large indexes that are replaced by a changed copy on every update while other
+ * threads keep reading the previous one. Null keys and values are not supported.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ * @since 1.12
+ */
+public final class SharedMap<K, V> {
+	
+	private static final int MIN_BUCKETS = 16;
+	
+	private final Map<K, V>[] buckets;
+	
+	private final int size;
+	
+	/**
+	 * Creates an empty map
+	 *
+	 * @param expectedSize the number of entries the map is expected to hold
+	 */
+	public SharedMap(int expectedSize) {
+		this(newBuckets(expectedSize), 0);
+	}
+	
+	private SharedMap(Map<K, V>[] buckets, int size) {
+		this.buckets = buckets;
+		this.size = size;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static <K, V> Map<K, V>[] newBuckets(int expectedSize) {
+		int count = MIN_BUCKETS;
+		while (count * count < expectedSize) {
+			count <<= 1;
+		}
+		return new Map[count];
+	}
+	
+	private int indexOf(Object key) {
+		int hash = key.hashCode();
+		return (hash ^ (hash >>> 16)) & (buckets.length - 1);
+	}
+	
+	/**
+	 * @return the number of entries
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * @param key the key
+	 * @return the value of the key, or null if the map does not contain it
+	 */
+	public V get(Object key) {
+		Map<K, V> bucket = buckets[indexOf(key)];
+		return bucket == null ? null : bucket.get(key);
+	}
+	
+	/**
+	 * @param changes the new values by key, a null value removes the key
+	 * @return a new map with the changes applied, this map is not changed
+	 * @should apply the changes to a new map
+	 * @should not change this map
+	 * @should keep the entries when it spreads them over more buckets
+	 */
+	public SharedMap<K, V> with(Map<K, V> changes) {
+		if (changes.isEmpty()) {
+			return this;
+		}
+		
+		int newSize = size;
+		Map<K, V>[] newBuckets = buckets.clone();
+		boolean[] copied = new boolean[newBuckets.length];
+		for (Map.Entry<K, V> change : changes.entrySet()) {
+			int index = indexOf(change.getKey());
+			if (!copied[index]) {
+				newBuckets[index] = buckets[index] == null ? new HashMap<K, V>() : new HashMap<K, V>(buckets[index]);
+				copied[index] = true;
+			}
+			
+			boolean existed = newBuckets[index].containsKey(change.getKey());
+			if (change.getValue() == null) {
+				newBuckets[index].remove(change.getKey());
+				newSize -= existed ? 1 : 0;
+			} else {
+				newBuckets[index].put(change.getKey(), change.getValue());
+				newSize += existed ? 0 : 1;
+			}
+		}
+		
+		SharedMap<K, V> changed = new SharedMap<K, V>(newBuckets, newSize);
+		if (newSize > 4 * buckets.length * buckets.length) {
+			// the buckets grew too large, spread the entries over more of them
+			SharedMap<K, V> spread = new SharedMap<K, V>(newSize);
+			Map<K, V> entries = new HashMap<K, V>(newSize * 2);
+			for (Map<K, V> bucket : newBuckets) {
+				if (bucket != null) {
+					entries.putAll(bucket);
+				}
+			}
+			return spread.with(entries);
+		}
+		return changed;
+	}
+	
+	/**
+	 * @return the values of the map, which cannot be changed
+	 */
+	public Collection<V> values() {
+		return new AbstractCollection<V>() {
+			
+			@Override
+			public int size() {
+				return size;
+			}
+			
+			@Override
+			public Iterator<V> iterator() {
+				return new Iterator<V>() {
+					
+					private int nextBucket = 0;
+					
+					private Iterator<V> current = Collections.<V> emptyList().iterator();
+					
+					public boolean hasNext() {
+						while (!current.hasNext() && nextBucket < buckets.length) {
+							Map<K, V> bucket = buckets[nextBucket++];
+							if (bucket != null) {
+								current = Collections.unmodifiableCollection(bucket.values()).iterator();
+							}
+						}
+						return current.hasNext();
+					}
+					
+					public V next() {
+						if (!hasNext()) {
+							throw new NoSuchElementException();
+						}
+						return current.next();
+					}
+					
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+		};
+	}
+}
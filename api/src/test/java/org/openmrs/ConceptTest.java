@@ -1032,6 +1032,80 @@ public class ConceptTest {
 		Assert.assertEquals(preferredNameEN.getName(), testConcept.getPreferredName(Locale.US).getName());
 	}
 	
+	/**
+	 * @see {@link Concept#getPreferredName(Locale)}
+	 */
+	@Test
+	@Verifies(value = "should return the new preferred name after the locale preferred flag was moved", method = "getPreferredName(Locale)")
+	public void getPreferredName_shouldReturnTheNewPreferredNameAfterTheLocalePreferredFlagWasMoved() throws Exception {
+		Concept concept = new Concept();
+		ConceptName fullySpecifiedName = new ConceptName("Giant cat", Locale.ENGLISH);
+		concept.addName(fullySpecifiedName);
+		ConceptName synonym = new ConceptName("Big cat", Locale.ENGLISH);
+		concept.addName(synonym);
+		Assert.assertEquals(fullySpecifiedName, concept.getPreferredName(Locale.ENGLISH));
+		
+		synonym.setLocalePreferred(true);
+		Assert.assertEquals(synonym, concept.getPreferredName(Locale.ENGLISH));
+		Assert.assertEquals(synonym, concept.getName(Locale.ENGLISH, true));
+	}
+	
+	/**
+	 * @see {@link Concept#getName(Locale,boolean)}
+	 */
+	@Test
+	@Verifies(value = "should return the new best name after a name in the locale was changed", method = "getName(Locale,boolean)")
+	public void getName_shouldReturnTheNewBestNameAfterANameInTheLocaleWasChanged() throws Exception {
+		Concept concept = new Concept();
+		ConceptName name = new ConceptName("Giant cat", Locale.ENGLISH);
+		concept.addName(name);
+		Assert.assertEquals(name, concept.getName(Locale.UK, false));
+		Assert.assertNull(concept.getName(Locale.FRENCH, true));
+		
+		name.setLocale(Locale.FRENCH);
+		Assert.assertNull(concept.getName(Locale.UK, true));
+		Assert.assertEquals(name, concept.getName(Locale.FRENCH, true));
+		
+		name.setVoided(true);
+		Assert.assertNull(concept.getName(Locale.FRENCH, true));
+	}
+	
+	/**
+	 * @see {@link Concept#removeName(ConceptName)}
+	 */
+	@Test
+	@Verifies(value = "should not return a removed name", method = "removeName(ConceptName)")
+	public void removeName_shouldNotReturnARemovedName() throws Exception {
+		Concept concept = new Concept();
+		ConceptName fullySpecifiedName = new ConceptName("Giant cat", Locale.ENGLISH);
+		concept.addName(fullySpecifiedName);
+		ConceptName shortName = new ConceptName("Cat", Locale.ENGLISH);
+		shortName.setConceptNameType(ConceptNameType.SHORT);
+		concept.addName(shortName);
+		Assert.assertEquals(shortName, concept.getShortNameInLocale(Locale.ENGLISH));
+		Assert.assertEquals(2, concept.getCompatibleNames(Locale.ENGLISH).size());
+		
+		concept.removeName(shortName);
+		Assert.assertNull(concept.getShortNameInLocale(Locale.ENGLISH));
+		Assert.assertEquals(1, concept.getCompatibleNames(Locale.ENGLISH).size());
+	}
+	
+	/**
+	 * @see {@link Concept#getDescription(Locale,boolean)}
+	 */
+	@Test
+	@Verifies(value = "should return the new description after the description was changed", method = "getDescription(Locale,boolean)")
+	public void getDescription_shouldReturnTheNewDescriptionAfterTheDescriptionWasChanged() throws Exception {
+		Concept concept = new Concept();
+		ConceptDescription description = new ConceptDescription("en desc", Locale.ENGLISH);
+		concept.addDescription(description);
+		Assert.assertEquals(description, concept.getDescription(Locale.ENGLISH, true));
+		
+		description.setLocale(Locale.FRENCH);
+		Assert.assertNull(concept.getDescription(Locale.ENGLISH, true));
+		Assert.assertEquals(description, concept.getDescription(Locale.FRENCH, true));
+	}
+	
 	/**
 	 * Convenient factory method to create a populated Concept with a one fully specified name and
 	 * one short name
@@ -519,4 +519,38 @@ public class PersonNameTest {
 		Assert.assertEquals(pn.getFullName(), "Sr. Taylor Bob Mark");
 	}
 	
+	/**
+	 * @see PersonName#updatePhoneticKeys()
+	 */
+	@Test
+	@Verifies(value = "should set the keys of every name part", method = "updatePhoneticKeys()")
+	public void updatePhoneticKeys_shouldSetTheKeysOfEveryNamePart() throws Exception {
+		PersonName pn = new PersonName("Darius", "Graham", "Jazayeri");
+		pn.setFamilyName2("Johnson");
+		pn.updatePhoneticKeys();
+		Assert.assertEquals("D620", pn.getGivenNameSoundex());
+		Assert.assertEquals("G650", pn.getMiddleNameSoundex());
+		Assert.assertEquals("J260", pn.getFamilyNameSoundex());
+		Assert.assertEquals("J525", pn.getFamilyName2Soundex());
+		Assert.assertEquals("TRS", pn.getGivenNameMetaphone());
+		Assert.assertEquals("KRHM", pn.getMiddleNameMetaphone());
+		Assert.assertEquals("JSR", pn.getFamilyNameMetaphone());
+		Assert.assertEquals("JNSN", pn.getFamilyName2Metaphone());
+	}
+	
+	/**
+	 * @see PersonName#updatePhoneticKeys()
+	 */
+	@Test
+	@Verifies(value = "should set empty keys for missing name parts", method = "updatePhoneticKeys()")
+	public void updatePhoneticKeys_shouldSetEmptyKeysForMissingNameParts() throws Exception {
+		PersonName pn = new PersonName("Darius", "", null);
+		pn.updatePhoneticKeys();
+		Assert.assertEquals("D620", pn.getGivenNameSoundex());
+		Assert.assertEquals("", pn.getMiddleNameSoundex());
+		Assert.assertEquals("", pn.getFamilyNameSoundex());
+		Assert.assertEquals("", pn.getFamilyNameMetaphone());
+		Assert.assertEquals("", pn.getFamilyName2Metaphone());
+	}
+	
 }
@@ -0,0 +1,69 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.aop;
+
+import static org.junit.Assert.assertNotNull;
+
+import java.lang.reflect.Method;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+import org.openmrs.api.ConceptService;
+import org.openmrs.api.context.Context;
+import org.openmrs.test.BaseContextSensitiveTest;
+
+import com.carrotsearch.junitbenchmarks.BenchmarkOptions;
+import com.carrotsearch.junitbenchmarks.BenchmarkRule;
+import com.carrotsearch.junitbenchmarks.annotation.BenchmarkHistoryChart;
+
+/**
+ * Performance tests for {@link AuthorizationAdvice} on hot read methods.
+ */
+@BenchmarkHistoryChart
+@BenchmarkOptions(warmupRounds = 5, benchmarkRounds = 20)
+public class AuthorizationAdvicePT extends BaseContextSensitiveTest {
+	
+	private static final int CALLS_PER_ROUND = 10000;
+	
+	@Rule
+	public TestRule benchmarkRule = new BenchmarkRule();
+	
+	private AuthorizationAdvice advice;
+	
+	private Method getConcept;
+	
+	@Before
+	public void before() throws Exception {
+		advice = new AuthorizationAdvice();
+		getConcept = ConceptService.class.getMethod("getConcept", Integer.class);
+	}
+	
+	@Test
+	public void shouldAuthorizeGetConcept() throws Throwable {
+		Object[] args = new Object[] { 3 };
+		for (int i = 0; i < CALLS_PER_ROUND; i++) {
+			advice.before(getConcept, args, null);
+		}
+	}
+	
+	@Test
+	public void shouldCallGetConceptThroughTheAdviceChain() {
+		ConceptService conceptService = Context.getConceptService();
+		for (int i = 0; i < CALLS_PER_ROUND; i++) {
+			assertNotNull(conceptService.getConcept(3));
+		}
+	}
+}
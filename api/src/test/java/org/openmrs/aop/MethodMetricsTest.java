@@ -0,0 +1,80 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.aop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link MethodMetrics} class.
+ */
+public class MethodMetricsTest {
+	
+	@Test
+	public void getBucket_shouldCountEveryLatencyInABucketThatContainsIt() throws Exception {
+		int previous = 0;
+		for (long micros = 0; micros < 100000; micros++) {
+			int bucket = MethodMetrics.getBucket(micros);
+			assertTrue(bucket == previous || bucket == previous + 1);
+			assertTrue(micros <= MethodMetrics.getBucketUpperBound(bucket));
+			if (bucket > 0) {
+				assertTrue(micros > MethodMetrics.getBucketUpperBound(bucket - 1));
+			}
+			previous = bucket;
+		}
+		assertEquals(MethodMetrics.BUCKETS - 1, MethodMetrics.getBucket(Long.MAX_VALUE));
+	}
+	
+	@Test
+	public void record_shouldCountCallsAndErrors() throws Exception {
+		MethodMetrics metrics = new MethodMetrics("TestService.test()");
+		metrics.record(1000, false);
+		metrics.record(3000, true);
+		
+		MethodMetrics.Snapshot snapshot = metrics.getSnapshot();
+		assertEquals(2, snapshot.getCalls());
+		assertEquals(1, snapshot.getErrors());
+		assertEquals(2, snapshot.getMeanMicros());
+		assertEquals(3, snapshot.getMaxMicros());
+	}
+	
+	@Test
+	public void getSnapshot_shouldReturnPercentilesWithinAQuarterOfTheRealValue() throws Exception {
+		MethodMetrics metrics = new MethodMetrics("TestService.test()");
+		for (int micros = 1; micros <= 1000; micros++) {
+			metrics.record(micros * 1000L, false);
+		}
+		
+		MethodMetrics.Snapshot snapshot = metrics.getSnapshot();
+		assertTrue(snapshot.getP50Micros() >= 500 && snapshot.getP50Micros() <= 625);
+		assertTrue(snapshot.getP95Micros() >= 950 && snapshot.getP95Micros() <= 1000);
+		assertTrue(snapshot.getP99Micros() >= 990 && snapshot.getP99Micros() <= 1000);
+		assertEquals(1000, snapshot.getMaxMicros());
+	}
+	
+	@Test
+	public void reset_shouldSetAllNumbersBackToZero() throws Exception {
+		MethodMetrics metrics = new MethodMetrics("TestService.test()");
+		metrics.record(1000, true);
+		metrics.reset();
+		
+		MethodMetrics.Snapshot snapshot = metrics.getSnapshot();
+		assertEquals(0, snapshot.getCalls());
+		assertEquals(0, snapshot.getErrors());
+		assertEquals(0, snapshot.getP99Micros());
+		assertEquals(0, snapshot.getMaxMicros());
+	}
+}
@@ -0,0 +1,100 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.aop;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Method;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+import org.openmrs.api.ConceptService;
+
+import com.carrotsearch.junitbenchmarks.BenchmarkOptions;
+import com.carrotsearch.junitbenchmarks.BenchmarkRule;
+import com.carrotsearch.junitbenchmarks.annotation.BenchmarkHistoryChart;
+
+/**
+ * Performance tests for the overhead {@link MetricsAdvice} adds to every service call. The advice
+ * is shared by all benchmark threads, like it is shared by all request threads.
+ */
+@BenchmarkHistoryChart
+@BenchmarkOptions(concurrency = 8, warmupRounds = 10, benchmarkRounds = 80)
+public class MetricsAdvicePT {
+	
+	private static final int CALLS_PER_ROUND = 100000;
+	
+	private static final MetricsAdvice advice = new MetricsAdvice();
+	
+	private static final MethodInvocation invocation = new NoOpInvocation();
+	
+	static {
+		advice.setRegisterMBeans(false);
+	}
+	
+	@Rule
+	public TestRule benchmarkRule = new BenchmarkRule();
+	
+	@Test
+	public void shouldProceedWithoutTheAdvice() throws Throwable {
+		for (int i = 0; i < CALLS_PER_ROUND; i++) {
+			invocation.proceed();
+		}
+	}
+	
+	@Test
+	public void shouldRecordCallsThroughTheAdvice() throws Throwable {
+		for (int i = 0; i < CALLS_PER_ROUND; i++) {
+			advice.invoke(invocation);
+		}
+	}
+	
+	/**
+	 * An invocation of ConceptService.getConcept(Integer) that does nothing
+	 */
+	private static class NoOpInvocation implements MethodInvocation {
+		
+		private static final Method method;
+		
+		static {
+			try {
+				method = ConceptService.class.getMethod("getConcept", Integer.class);
+			}
+			catch (NoSuchMethodException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		
+		public Method getMethod() {
+			return method;
+		}
+		
+		public Object[] getArguments() {
+			return new Object[] { 3 };
+		}
+		
+		public Object proceed() throws Throwable {
+			return null;
+		}
+		
+		public Object getThis() {
+			return null;
+		}
+		
+		public AccessibleObject getStaticPart() {
+			return method;
+		}
+	}
+}
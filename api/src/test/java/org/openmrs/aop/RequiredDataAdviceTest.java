@@ -39,6 +39,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Matchers;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.mockito.Spy;
 import org.openmrs.BaseOpenmrsData;
 import org.openmrs.BaseOpenmrsMetadata;
@@ -66,6 +67,7 @@ import org.openmrs.test.Verifies;
 import org.openmrs.util.HandlerUtil;
 import org.openmrs.util.Reflect;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
 
 /**
  * Tests the {@link RequiredDataAdvice} class.
@@ -539,6 +541,37 @@ public class RequiredDataAdviceTest extends BaseContextMockTest {
 		    Matchers.<Date> anyObject(), anyString());
 	}
 	
+	/**
+	 * @see HandlerUtil#clearCachedHandlers()
+	 */
+	@Test
+	public void before_shouldCallAHandlerRegisteredAfterTheContextWasRefreshed() throws Throwable {
+		Method m = WithAppropriatelyNamedMethod.class.getMethod("saveSomeOpenmrsData", SomeOpenmrsData.class);
+		requiredDataAdvice.before(m, new Object[] { new SomeOpenmrsData() }, new WithAppropriatelyNamedMethod());
+		
+		// a module registers another save handler
+		SaveHandler moduleSaveHandler = Mockito.spy(new OpenmrsObjectSaveHandler());
+		Map<String, SaveHandler> saveHandlers = new HashMap<String, SaveHandler>();
+		saveHandlers.put("saveHandler", saveHandler);
+		saveHandlers.put("moduleSaveHandler", moduleSaveHandler);
+		when(context.getBeansOfType(SaveHandler.class)).thenReturn(saveHandlers);
+		
+		// the traversal plan of SomeOpenmrsData is still cached
+		SomeOpenmrsData beforeRefresh = new SomeOpenmrsData();
+		requiredDataAdvice.before(m, new Object[] { beforeRefresh }, new WithAppropriatelyNamedMethod());
+		verify(moduleSaveHandler, never()).handle(eq(beforeRefresh), Matchers.<User> anyObject(),
+		    Matchers.<Date> anyObject(), anyString());
+		
+		new HandlerUtil().onApplicationEvent(new ContextRefreshedEvent(context));
+		
+		SomeOpenmrsData afterRefresh = new SomeOpenmrsData();
+		requiredDataAdvice.before(m, new Object[] { afterRefresh }, new WithAppropriatelyNamedMethod());
+		verify(moduleSaveHandler, times(1)).handle(eq(afterRefresh), Matchers.<User> anyObject(),
+		    Matchers.<Date> anyObject(), anyString());
+		verify(saveHandler, times(1)).handle(eq(afterRefresh), Matchers.<User> anyObject(), Matchers.<Date> anyObject(),
+		    anyString());
+	}
+	
 	@Test
 	public void before_shouldNotCallHandlerOnVoidWithNullOrNoArguments() throws Throwable {
 		
@@ -18,19 +18,26 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 
+import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
+import org.hibernate.SessionFactory;
+import org.openmrs.ChangeNotification;
 import org.openmrs.GlobalProperty;
 import org.openmrs.ImplementationId;
 import org.openmrs.User;
 import org.openmrs.api.context.Context;
+import org.openmrs.api.db.AdministrationDAO;
+import org.openmrs.api.db.hibernate.HibernateAdministrationDAO;
+import org.openmrs.api.impl.AdministrationServiceImpl;
 import org.openmrs.customdatatype.datatype.BooleanDatatype;
 import org.openmrs.customdatatype.datatype.DateDatatype;
 import org.openmrs.test.BaseContextSensitiveTest;
@@ -649,6 +656,59 @@ public class AdministrationServiceTest extends BaseContextSensitiveTest {
 		Assert.assertEquals(orig, noprop);
 	}
 	
+	/**
+	 * @see {@link AdministrationService#getGlobalProperty(String)}
+	 */
+	@Test
+	@Verifies(value = "should return the saved value after the property was saved with different case", method = "getGlobalProperty(String)")
+	public void getGlobalProperty_shouldReturnTheSavedValueAfterThePropertyWasSavedWithDifferentCase() throws Exception {
+		executeDataSet("org/openmrs/api/include/AdministrationServiceTest-globalproperties.xml");
+		Assert.assertEquals("anothervalue", adminService.getGlobalProperty("another-global-property"));
+		
+		GlobalProperty gp = adminService.getGlobalPropertyObject("ANOTHER-global-property");
+		gp.setPropertyValue("yetanothervalue");
+		adminService.saveGlobalProperty(gp);
+		
+		Assert.assertEquals("yetanothervalue", adminService.getGlobalProperty("another-global-property"));
+		Assert.assertEquals("yetanothervalue", adminService.getGlobalProperty("Another-Global-Property"));
+	}
+	
+	/**
+	 * @see {@link AdministrationService#getGlobalProperty(String)}
+	 */
+	@Test
+	@Verifies(value = "should return null after the property was purged", method = "getGlobalProperty(String)")
+	public void getGlobalProperty_shouldReturnNullAfterThePropertyWasPurged() throws Exception {
+		executeDataSet("org/openmrs/api/include/AdministrationServiceTest-globalproperties.xml");
+		Assert.assertEquals("anothervalue", adminService.getGlobalProperty("another-global-property"));
+		
+		adminService.purgeGlobalProperty(adminService.getGlobalPropertyObject("another-global-property"));
+		
+		Assert.assertNull(adminService.getGlobalProperty("another-global-property"));
+	}
+	
+	/**
+	 * @see {@link AdministrationService#saveGlobalProperty(GlobalProperty)}
+	 */
+	@Test
+	@Verifies(value = "should not share the saved value with other threads before it is committed", method = "saveGlobalProperty(GlobalProperty)")
+	@SuppressWarnings("unchecked")
+	public void saveGlobalProperty_shouldNotShareTheSavedValueWithOtherThreadsBeforeItIsCommitted() throws Exception {
+		executeDataSet("org/openmrs/api/include/AdministrationServiceTest-globalproperties.xml");
+		Assert.assertEquals("anothervalue", adminService.getGlobalProperty("another-global-property"));
+		
+		GlobalProperty gp = adminService.getGlobalPropertyObject("another-global-property");
+		gp.setPropertyValue("uncommittedvalue");
+		adminService.saveGlobalProperty(gp);
+		Assert.assertEquals("uncommittedvalue", adminService.getGlobalProperty("another-global-property"));
+		
+		// the values in the cache are read by every thread
+		Field cacheField = AdministrationServiceImpl.class.getDeclaredField("globalPropertyCache");
+		cacheField.setAccessible(true);
+		Map<String, ?> cache = (Map<String, ?>) cacheField.get(applicationContext.getBean("adminServiceTarget"));
+		Assert.assertFalse(cache.containsKey("another-global-property"));
+	}
+	
 	/**
 	 * @see {@link AdministrationService#saveGlobalProperty(GlobalProperty)}
 	 */
@@ -868,4 +928,141 @@ public class AdministrationServiceTest extends BaseContextSensitiveTest {
 		BindException errors = new BindException(new Object(), "");
 		Context.getAdministrationService().validate(null, errors);
 	}
+	
+	/**
+	 * @see AdministrationService#processChangeNotifications()
+	 * @verifies notify global property listeners about changes made on other nodes
+	 */
+	@Test
+	public void processChangeNotifications_shouldNotifyGlobalPropertyListenersAboutChangesMadeOnOtherNodes()
+	        throws Exception {
+		enablePolling();
+		AdministrationServiceImpl otherNode = createOtherNode();
+		otherNode.processChangeNotifications();
+		Assert.assertNull(otherNode.getGlobalProperty("a_valid_gp_key"));
+		
+		final List<String> changes = new ArrayList<String>();
+		GlobalPropertyListener listener = new GlobalPropertyListener() {
+			
+			public boolean supportsPropertyName(String propertyName) {
+				return "a_valid_gp_key".equals(propertyName);
+			}
+			
+			public void globalPropertyChanged(GlobalProperty newValue) {
+				changes.add("changed " + newValue.getPropertyValue());
+			}
+			
+			public void globalPropertyDeleted(String propertyName) {
+				changes.add("deleted");
+			}
+		};
+		adminService.addGlobalPropertyListener(listener);
+		try {
+			adminService.saveGlobalProperty(new GlobalProperty("a_valid_gp_key", "a value"));
+			changes.clear();
+			
+			Assert.assertEquals(1, otherNode.processChangeNotifications());
+			Assert.assertEquals("a value", otherNode.getGlobalProperty("a_valid_gp_key"));
+			Assert.assertEquals(1, changes.size());
+			Assert.assertEquals("changed a value", changes.get(0));
+			
+			adminService.purgeGlobalProperty(adminService.getGlobalPropertyObject("a_valid_gp_key"));
+			changes.clear();
+			
+			Assert.assertEquals(1, otherNode.processChangeNotifications());
+			Assert.assertNull(otherNode.getGlobalProperty("a_valid_gp_key"));
+			Assert.assertEquals(1, changes.size());
+			Assert.assertEquals("deleted", changes.get(0));
+			
+			Assert.assertEquals(0, otherNode.processChangeNotifications());
+		}
+		finally {
+			adminService.removeGlobalPropertyListener(listener);
+		}
+	}
+	
+	/**
+	 * @see AdministrationService#processChangeNotifications()
+	 * @verifies ignore changes made on this node
+	 */
+	@Test
+	public void processChangeNotifications_shouldIgnoreChangesMadeOnThisNode() throws Exception {
+		enablePolling();
+		adminService.processChangeNotifications();
+		
+		adminService.saveGlobalProperty(new GlobalProperty("a_valid_gp_key", "a value"));
+		
+		Assert.assertEquals(0, adminService.processChangeNotifications());
+	}
+	
+	/**
+	 * @see AdministrationService#processChangeNotifications()
+	 * @verifies process a change that is committed after a later one was processed
+	 */
+	@Test
+	public void processChangeNotifications_shouldProcessAChangeThatIsCommittedAfterALaterOneWasProcessed()
+	        throws Exception {
+		enablePolling();
+		AdministrationServiceImpl otherNode = createOtherNode();
+		otherNode.processChangeNotifications();
+		Assert.assertNull(otherNode.getGlobalProperty("a_valid_gp_key"));
+		
+		adminService.saveGlobalProperty(new GlobalProperty("a_valid_gp_key", "a value"));
+		adminService.saveGlobalProperty(new GlobalProperty("another_gp_key", "another value"));
+		
+		// the transaction that took the lower id has not committed yet
+		SessionFactory sessionFactory = applicationContext.getBean("sessionFactory", SessionFactory.class);
+		AdministrationDAO adminDAO = applicationContext.getBean("adminDAO", AdministrationDAO.class);
+		Integer latestId = adminDAO.getLatestChangeNotificationId();
+		ChangeNotification uncommitted = adminDAO.getChangeNotificationsAfter(latestId - 2).get(0);
+		Assert.assertEquals("a_valid_gp_key", uncommitted.getIdentifier());
+		sessionFactory.getCurrentSession().delete(uncommitted);
+		sessionFactory.getCurrentSession().flush();
+		
+		Assert.assertEquals(1, otherNode.processChangeNotifications());
+		Assert.assertNull(otherNode.getGlobalProperty("a_valid_gp_key"));
+		
+		// now it commits
+		adminService.executeSQL("insert into change_notification (change_notification_id, type, identifier, origin, "
+		        + "date_created) values (" + uncommitted.getChangeNotificationId() + ", '" + GlobalProperty.class.getName()
+		        + "', 'a_valid_gp_key', '" + uncommitted.getOrigin() + "', current_timestamp())", false);
+		
+		Assert.assertEquals(1, otherNode.processChangeNotifications());
+		Assert.assertEquals("a value", otherNode.getGlobalProperty("a_valid_gp_key"));
+		Assert.assertEquals(0, otherNode.processChangeNotifications());
+	}
+	
+	/**
+	 * @see AdministrationService#processChangeNotifications()
+	 * @verifies not record changes if polling is disabled
+	 */
+	@Test
+	public void processChangeNotifications_shouldNotRecordChangesIfPollingIsDisabled() throws Exception {
+		Assert.assertNull(adminService.getGlobalProperty(OpenmrsConstants.GP_CHANGE_NOTIFICATION_POLL_INTERVAL));
+		AdministrationServiceImpl otherNode = createOtherNode();
+		otherNode.processChangeNotifications();
+		AdministrationDAO adminDAO = applicationContext.getBean("adminDAO", AdministrationDAO.class);
+		Integer latestId = adminDAO.getLatestChangeNotificationId();
+		
+		adminService.saveGlobalProperty(new GlobalProperty("a_valid_gp_key", "a value"));
+		
+		Assert.assertEquals(latestId, adminDAO.getLatestChangeNotificationId());
+		Assert.assertEquals(0, otherNode.processChangeNotifications());
+	}
+	
+	private void enablePolling() {
+		adminService.saveGlobalProperty(new GlobalProperty(OpenmrsConstants.GP_CHANGE_NOTIFICATION_POLL_INTERVAL, "5"));
+	}
+	
+	/**
+	 * @return a second node that shares the database with the one behind Context, through its own
+	 *         DAO
+	 */
+	private AdministrationServiceImpl createOtherNode() {
+		HibernateAdministrationDAO otherDAO = new HibernateAdministrationDAO();
+		otherDAO.setSessionFactory(applicationContext.getBean("sessionFactory", SessionFactory.class));
+		AdministrationServiceImpl otherNode = new AdministrationServiceImpl();
+		otherNode.setAdministrationDAO(otherDAO);
+		return otherNode;
+	}
 }
@@ -0,0 +1,208 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.junit.Test;
+import org.openmrs.ConceptDatatype;
+
+/**
+ * Tests the methods in {@link ConceptDictionarySnapshot}
+ */
+public class ConceptDictionarySnapshotTest {
+	
+	private ConceptDictionarySnapshot.Entry createEntry(Integer conceptId, boolean retired, Locale locale, String name) {
+		Map<Locale, String> preferredNames = new HashMap<Locale, String>();
+		preferredNames.put(locale, name);
+		Map<Locale, List<String>> names = new HashMap<Locale, List<String>>();
+		names.put(locale, Arrays.asList(name, name + " synonym"));
+		return new ConceptDictionarySnapshot.Entry(conceptId, "uuid-" + conceptId, retired, false, "Numeric",
+		        ConceptDatatype.NUMERIC, "Finding", preferredNames, names, Collections.<Integer> emptyList());
+	}
+	
+	private ConceptDictionarySnapshot createSnapshot(ConceptDictionarySnapshot.Entry... entries) {
+		return new ConceptDictionarySnapshot(Arrays.asList(entries));
+	}
+	
+	/**
+	 * @see ConceptDictionarySnapshot#getConceptByUuid(String)
+	 * @verifies get concept by uuid
+	 */
+	@Test
+	public void getConceptByUuid_shouldGetConceptByUuid() throws Exception {
+		ConceptDictionarySnapshot.Entry entry = createEntry(1, false, Locale.ENGLISH, "Weight");
+		
+		assertSame(entry, createSnapshot(entry).getConceptByUuid("uuid-1"));
+	}
+	
+	/**
+	 * @see ConceptDictionarySnapshot#getConceptsByName(String)
+	 * @verifies get concepts by name ignoring case
+	 */
+	@Test
+	public void getConceptsByName_shouldGetConceptsByNameIgnoringCase() throws Exception {
+		ConceptDictionarySnapshot.Entry entry = createEntry(1, false, Locale.ENGLISH, "Weight");
+		ConceptDictionarySnapshot snapshot = createSnapshot(entry, createEntry(2, true, Locale.FRENCH, "weight"));
+		
+		assertEquals(2, snapshot.getConceptsByName("WEIGHT").size());
+		assertSame(entry, snapshot.getConceptsByName("weight Synonym").get(0));
+		assertTrue(snapshot.getConceptsByName("Height").isEmpty());
+	}
+	
+	/**
+	 * @see ConceptDictionarySnapshot#getConceptByName(String,Locale)
+	 * @verifies prefer concepts with the name in the given locale
+	 */
+	@Test
+	public void getConceptByName_shouldPreferConceptsWithTheNameInTheGivenLocale() throws Exception {
+		ConceptDictionarySnapshot.Entry french = createEntry(1, false, Locale.FRENCH, "Poids");
+		ConceptDictionarySnapshot.Entry english = createEntry(2, false, Locale.ENGLISH, "Poids");
+		ConceptDictionarySnapshot.Entry british = createEntry(3, false, Locale.UK, "Poids");
+		ConceptDictionarySnapshot snapshot = createSnapshot(french, english, british);
+		
+		assertSame(english, snapshot.getConceptByName("poids", Locale.ENGLISH));
+		assertSame(british, snapshot.getConceptByName("poids", Locale.UK));
+		assertSame(french, snapshot.getConceptByName("poids", Locale.CANADA_FRENCH));
+	}
+	
+	/**
+	 * @see ConceptDictionarySnapshot#getConceptByName(String,Locale)
+	 * @verifies not return concepts that only have the name in another language
+	 */
+	@Test
+	public void getConceptByName_shouldNotReturnConceptsThatOnlyHaveTheNameInAnotherLanguage() throws Exception {
+		ConceptDictionarySnapshot snapshot = createSnapshot(createEntry(1, false, Locale.FRENCH, "Poids"));
+		
+		assertNull(snapshot.getConceptByName("Poids", Locale.ENGLISH));
+	}
+	
+	/**
+	 * @see ConceptDictionarySnapshot#getConceptByName(String,Locale)
+	 * @verifies not return retired concepts
+	 */
+	@Test
+	public void getConceptByName_shouldNotReturnRetiredConcepts() throws Exception {
+		ConceptDictionarySnapshot snapshot = createSnapshot(createEntry(1, true, Locale.ENGLISH, "Weight"));
+		
+		assertNull(snapshot.getConceptByName("Weight", Locale.ENGLISH));
+	}
+	
+	/**
+	 * @see ConceptDictionarySnapshot#update(java.util.Collection,java.util.Collection)
+	 * @verifies replace changed concepts
+	 */
+	@Test
+	public void update_shouldReplaceChangedConcepts() throws Exception {
+		ConceptDictionarySnapshot snapshot = createSnapshot(createEntry(1, false, Locale.ENGLISH, "Weight"));
+		
+		ConceptDictionarySnapshot.Entry changed = createEntry(1, false, Locale.ENGLISH, "Mass");
+		ConceptDictionarySnapshot.Entry added = createEntry(2, false, Locale.ENGLISH, "Height");
+		ConceptDictionarySnapshot updated = snapshot.update(Arrays.asList(changed, added), Collections.<Integer> emptySet());
+		
+		assertEquals(2, updated.size());
+		assertSame(changed, updated.getConceptByUuid("uuid-1"));
+		assertSame(changed, updated.getConceptByName("mass", Locale.ENGLISH));
+		assertTrue(updated.getConceptsByName("Weight").isEmpty());
+		assertSame(added, updated.getConceptByUuid("uuid-2"));
+	}
+	
+	/**
+	 * @see ConceptDictionarySnapshot#update(java.util.Collection,java.util.Collection)
+	 * @verifies remove purged concepts
+	 */
+	@Test
+	public void update_shouldRemovePurgedConcepts() throws Exception {
+		ConceptDictionarySnapshot snapshot = createSnapshot(createEntry(1, false, Locale.ENGLISH, "Weight"));
+		
+		ConceptDictionarySnapshot updated = snapshot.update(Collections.<ConceptDictionarySnapshot.Entry> emptyList(),
+		    Arrays.asList(1, 5));
+		
+		assertEquals(0, updated.size());
+		assertNull(updated.getConceptByUuid("uuid-1"));
+		assertTrue(updated.getConceptsByName("Weight").isEmpty());
+	}
+	
+	/**
+	 * @see ConceptDictionarySnapshot#update(java.util.Collection,java.util.Collection)
+	 * @verifies not change this snapshot
+	 */
+	@Test
+	public void update_shouldNotChangeThisSnapshot() throws Exception {
+		ConceptDictionarySnapshot.Entry entry = createEntry(1, false, Locale.ENGLISH, "Weight");
+		ConceptDictionarySnapshot snapshot = createSnapshot(entry);
+		
+		snapshot.update(Arrays.asList(createEntry(1, true, Locale.ENGLISH, "Mass")), Arrays.asList(1));
+		
+		assertEquals(1, snapshot.size());
+		assertSame(entry, snapshot.getConceptByUuid("uuid-1"));
+		assertSame(entry, snapshot.getConceptByName("Weight", Locale.ENGLISH));
+	}
+	
+	/**
+	 * @see ConceptDictionarySnapshot#update(java.util.Collection,java.util.Collection)
+	 * @verifies keep the concepts that did not change
+	 */
+	@Test
+	public void update_shouldKeepTheConceptsThatDidNotChange() throws Exception {
+		ConceptDictionarySnapshot snapshot = createSnapshot();
+		for (int i = 1; i <= 2000; i += 100) {
+			List<ConceptDictionarySnapshot.Entry> added = new ArrayList<ConceptDictionarySnapshot.Entry>();
+			for (int conceptId = i; conceptId < i + 100; conceptId++) {
+				added.add(createEntry(conceptId, false, Locale.ENGLISH, "Name " + conceptId));
+			}
+			snapshot = snapshot.update(added, Collections.<Integer> emptySet());
+		}
+		
+		ConceptDictionarySnapshot updated = snapshot.update(Arrays.asList(createEntry(7, false, Locale.ENGLISH, "Mass")),
+		    Arrays.asList(8));
+		
+		assertEquals(2000, snapshot.size());
+		assertEquals(1999, updated.size());
+		assertEquals(1999, updated.getConcepts().size());
+		assertNull(updated.getConceptByUuid("uuid-8"));
+		assertEquals("Mass", updated.getConceptByUuid("uuid-7").getName(Locale.ENGLISH));
+		for (int conceptId = 1; conceptId <= 2000; conceptId++) {
+			if (conceptId != 7 && conceptId != 8) {
+				ConceptDictionarySnapshot.Entry entry = snapshot.getConceptByUuid("uuid-" + conceptId);
+				assertSame(entry, updated.getConceptByUuid("uuid-" + conceptId));
+				assertSame(entry, updated.getConceptByName("name " + conceptId, Locale.ENGLISH));
+			}
+		}
+	}
+	
+	/**
+	 * @see ConceptDictionarySnapshot.Entry#getName(Locale)
+	 * @verifies fall back to the language and then to any locale
+	 */
+	@Test
+	public void getName_shouldFallBackToTheLanguageAndThenToAnyLocale() throws Exception {
+		ConceptDictionarySnapshot.Entry entry = createEntry(1, false, Locale.UK, "Weight");
+		
+		assertEquals("Weight", entry.getName(Locale.UK));
+		assertEquals("Weight", entry.getName(Locale.US));
+		assertEquals("Weight", entry.getName(Locale.FRENCH));
+	}
+}
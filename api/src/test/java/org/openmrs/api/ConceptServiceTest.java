@@ -23,6 +23,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.openmrs.test.OpenmrsMatchers.hasConcept;
@@ -42,6 +43,9 @@ import java.util.Set;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.dbunit.dataset.IDataSet;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
@@ -76,11 +80,14 @@ import org.openmrs.Person;
 import org.openmrs.User;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.db.DAOException;
+import org.openmrs.collection.ListPart;
 import org.openmrs.test.BaseContextSensitiveTest;
 import org.openmrs.test.Verifies;
 import org.openmrs.util.ConceptMapTypeComparator;
 import org.openmrs.util.LocaleUtility;
 import org.openmrs.util.OpenmrsConstants;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.validation.Errors;
 
 /**
@@ -338,6 +345,54 @@ public class ConceptServiceTest extends BaseContextSensitiveTest {
 		Assert.assertEquals(numberofconcepts, iteratorCount);
 	}
 	
+	/**
+	 * @see {@link ConceptService#conceptIterator()}
+	 */
+	@Test
+	@Verifies(value = "should iterate over all concepts in order when the batch size is smaller than the dictionary", method = "conceptIterator()")
+	public void conceptIterator_shouldIterateOverAllConceptsInOrderWhenTheBatchSizeIsSmallerThanTheDictionary()
+	        throws Exception {
+		Context.getAdministrationService().saveGlobalProperty(
+		    new GlobalProperty(OpenmrsConstants.GP_CONCEPT_ITERATOR_BATCH_SIZE, "2"));
+		
+		List<Integer> expectedIds = new ArrayList<Integer>();
+		for (Concept concept : Context.getConceptService().getAllConcepts()) {
+			expectedIds.add(concept.getConceptId());
+		}
+		Collections.sort(expectedIds);
+		
+		List<Integer> iteratedIds = new ArrayList<Integer>();
+		Iterator<Concept> iterator = Context.getConceptService().conceptIterator();
+		while (iterator.hasNext() && iteratedIds.size() <= expectedIds.size()) {
+			Concept concept = iterator.next();
+			Assert.assertTrue(Hibernate.isInitialized(concept.getDescriptions()));
+			iteratedIds.add(concept.getConceptId());
+		}
+		Assert.assertEquals(expectedIds, iteratedIds);
+	}
+	
+	/**
+	 * @see ConceptService#conceptIterator()
+	 * @verifies only evict the concepts it loaded itself
+	 */
+	@Test
+	public void conceptIterator_shouldOnlyEvictTheConceptsItLoadedItself() throws Exception {
+		Context.getAdministrationService().saveGlobalProperty(
+		    new GlobalProperty(OpenmrsConstants.GP_CONCEPT_ITERATOR_BATCH_SIZE, "2"));
+		Session session = applicationContext.getBean("sessionFactory", SessionFactory.class).getCurrentSession();
+		Concept loadedBefore = Context.getConceptService().getConcept(5089);
+		
+		Iterator<Concept> iterator = Context.getConceptService().conceptIterator();
+		Concept first = iterator.next();
+		Assert.assertTrue(session.contains(first));
+		while (iterator.hasNext()) {
+			iterator.next();
+		}
+		
+		Assert.assertFalse(session.contains(first));
+		Assert.assertTrue(session.contains(loadedBefore));
+	}
+	
 	/**
 	 * @see {@link ConceptService#saveConcept(Concept)}
 	 */
@@ -1427,6 +1482,73 @@ public class ConceptServiceTest extends BaseContextSensitiveTest {
 		assertThat(conceptSet, containsInAnyOrder(hasId(2), hasId(3), hasId(4), hasId(5), hasId(6)));
 	}
 	
+	/**
+	 * @see ConceptService#getConceptsByConceptSet(Concept)
+	 * @verifies return members added to a nested set
+	 */
+	@Test
+	public void getConceptsByConceptSet_shouldReturnMembersAddedToANestedSet() throws Exception {
+		Concept foodConstruct = conceptService.getConcept(23);
+		assertThat(conceptService.getConceptsByConceptSet(foodConstruct), contains(hasId(18), hasId(20), hasId(19)));
+		
+		Concept dateOfFoodAssistance = conceptService.getConcept(20);
+		dateOfFoodAssistance.setSet(true);
+		dateOfFoodAssistance.addSetMember(conceptService.getConcept(5089));
+		conceptService.saveConcept(dateOfFoodAssistance);
+		
+		assertThat(conceptService.getConceptsByConceptSet(foodConstruct), contains(hasId(18), hasId(20), hasId(5089),
+		    hasId(19)));
+	}
+	
+	/**
+	 * @see ConceptService#getConceptsByConceptSet(Concept)
+	 * @verifies not return members removed from a set
+	 */
+	@Test
+	public void getConceptsByConceptSet_shouldNotReturnMembersRemovedFromASet() throws Exception {
+		Concept foodConstruct = conceptService.getConcept(23);
+		assertThat(conceptService.getConceptsByConceptSet(foodConstruct), contains(hasId(18), hasId(20), hasId(19)));
+		
+		for (Iterator<ConceptSet> i = foodConstruct.getConceptSets().iterator(); i.hasNext();) {
+			if (i.next().getConcept().getConceptId().equals(19)) {
+				i.remove();
+			}
+		}
+		conceptService.saveConcept(foodConstruct);
+		
+		assertThat(conceptService.getConceptsByConceptSet(foodConstruct), contains(hasId(18), hasId(20)));
+	}
+	
+	/**
+	 * @see ConceptService#isConceptInSet(Concept,Concept)
+	 * @verifies return true for a direct member
+	 */
+	@Test
+	public void isConceptInSet_shouldReturnTrueForADirectMember() throws Exception {
+		assertTrue(conceptService.isConceptInSet(conceptService.getConcept(18), conceptService.getConcept(23)));
+	}
+	
+	/**
+	 * @see ConceptService#isConceptInSet(Concept,Concept)
+	 * @verifies return true for a member of a nested set
+	 */
+	@Test
+	public void isConceptInSet_shouldReturnTrueForAMemberOfANestedSet() throws Exception {
+		executeDataSet(GET_CONCEPTS_BY_SET_XML);
+		
+		assertTrue(conceptService.isConceptInSet(conceptService.getConcept(6), conceptService.getConcept(1)));
+	}
+	
+	/**
+	 * @see ConceptService#isConceptInSet(Concept,Concept)
+	 * @verifies return false for a concept that is not in the set
+	 */
+	@Test
+	public void isConceptInSet_shouldReturnFalseForAConceptThatIsNotInTheSet() throws Exception {
+		assertFalse(conceptService.isConceptInSet(conceptService.getConcept(5089), conceptService.getConcept(23)));
+		assertFalse(conceptService.isConceptInSet(conceptService.getConcept(23), conceptService.getConcept(23)));
+	}
+	
 	/**
 	 * @see {@link ConceptService#saveConceptStopWord(org.openmrs.ConceptStopWord)}
 	 */
@@ -2951,6 +3073,74 @@ public class ConceptServiceTest extends BaseContextSensitiveTest {
 		        .getDrug(444)));
 	}
 	
+	/**
+	 * @verifies return a page of drugs and the total number of matches
+	 * @see ConceptService#getDrugsPart(String, Concept, boolean, boolean, boolean, Integer, Integer)
+	 */
+	@Test
+	public void getDrugsPart_shouldReturnAPageOfDrugsAndTheTotalNumberOfMatches() throws Exception {
+		executeDataSet("org/openmrs/api/include/ConceptServiceTest-drugSearch.xml");
+		
+		ListPart<Drug> drugs = conceptService.getDrugsPart("XXX", null, true, true, true, 0, 2);
+		
+		assertEquals(2, drugs.getList().size());
+		assertEquals(3L, drugs.getTotalElements().longValue());
+		assertEquals(conceptService.getCountOfDrugs("XXX", null, true, true, true).longValue(), drugs.getTotalElements()
+		        .longValue());
+	}
+	
+	/**
+	 * @verifies find drugs by the names of their concepts
+	 * @see ConceptService#getDrugsPart(String, Concept, boolean, boolean, boolean, Integer, Integer)
+	 */
+	@Test
+	public void getDrugsPart_shouldFindDrugsByTheNamesOfTheirConcepts() throws Exception {
+		ListPart<Drug> drugs = conceptService.getDrugsPart("lamiv", null, true, true, false, null, null);
+		assertThat(drugs.getList(), contains(hasId(2)));
+		
+		drugs = conceptService.getDrugsPart("lamiv", null, true, false, false, null, null);
+		assertThat(drugs.getList(), is(empty()));
+	}
+	
+	/**
+	 * @verifies find drugs by a concept name saved after the drug
+	 * @see ConceptService#getDrugsPart(String, Concept, boolean, boolean, boolean, Integer, Integer)
+	 */
+	@Test
+	public void getDrugsPart_shouldFindDrugsByAConceptNameSavedAfterTheDrug() throws Exception {
+		Concept concept = conceptService.getConcept(792);
+		concept.addName(new ConceptName("Zebravudine", Context.getLocale()));
+		conceptService.saveConcept(concept);
+		updateSearchIndex();
+		
+		ListPart<Drug> drugs = conceptService.getDrugsPart("zebrav", null, true, true, false, null, null);
+		
+		assertThat(drugs.getList(), contains(hasId(2)));
+	}
+	
+	/**
+	 * @verifies not find drugs by voided concept names
+	 * @see ConceptService#getDrugsPart(String, Concept, boolean, boolean, boolean, Integer, Integer)
+	 */
+	@Test
+	public void getDrugsPart_shouldNotFindDrugsByVoidedConceptNames() throws Exception {
+		Concept concept = conceptService.getConcept(792);
+		ConceptName voidedName = new ConceptName("Zebravudine", Context.getLocale());
+		voidedName.setVoided(true);
+		voidedName.setVoidedBy(Context.getAuthenticatedUser());
+		voidedName.setDateVoided(new Date());
+		voidedName.setVoidReason("misspelled");
+		concept.addName(voidedName);
+		conceptService.saveConcept(concept);
+		updateSearchIndex();
+		
+		ListPart<Drug> drugs = conceptService.getDrugsPart("zebrav", null, true, true, false, null, null);
+		
+		assertThat(drugs.getList(), is(empty()));
+		assertThat(conceptService.getDrugsPart("lamiv", null, true, true, false, null, null).getList(),
+		    contains(hasId(2)));
+	}
+	
 	/**
 	 * @verifies reject a null search phrase
 	 * @see ConceptService#getDrugs(String, java.util.Locale, boolean, boolean)
@@ -3253,4 +3443,516 @@ public class ConceptServiceTest extends BaseContextSensitiveTest {
 		assertThat(concepts1, contains(hasConcept(is(concept))));
 		assertThat(concepts2, contains(hasConcept(is(concept))));
 	}
+	
+	/**
+	 * @see ConceptService#getConcepts(String,List,boolean,List,List,List,List,Concept,Integer,Integer)
+	 * @verifies find a concept saved after the same search was cached
+	 */
+	@Test
+	public void getConcepts_shouldFindAConceptSavedAfterTheSameSearchWasCached() throws Exception {
+		Concept hivProgram = conceptService.getConceptByName("hiv program");
+		hivProgram.addName(new ConceptName("cached synonym", Context.getLocale()));
+		conceptService.saveConcept(hivProgram);
+		updateSearchIndex();
+		
+		List<ConceptSearchResult> concepts = conceptService.getConcepts("cached synonym", null, false, null, null, null,
+		    null, null, 0, 10);
+		assertThat(concepts, contains(hasConcept(is(hivProgram))));
+		assertThat(conceptService.getConcepts(" CACHED  synonym", null, false, null, null, null, null, null, 0, 10),
+		    contains(hasConcept(is(hivProgram))));
+		
+		Concept mdrTbProgram = conceptService.getConceptByName("mdr-tb program");
+		mdrTbProgram.addName(new ConceptName("cached synonym", Context.getLocale()));
+		conceptService.saveConcept(mdrTbProgram);
+		updateSearchIndex();
+		
+		concepts = conceptService.getConcepts("cached synonym", null, false, null, null, null, null, null, 0, 10);
+		assertThat(concepts, containsInAnyOrder(hasConcept(is(hivProgram)), hasConcept(is(mdrTbProgram))));
+	}
+	
+	/**
+	 * @see ConceptService#getConceptAutocompleteResults(String,Locale,int)
+	 * @verifies find concepts by the beginning of any word of their names
+	 */
+	@Test
+	public void getConceptAutocompleteResults_shouldFindConceptsByTheBeginningOfAnyWordOfTheirNames() throws Exception {
+		conceptService.refreshConceptDictionarySnapshot(null);
+		
+		List<AutocompleteResult> results = conceptService.getConceptAutocompleteResults("syr co", Locale.ENGLISH, 10);
+		
+		assertEquals(1, results.size());
+		assertEquals(3, results.get(0).getId().intValue());
+		assertEquals("COUGH SYRUP", results.get(0).getDisplayName());
+		assertTrue(conceptService.getConceptAutocompleteResults("syr cold", Locale.ENGLISH, 10).isEmpty());
+	}
+	
+	/**
+	 * @see ConceptService#getConceptAutocompleteResults(String,Locale,int)
+	 * @verifies return the preferred name as display name
+	 */
+	@Test
+	public void getConceptAutocompleteResults_shouldReturnThePreferredNameAsDisplayName() throws Exception {
+		conceptService.refreshConceptDictionarySnapshot(null);
+		
+		List<AutocompleteResult> results = conceptService.getConceptAutocompleteResults("wt", Locale.ENGLISH, 10);
+		
+		assertEquals(5089, results.get(0).getId().intValue());
+		assertEquals("WEIGHT (KG)", results.get(0).getDisplayName());
+		assertEquals("WT", results.get(0).getMatchedName());
+	}
+	
+	/**
+	 * @see ConceptService#getConceptAutocompleteResults(String,Locale,int)
+	 * @verifies find a concept saved after the index was read
+	 */
+	@Test
+	public void getConceptAutocompleteResults_shouldFindAConceptSavedAfterTheIndexWasRead() throws Exception {
+		conceptService.refreshConceptDictionarySnapshot(null);
+		assertTrue(conceptService.getConceptAutocompleteResults("zebra str", Locale.ENGLISH, 10).isEmpty());
+		
+		Concept concept = new Concept();
+		concept.addName(new ConceptName("Zebra stripes", Locale.ENGLISH));
+		concept.setDatatype(conceptService.getConceptDatatypeByName("N/A"));
+		concept.setConceptClass(conceptService.getConceptClassByName("Misc"));
+		conceptService.saveConcept(concept);
+		
+		List<AutocompleteResult> results = conceptService.getConceptAutocompleteResults("zebra str", Locale.ENGLISH, 10);
+		assertEquals(1, results.size());
+		assertEquals(concept.getConceptId(), results.get(0).getId());
+	}
+	
+	/**
+	 * @see ConceptService#getConceptAutocompleteResults(String,Locale,int)
+	 * @verifies not find retired concepts
+	 */
+	@Test
+	public void getConceptAutocompleteResults_shouldNotFindRetiredConcepts() throws Exception {
+		conceptService.refreshConceptDictionarySnapshot(null);
+		assertEquals(1, conceptService.getConceptAutocompleteResults("cough syrup", Locale.ENGLISH, 10).size());
+		
+		conceptService.retireConcept(conceptService.getConcept(3), "testing");
+		
+		assertTrue(conceptService.getConceptAutocompleteResults("cough syrup", Locale.ENGLISH, 10).isEmpty());
+	}
+	
+	/**
+	 * @see ConceptService#getDrugAutocompleteResults(String,int)
+	 * @verifies find drugs by the beginning of any word of their names
+	 */
+	@Test
+	public void getDrugAutocompleteResults_shouldFindDrugsByTheBeginningOfAnyWordOfTheirNames() throws Exception {
+		conceptService.refreshDrugAutocompleteIndex(null);
+		
+		List<AutocompleteResult> results = conceptService.getDrugAutocompleteResults("30", 10);
+		
+		assertEquals(1, results.size());
+		assertEquals(2, results.get(0).getId().intValue());
+		assertEquals("Triomune-30", results.get(0).getDisplayName());
+	}
+	
+	/**
+	 * @see ConceptService#getDrugAutocompleteResults(String,int)
+	 * @verifies not find retired drugs
+	 */
+	@Test
+	public void getDrugAutocompleteResults_shouldNotFindRetiredDrugs() throws Exception {
+		conceptService.refreshDrugAutocompleteIndex(null);
+		assertTrue(conceptService.getDrugAutocompleteResults("nyquil", 10).isEmpty());
+		
+		conceptService.retireDrug(conceptService.getDrug(3), "testing");
+		
+		assertTrue(conceptService.getDrugAutocompleteResults("aspirin", 10).isEmpty());
+	}
+	
+	private static final String FOOD_ASSISTANCE_UUID = "95312123-e0c2-466d-b6b1-cb6e990d0d65";
+	
+	/**
+	 * Drops the snapshot left over from other tests, they change the database directly
+	 * 
+	 * @return a snapshot read from the current test data
+	 */
+	private ConceptDictionarySnapshot getNewConceptDictionarySnapshot() {
+		conceptService.refreshConceptDictionarySnapshot(null);
+		return conceptService.getConceptDictionarySnapshot();
+	}
+	
+	/**
+	 * The snapshot is read in a session of its own, which only sees committed changes. This commits
+	 * the test transaction and does what a commit would do, so the test has to undo its changes and
+	 * commit them again itself.
+	 */
+	private void commitTestTransaction() throws Exception {
+		Context.flushSession();
+		getConnection().commit();
+		for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+			synchronization.afterCommit();
+		}
+	}
+	
+	/**
+	 * @return a new numeric concept that is saved but not committed
+	 */
+	private Concept saveSnapshotConcept() {
+		Concept concept = new Concept();
+		concept.addName(new ConceptName("Snapshot concept", Locale.ENGLISH));
+		concept.setDatatype(conceptService.getConceptDatatypeByName("Numeric"));
+		concept.setConceptClass(conceptService.getConceptClassByName("Finding"));
+		return conceptService.saveConcept(concept);
+	}
+	
+	/**
+	 * @see ConceptService#getConceptDictionarySnapshot()
+	 * @verifies contain all concepts
+	 */
+	@Test
+	public void getConceptDictionarySnapshot_shouldContainAllConcepts() throws Exception {
+		ConceptDictionarySnapshot snapshot = getNewConceptDictionarySnapshot();
+		
+		List<Concept> concepts = conceptService.getAllConcepts();
+		assertEquals(concepts.size(), snapshot.size());
+		for (Concept concept : concepts) {
+			assertEquals(concept.getConceptId(), snapshot.getConceptByUuid(concept.getUuid()).getConceptId());
+		}
+	}
+	
+	/**
+	 * @see ConceptService#getConceptDictionarySnapshot()
+	 * @verifies contain the preferred names datatype class and answers of a concept
+	 */
+	@Test
+	public void getConceptDictionarySnapshot_shouldContainThePreferredNamesDatatypeClassAndAnswersOfAConcept()
+	        throws Exception {
+		ConceptDictionarySnapshot.Entry entry = getNewConceptDictionarySnapshot().getConceptByUuid(FOOD_ASSISTANCE_UUID);
+		
+		assertEquals(21, entry.getConceptId().intValue());
+		assertEquals("FOOD ASSISTANCE FOR ENTIRE FAMILY", entry.getName(Locale.ENGLISH));
+		assertEquals("FOOD ASSISTANCE FOR ENTIRE FAMILY", entry.getName(Locale.UK));
+		assertTrue(entry.isCoded());
+		assertEquals("Question", entry.getClassName());
+		assertThat(entry.getAnswerConceptIds(), containsInAnyOrder(7, 8, 22));
+	}
+	
+	/**
+	 * @see ConceptService#getConceptDictionarySnapshot()
+	 * @verifies contain saved concepts once they are committed
+	 */
+	@Test
+	public void getConceptDictionarySnapshot_shouldContainSavedConceptsOnceTheyAreCommitted() throws Exception {
+		getNewConceptDictionarySnapshot();
+		Concept concept = saveSnapshotConcept();
+		commitTestTransaction();
+		try {
+			ConceptDictionarySnapshot snapshot = conceptService.getConceptDictionarySnapshot();
+			assertEquals(concept.getConceptId(), snapshot.getConceptByName("snapshot concept", Locale.ENGLISH)
+			        .getConceptId());
+			assertTrue(snapshot.getConceptByUuid(concept.getUuid()).isNumeric());
+		}
+		finally {
+			conceptService.purgeConcept(concept);
+			commitTestTransaction();
+		}
+	}
+	
+	/**
+	 * @see ConceptService#getConceptDictionarySnapshot()
+	 * @verifies not contain changes that are not committed
+	 */
+	@Test
+	public void getConceptDictionarySnapshot_shouldNotContainChangesThatAreNotCommitted() throws Exception {
+		ConceptDictionarySnapshot snapshot = getNewConceptDictionarySnapshot();
+		
+		Concept concept = conceptService.getConcept(21);
+		concept.getName(Locale.ENGLISH).setName("FOOD ASSISTANCE");
+		conceptService.saveConcept(concept);
+		Concept newConcept = saveSnapshotConcept();
+		Context.flushSession();
+		
+		assertSame(snapshot, conceptService.getConceptDictionarySnapshot());
+		assertEquals("FOOD ASSISTANCE FOR ENTIRE FAMILY", snapshot.getConceptByUuid(FOOD_ASSISTANCE_UUID).getName(
+		    Locale.ENGLISH));
+		assertNull(snapshot.getConceptByUuid(newConcept.getUuid()));
+	}
+	
+	/**
+	 * @see ConceptService#getConceptDictionarySnapshot()
+	 * @verifies not contain purged concepts
+	 */
+	@Test
+	public void getConceptDictionarySnapshot_shouldNotContainPurgedConcepts() throws Exception {
+		Concept concept = saveSnapshotConcept();
+		commitTestTransaction();
+		try {
+			assertNotNull(getNewConceptDictionarySnapshot().getConceptByUuid(concept.getUuid()));
+		}
+		finally {
+			conceptService.purgeConcept(concept);
+			commitTestTransaction();
+		}
+		
+		ConceptDictionarySnapshot snapshot = conceptService.getConceptDictionarySnapshot();
+		assertNull(snapshot.getConceptByUuid(concept.getUuid()));
+		assertTrue(snapshot.getConceptsByName("Snapshot concept").isEmpty());
+	}
+	
+	/**
+	 * @see ConceptService#getConceptDictionarySnapshot()
+	 * @verifies not change snapshots returned earlier
+	 */
+	@Test
+	public void getConceptDictionarySnapshot_shouldNotChangeSnapshotsReturnedEarlier() throws Exception {
+		ConceptDictionarySnapshot before = getNewConceptDictionarySnapshot();
+		Concept concept = saveSnapshotConcept();
+		commitTestTransaction();
+		try {
+			assertNotNull(conceptService.getConceptDictionarySnapshot().getConceptByUuid(concept.getUuid()));
+			assertNull(before.getConceptByUuid(concept.getUuid()));
+		}
+		finally {
+			conceptService.purgeConcept(concept);
+			commitTestTransaction();
+		}
+	}
+	
+	/**
+	 * @see ConceptService#refreshConceptDictionarySnapshot(Collection)
+	 * @verifies read the given concepts again
+	 */
+	@Test
+	public void refreshConceptDictionarySnapshot_shouldReadTheGivenConceptsAgain() throws Exception {
+		getNewConceptDictionarySnapshot();
+		// as if the concept was changed by another node
+		Context.getAdministrationService().executeSQL("update concept set is_set = 1 where concept_id = 21", false);
+		getConnection().commit();
+		try {
+			assertFalse(conceptService.getConceptDictionarySnapshot().getConceptByUuid(FOOD_ASSISTANCE_UUID).isSet());
+			
+			conceptService.refreshConceptDictionarySnapshot(Collections.singleton(21));
+			
+			assertTrue(conceptService.getConceptDictionarySnapshot().getConceptByUuid(FOOD_ASSISTANCE_UUID).isSet());
+		}
+		finally {
+			Context.getAdministrationService().executeSQL("update concept set is_set = 0 where concept_id = 21", false);
+			getConnection().commit();
+		}
+	}
+	
+	/**
+	 * @see ConceptService#saveConceptClass(ConceptClass)
+	 * @verifies update the dictionary snapshot once the change is committed
+	 */
+	@Test
+	public void saveConceptClass_shouldUpdateTheDictionarySnapshotOnceTheChangeIsCommitted() throws Exception {
+		getNewConceptDictionarySnapshot();
+		ConceptClass conceptClass = conceptService.getConceptClassByName("Question");
+		conceptClass.setName("Query");
+		conceptService.saveConceptClass(conceptClass);
+		Context.flushSession();
+		assertEquals("Question", conceptService.getConceptDictionarySnapshot().getConceptByUuid(FOOD_ASSISTANCE_UUID)
+		        .getClassName());
+		
+		commitTestTransaction();
+		try {
+			assertEquals("Query", conceptService.getConceptDictionarySnapshot().getConceptByUuid(FOOD_ASSISTANCE_UUID)
+			        .getClassName());
+		}
+		finally {
+			Context.getAdministrationService().executeSQL(
+			    "update concept_class set name = 'Question' where concept_class_id = 7", false);
+			getConnection().commit();
+		}
+	}
+	
+	/**
+	 * @see ConceptService#getConceptByUuid(String)
+	 * @verifies find concepts through the dictionary snapshot once it is loaded
+	 */
+	@Test
+	public void getConceptByUuid_shouldFindConceptsThroughTheDictionarySnapshotOnceItIsLoaded() throws Exception {
+		getNewConceptDictionarySnapshot();
+		Concept concept = saveSnapshotConcept();
+		
+		assertEquals(21, conceptService.getConceptByUuid(FOOD_ASSISTANCE_UUID).getConceptId().intValue());
+		assertEquals(concept, conceptService.getConceptByUuid(concept.getUuid()));
+		assertNull(conceptService.getConceptByUuid("some invalid uuid"));
+	}
+	
+	/**
+	 * @see ConceptService#getConceptByName(String)
+	 * @verifies find concepts through the dictionary snapshot once it is loaded
+	 */
+	@Test
+	public void getConceptByName_shouldFindConceptsThroughTheDictionarySnapshotOnceItIsLoaded() throws Exception {
+		getNewConceptDictionarySnapshot();
+		Concept concept = saveSnapshotConcept();
+		
+		assertEquals(21, conceptService.getConceptByName("food assistance for entire family").getConceptId().intValue());
+		assertEquals(concept, conceptService.getConceptByName("Snapshot concept"));
+		assertNull(conceptService.getConceptByName("some invalid name"));
+	}
+	
+	/**
+	 * @see ConceptService#getConceptByName(String)
+	 * @verifies find concepts renamed in the current transaction while the dictionary snapshot is
+	 *           loaded
+	 */
+	@Test
+	public void getConceptByName_shouldFindConceptsRenamedInTheCurrentTransactionWhileTheDictionarySnapshotIsLoaded()
+	        throws Exception {
+		getNewConceptDictionarySnapshot();
+		Concept concept = conceptService.getConcept(21);
+		concept.getName(Locale.ENGLISH).setName("FOOD ASSISTANCE");
+		conceptService.saveConcept(concept);
+		
+		assertEquals(concept, conceptService.getConceptByName("FOOD ASSISTANCE"));
+		assertNull(conceptService.getConceptByName("FOOD ASSISTANCE FOR ENTIRE FAMILY"));
+	}
+	
+	/**
+	 * @see ConceptService#getConceptsByMapping(String,String,boolean)
+	 * @verifies return concepts mapped after the first lookup
+	 */
+	@Test
+	public void getConceptsByMapping_shouldReturnConceptsMappedAfterTheFirstLookup() throws Exception {
+		assertThat(conceptService.getConceptsByMapping("2332523", "SCT", true), contains(hasId(5089)));
+		
+		Concept concept = conceptService.getConcept(21);
+		concept.addConceptMapping(new ConceptMap(conceptService.getConceptReferenceTerm(3), null));
+		conceptService.saveConcept(concept);
+		
+		assertThat(conceptService.getConceptsByMapping("2332523", "SCT", true), contains(hasId(5089), hasId(21)));
+		assertThat(conceptService.getConceptsByMapping("2332523", "SNOMED CT", true), contains(hasId(5089), hasId(21)));
+	}
+	
+	/**
+	 * @see ConceptService#getConceptsByMapping(String,String,boolean)
+	 * @verifies ignore the case of the code and source
+	 */
+	@Test
+	public void getConceptsByMapping_shouldIgnoreTheCaseOfTheCodeAndSource() throws Exception {
+		assertThat(conceptService.getConceptsByMapping("wgt234", "sstrm", true), contains(hasId(5089)));
+		assertThat(conceptService.getConceptsByMapping("Wgt234", "some standardized TERMINOLOGY", true),
+		    contains(hasId(5089)));
+		assertEquals(16, conceptService.getConceptByMapping("127CD4689", "Sstrm").getConceptId().intValue());
+	}
+	
+	/**
+	 * @see ConceptService#getConceptsByMapping(String,String,boolean)
+	 * @verifies not return concepts whose mapping was removed
+	 */
+	@Test
+	public void getConceptsByMapping_shouldNotReturnConceptsWhoseMappingWasRemoved() throws Exception {
+		assertThat(conceptService.getConceptsByMapping("WGT234", "SSTRM", true), contains(hasId(5089)));
+		
+		Concept concept = conceptService.getConcept(5089);
+		for (ConceptMap map : new ArrayList<ConceptMap>(concept.getConceptMappings())) {
+			if (map.getConceptReferenceTerm().getCode().equals("WGT234")) {
+				concept.removeConceptMapping(map);
+			}
+		}
+		conceptService.saveConcept(concept);
+		
+		assertThat(conceptService.getConceptsByMapping("WGT234", "SSTRM", true), is(empty()));
+		assertThat(conceptService.getConceptsByMapping("2332523", "SCT", true), contains(hasId(5089)));
+	}
+	
+	/**
+	 * @see ConceptService#getConceptsByMapping(String,String,boolean)
+	 * @verifies find concepts by the new code of a changed term
+	 */
+	@Test
+	public void getConceptsByMapping_shouldFindConceptsByTheNewCodeOfAChangedTerm() throws Exception {
+		assertThat(conceptService.getConceptsByMapping("WGT234", "SSTRM", true), contains(hasId(5089)));
+		
+		ConceptReferenceTerm term = conceptService.getConceptReferenceTerm(1);
+		term.setCode("WGT999");
+		conceptService.saveConceptReferenceTerm(term);
+		
+		assertThat(conceptService.getConceptsByMapping("WGT234", "SSTRM", true), is(empty()));
+		assertThat(conceptService.getConceptsByMapping("WGT999", "SSTRM", true), contains(hasId(5089)));
+	}
+	
+	/**
+	 * @see ConceptService#importConcepts(List)
+	 * @verifies insert concepts with their names descriptions and mappings
+	 */
+	@Test
+	public void importConcepts_shouldInsertConceptsWithTheirNamesDescriptionsAndMappings() throws Exception {
+		Concept concept = newConceptToImport("IMPORTED CONCEPT");
+		concept.addName(new ConceptName("IMPORTED SYNONYM", Locale.ENGLISH));
+		concept.addDescription(new ConceptDescription("An imported concept", Locale.ENGLISH));
+		concept.addConceptMapping(new ConceptMap(new ConceptReferenceTerm(conceptService.getConceptSource(2), "99999",
+		        null), conceptService.getConceptMapType(2)));
+		
+		List<Concept> skipped = conceptService.importConcepts(Collections.singletonList(concept));
+		
+		assertTrue(skipped.isEmpty());
+		assertNotNull(concept.getConceptId());
+		Concept imported = conceptService.getConceptByUuid(concept.getUuid());
+		assertEquals(concept.getConceptId(), imported.getConceptId());
+		assertEquals("IMPORTED CONCEPT", imported.getFullySpecifiedName(Locale.ENGLISH).getName());
+		assertEquals(2, imported.getNames().size());
+		assertEquals("An imported concept", imported.getDescription(Locale.ENGLISH).getDescription());
+		assertEquals(1, imported.getConceptMappings().size());
+		ConceptReferenceTerm term = imported.getConceptMappings().iterator().next().getConceptReferenceTerm();
+		assertEquals("99999", term.getCode());
+		assertEquals(2, term.getConceptSource().getConceptSourceId().intValue());
+	}
+	
+	/**
+	 * @see ConceptService#importConcepts(List)
+	 * @verifies skip concepts with an existing uuid or fully specified name
+	 */
+	@Test
+	public void importConcepts_shouldSkipConceptsWithAnExistingUuidOrFullySpecifiedName() throws Exception {
+		Concept existingUuid = newConceptToImport("IMPORTED CONCEPT");
+		existingUuid.setUuid(conceptService.getConcept(5089).getUuid());
+		Concept existingName = newConceptToImport("WEIGHT (KG)");
+		Concept newConcept = newConceptToImport("ANOTHER IMPORTED CONCEPT");
+		
+		List<Concept> skipped = conceptService.importConcepts(Arrays.asList(existingUuid, existingName, newConcept));
+		
+		assertEquals(2, skipped.size());
+		assertTrue(skipped.contains(existingUuid));
+		assertTrue(skipped.contains(existingName));
+		assertNull(existingName.getConceptId());
+		assertNotNull(conceptService.getConceptByUuid(newConcept.getUuid()));
+	}
+	
+	/**
+	 * @see ConceptService#importConcepts(List)
+	 * @verifies reuse existing reference terms
+	 */
+	@Test
+	public void importConcepts_shouldReuseExistingReferenceTerms() throws Exception {
+		ConceptSource source = conceptService.getConceptSource(1);
+		ConceptMapType mapType = conceptService.getConceptMapType(2);
+		Concept first = newConceptToImport("IMPORTED CONCEPT");
+		first.addConceptMapping(new ConceptMap(new ConceptReferenceTerm(source, "WGT234", null), mapType));
+		first.addConceptMapping(new ConceptMap(new ConceptReferenceTerm(source, "NEW123", null), mapType));
+		Concept second = newConceptToImport("ANOTHER IMPORTED CONCEPT");
+		second.addConceptMapping(new ConceptMap(new ConceptReferenceTerm(source, "WGT234", null), mapType));
+		second.addConceptMapping(new ConceptMap(new ConceptReferenceTerm(source, "NEW123", null), mapType));
+		
+		conceptService.importConcepts(Arrays.asList(first, second));
+		
+		Integer newTermId = conceptService.getConceptReferenceTermByCode("NEW123", source).getConceptReferenceTermId();
+		for (Concept concept : Arrays.asList(first, second)) {
+			Set<Integer> termIds = new HashSet<Integer>();
+			for (ConceptMap map : conceptService.getConceptByUuid(concept.getUuid()).getConceptMappings()) {
+				termIds.add(map.getConceptReferenceTerm().getConceptReferenceTermId());
+			}
+			assertEquals(new HashSet<Integer>(Arrays.asList(1, newTermId)), termIds);
+		}
+	}
+	
+	private Concept newConceptToImport(String fullySpecifiedName) {
+		Concept concept = new Concept();
+		concept.setConceptClass(conceptService.getConceptClass(1));
+		concept.setDatatype(conceptService.getConceptDatatype(4));
+		ConceptName name = new ConceptName(fullySpecifiedName, Locale.ENGLISH);
+		name.setConceptNameType(ConceptNameType.FULLY_SPECIFIED);
+		name.setLocalePreferred(true);
+		concept.addName(name);
+		return concept;
+	}
 }
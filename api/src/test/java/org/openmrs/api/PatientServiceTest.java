@@ -35,9 +35,12 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.Vector;
 
 import org.apache.commons.collections.CollectionUtils;
@@ -75,6 +78,7 @@ import org.openmrs.activelist.Problem;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.impl.PatientServiceImpl;
 import org.openmrs.comparator.PatientIdentifierTypeDefaultComparator;
+import org.openmrs.patient.DuplicatePatientRecord;
 import org.openmrs.patient.IdentifierValidator;
 import org.openmrs.person.PersonMergeLog;
 import org.openmrs.person.PersonMergeLogData;
@@ -116,6 +120,8 @@ public class PatientServiceTest extends BaseContextSensitiveTest {
 	
 	private static final String PATIENT_MERGE_XML = "org/openmrs/api/include/PatientServiceTest-mergePatients.xml";
 	
+	private static final String DUPLICATE_PATIENTS_XML = "org/openmrs/patient/include/DuplicatePatientDetectorTest.xml";
+	
 	// Services
 	protected static PatientService patientService = null;
 	
@@ -565,6 +571,7 @@ public class PatientServiceTest extends BaseContextSensitiveTest {
 	public void getPatients_shouldAllowSearchStringToBeOneAccordingToMinsearchcharactersGlobalProperty() throws Exception {
 		initializeInMemoryDatabase();
 		executeDataSet(FIND_PATIENTS_XML);
+		updateSearchIndex();
 		
 		// make sure the default of "2" kicks in and blocks any results
 		assertEquals(0, Context.getPatientService().getPatients("J").size());
@@ -3556,4 +3563,380 @@ public class PatientServiceTest extends BaseContextSensitiveTest {
 		Patient notPreferredPatient = patientService.getPatient(7);
 		patientService.mergePatients(preferredPatient, notPreferredPatient);
 	}
+	
+	/**
+	 * @see PatientService#getDuplicatePatientsByAttributes(List)
+	 * @verifies fetch patients that exactly match on all given attributes
+	 */
+	@Test
+	public void getDuplicatePatientsByAttributes_shouldFetchPatientsThatExactlyMatchOnAllGivenAttributes()
+	        throws Exception {
+		executeDataSet(PATIENT_MERGE_XML);
+		
+		List<Patient> patients = patientService.getDuplicatePatientsByAttributes(Arrays.asList("gender", "givenName",
+		    "familyName"));
+		
+		assertTrue(patients.contains(patientService.getPatient(10000)));
+		assertTrue(patients.contains(patientService.getPatient(10001)));
+		assertFalse(patients.contains(patientService.getPatient(2)));
+	}
+	
+	/**
+	 * @see PatientService#getDuplicatePatientsByAttributes(List)
+	 * @verifies not return patients that exactly match on some but not all given attributes
+	 */
+	@Test
+	public void getDuplicatePatientsByAttributes_shouldNotReturnPatientsThatExactlyMatchOnSomeButNotAllGivenAttributes()
+	        throws Exception {
+		executeDataSet(DUPLICATE_PATIENTS_XML);
+		
+		List<Patient> patients = patientService.getDuplicatePatientsByAttributes(Arrays.asList("gender", "givenName",
+		    "familyName"));
+		
+		assertFalse(patients.contains(patientService.getPatient(20002)));
+		assertFalse(patients.contains(patientService.getPatient(20003)));
+		assertTrue(patientService.getDuplicatePatientsByAttributes(Arrays.asList("gender", "givenName")).contains(
+		    patientService.getPatient(20003)));
+	}
+	
+	/**
+	 * @see PatientService#getDuplicatePatientsByAttributes(List)
+	 * @verifies not return voided patients unless includeVoided is given
+	 */
+	@Test
+	public void getDuplicatePatientsByAttributes_shouldNotReturnVoidedPatientsUnlessIncludeVoidedIsGiven()
+	        throws Exception {
+		executeDataSet(PATIENT_MERGE_XML);
+		patientService.voidPatient(patientService.getPatient(10001), "duplicate");
+		
+		assertFalse(patientService.getDuplicatePatientsByAttributes(Arrays.asList("gender", "givenName", "familyName"))
+		        .contains(patientService.getPatient(10000)));
+		List<Patient> patients = patientService.getDuplicatePatientsByAttributes(Arrays.asList("gender", "givenName",
+		    "familyName", "includeVoided"));
+		assertTrue(patients.contains(patientService.getPatient(10000)));
+		assertTrue(patients.contains(patientService.getPatient(10001)));
+	}
+	
+	/**
+	 * @see PatientService#getPatientIds(Date, Integer, int)
+	 * @verifies return the ids after the given id
+	 */
+	@Test
+	public void getPatientIds_shouldReturnTheIdsAfterTheGivenId() throws Exception {
+		executeDataSet(DUPLICATE_PATIENTS_XML);
+		
+		assertEquals(Arrays.asList(20001, 20002), patientService.getPatientIds(null, 20000, 2));
+		assertEquals(Arrays.asList(20003), patientService.getPatientIds(null, 20002, 2));
+	}
+	
+	/**
+	 * @see PatientService#getPatientIds(Date, Integer, int)
+	 * @verifies only return patients changed since the given date
+	 */
+	@Test
+	public void getPatientIds_shouldOnlyReturnPatientsChangedSinceTheGivenDate() throws Exception {
+		executeDataSet(DUPLICATE_PATIENTS_XML);
+		
+		assertEquals(Arrays.asList(20001), patientService.getPatientIds(new GregorianCalendar(2014, 0, 1).getTime(),
+		    null, 100));
+	}
+	
+	/**
+	 * @see PatientService#getDuplicatePatientRecords(Collection)
+	 * @verifies return the names and identifiers of the patients
+	 */
+	@Test
+	public void getDuplicatePatientRecords_shouldReturnTheNamesAndIdentifiersOfThePatients() throws Exception {
+		executeDataSet(DUPLICATE_PATIENTS_XML);
+		
+		List<DuplicatePatientRecord> records = patientService.getDuplicatePatientRecords(Arrays.asList(20000));
+		
+		assertEquals(1, records.size());
+		DuplicatePatientRecord record = records.get(0);
+		assertEquals(20000, record.getPatientId().intValue());
+		assertEquals("M", record.getGender());
+		assertEquals(1980, record.getBirthYear().intValue());
+		assertEquals(1, record.getNames().size());
+		assertEquals("John", record.getNames().get(0).getGivenName());
+		assertEquals("Smith", record.getNames().get(0).getFamilyName());
+		assertEquals(Collections.singleton("1001"), record.getIdentifierFragments());
+	}
+	
+	/**
+	 * @see PatientService#getDuplicatePatientCandidateIds(Collection)
+	 * @verifies return patients sharing a blocking key
+	 */
+	@Test
+	public void getDuplicatePatientCandidateIds_shouldReturnPatientsSharingABlockingKey() throws Exception {
+		executeDataSet(DUPLICATE_PATIENTS_XML);
+		Context.getPersonService().updatePersonNamePhoneticKeys(1000);
+		
+		Set<Integer> candidateIds = patientService.getDuplicatePatientCandidateIds(patientService
+		        .getDuplicatePatientRecords(Arrays.asList(20000, 20002)));
+		
+		assertTrue(candidateIds.contains(20000));
+		assertTrue(candidateIds.contains(20001));
+		assertTrue(candidateIds.contains(20002));
+		assertTrue(candidateIds.contains(20003));
+		assertFalse(candidateIds.contains(7));
+	}
+	
+	/**
+	 * @see PatientService#getDuplicatePatientCandidateIds(Collection)
+	 * @verifies only match the given and family name keys of the same name
+	 */
+	@Test
+	public void getDuplicatePatientCandidateIds_shouldOnlyMatchTheGivenAndFamilyNameKeysOfTheSameName() throws Exception {
+		executeDataSet(DUPLICATE_PATIENTS_XML);
+		Context.getPersonService().updatePersonNamePhoneticKeys(1000);
+		
+		// John Smith, Jon Smyth and Mary Okoth only share keys with a mix of these names
+		DuplicatePatientRecord johnOkoth = new DuplicatePatientRecord(null, "M", null);
+		johnOkoth.addName("John", "Okoth");
+		DuplicatePatientRecord marySmith = new DuplicatePatientRecord(null, "F", null);
+		marySmith.addName("Mary", "Smith");
+		
+		Set<Integer> candidateIds = patientService.getDuplicatePatientCandidateIds(Arrays.asList(johnOkoth, marySmith));
+		
+		assertFalse(candidateIds.contains(20000));
+		assertFalse(candidateIds.contains(20001));
+		assertFalse(candidateIds.contains(20003));
+	}
+	
+	/**
+	 * @see PatientService#mergePatientsInBulk(Patient, Patient)
+	 * @verifies move visits encounters observations and orders to preferred patient
+	 */
+	@Test
+	public void mergePatientsInBulk_shouldMoveVisitsEncountersObservationsAndOrdersToPreferredPatient() throws Exception {
+		executeDataSet(ENCOUNTERS_FOR_VISITS_XML);
+		VisitService visitService = Context.getVisitService();
+		EncounterService encounterService = Context.getEncounterService();
+		OrderService orderService = Context.getOrderService();
+		Patient notPreferred = patientService.getPatient(2);
+		voidOrders(Collections.singleton(notPreferred));
+		Patient preferred = patientService.getPatient(6);
+		int visitCount = visitService.getVisitsByPatient(preferred, true, true).size()
+		        + visitService.getVisitsByPatient(notPreferred, true, true).size();
+		List<Integer> orderIds = new ArrayList<Integer>();
+		for (Order order : orderService.getAllOrdersByPatient(notPreferred)) {
+			orderIds.add(order.getOrderId());
+		}
+		assertFalse(orderIds.isEmpty());
+		
+		patientService.mergePatientsInBulk(preferred, notPreferred);
+		
+		assertEquals(visitCount, visitService.getVisitsByPatient(preferred, true, true).size());
+		assertTrue(visitService.getVisitsByPatient(notPreferred, true, true).isEmpty());
+		assertTrue(encounterService.getEncounters(notPreferred, null, null, null, null, null, null, null, null, true)
+		        .isEmpty());
+		for (Encounter encounter : encounterService.getEncounters(preferred, null, null, null, null, null, null, null,
+		    null, true)) {
+			for (Obs obs : encounter.getAllObs(true)) {
+				assertEquals(preferred.getPatientId(), obs.getPerson().getPersonId());
+			}
+		}
+		assertTrue(Context.getObsService().getObservationsByPerson(notPreferred).isEmpty());
+		for (Integer orderId : orderIds) {
+			assertEquals(preferred, orderService.getOrder(orderId).getPatient());
+		}
+	}
+	
+	/**
+	 * @see PatientService#mergePatientsInBulk(Patient, Patient)
+	 * @verifies not move voided observations that are not part of an encounter
+	 */
+	@Test
+	public void mergePatientsInBulk_shouldNotMoveVoidedObservationsThatAreNotPartOfAnEncounter() throws Exception {
+		ObsService obsService = Context.getObsService();
+		Patient preferred = patientService.getPatient(6);
+		Patient notPreferred = patientService.getPatient(7);
+		voidOrders(Collections.singleton(notPreferred));
+		Obs obs = new Obs(notPreferred, Context.getConceptService().getConcept(5089), new Date(), new Location(1));
+		obs.setValueNumeric(70.0);
+		obsService.saveObs(obs, null);
+		Obs voidedObs = new Obs(notPreferred, Context.getConceptService().getConcept(5089), new Date(), new Location(1));
+		voidedObs.setValueNumeric(80.0);
+		obsService.voidObs(obsService.saveObs(voidedObs, null), "test");
+		
+		patientService.mergePatientsInBulk(preferred, notPreferred);
+		
+		assertEquals(notPreferred.getPatientId(), obsService.getObs(voidedObs.getObsId()).getPerson().getPersonId());
+		assertEquals("test", obsService.getObs(voidedObs.getObsId()).getVoidReason());
+		PersonMergeLogData mergeLogData = personService.getAllPersonMergeLogs(true).get(0).getPersonMergeLogData();
+		assertEquals(1, mergeLogData.getMovedIndependentObservations().size());
+	}
+	
+	/**
+	 * @see PatientService#mergePatientsInBulk(Patient, Patient)
+	 * @verifies void and copy observations that are not part of an encounter
+	 */
+	@Test
+	public void mergePatientsInBulk_shouldVoidAndCopyObservationsThatAreNotPartOfAnEncounter() throws Exception {
+		ObsService obsService = Context.getObsService();
+		Patient preferred = patientService.getPatient(6);
+		Patient notPreferred = patientService.getPatient(7);
+		voidOrders(Collections.singleton(notPreferred));
+		Obs obs = new Obs(notPreferred, Context.getConceptService().getConcept(5089), new Date(), new Location(1));
+		obs.setValueNumeric(70.0);
+		obsService.saveObs(obs, null);
+		
+		patientService.mergePatientsInBulk(preferred, notPreferred);
+		
+		Obs original = obsService.getObs(obs.getObsId());
+		assertTrue(original.isVoided());
+		assertEquals(notPreferred.getPatientId(), original.getPerson().getPersonId());
+		assertEquals("Merged from patient #" + notPreferred.getPatientId(), original.getVoidReason());
+		PersonMergeLogData mergeLogData = personService.getAllPersonMergeLogs(true).get(0).getPersonMergeLogData();
+		assertEquals(1, mergeLogData.getMovedIndependentObservations().size());
+		Obs copy = obsService.getObsByUuid(mergeLogData.getMovedIndependentObservations().get(0));
+		assertFalse(copy.isVoided());
+		assertEquals(preferred.getPatientId(), copy.getPerson().getPersonId());
+		assertEquals(original, copy.getPreviousVersion());
+		assertEquals(70.0, copy.getValueNumeric(), 0);
+		assertFalse(mergeLogData.getMovedObservationIds().contains(obs.getObsId()));
+	}
+	
+	/**
+	 * @see PatientService#mergePatientsInBulk(Patient, Patient)
+	 * @verifies audit the ids of the moved rows
+	 */
+	@Test
+	public void mergePatientsInBulk_shouldAuditTheIdsOfTheMovedRows() throws Exception {
+		executeDataSet(ENCOUNTERS_FOR_VISITS_XML);
+		Patient notPreferred = patientService.getPatient(2);
+		voidOrders(Collections.singleton(notPreferred));
+		Patient preferred = patientService.getPatient(6);
+		Set<Integer> visitIds = new TreeSet<Integer>();
+		for (Visit visit : Context.getVisitService().getVisitsByPatient(notPreferred, true, true)) {
+			visitIds.add(visit.getVisitId());
+		}
+		Set<Integer> encounterIds = new TreeSet<Integer>();
+		for (Encounter encounter : Context.getEncounterService().getEncounters(notPreferred, null, null, null, null,
+		    null, null, null, null, true)) {
+			encounterIds.add(encounter.getEncounterId());
+		}
+		
+		patientService.mergePatientsInBulk(preferred, notPreferred);
+		
+		PersonMergeLogData mergeLogData = personService.getAllPersonMergeLogs(true).get(0).getPersonMergeLogData();
+		assertEquals(new ArrayList<Integer>(visitIds), mergeLogData.getMovedVisitIds());
+		assertEquals(new ArrayList<Integer>(encounterIds), mergeLogData.getMovedEncounterIds());
+		assertFalse(mergeLogData.getMovedObservationIds().isEmpty());
+		assertNull(mergeLogData.getMovedVisits());
+	}
+	
+	/**
+	 * @see PatientService#mergePatientsInBulk(Patient, Patient)
+	 * @verifies merge names and identifiers like a regular merge
+	 */
+	@Test
+	public void mergePatientsInBulk_shouldMergeNamesAndIdentifiersLikeARegularMerge() throws Exception {
+		Patient preferred = patientService.getPatient(7);
+		Patient notPreferred = patientService.getPatient(8);
+		voidOrders(Collections.singleton(notPreferred));
+		Set<String> identifiers = new HashSet<String>();
+		for (PatientIdentifier identifier : notPreferred.getActiveIdentifiers()) {
+			identifiers.add(identifier.getIdentifier());
+		}
+		
+		patientService.mergePatientsInBulk(preferred, notPreferred);
+		
+		Patient merged = patientService.getPatient(7);
+		assertThat(merged.getNames(), containsFullName("Anet Test Oloo"));
+		Set<String> mergedIdentifiers = new HashSet<String>();
+		for (PatientIdentifier identifier : merged.getActiveIdentifiers()) {
+			mergedIdentifiers.add(identifier.getIdentifier());
+		}
+		assertTrue(mergedIdentifiers.containsAll(identifiers));
+	}
+	
+	/**
+	 * @see PatientService#mergePatientsInBulk(Patient, Patient)
+	 * @verifies void non preferred patient
+	 */
+	@Test
+	public void mergePatientsInBulk_shouldVoidNonPreferredPatient() throws Exception {
+		Patient notPreferred = patientService.getPatient(8);
+		voidOrders(Collections.singleton(notPreferred));
+		
+		patientService.mergePatientsInBulk(patientService.getPatient(7), notPreferred);
+		
+		assertTrue(patientService.getPatient(8).isVoided());
+	}
+	
+	/**
+	 * @see PatientService#mergePatientsInBulk(Patient, Patient)
+	 * @verifies not merge the same patient to itself
+	 */
+	@Test(expected = APIException.class)
+	public void mergePatientsInBulk_shouldNotMergeTheSamePatientToItself() throws Exception {
+		Patient patient = patientService.getPatient(7);
+		patientService.mergePatientsInBulk(patient, patient);
+	}
+	
+	/**
+	 * @see PatientService#mergePatientsInBulk(Patient, Patient)
+	 * @verifies fail if not preferred patient has unvoided orders
+	 */
+	@Test
+	public void mergePatientsInBulk_shouldFailIfNotPreferredPatientHasUnvoidedOrders() throws Exception {
+		expectedException.expect(APIException.class);
+		expectedException.expectMessage(Matchers
+		        .is("Cannot merge patients where the not preferred patient has unvoided orders"));
+		patientService.mergePatientsInBulk(patientService.getPatient(8), patientService.getPatient(7));
+	}
+	
+	/**
+	 * @see PatientService#mergePatientsInBulk(Map)
+	 * @verifies merge all pairs of the batch
+	 */
+	@Test
+	public void mergePatientsInBulk_shouldMergeAllPairsOfTheBatch() throws Exception {
+		Patient notPreferred2 = patientService.getPatient(2);
+		Patient notPreferred8 = patientService.getPatient(8);
+		voidOrders(Arrays.asList(notPreferred2, notPreferred8));
+		Map<Patient, List<Patient>> duplicates = new LinkedHashMap<Patient, List<Patient>>();
+		duplicates.put(patientService.getPatient(6), Arrays.asList(notPreferred2));
+		duplicates.put(patientService.getPatient(7), Arrays.asList(notPreferred8));
+		
+		patientService.mergePatientsInBulk(duplicates);
+		
+		assertTrue(patientService.getPatient(2).isVoided());
+		assertTrue(patientService.getPatient(8).isVoided());
+		assertFalse(patientService.getPatient(6).isVoided());
+		assertFalse(patientService.getPatient(7).isVoided());
+	}
+	
+	/**
+	 * @see PatientService#mergePatientsInBulk(Map)
+	 * @verifies fail if a not preferred patient is merged twice
+	 */
+	@Test
+	public void mergePatientsInBulk_shouldFailIfANotPreferredPatientIsMergedTwice() throws Exception {
+		Map<Patient, List<Patient>> duplicates = new LinkedHashMap<Patient, List<Patient>>();
+		duplicates.put(patientService.getPatient(6), Arrays.asList(patientService.getPatient(8)));
+		duplicates.put(patientService.getPatient(7), Arrays.asList(patientService.getPatient(8)));
+		
+		try {
+			patientService.mergePatientsInBulk(duplicates);
+			fail("A patient was merged twice");
+		}
+		catch (APIException e) {
+			assertFalse(patientService.getPatient(8).isVoided());
+		}
+	}
+	
+	/**
+	 * @see PatientService#mergePatientsInBulk(Map)
+	 * @verifies fail if a not preferred patient is also a preferred patient
+	 */
+	@Test(expected = APIException.class)
+	public void mergePatientsInBulk_shouldFailIfANotPreferredPatientIsAlsoAPreferredPatient() throws Exception {
+		Map<Patient, List<Patient>> duplicates = new LinkedHashMap<Patient, List<Patient>>();
+		duplicates.put(patientService.getPatient(7), Arrays.asList(patientService.getPatient(8)));
+		duplicates.put(patientService.getPatient(8), Arrays.asList(patientService.getPatient(2)));
+		
+		patientService.mergePatientsInBulk(duplicates);
+	}
 }
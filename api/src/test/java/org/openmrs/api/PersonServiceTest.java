@@ -446,6 +446,7 @@ public class PersonServiceTest extends BaseContextSensitiveTest {
 	@Verifies(value = "should accept greater than three names", method = "getSimilarPeople(String,Integer,String)")
 	public void getSimilarPeople_shouldAcceptGreaterThanThreeNames() throws Exception {
 		executeDataSet("org/openmrs/api/include/PersonServiceTest-names.xml");
+		Context.getPersonService().updatePersonNamePhoneticKeys(1000);
 		Set<Person> matches = Context.getPersonService().getSimilarPeople("Darius Graham Jazayeri Junior", 1979, "M");
 		Assert.assertEquals(2, matches.size());
 		Assert.assertTrue(containsId(matches, 1006));
@@ -459,6 +460,7 @@ public class PersonServiceTest extends BaseContextSensitiveTest {
 	@Verifies(value = "should match single search to any name part", method = "getSimilarPeople(String,Integer,String)")
 	public void getSimilarPeople_shouldMatchSingleSearchToAnyNamePart() throws Exception {
 		executeDataSet("org/openmrs/api/include/PersonServiceTest-names.xml");
+		Context.getPersonService().updatePersonNamePhoneticKeys(1000);
 		Set<Person> matches = Context.getPersonService().getSimilarPeople("Darius", 1979, "M");
 		Assert.assertEquals(9, matches.size());
 		Assert.assertTrue(containsId(matches, 1000));
@@ -479,6 +481,7 @@ public class PersonServiceTest extends BaseContextSensitiveTest {
 	@Verifies(value = "should match two word search to any name part", method = "getSimilarPeople(String,Integer,String)")
 	public void getSimilarPeople_shouldMatchTwoWordSearchToAnyNamePart() throws Exception {
 		executeDataSet("org/openmrs/api/include/PersonServiceTest-names.xml");
+		Context.getPersonService().updatePersonNamePhoneticKeys(1000);
 		Set<Person> matches = Context.getPersonService().getSimilarPeople("Darius Graham", 1979, "M");
 		Assert.assertEquals(6, matches.size());
 		Assert.assertTrue(containsId(matches, 1000));
@@ -496,6 +499,7 @@ public class PersonServiceTest extends BaseContextSensitiveTest {
 	@Verifies(value = "should match three word search to any name part", method = "getSimilarPeople(String,Integer,String)")
 	public void getSimilarPeople_shouldMatchThreeWordSearchToAnyNamePart() throws Exception {
 		executeDataSet("org/openmrs/api/include/PersonServiceTest-names.xml");
+		Context.getPersonService().updatePersonNamePhoneticKeys(1000);
 		Set<Person> matches = Context.getPersonService().getSimilarPeople("Darius Graham Jazayeri", 1979, "M");
 		Assert.assertEquals(3, matches.size());
 		Assert.assertTrue(containsId(matches, 1003));
@@ -525,6 +529,7 @@ public class PersonServiceTest extends BaseContextSensitiveTest {
 	@Verifies(value = "should match search to familyName2", method = "getSimilarPeople(String,Integer,String)")
 	public void getSimilarPeople_shouldMatchSearchToFamilyName2() throws Exception {
 		executeDataSet("org/openmrs/api/include/PersonServiceTest-extranames.xml");
+		Context.getPersonService().updatePersonNamePhoneticKeys(1000);
 		
 		Set<Person> people = Context.getPersonService().getSimilarPeople("Johnson", null, "M");
 		Assert.assertEquals(2, people.size());
@@ -532,6 +537,40 @@ public class PersonServiceTest extends BaseContextSensitiveTest {
 		Assert.assertTrue(TestUtil.containsId(people, 4));
 	}
 	
+	/**
+	 * @see {@link PersonService#updatePersonNamePhoneticKeys(int)}
+	 */
+	@Test
+	@Verifies(value = "should set the phonetic keys of names without keys", method = "updatePersonNamePhoneticKeys(int)")
+	public void updatePersonNamePhoneticKeys_shouldSetThePhoneticKeysOfNamesWithoutKeys() throws Exception {
+		executeDataSet("org/openmrs/api/include/PersonServiceTest-names.xml");
+		PersonService service = Context.getPersonService();
+		
+		Assert.assertTrue(service.updatePersonNamePhoneticKeys(1000) > 0);
+		Assert.assertEquals(0, service.updatePersonNamePhoneticKeys(1000));
+		
+		PersonName name = service.getPersonName(1007);
+		Assert.assertEquals("D620", name.getGivenNameSoundex());
+		Assert.assertEquals("KRHM", name.getMiddleNameMetaphone());
+		Assert.assertEquals("J260", name.getFamilyNameSoundex());
+		Assert.assertEquals("", name.getFamilyName2Soundex());
+	}
+	
+	/**
+	 * @see {@link PersonService#updatePersonNamePhoneticKeys(int)}
+	 */
+	@Test
+	@Verifies(value = "should not update more names than the batch size", method = "updatePersonNamePhoneticKeys(int)")
+	public void updatePersonNamePhoneticKeys_shouldNotUpdateMoreNamesThanTheBatchSize() throws Exception {
+		executeDataSet("org/openmrs/api/include/PersonServiceTest-names.xml");
+		PersonService service = Context.getPersonService();
+		
+		Assert.assertEquals(2, service.updatePersonNamePhoneticKeys(2));
+		int remaining = service.updatePersonNamePhoneticKeys(1000);
+		Assert.assertTrue(remaining > 0);
+		Assert.assertEquals(0, service.updatePersonNamePhoneticKeys(2));
+	}
+	
 	/**
 	 * @see {@link PersonService#getAllPersonAttributeTypes()}
 	 */
@@ -2033,6 +2072,20 @@ public class PersonServiceTest extends BaseContextSensitiveTest {
 		Assert.assertTrue(person.isVoided());
 	}
 	
+	/**
+	 * @see PersonService#voidPerson(Person,String)
+	 * @verifies leave the voided patient out of patient searches
+	 */
+	@Test
+	public void voidPerson_shouldLeaveTheVoidedPatientOutOfPatientSearches() throws Exception {
+		Patient patient = Context.getPatientService().getPatient(2);
+		Assert.assertTrue(Context.getPatientService().getPatients("Horatio Hornblower").contains(patient));
+		
+		personService.voidPerson(patient, "reason");
+		
+		Assert.assertFalse(Context.getPatientService().getPatients("Horatio Hornblower").contains(patient));
+	}
+	
 	/**
 	 * @see {@link PersonService#saveRelationshipType(RelationshipType)}
 	 */
@@ -0,0 +1,80 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.context;
+
+import static org.junit.Assert.assertNotNull;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+import org.openmrs.api.AdministrationService;
+import org.openmrs.api.ConceptService;
+import org.openmrs.api.PatientService;
+import org.openmrs.api.UserService;
+import org.openmrs.test.BaseContextSensitiveTest;
+import org.openmrs.test.SkipBaseSetup;
+
+import com.carrotsearch.junitbenchmarks.BenchmarkOptions;
+import com.carrotsearch.junitbenchmarks.BenchmarkRule;
+import com.carrotsearch.junitbenchmarks.annotation.BenchmarkHistoryChart;
+
+/**
+ * Contention benchmark for {@link ServiceContext#getService(Class)}. Each round is run by 64
+ * concurrent threads; the synchronized variant reproduces the global monitor that every lookup
+ * used to take so that the two numbers can be compared side by side.
+ */
+@SkipBaseSetup
+@BenchmarkHistoryChart
+@BenchmarkOptions(concurrency = 64, warmupRounds = 64, benchmarkRounds = 640)
+public class ServiceContextPT extends BaseContextSensitiveTest {
+	
+	private static final int LOOKUPS_PER_ROUND = 10000;
+	
+	private static final Object globalLock = new Object();
+	
+	@Rule
+	public TestRule benchmarkRule = new BenchmarkRule();
+	
+	@Test
+	public void shouldLookUpServicesWithoutLocking() {
+		ServiceContext serviceContext = ServiceContext.getInstance();
+		for (int i = 0; i < LOOKUPS_PER_ROUND; i++) {
+			lookUpServices(serviceContext, false);
+		}
+	}
+	
+	@Test
+	public void shouldLookUpServicesUnderGlobalMonitor() {
+		ServiceContext serviceContext = ServiceContext.getInstance();
+		for (int i = 0; i < LOOKUPS_PER_ROUND; i++) {
+			lookUpServices(serviceContext, true);
+		}
+	}
+	
+	private void lookUpServices(ServiceContext serviceContext, boolean lock) {
+		assertNotNull(getService(serviceContext, ConceptService.class, lock));
+		assertNotNull(getService(serviceContext, PatientService.class, lock));
+		assertNotNull(getService(serviceContext, UserService.class, lock));
+		assertNotNull(getService(serviceContext, AdministrationService.class, lock));
+	}
+	
+	private Object getService(ServiceContext serviceContext, Class<?> cls, boolean lock) {
+		if (lock) {
+			synchronized (globalLock) {
+				serviceContext.isRefreshingContext();
+			}
+		}
+		return serviceContext.getService(cls);
+	}
+}
@@ -0,0 +1,85 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.context;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openmrs.Privilege;
+import org.openmrs.Role;
+import org.openmrs.api.UserService;
+import org.openmrs.test.BaseContextSensitiveTest;
+import org.openmrs.test.Verifies;
+import org.openmrs.util.RoleConstants;
+
+/**
+ * Tests the methods on the {@link UserContext} class
+ */
+public class UserContextTest extends BaseContextSensitiveTest {
+	
+	/**
+	 * @see {@link UserContext#hasPrivilege(String)}
+	 */
+	@Test
+	@Verifies(value = "should authorize if proxied user has specified privilege", method = "hasPrivilege(String)")
+	public void hasPrivilege_shouldAuthorizeIfProxiedUserHasSpecifiedPrivilege() throws Exception {
+		UserContext userContext = new UserContext();
+		Assert.assertFalse(userContext.hasPrivilege("Some proxied privilege"));
+		
+		userContext.addProxyPrivilege("Some proxied privilege");
+		Assert.assertTrue(userContext.hasPrivilege("Some proxied privilege"));
+	}
+	
+	/**
+	 * @see {@link UserContext#hasPrivilege(String)}
+	 */
+	@Test
+	@Verifies(value = "should not authorize if proxied user does not have specified privilege", method = "hasPrivilege(String)")
+	public void hasPrivilege_shouldNotAuthorizeIfProxiedUserDoesNotHaveSpecifiedPrivilege() throws Exception {
+		UserContext userContext = new UserContext();
+		userContext.addProxyPrivilege("Some proxied privilege");
+		Assert.assertTrue(userContext.hasPrivilege("Some proxied privilege"));
+		
+		userContext.removeProxyPrivilege("Some proxied privilege");
+		Assert.assertFalse(userContext.hasPrivilege("Some proxied privilege"));
+	}
+	
+	/**
+	 * @see {@link UserContext#hasPrivilege(String)}
+	 */
+	@Test
+	@Verifies(value = "should authorize if anonymous user has specified privilege", method = "hasPrivilege(String)")
+	public void hasPrivilege_shouldAuthorizeIfAnonymousUserHasSpecifiedPrivilege() throws Exception {
+		UserService userService = Context.getUserService();
+		Privilege privilege = userService.savePrivilege(new Privilege("Some anonymous privilege", "For testing"));
+		
+		UserContext userContext = new UserContext();
+		Assert.assertFalse(userContext.hasPrivilege(privilege.getPrivilege()));
+		
+		Role anonymous = userService.getRole(RoleConstants.ANONYMOUS);
+		anonymous.addPrivilege(privilege);
+		userService.saveRole(anonymous);
+		
+		Assert.assertTrue(userContext.hasPrivilege(privilege.getPrivilege()));
+	}
+	
+	/**
+	 * @see {@link UserContext#hasPrivilege(String)}
+	 */
+	@Test
+	@Verifies(value = "should not authorize if anonymous user does not have specified privilege", method = "hasPrivilege(String)")
+	public void hasPrivilege_shouldNotAuthorizeIfAnonymousUserDoesNotHaveSpecifiedPrivilege() throws Exception {
+		UserContext userContext = new UserContext();
+		Assert.assertFalse(userContext.hasPrivilege("Some privilege nobody has"));
+	}
+}
@@ -231,6 +231,7 @@ public class ConceptDAOTest extends BaseContextSensitiveTest {
 		c2.setConceptClass(cc);
 		c2.setDatatype(dt);
 		cs.saveConcept(c2);
+		updateSearchIndex();
 		
 		List<ConceptSearchResult> searchResults1 = dao
 		        .getConcepts("one", Collections.singletonList(locale), false, Collections.EMPTY_LIST,
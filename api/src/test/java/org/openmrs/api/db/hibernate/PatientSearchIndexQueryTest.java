@@ -0,0 +1,133 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.db.hibernate;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.WildcardQuery;
+import org.apache.lucene.search.regex.RegexQuery;
+import org.hibernate.SessionFactory;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.Patient;
+import org.openmrs.PersonAttribute;
+import org.openmrs.PersonAttributeType;
+import org.openmrs.PersonName;
+import org.openmrs.api.PatientService;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.db.hibernate.search.bridge.PatientSearchBridge;
+import org.openmrs.test.BaseContextSensitiveTest;
+
+public class PatientSearchIndexQueryTest extends BaseContextSensitiveTest {
+	
+	private PatientSearchIndexQuery patientSearchIndexQuery;
+	
+	private PatientService patientService;
+	
+	@Before
+	public void setUp() {
+		SessionFactory sessionFactory = (SessionFactory) applicationContext.getBean("sessionFactory");
+		patientSearchIndexQuery = new PatientSearchIndexQuery(sessionFactory);
+		patientService = Context.getPatientService();
+	}
+	
+	/**
+	 * @verifies find patients by name identifier and attribute
+	 * @see PatientSearchIndexQuery#getPatientIds(String, int, int)
+	 */
+	@Test
+	public void getPatientIds_shouldFindPatientsByNameIdentifierAndAttribute() throws Exception {
+		PersonAttributeType birthplace = Context.getPersonService().getPersonAttributeType(2);
+		birthplace.setSearchable(true);
+		Context.getPersonService().savePersonAttributeType(birthplace);
+		
+		Patient patient = patientService.getPatient(7);
+		patient.addAttribute(new PersonAttribute(birthplace, "Kakamega"));
+		patientService.savePatient(patient);
+		
+		Assert.assertEquals(Collections.singletonList(2), patientSearchIndexQuery.getPatientIds("Horatio", 0, 10));
+		Assert.assertEquals(Collections.singletonList(6), patientSearchIndexQuery.getPatientIds("12345K", 0, 10));
+		Assert.assertEquals(Collections.singletonList(7), patientSearchIndexQuery.getPatientIds("Kakamega", 0, 10));
+	}
+	
+	/**
+	 * @verifies find a patient with several matching names once
+	 * @see PatientSearchIndexQuery#getPatientIds(String, int, int)
+	 */
+	@Test
+	public void getPatientIds_shouldFindAPatientWithSeveralMatchingNamesOnce() throws Exception {
+		// Hornblower, Hornblower2 and Hornblower3 are all names of the same patient
+		Assert.assertEquals(Collections.singletonList(2), patientSearchIndexQuery.getPatientIds("Hornblower", 0, 10));
+	}
+	
+	/**
+	 * @verifies find patients saved in the current transaction
+	 * @see PatientSearchIndexQuery#getPatientIds(String, int, int)
+	 */
+	@Test
+	public void getPatientIds_shouldFindPatientsSavedInTheCurrentTransaction() throws Exception {
+		Assert.assertTrue(patientSearchIndexQuery.getPatientIds("Aragorn", 0, 10).isEmpty());
+		
+		Patient patient = patientService.getPatient(7);
+		PersonName name = new PersonName("Aragorn", null, "Elessar");
+		name.setDateCreated(new Date());
+		name.setCreator(Context.getAuthenticatedUser());
+		patient.addName(name);
+		patientService.savePatient(patient);
+		
+		Assert.assertEquals(Arrays.asList(7), patientSearchIndexQuery.getPatientIds("Aragorn Elessar", 0, 10));
+	}
+	
+	/**
+	 * @verifies return the requested page of patients
+	 * @see PatientSearchIndexQuery#getPatientIds(String, int, int)
+	 */
+	@Test
+	public void getPatientIds_shouldReturnTheRequestedPageOfPatients() throws Exception {
+		List<Integer> patientIds = patientSearchIndexQuery.getPatientIds("Test", 0, 10);
+		Assert.assertTrue(patientIds.size() >= 3);
+		
+		Assert.assertEquals(patientIds.subList(1, 3), patientSearchIndexQuery.getPatientIds("Test", 1, 2));
+	}
+	
+	/**
+	 * @verifies count a patient with several matching names once
+	 * @see PatientSearchIndexQuery#getCountOfPatients(String)
+	 */
+	@Test
+	public void getCountOfPatients_shouldCountAPatientWithSeveralMatchingNamesOnce() throws Exception {
+		Assert.assertEquals(1, patientSearchIndexQuery.getCountOfPatients("Hornblower"));
+	}
+	
+	/**
+	 * @verifies match the value literally
+	 * @see PatientSearchIndexQuery#newLikeQuery(String, String, String, String)
+	 */
+	@Test
+	public void newLikeQuery_shouldMatchTheValueLiterally() throws Exception {
+		Query query = patientSearchIndexQuery.newLikeQuery(PatientSearchBridge.IDENTIFIER, "%", "AB", "%");
+		Assert.assertTrue(query instanceof WildcardQuery);
+		Assert.assertEquals("*ab*", ((WildcardQuery) query).getTerm().text());
+		
+		query = patientSearchIndexQuery.newLikeQuery(PatientSearchBridge.IDENTIFIER, "%", "A*B", "_");
+		Assert.assertTrue(query instanceof RegexQuery);
+		Assert.assertEquals(".*" + Pattern.quote("a*b") + ".", ((RegexQuery) query).getTerm().text());
+	}
+}
@@ -0,0 +1,61 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.db.hibernate;
+
+import java.io.Serializable;
+
+import org.hibernate.type.Type;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openmrs.PersonName;
+
+public class PersonNamePhoneticKeysInterceptorTest {
+	
+	private static final String[] PROPERTY_NAMES = { "givenName", "givenNameSoundex", "familyNameMetaphone" };
+	
+	/**
+	 * @see PersonNamePhoneticKeysInterceptor#onSave(Object,Serializable,Object[],String[],Type[])
+	 * @verifies set the phonetic keys of a new name
+	 */
+	@Test
+	public void onSave_shouldSetThePhoneticKeysOfANewName() throws Exception {
+		PersonName name = new PersonName("Darius", null, "Graham");
+		Object[] state = { "Darius", null, null };
+		
+		Assert.assertTrue(new PersonNamePhoneticKeysInterceptor().onSave(name, null, state, PROPERTY_NAMES, null));
+		Assert.assertEquals("D620", state[1]);
+		Assert.assertEquals("KRHM", state[2]);
+		Assert.assertEquals("D620", name.getGivenNameSoundex());
+	}
+	
+	/**
+	 * @see PersonNamePhoneticKeysInterceptor#onFlushDirty(Object,Serializable,Object[],Object[],String[],Type[])
+	 * @verifies update the phonetic keys of a changed name
+	 */
+	@Test
+	public void onFlushDirty_shouldUpdateThePhoneticKeysOfAChangedName() throws Exception {
+		PersonNamePhoneticKeysInterceptor interceptor = new PersonNamePhoneticKeysInterceptor();
+		PersonName name = new PersonName("Graham", null, "Graham");
+		Object[] previousState = { "Darius", "D620", "KRHM" };
+		Object[] currentState = { "Graham", "D620", "KRHM" };
+		
+		Assert.assertTrue(interceptor.onFlushDirty(name, 1, currentState, previousState, PROPERTY_NAMES, null));
+		Assert.assertEquals("G650", currentState[1]);
+		Assert.assertEquals("KRHM", currentState[2]);
+		
+		// nothing changes once the keys are up to date
+		Assert.assertFalse(interceptor.onFlushDirty(name, 1, currentState, currentState, PROPERTY_NAMES, null));
+		Assert.assertFalse(interceptor.onFlushDirty(new Object(), 1, currentState, currentState, PROPERTY_NAMES, null));
+	}
+}
@@ -0,0 +1,108 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.db.hibernate.search;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.hibernate.SessionFactory;
+import org.hibernate.criterion.Projections;
+import org.hibernate.search.Search;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openmrs.Concept;
+import org.openmrs.ConceptName;
+import org.openmrs.ConceptNumeric;
+import org.openmrs.Drug;
+import org.openmrs.GlobalProperty;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.db.ContextDAO;
+import org.openmrs.api.db.SearchIndexProgress;
+import org.openmrs.test.BaseContextSensitiveTest;
+import org.openmrs.util.OpenmrsConstants;
+
+/**
+ * Tests the {@link SearchIndexRebuilder}
+ */
+public class SearchIndexRebuilderTest extends BaseContextSensitiveTest {
+	
+	/**
+	 * @see SearchIndexRebuilder#getIndexedTypes(SessionFactory)
+	 * @verifies return the indexed root types ordered by name
+	 */
+	@Test
+	public void getIndexedTypes_shouldReturnTheIndexedRootTypesOrderedByName() throws Exception {
+		List<Class<?>> types = SearchIndexRebuilder.getIndexedTypes((SessionFactory) applicationContext
+		        .getBean("sessionFactory"));
+		
+		Assert.assertTrue(types.contains(Concept.class));
+		Assert.assertTrue(types.contains(ConceptName.class));
+		Assert.assertTrue(types.contains(Drug.class));
+		Assert.assertFalse(types.contains(ConceptNumeric.class));
+		Assert.assertTrue(types.indexOf(Concept.class) < types.indexOf(ConceptName.class));
+	}
+	
+	/**
+	 * @see SearchIndexRebuilder#rebuild(List,Class,Serializable,SearchIndexRebuilder.Checkpoints)
+	 * @verifies continue after the checkpoint of a rebuild that was interrupted
+	 */
+	@Test
+	public void rebuild_shouldContinueAfterTheCheckpointOfARebuildThatWasInterrupted() throws Exception {
+		SessionFactory sessionFactory = applicationContext.getBean("sessionFactory", SessionFactory.class);
+		final List<Serializable> checkpoints = new ArrayList<Serializable>();
+		try {
+			new SearchIndexRebuilder(sessionFactory, 1, 2).rebuild(Collections.<Class<?>> singletonList(ConceptName.class),
+			    null, null, new SearchIndexRebuilder.Checkpoints() {
+				    
+				    @Override
+				    public void reached(Class<?> type, Serializable lastId) {
+					    checkpoints.add(lastId);
+					    throw new IllegalStateException("the server went down");
+				    }
+			    });
+			Assert.fail("the rebuild should have been interrupted");
+		}
+		catch (IllegalStateException e) {
+			// expected
+		}
+		long nameCount = ((Number) sessionFactory.getCurrentSession().createCriteria(ConceptName.class).setProjection(
+		    Projections.rowCount()).uniqueResult()).longValue();
+		Assert.assertEquals(1, checkpoints.size());
+		Assert.assertTrue(getIndexedNameCount(sessionFactory) < nameCount);
+		
+		// what the checkpoints of HibernateContextDAO record, so that the next startup continues
+		Context.getAdministrationService().saveGlobalProperty(
+		    new GlobalProperty(OpenmrsConstants.GP_SEARCH_INDEX_REBUILD_CHECKPOINT, OpenmrsConstants.SEARCH_INDEX_VERSION
+		            + ":" + ConceptName.class.getName() + ":" + checkpoints.get(0)));
+		ContextDAO contextDAO = applicationContext.getBean("contextDAO", ContextDAO.class);
+		contextDAO.setupSearchIndex();
+		
+		Assert.assertEquals(nameCount, getIndexedNameCount(sessionFactory));
+		SearchIndexProgress progress = contextDAO.getSearchIndexProgress();
+		Assert.assertNull(progress.getError());
+		Assert.assertEquals(progress.getTypeCount(), progress.getTypesIndexed());
+		Assert.assertEquals(progress.getEntityCount(), progress.getEntitiesIndexed());
+		Assert.assertTrue(StringUtils.isBlank(Context.getAdministrationService().getGlobalProperty(
+		    OpenmrsConstants.GP_SEARCH_INDEX_REBUILD_CHECKPOINT)));
+	}
+	
+	private int getIndexedNameCount(SessionFactory sessionFactory) {
+		return Search.getFullTextSession(sessionFactory.getCurrentSession()).createFullTextQuery(new MatchAllDocsQuery(),
+		    ConceptName.class).getResultSize();
+	}
+}
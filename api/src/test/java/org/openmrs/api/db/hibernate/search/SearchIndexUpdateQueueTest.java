@@ -0,0 +1,140 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.db.hibernate.search;
+
+import java.util.Locale;
+
+import org.hibernate.SessionFactory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.Concept;
+import org.openmrs.ConceptName;
+import org.openmrs.api.ConceptService;
+import org.openmrs.api.context.Context;
+import org.openmrs.test.BaseContextSensitiveTest;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Tests the {@link SearchIndexUpdateQueue}
+ */
+public class SearchIndexUpdateQueueTest extends BaseContextSensitiveTest {
+	
+	private SearchIndexUpdateQueue queue;
+	
+	@Before
+	public void createQueue() {
+		queue = new SearchIndexUpdateQueue(applicationContext.getBean("sessionFactory", SessionFactory.class), 10, 0);
+	}
+	
+	@After
+	public void shutdownQueue() {
+		queue.shutdown();
+	}
+	
+	/**
+	 * @see SearchIndexUpdateQueue#add(org.openmrs.OpenmrsObject)
+	 * @verifies index the entity once the transaction commits
+	 */
+	@Test
+	public void add_shouldIndexTheEntityOnceTheTransactionCommits() throws Exception {
+		queue.add(Context.getConceptService().getConcept(5089));
+		queue.flush();
+		Assert.assertEquals(0, queue.getUpdatesApplied());
+		
+		getPendingUpdates().afterCommit();
+		queue.flush();
+		
+		Assert.assertEquals(1, queue.getUpdatesApplied());
+	}
+	
+	/**
+	 * @see SearchIndexUpdateQueue#add(org.openmrs.OpenmrsObject)
+	 * @verifies discard the entity if the transaction rolls back
+	 */
+	@Test
+	public void add_shouldDiscardTheEntityIfTheTransactionRollsBack() throws Exception {
+		queue.add(Context.getConceptService().getConcept(5089));
+		
+		getPendingUpdates().afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+		queue.flush();
+		
+		Assert.assertNull(TransactionSynchronizationManager.getResource(queue));
+		Assert.assertEquals(0, queue.getUpdatesApplied());
+	}
+	
+	/**
+	 * @see SearchIndexUpdateQueue#add(org.openmrs.OpenmrsObject)
+	 * @verifies not index the entity before the transaction commits
+	 */
+	@Test
+	public void add_shouldNotIndexTheEntityBeforeTheTransactionCommits() throws Exception {
+		ConceptService conceptService = Context.getConceptService();
+		Concept concept = new Concept();
+		concept.addName(new ConceptName("UNCOMMITTED INDEX UPDATE", Locale.ENGLISH));
+		concept.setDatatype(conceptService.getConceptDatatypeByName("Numeric"));
+		concept.setConceptClass(conceptService.getConceptClassByName("Finding"));
+		conceptService.saveConcept(concept);
+		Context.flushSession();
+		
+		Assert.assertTrue(conceptService.getConceptsByName("UNCOMMITTED INDEX UPDATE", Locale.ENGLISH, false).isEmpty());
+	}
+	
+	/**
+	 * @see SearchIndexUpdateQueue#add(org.openmrs.OpenmrsObject)
+	 * @verifies reject entities that are not of a queued type
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void add_shouldRejectEntitiesThatAreNotOfAQueuedType() throws Exception {
+		queue.add(Context.getConceptService().getConceptClass(1));
+	}
+	
+	/**
+	 * @see SearchIndexUpdateQueue#getPendingEntities()
+	 * @verifies return the entities queued during the current transaction
+	 */
+	@Test
+	public void getPendingEntities_shouldReturnTheEntitiesQueuedDuringTheCurrentTransaction() throws Exception {
+		Concept concept = Context.getConceptService().getConcept(5089);
+		queue.add(concept);
+		
+		Assert.assertTrue(SearchIndexUpdateQueue.getPendingEntities().contains(concept));
+		
+		getPendingUpdates().afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+		Assert.assertFalse(SearchIndexUpdateQueue.getPendingEntities().contains(concept));
+	}
+	
+	/**
+	 * @see SearchIndexUpdateQueue#flush()
+	 * @verifies apply the updates of committed transactions
+	 */
+	@Test
+	public void flush_shouldApplyTheUpdatesOfCommittedTransactions() throws Exception {
+		queue.add(Context.getConceptService().getConcept(5089));
+		queue.add(Context.getConceptService().getConcept(5497));
+		getPendingUpdates().afterCommit();
+		
+		queue.flush();
+		
+		Assert.assertEquals(0, queue.getQueueDepth());
+		Assert.assertEquals(2, queue.getUpdatesApplied());
+		Assert.assertEquals(0, queue.getFailedBatches());
+	}
+	
+	private TransactionSynchronization getPendingUpdates() {
+		return (TransactionSynchronization) TransactionSynchronizationManager.getResource(queue);
+	}
+}
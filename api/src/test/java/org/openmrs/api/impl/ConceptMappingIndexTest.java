@@ -0,0 +1,89 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.impl;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openmrs.api.db.ConceptDAO;
+
+/**
+ * Tests the {@link ConceptMappingIndex}
+ */
+public class ConceptMappingIndexTest {
+	
+	private ConceptDAO createDAO() {
+		ConceptDAO dao = mock(ConceptDAO.class);
+		List<Object[]> rows = Arrays.asList(new Object[] { 1, "123", "SNOMED CT", "SCT" }, new Object[] { 2, "123",
+		        "SNOMED CT", "SCT" }, new Object[] { 3, "456", "ICD-10", null });
+		when(dao.getConceptMappingCodes(null)).thenReturn(rows);
+		return dao;
+	}
+	
+	/**
+	 * @see ConceptMappingIndex#getConceptIds(String,String,ConceptDAO)
+	 * @verifies find concepts by the name or hl7 code of the source ignoring case
+	 */
+	@Test
+	public void getConceptIds_shouldFindConceptsByTheNameOrHl7CodeOfTheSourceIgnoringCase() throws Exception {
+		ConceptMappingIndex index = new ConceptMappingIndex();
+		ConceptDAO dao = createDAO();
+		
+		Assert.assertEquals(Arrays.asList(1, 2), index.getConceptIds("123", "snomed ct", dao));
+		Assert.assertEquals(Arrays.asList(1, 2), index.getConceptIds("123", "SCT", dao));
+		Assert.assertEquals(Arrays.asList(3), index.getConceptIds("456", "ICD-10", dao));
+		Assert.assertTrue(index.getConceptIds("456", "SCT", dao).isEmpty());
+	}
+	
+	/**
+	 * @see ConceptMappingIndex#getConceptIds(String,String,ConceptDAO)
+	 * @verifies read the mappings of changed concepts again
+	 */
+	@Test
+	public void getConceptIds_shouldReadTheMappingsOfChangedConceptsAgain() throws Exception {
+		ConceptMappingIndex index = new ConceptMappingIndex();
+		ConceptDAO dao = createDAO();
+		index.getConceptIds("123", "SCT", dao);
+		when(dao.getConceptMappingCodes(Arrays.asList(1))).thenReturn(
+		    Collections.singletonList(new Object[] { 1, "456", "ICD-10", null }));
+		
+		index.conceptsChanged(Arrays.asList(1));
+		
+		Assert.assertEquals(Arrays.asList(2), index.getConceptIds("123", "SCT", dao));
+		Assert.assertEquals(Arrays.asList(3, 1), index.getConceptIds("456", "ICD-10", dao));
+	}
+	
+	/**
+	 * @see ConceptMappingIndex#getConceptIds(String,String,ConceptDAO)
+	 * @verifies not change the results of earlier lookups
+	 */
+	@Test
+	public void getConceptIds_shouldNotChangeTheResultsOfEarlierLookups() throws Exception {
+		ConceptMappingIndex index = new ConceptMappingIndex();
+		ConceptDAO dao = createDAO();
+		List<Integer> before = index.getConceptIds("123", "SCT", dao);
+		when(dao.getConceptMappingCodes(Arrays.asList(1))).thenReturn(Collections.<Object[]> emptyList());
+		
+		index.conceptsChanged(Arrays.asList(1));
+		index.getConceptIds("123", "SCT", dao);
+		
+		Assert.assertEquals(Arrays.asList(1, 2), before);
+	}
+}
@@ -0,0 +1,109 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.impl;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the {@link ConceptSearchCache}
+ */
+public class ConceptSearchCacheTest {
+	
+	private static final List<Integer> IDS = Arrays.asList(3, 1, 2);
+	
+	/**
+	 * @see ConceptSearchCache.Key#Key(String,java.util.Collection,boolean,java.util.Collection,java.util.Collection,java.util.Collection,java.util.Collection,org.openmrs.Concept,Integer,Integer)
+	 * @verifies ignore the case and whitespace of the phrase and the order of the locales
+	 */
+	@Test
+	public void Key_shouldIgnoreTheCaseAndWhitespaceOfThePhraseAndTheOrderOfTheLocales() throws Exception {
+		Assert.assertEquals(new ConceptSearchCache.Key("Blood  pressure", Arrays.asList(Locale.ENGLISH, Locale.FRENCH),
+		        false, null, null, null, null, null, 0, 10), new ConceptSearchCache.Key(" blood PRESSURE ", Arrays
+		        .asList(Locale.FRENCH, Locale.ENGLISH), false, null, null, null, null, null, 0, 10));
+		Assert.assertFalse(newKey("blood").equals(newKey("blood pressure")));
+	}
+	
+	/**
+	 * @see ConceptSearchCache#configure(int,long)
+	 * @verifies evict the least recently used searches
+	 */
+	@Test
+	public void configure_shouldEvictTheLeastRecentlyUsedSearches() throws Exception {
+		ConceptSearchCache cache = newCache(2, 60000);
+		long generation = cache.begin(0);
+		cache.put(newKey("a"), IDS, generation);
+		cache.put(newKey("b"), IDS, generation);
+		cache.get(newKey("a"));
+		cache.put(newKey("c"), IDS, generation);
+		
+		Assert.assertEquals(IDS, cache.get(newKey("a")));
+		Assert.assertNull(cache.get(newKey("b")));
+		Assert.assertEquals(IDS, cache.get(newKey("c")));
+		
+		cache.configure(1, 60000);
+		Assert.assertEquals(1, cache.getSize());
+		Assert.assertEquals(IDS, cache.get(newKey("c")));
+	}
+	
+	/**
+	 * @see ConceptSearchCache#get(ConceptSearchCache.Key)
+	 * @verifies not return a search after its time to live
+	 */
+	@Test
+	public void get_shouldNotReturnASearchAfterItsTimeToLive() throws Exception {
+		ConceptSearchCache cache = newCache(10, -1);
+		cache.put(newKey("a"), IDS, cache.begin(0));
+		
+		Assert.assertNull(cache.get(newKey("a")));
+		Assert.assertEquals(0, cache.getSize());
+	}
+	
+	/**
+	 * @see ConceptSearchCache#put(ConceptSearchCache.Key,List,long)
+	 * @verifies not cache a search that started before the cache was cleared
+	 */
+	@Test
+	public void put_shouldNotCacheASearchThatStartedBeforeTheCacheWasCleared() throws Exception {
+		ConceptSearchCache cache = newCache(10, 60000);
+		long generation = cache.begin(0);
+		cache.clear();
+		cache.put(newKey("a"), IDS, generation);
+		Assert.assertNull(cache.get(newKey("a")));
+		
+		generation = cache.begin(0);
+		cache.begin(1);
+		cache.put(newKey("a"), IDS, generation);
+		Assert.assertNull(cache.get(newKey("a")));
+		
+		cache.put(newKey("a"), IDS, cache.begin(1));
+		Assert.assertEquals(IDS, cache.get(newKey("a")));
+		Assert.assertEquals(1.0 / 3, cache.getHitRatio(), 0.001);
+	}
+	
+	private ConceptSearchCache newCache(int maxSize, long timeToLiveMillis) {
+		ConceptSearchCache cache = new ConceptSearchCache();
+		cache.configure(maxSize, timeToLiveMillis);
+		return cache;
+	}
+	
+	private ConceptSearchCache.Key newKey(String phrase) {
+		return new ConceptSearchCache.Key(phrase, Arrays.asList(Locale.ENGLISH), false, null, null, null, null, null, 0,
+		        10);
+	}
+}
@@ -0,0 +1,220 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openmrs.api.AutocompleteResult;
+import org.openmrs.api.db.ConceptDAO;
+
+/**
+ * Tests the {@link NameAutocompleteIndex}
+ */
+public class NameAutocompleteIndexTest {
+	
+	/**
+	 * @see NameAutocompleteIndex#find(String,Locale,int,ConceptDAO)
+	 * @verifies find names by the beginning of any of their words
+	 */
+	@Test
+	public void find_shouldFindNamesByTheBeginningOfAnyOfTheirWords() throws Exception {
+		NameAutocompleteIndex index = new TestIndex();
+		
+		assertIds(index.find("pres", Locale.ENGLISH, 10, null), 2, 1);
+		assertIds(index.find("PRESSURE", Locale.ENGLISH, 10, null), 2, 1);
+		assertIds(index.find("blo", Locale.ENGLISH, 10, null), 3, 1);
+		assertIds(index.find("blo", Locale.ENGLISH, 1, null), 3);
+		assertIds(index.find("xyz", Locale.ENGLISH, 10, null));
+	}
+	
+	/**
+	 * @see NameAutocompleteIndex#find(String,Locale,int,ConceptDAO)
+	 * @verifies only find names having all the typed words
+	 */
+	@Test
+	public void find_shouldOnlyFindNamesHavingAllTheTypedWords() throws Exception {
+		NameAutocompleteIndex index = new TestIndex();
+		
+		assertIds(index.find("pre blo", Locale.ENGLISH, 10, null), 1);
+		assertIds(index.find("blood, pressure", Locale.ENGLISH, 10, null), 1);
+		assertIds(index.find("blood ulcer", Locale.ENGLISH, 10, null));
+	}
+	
+	/**
+	 * @see NameAutocompleteIndex#find(String,Locale,int,ConceptDAO)
+	 * @verifies return the preferred name in the locale as display name
+	 */
+	@Test
+	public void find_shouldReturnThePreferredNameInTheLocaleAsDisplayName() throws Exception {
+		NameAutocompleteIndex index = new TestIndex();
+		
+		List<AutocompleteResult> results = index.find("bp", Locale.UK, 10, null);
+		Assert.assertEquals(1, results.size());
+		Assert.assertEquals("Blood pressure", results.get(0).getDisplayName());
+		Assert.assertEquals("BP", results.get(0).getMatchedName());
+		
+		results = index.find("tension", Locale.FRENCH, 10, null);
+		Assert.assertEquals("Tension arterielle", results.get(0).getDisplayName());
+		assertIds(index.find("tension", Locale.ENGLISH, 10, null));
+	}
+	
+	/**
+	 * @see NameAutocompleteIndex#find(String,Locale,int,ConceptDAO)
+	 * @verifies read the names of changed ids again
+	 */
+	@Test
+	public void find_shouldReadTheNamesOfChangedIdsAgain() throws Exception {
+		TestIndex index = new TestIndex();
+		assertIds(index.find("blo", Locale.ENGLISH, 10, null), 3, 1);
+		
+		index.renamedBloodSugar = true;
+		index.changed(Collections.singleton(3));
+		
+		assertIds(index.find("blo", Locale.ENGLISH, 10, null), 1);
+		assertIds(index.find("gluc", Locale.ENGLISH, 10, null), 3);
+		Assert.assertEquals(Collections.singleton(3), index.readIds);
+	}
+	
+	/**
+	 * @see NameAutocompleteIndex#find(String,Locale,int,ConceptDAO)
+	 * @verifies not wait while the names of changed ids are read
+	 */
+	@Test
+	public void find_shouldNotWaitWhileTheNamesOfChangedIdsAreRead() throws Exception {
+		final TestIndex index = new TestIndex();
+		assertIds(index.find("blo", Locale.ENGLISH, 10, null), 3, 1);
+		
+		index.reading = new CountDownLatch(1);
+		index.finishReading = new CountDownLatch(1);
+		index.renamedBloodSugar = true;
+		index.changed(Collections.singleton(3));
+		Thread reader = new Thread() {
+			
+			@Override
+			public void run() {
+				index.find("gluc", Locale.ENGLISH, 10, null);
+			}
+		};
+		reader.start();
+		Assert.assertTrue(index.reading.await(10, TimeUnit.SECONDS));
+		
+		// the names are being read by the other thread, the previous snapshot is searched
+		assertIds(index.find("blo", Locale.ENGLISH, 10, null), 3, 1);
+		
+		index.finishReading.countDown();
+		reader.join(10000);
+		assertIds(index.find("blo", Locale.ENGLISH, 10, null), 1);
+		assertIds(index.find("gluc", Locale.ENGLISH, 10, null), 3);
+	}
+	
+	/**
+	 * @see NameAutocompleteIndex#find(String,Locale,int,ConceptDAO)
+	 * @verifies find the best ranked names when more names start with the typed word than a node
+	 *           keeps
+	 */
+	@Test
+	public void find_shouldFindTheBestRankedNamesWhenMoreNamesStartWithTheTypedWordThanANodeKeeps()
+	        throws Exception {
+		List<NameAutocompleteIndex.Name> names = new ArrayList<NameAutocompleteIndex.Name>();
+		for (int id = 100; id > 0; id--) {
+			names.add(new NameAutocompleteIndex.Name(id, "Name " + id, Locale.ENGLISH, id == 77 ? 2 : 0));
+		}
+		NameAutocompleteIndex index = new ListIndex(names);
+		
+		assertIds(index.find("n", Locale.ENGLISH, 3, null), 77, 1, 2);
+		assertIds(index.find("name 10", Locale.ENGLISH, 3, null), 10, 100);
+	}
+	
+	/**
+	 * @see NameAutocompleteIndex#find(String,Locale,int,ConceptDAO)
+	 * @verifies find names a node does not keep when the names it keeps do not match
+	 */
+	@Test
+	public void find_shouldFindNamesANodeDoesNotKeepWhenTheNamesItKeepsDoNotMatch() throws Exception {
+		List<NameAutocompleteIndex.Name> names = new ArrayList<NameAutocompleteIndex.Name>();
+		for (int id = 1; id <= 100; id++) {
+			names.add(new NameAutocompleteIndex.Name(id, "Alpha " + id, Locale.ENGLISH, 2));
+		}
+		names.add(new NameAutocompleteIndex.Name(500, "Alpha zulu", Locale.FRENCH, 0));
+		NameAutocompleteIndex index = new ListIndex(names);
+		
+		assertIds(index.find("alp", Locale.FRENCH, 10, null), 500);
+		assertIds(index.find("alp zu", Locale.ENGLISH, 10, null));
+	}
+	
+	private void assertIds(List<AutocompleteResult> results, Integer... ids) {
+		Integer[] actual = new Integer[results.size()];
+		for (int i = 0; i < actual.length; i++) {
+			actual[i] = results.get(i).getId();
+		}
+		Assert.assertEquals(Arrays.asList(ids), Arrays.asList(actual));
+	}
+	
+	private static class ListIndex extends NameAutocompleteIndex {
+		
+		private final List<Name> names;
+		
+		private ListIndex(List<Name> names) {
+			this.names = names;
+		}
+		
+		@Override
+		protected void readNames(Collection<Integer> ids, ConceptDAO dao, List<Name> names) {
+			names.addAll(this.names);
+		}
+	}
+	
+	private static class TestIndex extends NameAutocompleteIndex {
+		
+		private boolean renamedBloodSugar = false;
+		
+		private Collection<Integer> readIds;
+		
+		private CountDownLatch reading;
+		
+		private CountDownLatch finishReading;
+		
+		@Override
+		protected void readNames(Collection<Integer> ids, ConceptDAO dao, List<Name> names) {
+			readIds = ids;
+			if (reading != null) {
+				reading.countDown();
+				try {
+					finishReading.await(10, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			if (ids == null) {
+				names.add(new Name(1, "Blood pressure", Locale.ENGLISH, 2));
+				names.add(new Name(1, "BP", Locale.ENGLISH, 0));
+				names.add(new Name(1, "Tension arterielle", Locale.FRENCH, 2));
+				names.add(new Name(2, "Pressure ulcer", Locale.ENGLISH, 2));
+			}
+			if (ids == null || ids.contains(3)) {
+				names.add(new Name(3, renamedBloodSugar ? "Glucose" : "Blood sugar", Locale.ENGLISH, 2));
+			}
+		}
+	}
+}
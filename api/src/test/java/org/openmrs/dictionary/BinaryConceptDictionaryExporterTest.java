@@ -0,0 +1,79 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.dictionary;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.util.Locale;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openmrs.Concept;
+import org.openmrs.api.ConceptService;
+import org.openmrs.api.context.Context;
+import org.openmrs.test.BaseContextSensitiveTest;
+
+/**
+ * Tests for {@link BinaryConceptDictionaryExporter}
+ */
+public class BinaryConceptDictionaryExporterTest extends BaseContextSensitiveTest {
+	
+	/**
+	 * @see BinaryConceptDictionaryExporter#export(java.util.Iterator,java.util.Locale,java.io.OutputStream)
+	 * @verifies write a header, one record per non retired concept and a footer
+	 */
+	@Test
+	public void export_shouldWriteAHeaderOneRecordPerNonRetiredConceptAndAFooter() throws Exception {
+		ConceptService conceptService = Context.getConceptService();
+		int nonRetiredConcepts = 0;
+		for (Concept concept : conceptService.getAllConcepts()) {
+			if (!concept.isRetired()) {
+				nonRetiredConcepts++;
+			}
+		}
+		
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new BinaryConceptDictionaryExporter().export(conceptService.conceptIterator(), Locale.ENGLISH, out);
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
+		
+		byte[] magic = new byte[BinaryConceptDictionaryExporter.MAGIC.length];
+		in.readFully(magic);
+		Assert.assertArrayEquals(BinaryConceptDictionaryExporter.MAGIC, magic);
+		Assert.assertEquals(BinaryConceptDictionaryExporter.VERSION, in.readInt());
+		
+		int records = 0;
+		String weightName = null;
+		int length;
+		while ((length = in.readInt()) != BinaryConceptDictionaryExporter.END_OF_RECORDS) {
+			byte[] record = new byte[length];
+			in.readFully(record);
+			records++;
+			
+			DataInputStream recordIn = new DataInputStream(new ByteArrayInputStream(record));
+			int conceptId = recordIn.readInt();
+			recordIn.readByte();
+			if (conceptId == 5089) {
+				byte[] name = new byte[recordIn.readInt()];
+				recordIn.readFully(name);
+				weightName = new String(name, "UTF-8");
+			}
+		}
+		
+		Assert.assertEquals(nonRetiredConcepts, records);
+		Assert.assertEquals(records, in.readInt());
+		Assert.assertEquals(-1, in.read());
+		Assert.assertEquals("WEIGHT (KG)", weightName);
+	}
+}
@@ -0,0 +1,152 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.dictionary;
+
+import java.io.ByteArrayInputStream;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openmrs.Concept;
+import org.openmrs.ConceptMap;
+import org.openmrs.api.APIException;
+import org.openmrs.api.context.Context;
+import org.openmrs.test.BaseContextSensitiveTest;
+
+/**
+ * Tests for {@link ConceptDictionaryImporter}
+ */
+public class ConceptDictionaryImporterTest extends BaseContextSensitiveTest {
+	
+	private static final String HEADER = "Uuid,Class,Datatype,Locale,Fully Specified Name,Short Name,Synonyms,Description,Mappings,Map Type\n";
+	
+	private static final String UUID = "d0a5b6a2-5a37-4c28-9c1e-4e1c1a6d2f01";
+	
+	/**
+	 * @see ConceptDictionaryImporter#importDictionary(java.io.InputStream)
+	 * @verifies import concepts with names descriptions and mappings
+	 */
+	@Test
+	public void importDictionary_shouldImportConceptsWithNamesDescriptionsAndMappings() throws Exception {
+		ConceptDictionaryImportResult result = importDictionary(HEADER + UUID
+		        + ",Test,Numeric,en,HEART RATE,HR,\"PULSE\nPULSE RATE\",Beats per minute,"
+		        + "\"SNOMED CT:364075005\nSome Standardized Terminology:WGT234\",same-as\n");
+		
+		Assert.assertEquals(1, result.getImported());
+		Assert.assertEquals(0, result.getRejected());
+		Concept concept = Context.getConceptService().getConceptByUuid(UUID);
+		Assert.assertEquals("HEART RATE", concept.getFullySpecifiedName(Locale.ENGLISH).getName());
+		Assert.assertEquals("HR", concept.getShortNameInLocale(Locale.ENGLISH).getName());
+		Assert.assertEquals(4, concept.getNames().size());
+		Assert.assertEquals("Beats per minute", concept.getDescription(Locale.ENGLISH).getDescription());
+		Assert.assertTrue(concept.isNumeric());
+		
+		Set<String> codes = new HashSet<String>();
+		for (ConceptMap map : concept.getConceptMappings()) {
+			codes.add(map.getConceptReferenceTerm().getCode());
+			Assert.assertEquals("same-as", map.getConceptMapType().getName());
+		}
+		Assert.assertEquals(2, codes.size());
+		Assert.assertTrue(codes.contains("364075005"));
+		Assert.assertTrue(codes.contains("WGT234"));
+	}
+	
+	/**
+	 * @see ConceptDictionaryImporter#importDictionary(java.io.InputStream)
+	 * @verifies add rows with the same uuid to one concept
+	 */
+	@Test
+	public void importDictionary_shouldAddRowsWithTheSameUuidToOneConcept() throws Exception {
+		ConceptDictionaryImportResult result = importDictionary(HEADER + UUID + ",Test,N/A,en,COLOR,,,,,\n" + UUID
+		        + ",Test,N/A,en_GB,COLOUR,,,The colour,,\n");
+		
+		Assert.assertEquals(1, result.getImported());
+		Concept concept = Context.getConceptService().getConceptByUuid(UUID);
+		Assert.assertEquals("COLOR", concept.getFullySpecifiedName(Locale.ENGLISH).getName());
+		Assert.assertEquals("COLOUR", concept.getFullySpecifiedName(Locale.UK).getName());
+		Assert.assertEquals("The colour", concept.getDescription(Locale.UK, true).getDescription());
+	}
+	
+	/**
+	 * @see ConceptDictionaryImporter#importDictionary(java.io.InputStream)
+	 * @verifies reject invalid concepts and import the others
+	 */
+	@Test
+	public void importDictionary_shouldRejectInvalidConceptsAndImportTheOthers() throws Exception {
+		ConceptDictionaryImportResult result = importDictionary(HEADER + UUID + ",Test,N/A,en,FIRST,,,,,\n"
+		        + ",Nonsense,N/A,en,SECOND,,,,,\n" + ",Test,N/A,fr,TROISIEME,,,,,\n" + ",Test,N/A,en,FOURTH,,fourth,,,\n"
+		        + ",Test,N/A,en,FIFTH,,,,Unknown Source:123,same-as\n");
+		
+		Assert.assertEquals(1, result.getImported());
+		Assert.assertEquals(4, result.getRejected());
+		Assert.assertTrue(result.getErrors().get(0).startsWith("Line 3:"));
+		Assert.assertTrue(result.getErrors().get(1).startsWith("Line 4:"));
+		Assert.assertTrue(result.getErrors().get(2).startsWith("Line 5:"));
+		Assert.assertTrue(result.getErrors().get(3).startsWith("Line 6:"));
+		Assert.assertNotNull(Context.getConceptService().getConceptByUuid(UUID));
+	}
+	
+	/**
+	 * @see ConceptDictionaryImporter#importDictionary(java.io.InputStream)
+	 * @verifies reject concepts with the name of an existing concept
+	 */
+	@Test
+	public void importDictionary_shouldRejectConceptsWithTheNameOfAnExistingConcept() throws Exception {
+		ConceptDictionaryImportResult result = importDictionary(HEADER + UUID + ",Test,N/A,en,weight (kg),,,,,\n");
+		
+		Assert.assertEquals(0, result.getImported());
+		Assert.assertEquals(1, result.getRejected());
+		Assert.assertNull(Context.getConceptService().getConceptByUuid(UUID));
+	}
+	
+	/**
+	 * @see ConceptDictionaryImporter#importDictionary(java.io.InputStream)
+	 * @verifies reject concepts with the name of a concept before them in the file
+	 */
+	@Test
+	public void importDictionary_shouldRejectConceptsWithTheNameOfAConceptBeforeThemInTheFile() throws Exception {
+		ConceptDictionaryImporter importer = new ConceptDictionaryImporter();
+		importer.setUpdateSearchIndex(false);
+		// the names meet in different chunks
+		importer.setChunkSize(1);
+		ConceptDictionaryImportResult result = importer.importDictionary(toStream(HEADER + UUID
+		        + ",Test,N/A,en,TWICE,,,,,\n,Test,N/A,en,Twice,,,,,\n"));
+		
+		Assert.assertEquals(1, result.getImported());
+		Assert.assertEquals(1, result.getRejected());
+		Assert.assertTrue(result.getErrors().get(0).startsWith("Line 3:"));
+		Assert.assertNotNull(Context.getConceptService().getConceptByUuid(UUID));
+	}
+	
+	/**
+	 * @see ConceptDictionaryImporter#importDictionary(java.io.InputStream)
+	 * @verifies fail if a required column is missing
+	 */
+	@Test(expected = APIException.class)
+	public void importDictionary_shouldFailIfARequiredColumnIsMissing() throws Exception {
+		importDictionary("Uuid,Class,Fully Specified Name\n,Test,NO DATATYPE\n");
+	}
+	
+	private ConceptDictionaryImportResult importDictionary(String csv) throws Exception {
+		ConceptDictionaryImporter importer = new ConceptDictionaryImporter();
+		importer.setUpdateSearchIndex(false);
+		return importer.importDictionary(toStream(csv));
+	}
+	
+	private ByteArrayInputStream toStream(String csv) throws Exception {
+		return new ByteArrayInputStream(csv.getBytes("UTF-8"));
+	}
+}
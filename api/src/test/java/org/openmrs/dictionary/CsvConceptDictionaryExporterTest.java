@@ -0,0 +1,84 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.dictionary;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.util.Locale;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openmrs.Concept;
+import org.openmrs.api.ConceptService;
+import org.openmrs.api.context.Context;
+import org.openmrs.test.BaseContextSensitiveTest;
+
+/**
+ * Tests for {@link CsvConceptDictionaryExporter}
+ */
+public class CsvConceptDictionaryExporterTest extends BaseContextSensitiveTest {
+	
+	/**
+	 * @see CsvConceptDictionaryExporter#export(java.util.Iterator,java.util.Locale,java.io.OutputStream)
+	 * @verifies write a header and one line per non retired concept
+	 */
+	@Test
+	public void export_shouldWriteAHeaderAndOneLinePerNonRetiredConcept() throws Exception {
+		ConceptService conceptService = Context.getConceptService();
+		int nonRetiredConcepts = 0;
+		for (Concept concept : conceptService.getAllConcepts()) {
+			if (!concept.isRetired()) {
+				nonRetiredConcepts++;
+			}
+		}
+		
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new CsvConceptDictionaryExporter().export(conceptService.conceptIterator(), Locale.ENGLISH, out);
+		
+		BufferedReader reader = new BufferedReader(new StringReader(out.toString("UTF-8")));
+		Assert.assertEquals(
+		    "Concept Id,Name,Description,Synonyms,Answers,Set Members,Class,Datatype,Changed By,Creator", reader
+		            .readLine());
+		
+		int conceptLines = 0;
+		boolean foundWeight = false;
+		String line;
+		while ((line = reader.readLine()) != null) {
+			if (line.matches("^\\d+,.*")) {
+				conceptLines++;
+			}
+			if (line.startsWith("5089,\"WEIGHT (KG)\"")) {
+				foundWeight = true;
+			}
+		}
+		Assert.assertEquals(nonRetiredConcepts, conceptLines);
+		Assert.assertTrue(foundWeight);
+	}
+	
+	/**
+	 * @see CsvConceptDictionaryExporter#export(java.util.Iterator,java.util.Locale,java.io.OutputStream)
+	 * @verifies escape quotes in values
+	 */
+	@Test
+	public void export_shouldEscapeQuotesInValues() throws Exception {
+		ConceptService conceptService = Context.getConceptService();
+		conceptService.getConcept(3).getName(Locale.ENGLISH).setName("COUGH \"SYRUP\"");
+		
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new CsvConceptDictionaryExporter().export(conceptService.conceptIterator(), Locale.ENGLISH, out);
+		
+		Assert.assertTrue(out.toString("UTF-8").contains("\n3,\"COUGH \"\"SYRUP\"\"\","));
+	}
+}
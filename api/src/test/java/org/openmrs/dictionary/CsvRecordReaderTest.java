@@ -0,0 +1,66 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.dictionary;
+
+import java.io.StringReader;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link CsvRecordReader}
+ */
+public class CsvRecordReaderTest {
+	
+	/**
+	 * @see CsvRecordReader#readRecord()
+	 * @verifies read quoted values with commas line breaks and quotes
+	 */
+	@Test
+	public void readRecord_shouldReadQuotedValuesWithCommasLineBreaksAndQuotes() throws Exception {
+		CsvRecordReader reader = new CsvRecordReader(new StringReader(
+		        "a,\"b, c\",\"d\nE\"\r\n\"say \"\"hi\"\"\",,f\n"));
+		
+		Assert.assertArrayEquals(new String[] { "a", "b, c", "d\nE" }, reader.readRecord());
+		Assert.assertEquals(1, reader.getRecordLine());
+		Assert.assertArrayEquals(new String[] { "say \"hi\"", "", "f" }, reader.readRecord());
+		Assert.assertEquals(3, reader.getRecordLine());
+	}
+	
+	/**
+	 * @see CsvRecordReader#readRecord()
+	 * @verifies skip empty lines
+	 */
+	@Test
+	public void readRecord_shouldSkipEmptyLines() throws Exception {
+		CsvRecordReader reader = new CsvRecordReader(new StringReader("a,b\n\n\r\nc,d"));
+		
+		Assert.assertArrayEquals(new String[] { "a", "b" }, reader.readRecord());
+		Assert.assertArrayEquals(new String[] { "c", "d" }, reader.readRecord());
+		Assert.assertEquals(4, reader.getRecordLine());
+	}
+	
+	/**
+	 * @see CsvRecordReader#readRecord()
+	 * @verifies return null at the end of the input
+	 */
+	@Test
+	public void readRecord_shouldReturnNullAtTheEndOfTheInput() throws Exception {
+		CsvRecordReader reader = new CsvRecordReader(new StringReader("a\n"));
+		
+		Assert.assertArrayEquals(new String[] { "a" }, reader.readRecord());
+		Assert.assertNull(reader.readRecord());
+		Assert.assertNull(reader.readRecord());
+	}
+}
@@ -0,0 +1,55 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.dictionary;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.io.LineNumberReader;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openmrs.api.context.Context;
+import org.openmrs.test.BaseContextSensitiveTest;
+
+/**
+ * Tests for {@link GzipCsvConceptDictionaryExporter}
+ */
+public class GzipCsvConceptDictionaryExporterTest extends BaseContextSensitiveTest {
+	
+	/**
+	 * @see GzipCsvConceptDictionaryExporter#export(java.util.Iterator,java.util.Locale,java.io.OutputStream)
+	 * @verifies write the csv compressed with gzip
+	 */
+	@Test
+	public void export_shouldWriteTheCsvCompressedWithGzip() throws Exception {
+		ByteArrayOutputStream csv = new ByteArrayOutputStream();
+		new CsvConceptDictionaryExporter().export(Context.getConceptService().conceptIterator(), Locale.ENGLISH, csv);
+		
+		ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+		new GzipCsvConceptDictionaryExporter().export(Context.getConceptService().conceptIterator(), Locale.ENGLISH,
+		    gzip);
+		
+		LineNumberReader reader = new LineNumberReader(new InputStreamReader(new GZIPInputStream(new ByteArrayInputStream(
+		        gzip.toByteArray())), "UTF-8"));
+		StringBuilder unzipped = new StringBuilder();
+		String line;
+		while ((line = reader.readLine()) != null) {
+			unzipped.append(line).append("\n");
+		}
+		Assert.assertEquals(csv.toString("UTF-8"), unzipped.toString());
+	}
+}
@@ -0,0 +1,170 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.patient;
+
+import java.util.ArrayList;
+import java.util.GregorianCalendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.api.context.Context;
+import org.openmrs.test.BaseContextSensitiveTest;
+
+/**
+ * Tests for {@link DuplicatePatientDetector}
+ */
+public class DuplicatePatientDetectorTest extends BaseContextSensitiveTest {
+	
+	private static final String DUPLICATE_PATIENTS_XML = "org/openmrs/patient/include/DuplicatePatientDetectorTest.xml";
+	
+	private DuplicatePatientDetector detector;
+	
+	private List<DuplicatePatientMatch> matches;
+	
+	private DuplicatePatientHandler handler;
+	
+	@Before
+	public void before() throws Exception {
+		executeDataSet(DUPLICATE_PATIENTS_XML);
+		// the candidates are looked up by the phonetic keys stored with the names
+		Context.getPersonService().updatePersonNamePhoneticKeys(1000);
+		
+		detector = new DuplicatePatientDetector();
+		detector.setPageSize(2);
+		detector.setThreads(2);
+		matches = new ArrayList<DuplicatePatientMatch>();
+		handler = new DuplicatePatientHandler() {
+			
+			@Override
+			public void handle(List<DuplicatePatientMatch> pageMatches) {
+				matches.addAll(pageMatches);
+			}
+		};
+	}
+	
+	/**
+	 * @see DuplicatePatientDetector#findDuplicates(java.util.Date, DuplicatePatientHandler)
+	 * @verifies find patients with similar names and birthdates
+	 */
+	@Test
+	public void findDuplicates_shouldFindPatientsWithSimilarNamesAndBirthdates() throws Exception {
+		int found = detector.findDuplicates(handler);
+		
+		Assert.assertEquals(matches.size(), found);
+		DuplicatePatientMatch match = getMatch(20000, 20001);
+		Assert.assertNotNull(match);
+		Assert.assertTrue(match.getScore() >= DuplicatePatientDetector.DEFAULT_MIN_SCORE);
+		Assert.assertNull(getMatch(20002, 20003));
+	}
+	
+	/**
+	 * @see DuplicatePatientDetector#findDuplicates(java.util.Date, DuplicatePatientHandler)
+	 * @verifies find patients sharing an identifier
+	 */
+	@Test
+	public void findDuplicates_shouldFindPatientsSharingAnIdentifier() throws Exception {
+		detector.setMinScore(0.6);
+		detector.findDuplicates(handler);
+		
+		Assert.assertNotNull(getMatch(20002, 20003));
+	}
+	
+	/**
+	 * @see DuplicatePatientDetector#findDuplicates(java.util.Date, DuplicatePatientHandler)
+	 * @verifies report every pair once
+	 */
+	@Test
+	public void findDuplicates_shouldReportEveryPairOnce() throws Exception {
+		detector.setMinScore(0.5);
+		detector.findDuplicates(handler);
+		
+		Set<String> pairs = new HashSet<String>();
+		for (DuplicatePatientMatch match : matches) {
+			int low = Math.min(match.getPatientId(), match.getOtherPatientId());
+			int high = Math.max(match.getPatientId(), match.getOtherPatientId());
+			Assert.assertTrue("Reported twice: " + match, pairs.add(low + "-" + high));
+		}
+		Assert.assertTrue(pairs.contains("20000-20001"));
+	}
+	
+	/**
+	 * @see DuplicatePatientDetector#findDuplicates(java.util.Date, DuplicatePatientHandler)
+	 * @verifies only compare patients changed since the given date
+	 */
+	@Test
+	public void findDuplicates_shouldOnlyComparePatientsChangedSinceTheGivenDate() throws Exception {
+		detector.setMinScore(0.6);
+		detector.findDuplicates(new GregorianCalendar(2014, 0, 1).getTime(), handler);
+		
+		Assert.assertEquals(1, matches.size());
+		Assert.assertEquals(20001, matches.get(0).getPatientId().intValue());
+		Assert.assertEquals(20000, matches.get(0).getOtherPatientId().intValue());
+	}
+	
+	/**
+	 * @see DuplicatePatientDetector#getScore(DuplicatePatientRecord, DuplicatePatientRecord)
+	 * @verifies score the same patient 1
+	 */
+	@Test
+	public void getScore_shouldScoreTheSamePatient1() throws Exception {
+		DuplicatePatientRecord record = newRecord("John", "Smith", "1001-5");
+		
+		Assert.assertEquals(1, DuplicatePatientDetector.getScore(record, record), 0.0001);
+	}
+	
+	/**
+	 * @see DuplicatePatientDetector#getScore(DuplicatePatientRecord, DuplicatePatientRecord)
+	 * @verifies score patients with sound alike names lower than patients with the same names
+	 */
+	@Test
+	public void getScore_shouldScorePatientsWithSoundAlikeNamesLowerThanPatientsWithTheSameNames() throws Exception {
+		DuplicatePatientRecord record = newRecord("John", "Smith", "1001-5");
+		
+		double sameNameScore = DuplicatePatientDetector.getScore(record, newRecord("John", "Smith", "2002-3"));
+		double soundAlikeScore = DuplicatePatientDetector.getScore(record, newRecord("Jon", "Smyth", "2002-3"));
+		double otherNameScore = DuplicatePatientDetector.getScore(record, newRecord("Mary", "Jones", "2002-3"));
+		Assert.assertTrue(sameNameScore > soundAlikeScore);
+		Assert.assertTrue(soundAlikeScore > otherNameScore);
+	}
+	
+	/**
+	 * @see DuplicatePatientDetector#setThreads(int)
+	 * @verifies reject less than one thread
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void setThreads_shouldRejectLessThanOneThread() throws Exception {
+		detector.setThreads(0);
+	}
+	
+	private DuplicatePatientRecord newRecord(String givenName, String familyName, String identifier) {
+		DuplicatePatientRecord record = new DuplicatePatientRecord(1, "M", new GregorianCalendar(1980, 1, 1).getTime());
+		record.addName(givenName, familyName);
+		record.addIdentifier(identifier);
+		return record;
+	}
+	
+	private DuplicatePatientMatch getMatch(int patientId, int otherPatientId) {
+		for (DuplicatePatientMatch match : matches) {
+			if ((match.getPatientId() == patientId && match.getOtherPatientId() == otherPatientId)
+			        || (match.getPatientId() == otherPatientId && match.getOtherPatientId() == patientId)) {
+				return match;
+			}
+		}
+		return null;
+	}
+}
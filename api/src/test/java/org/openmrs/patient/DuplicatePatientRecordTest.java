@@ -0,0 +1,64 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.patient;
+
+import java.util.Arrays;
+import java.util.GregorianCalendar;
+import java.util.LinkedHashSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link DuplicatePatientRecord}
+ */
+public class DuplicatePatientRecordTest {
+	
+	/**
+	 * @see DuplicatePatientRecord#getBlockingKeys()
+	 * @verifies return the name, birth year and identifier keys
+	 */
+	@Test
+	public void getBlockingKeys_shouldReturnTheNameBirthYearAndIdentifierKeys() throws Exception {
+		DuplicatePatientRecord record = new DuplicatePatientRecord(1, "M", new GregorianCalendar(1980, 1, 1).getTime());
+		record.addName("John", "Smith");
+		record.addIdentifier("1001-5");
+		
+		Assert.assertEquals(new LinkedHashSet<String>(Arrays.asList("name:J500:S530", "birth:SM0:1980:M",
+		    "identifier:1001")), record.getBlockingKeys());
+	}
+	
+	/**
+	 * @see DuplicatePatientRecord#getBlockingKeys()
+	 * @verifies skip the birth year key if the birthdate is not known
+	 */
+	@Test
+	public void getBlockingKeys_shouldSkipTheBirthYearKeyIfTheBirthdateIsNotKnown() throws Exception {
+		DuplicatePatientRecord record = new DuplicatePatientRecord(1, "M", null);
+		record.addName("John", "Smith");
+		
+		Assert.assertEquals(new LinkedHashSet<String>(Arrays.asList("name:J500:S530")), record.getBlockingKeys());
+	}
+	
+	/**
+	 * @see DuplicatePatientRecord#getIdentifierFragment(String)
+	 * @verifies remove the check digit
+	 */
+	@Test
+	public void getIdentifierFragment_shouldRemoveTheCheckDigit() throws Exception {
+		Assert.assertEquals("1001", DuplicatePatientRecord.getIdentifierFragment(" 1001-5 "));
+		Assert.assertEquals("10-01", DuplicatePatientRecord.getIdentifierFragment("10-01-5"));
+		Assert.assertEquals("1001", DuplicatePatientRecord.getIdentifierFragment("1001"));
+	}
+}
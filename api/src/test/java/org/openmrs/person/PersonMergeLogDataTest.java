@@ -0,0 +1,47 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.person;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link PersonMergeLogData}
+ */
+public class PersonMergeLogDataTest {
+	
+	/**
+	 * @see PersonMergeLogData#toIdRanges(java.util.Collection)
+	 * @verifies write consecutive ids as ranges
+	 */
+	@Test
+	public void toIdRanges_shouldWriteConsecutiveIdsAsRanges() throws Exception {
+		Assert.assertEquals("1-5,9,12-13", PersonMergeLogData.toIdRanges(Arrays.asList(1, 2, 3, 4, 5, 9, 12, 13)));
+		Assert.assertEquals("7", PersonMergeLogData.toIdRanges(Arrays.asList(7)));
+		Assert.assertNull(PersonMergeLogData.toIdRanges(Collections.<Integer> emptyList()));
+	}
+	
+	/**
+	 * @see PersonMergeLogData#fromIdRanges(String)
+	 * @verifies read the ids written as ranges
+	 */
+	@Test
+	public void fromIdRanges_shouldReadTheIdsWrittenAsRanges() throws Exception {
+		Assert.assertEquals(Arrays.asList(1, 2, 3, 4, 5, 9, 12, 13), PersonMergeLogData.fromIdRanges("1-5,9,12-13"));
+		Assert.assertTrue(PersonMergeLogData.fromIdRanges(null).isEmpty());
+	}
+}
@@ -30,7 +30,9 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Timer;
@@ -72,7 +74,11 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.openmrs.ConceptName;
 import org.openmrs.Drug;
+import org.openmrs.PatientIdentifier;
+import org.openmrs.PersonAttribute;
+import org.openmrs.PersonName;
 import org.openmrs.User;
+import org.openmrs.api.impl.AdministrationServiceImpl;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.context.ContextAuthenticationException;
 import org.openmrs.api.context.ContextMockHelper;
@@ -146,6 +152,12 @@ public abstract class BaseContextSensitiveTest extends AbstractJUnit4SpringConte
 	 */
 	private static boolean isBaseSetup;
 	
+	/**
+	 * The tables whose rows are part of the search index documents of the patient search
+	 */
+	private static final List<String> PATIENT_SEARCH_TABLES = Arrays.asList("person", "patient", "person_name",
+	    "patient_identifier", "person_attribute");
+	
 	/**
 	 * Stores a user authenticated for running tests which allows to discover a situation when some
 	 * test authenticates as a different user and we need to revert to the original one
@@ -685,6 +697,19 @@ public abstract class BaseContextSensitiveTest extends AbstractJUnit4SpringConte
 		//Do the actual update/insert:
 		//insert new rows, update existing rows, and leave others alone
 		DatabaseOperation.REFRESH.execute(dbUnitConn, dataset);
+		
+		// the dataset may have contained global properties or concepts
+		clearServiceCaches();
+		
+		// the services queue the index updates of the patient search, the rows of a dataset bypass them
+		for (String tableName : dataset.getTableNames()) {
+			if (PATIENT_SEARCH_TABLES.contains(tableName.toLowerCase())) {
+				Context.updateSearchIndexForType(PersonName.class);
+				Context.updateSearchIndexForType(PatientIdentifier.class);
+				Context.updateSearchIndexForType(PersonAttribute.class);
+				break;
+			}
+		}
 	}
 	
 	private IDatabaseConnection setupDatabaseConnection(Connection connection) throws DatabaseUnitException {
@@ -730,6 +755,8 @@ public abstract class BaseContextSensitiveTest extends AbstractJUnit4SpringConte
 		
 		connection.commit();
 		
+		clearServiceCaches();
+		
 		updateSearchIndex();
 		
 		isBaseSetup = false;
@@ -743,6 +770,27 @@ public abstract class BaseContextSensitiveTest extends AbstractJUnit4SpringConte
 		SessionFactory sf = (SessionFactory) applicationContext.getBean("sessionFactory");
 		sf.getCache().evictCollectionRegions();
 		sf.getCache().evictEntityRegions();
+		
+		clearServiceCaches();
+	}
+	
+	/**
+	 * Clears the global property values cached by the administration service, because tests change
+	 * the database directly and roll back their transactions
+	 */
+	public void clearGlobalPropertyCache() {
+		AdministrationServiceImpl adminService = (AdministrationServiceImpl) applicationContext
+		        .getBean("adminServiceTarget");
+		adminService.clearGlobalPropertyCache();
+	}
+	
+	/**
+	 * Clears the global property cache, the concept dictionary snapshot and the concept mapping
+	 * index, because tests change the database directly and roll back their transactions
+	 */
+	private void clearServiceCaches() {
+		clearGlobalPropertyCache();
+		Context.getConceptService().refreshConceptDictionarySnapshot(null);
 	}
 	
 	/**
@@ -799,7 +847,8 @@ public abstract class BaseContextSensitiveTest extends AbstractJUnit4SpringConte
 	}
 	
 	public Class<?>[] getIndexedTypes() {
-		return new Class<?>[] { ConceptName.class, Drug.class };
+		return new Class<?>[] { ConceptName.class, Drug.class, PersonName.class, PatientIdentifier.class,
+		        PersonAttribute.class };
 	}
 	
 	/**
@@ -0,0 +1,78 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.util;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.Location;
+import org.openmrs.api.context.Context;
+import org.openmrs.test.BaseContextSensitiveTest;
+
+public class PersonAttributeHydratorTest extends BaseContextSensitiveTest {
+	
+	private static final String LOCATION = "org.openmrs.Location";
+	
+	@Before
+	@After
+	public void clearLoadedClasses() throws Exception {
+		PersonAttributeHydrator.clear();
+	}
+	
+	/**
+	 * @see PersonAttributeHydrator#hydrate(String,String)
+	 * @verifies hydrate attributable values through their class
+	 */
+	@Test
+	public void hydrate_shouldHydrateAttributableValuesThroughTheirClass() throws Exception {
+		Assert.assertSame(Context.getLocationService().getLocation(1), PersonAttributeHydrator.hydrate(LOCATION, "1"));
+		
+		// Location.hydrate returns a new location for a value that is not an id
+		Location location = (Location) PersonAttributeHydrator.hydrate(LOCATION, "not an id");
+		Assert.assertNull(location.getLocationId());
+		Assert.assertNotSame(location, PersonAttributeHydrator.hydrate(LOCATION, "not an id"));
+	}
+	
+	/**
+	 * @see PersonAttributeHydrator#hydrate(String,String)
+	 * @verifies call the String constructor of a class without a no-arg constructor
+	 */
+	@Test
+	public void hydrate_shouldCallTheStringConstructorOfAClassWithoutANoargConstructor() throws Exception {
+		Assert.assertEquals(42, PersonAttributeHydrator.hydrate("java.lang.Integer", "42"));
+		Assert.assertEquals(43, PersonAttributeHydrator.hydrate("java.lang.Integer", "43"));
+	}
+	
+	/**
+	 * @see PersonAttributeHydrator#hydrate(String,String)
+	 * @verifies return the value if the class is not attributable
+	 */
+	@Test
+	public void hydrate_shouldReturnTheValueIfTheClassIsNotAttributable() throws Exception {
+		Assert.assertEquals("value", PersonAttributeHydrator.hydrate("java.lang.Object", "value"));
+	}
+	
+	/**
+	 * @see PersonAttributeHydrator#hydrate(String,String)
+	 * @verifies load the class of a format only once
+	 */
+	@Test
+	public void hydrate_shouldLoadTheClassOfAFormatOnlyOnce() throws Exception {
+		PersonAttributeHydrator.hydrate(LOCATION, "1");
+		PersonAttributeHydrator.hydrate(LOCATION, "2");
+		PersonAttributeHydrator.hydrate("java.lang.Integer", "42");
+		Assert.assertEquals(2, PersonAttributeHydrator.getLoadedFormatCount());
+	}
+}
@@ -0,0 +1,70 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PhoneticUtilTest {
+	
+	/**
+	 * @see PhoneticUtil#getSoundex(String)
+	 * @verifies encode the name
+	 */
+	@Test
+	public void getSoundex_shouldEncodeTheName() throws Exception {
+		Assert.assertEquals("D620", PhoneticUtil.getSoundex("Darius"));
+		Assert.assertEquals("J525", PhoneticUtil.getSoundex("johnson"));
+	}
+	
+	/**
+	 * @see PhoneticUtil#getSoundex(String)
+	 * @verifies ignore accents and other characters
+	 */
+	@Test
+	public void getSoundex_shouldIgnoreAccentsAndOtherCharacters() throws Exception {
+		Assert.assertEquals(PhoneticUtil.getSoundex("Jose"), PhoneticUtil.getSoundex("Jos\u00e9"));
+		Assert.assertEquals(PhoneticUtil.getSoundex("OBrien"), PhoneticUtil.getSoundex("O'Brien-1"));
+	}
+	
+	/**
+	 * @see PhoneticUtil#getSoundex(String)
+	 * @verifies return empty string if the name has no letters
+	 */
+	@Test
+	public void getSoundex_shouldReturnEmptyStringIfTheNameHasNoLetters() throws Exception {
+		Assert.assertEquals("", PhoneticUtil.getSoundex(null));
+		Assert.assertEquals("", PhoneticUtil.getSoundex(" 12-"));
+	}
+	
+	/**
+	 * @see PhoneticUtil#getDoubleMetaphone(String)
+	 * @verifies encode the name
+	 */
+	@Test
+	public void getDoubleMetaphone_shouldEncodeTheName() throws Exception {
+		Assert.assertEquals("KRHM", PhoneticUtil.getDoubleMetaphone("Graham"));
+		Assert.assertEquals(PhoneticUtil.getDoubleMetaphone("Smith"), PhoneticUtil.getDoubleMetaphone("Smyth"));
+	}
+	
+	/**
+	 * @see PhoneticUtil#getDoubleMetaphone(String)
+	 * @verifies return empty string if the name has no letters
+	 */
+	@Test
+	public void getDoubleMetaphone_shouldReturnEmptyStringIfTheNameHasNoLetters() throws Exception {
+		Assert.assertEquals("", PhoneticUtil.getDoubleMetaphone(null));
+		Assert.assertEquals("", PhoneticUtil.getDoubleMetaphone(""));
+	}
+}
@@ -0,0 +1,100 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.util;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.GlobalProperty;
+import org.openmrs.api.AdministrationService;
+import org.openmrs.api.context.Context;
+import org.openmrs.test.BaseContextSensitiveTest;
+import org.openmrs.test.Verifies;
+
+/**
+ * Tests the methods in {@link QueryProfiler}
+ */
+public class QueryProfilerTest extends BaseContextSensitiveTest {
+	
+	@Before
+	public void enableProfiler() throws Exception {
+		AdministrationService as = Context.getAdministrationService();
+		as.saveGlobalProperty(new GlobalProperty(OpenmrsConstants.GP_QUERY_PROFILER_STATEMENT_THRESHOLD, "1"));
+		as.saveGlobalProperty(new GlobalProperty(OpenmrsConstants.GP_QUERY_PROFILER_REPEAT_THRESHOLD, "3"));
+		Context.flushSession();
+		Context.clearSession();
+	}
+	
+	/**
+	 * The global properties are rolled back with the test, so let the profiler read them again
+	 */
+	@After
+	public void disableProfiler() throws Exception {
+		Context.getAdministrationService().saveGlobalProperty(
+		    new GlobalProperty(OpenmrsConstants.GP_QUERY_PROFILER_STATEMENT_THRESHOLD, "0"));
+	}
+	
+	/**
+	 * @see {@link QueryProfiler#start(String)}
+	 */
+	@Test
+	@Verifies(value = "should count statements and entity loads", method = "start(String)")
+	public void start_shouldCountStatementsAndEntityLoads() throws Exception {
+		QueryProfiler.start("test");
+		Context.getEncounterService().getEncounter(3);
+		QueryProfiler.Profile profile = QueryProfiler.stop();
+		
+		Assert.assertNotNull(profile);
+		Assert.assertEquals("test", profile.getName());
+		Assert.assertTrue(profile.getStatements() > 0);
+		Assert.assertTrue(profile.getEntityLoads() > 0);
+	}
+	
+	/**
+	 * @see {@link QueryProfiler#start(String)}
+	 */
+	@Test
+	@Verifies(value = "should flag repeated statements with their call site", method = "start(String)")
+	public void start_shouldFlagRepeatedStatementsWithTheirCallSite() throws Exception {
+		QueryProfiler.start("test");
+		for (int encounterId = 3; encounterId <= 6; encounterId++) {
+			Context.getEncounterService().getEncounter(encounterId);
+		}
+		QueryProfiler.Profile profile = QueryProfiler.stop();
+		
+		QueryProfiler.Repeat repeat = profile.getRepeats().get(0);
+		Assert.assertTrue(repeat.getCount() >= 4);
+		Assert.assertTrue(repeat.getDescription().contains("encounter"));
+		Assert.assertTrue(repeat.getCallSite().contains(QueryProfilerTest.class.getName()));
+		Assert.assertTrue(profile.getReport().contains(repeat.getDescription()));
+	}
+	
+	/**
+	 * @see {@link QueryProfiler#stop()}
+	 */
+	@Test
+	@Verifies(value = "should only finish the outermost unit of work", method = "stop()")
+	public void stop_shouldOnlyFinishTheOutermostUnitOfWork() throws Exception {
+		QueryProfiler.start("outer");
+		QueryProfiler.start("inner");
+		Assert.assertNull(QueryProfiler.stop());
+		Context.getEncounterService().getEncounter(3);
+		
+		QueryProfiler.Profile profile = QueryProfiler.stop();
+		Assert.assertEquals("outer", profile.getName());
+		Assert.assertTrue(profile.getStatements() > 0);
+		Assert.assertNull(QueryProfiler.stop());
+	}
+}
@@ -0,0 +1,86 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the {@link SharedMap}
+ */
+public class SharedMapTest {
+	
+	/**
+	 * @see SharedMap#with(Map)
+	 * @verifies apply the changes to a new map
+	 */
+	@Test
+	public void with_shouldApplyTheChangesToANewMap() throws Exception {
+		Map<String, Integer> changes = new HashMap<String, Integer>();
+		changes.put("one", 1);
+		changes.put("two", 2);
+		SharedMap<String, Integer> map = new SharedMap<String, Integer>(2).with(changes);
+		
+		changes.clear();
+		changes.put("one", null);
+		changes.put("three", 3);
+		SharedMap<String, Integer> changed = map.with(changes);
+		
+		Assert.assertEquals(2, changed.size());
+		Assert.assertNull(changed.get("one"));
+		Assert.assertEquals(2, changed.get("two").intValue());
+		Assert.assertEquals(3, changed.get("three").intValue());
+		Assert.assertEquals(new HashSet<Integer>(Arrays.asList(2, 3)), new HashSet<Integer>(changed.values()));
+	}
+	
+	/**
+	 * @see SharedMap#with(Map)
+	 * @verifies not change this map
+	 */
+	@Test
+	public void with_shouldNotChangeThisMap() throws Exception {
+		SharedMap<String, Integer> map = new SharedMap<String, Integer>(1).with(Collections.singletonMap("one", 1));
+		
+		map.with(Collections.<String, Integer> singletonMap("one", null));
+		map.with(Collections.singletonMap("two", 2));
+		
+		Assert.assertEquals(1, map.size());
+		Assert.assertEquals(1, map.get("one").intValue());
+		Assert.assertNull(map.get("two"));
+	}
+	
+	/**
+	 * @see SharedMap#with(Map)
+	 * @verifies keep the entries when it spreads them over more buckets
+	 */
+	@Test
+	public void with_shouldKeepTheEntriesWhenItSpreadsThemOverMoreBuckets() throws Exception {
+		SharedMap<Integer, Integer> map = new SharedMap<Integer, Integer>(0);
+		for (int i = 0; i < 5000; i++) {
+			map = map.with(Collections.singletonMap(i, i * 2));
+		}
+		
+		Assert.assertEquals(5000, map.size());
+		Assert.assertEquals(5000, map.values().size());
+		for (int i = 0; i < 5000; i++) {
+			Assert.assertEquals(i * 2, map.get(i).intValue());
+		}
+	}
+}
@@ -0,0 +1,49 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.web.controller.maintenance;
+
+import org.openmrs.api.APIAuthenticationException;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.db.SearchIndexProgress;
+import org.openmrs.util.PrivilegeConstants;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+/**
+ * Returns a JSON snapshot of how far the current or last rebuild of the search index got.
+ * 
+ * @since 1.12
+ */
+@Controller
+public class SearchIndexProgressController {
+	
+	public static final String SEARCH_INDEX_PROGRESS_PATH = "/admin/maintenance/searchIndexProgress.json";
+	
+	/**
+	 * @return the progress of the rebuild
+	 * @should return the progress of the search index rebuild
+	 * @should fail if the user cannot view administration functions
+	 */
+	@RequestMapping(method = RequestMethod.GET, value = SEARCH_INDEX_PROGRESS_PATH)
+	public @ResponseBody
+	SearchIndexProgress getSearchIndexProgress() {
+		if (!Context.hasPrivilege(PrivilegeConstants.VIEW_ADMIN_FUNCTIONS)) {
+			throw new APIAuthenticationException("Privilege required: " + PrivilegeConstants.VIEW_ADMIN_FUNCTIONS);
+		}
+		
+		return Context.getSearchIndexProgress();
+	}
+}
@@ -0,0 +1,53 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.web.controller.maintenance;
+
+import java.util.List;
+
+import org.openmrs.aop.MethodMetrics;
+import org.openmrs.aop.MetricsAdvice;
+import org.openmrs.api.APIAuthenticationException;
+import org.openmrs.api.context.Context;
+import org.openmrs.util.PrivilegeConstants;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+/**
+ * Returns a JSON snapshot of the call counts and latencies of the service methods, as recorded by
+ * the {@link MetricsAdvice}.
+ * 
+ * @since 1.12
+ */
+@Controller
+public class ServiceMetricsController {
+	
+	public static final String SERVICE_METRICS_PATH = "/admin/maintenance/serviceMetrics.json";
+	
+	/**
+	 * @return the numbers of every service method that was called, ordered by name
+	 * @should return the metrics of called service methods
+	 * @should fail if the user cannot view administration functions
+	 */
+	@RequestMapping(method = RequestMethod.GET, value = SERVICE_METRICS_PATH)
+	public @ResponseBody
+	List<MethodMetrics.Snapshot> getServiceMetrics() {
+		if (!Context.hasPrivilege(PrivilegeConstants.VIEW_ADMIN_FUNCTIONS)) {
+			throw new APIAuthenticationException("Privilege required: " + PrivilegeConstants.VIEW_ADMIN_FUNCTIONS);
+		}
+		
+		return Context.getRegisteredComponent("metricsInterceptor", MetricsAdvice.class).getSnapshots();
+	}
+}
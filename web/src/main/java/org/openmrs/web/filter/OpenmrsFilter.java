@@ -28,6 +28,7 @@ import org.openmrs.User;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.context.UserContext;
 import org.openmrs.util.OpenmrsClassLoader;
+import org.openmrs.util.QueryProfiler;
 import org.openmrs.web.WebConstants;
 import org.springframework.web.filter.OncePerRequestFilter;
 
@@ -108,11 +109,14 @@ public class OpenmrsFilter extends OncePerRequestFilter {
 		
 		log.debug("before chain.Filter");
 		
+		QueryProfiler.start(httpRequest.getMethod() + " " + httpRequest.getRequestURI());
+		
 		// continue the filter chain (going on to spring, authorization, etc)
 		try {
 			chain.doFilter(httpRequest, httpResponse);
 		}
 		finally {
+			QueryProfiler.stop();
 			Context.clearUserContext();
 		}
 		
@@ -16,152 +16,56 @@ package org.openmrs.web.servlet;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.Iterator;
-import java.util.Locale;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.openmrs.Concept;
-import org.openmrs.ConceptAnswer;
-import org.openmrs.ConceptDescription;
-import org.openmrs.ConceptName;
-import org.openmrs.ConceptSet;
-import org.openmrs.api.ConceptService;
 import org.openmrs.api.context.Context;
+import org.openmrs.dictionary.ConceptDictionaryExporter;
 
 /**
- * This servlet will package all non retired concepts into a comma delimited file. Retired concepts
- * are ignored.
+ * This servlet will package all non retired concepts into a file and stream it to the browser.
+ * Retired concepts are ignored. The format is taken from the "format" parameter or else from the
+ * extension of the url, e.g. /downloadDictionary.csv.gz, and is written by the
+ * {@link ConceptDictionaryExporter} for that format. Without either the concepts are written as
+ * comma delimited values.
  */
 public class DownloadDictionaryServlet extends HttpServlet {
 	
 	public static final long serialVersionUID = 1231231L;
 	
-	private Log log = LogFactory.getLog(this.getClass());
+	private static final String SERVLET_NAME = "downloadDictionary";
 	
-	/**
-	 * Maximum size of query results, when retrieved in batches. ABKTODO: should probably be
-	 * configurable somewhere
-	 */
-	public int batchSize = 1000;
+	private static final String DEFAULT_FORMAT = "csv";
+	
+	private Log log = LogFactory.getLog(this.getClass());
 	
 	/**
 	 * @see javax.servlet.http.HttpServlet#doGet(javax.servlet.http.HttpServletRequest,
 	 *      javax.servlet.http.HttpServletResponse)
 	 */
 	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		String format = getFormat(request);
+		ConceptDictionaryExporter exporter = getExporter(format);
+		if (exporter == null) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unknown dictionary format: " + format);
+			return;
+		}
 		
 		try {
-			Locale locale = Context.getLocale();
-			
-			ConceptService cs = Context.getConceptService();
 			String s = new SimpleDateFormat("dMy_Hm").format(new Date());
 			
-			response.setHeader("Content-Type", "text/csv;charset=UTF-8");
-			response.setHeader("Content-Disposition", "attachment; filename=conceptDictionary" + s + ".csv");
-			
-			StringBuilder line = new StringBuilder(
-			        "Concept Id,Name,Description,Synonyms,Answers,Set Members,Class,Datatype,Changed By,Creator\n");
-			response.getWriter().write(line.toString());
+			response.setHeader("Content-Type", exporter.getContentType());
+			response.setHeader("Content-Disposition", "attachment; filename=conceptDictionary" + s + "."
+			        + exporter.getFileExtension());
 			
-			int listIndex = 0;
-			Iterator<Concept> conceptIterator = cs.conceptIterator();
-			while (conceptIterator.hasNext()) {
-				Concept c = conceptIterator.next();
-				if (!c.isRetired()) {
-					
-					line.append(c.getConceptId());
-					line.append(",");
-					String name, description;
-					ConceptName cn = c.getName(locale);
-					if (cn == null) {
-						name = "";
-					} else {
-						name = cn.getName();
-					}
-					
-					ConceptDescription cd = c.getDescription(locale);
-					if (cd == null) {
-						description = "";
-					} else {
-						description = cd.getDescription();
-					}
-					
-					line.append('"');
-					line.append(name.replace("\"", "\"\""));
-					line.append("\",");
-					
-					if (description == null) {
-						description = "";
-					}
-					line.append('"');
-					line.append(description.replace("\"", "\"\""));
-					line.append("\",");
-					
-					StringBuilder tmp = new StringBuilder("");
-					for (ConceptName syn : c.getNames()) {
-						tmp.append(syn).append("\n");
-					}
-					line.append('"');
-					line.append(tmp.toString().trim());
-					line.append("\",");
-					
-					tmp = new StringBuilder("");
-					for (ConceptAnswer answer : c.getAnswers(false)) {
-						if (answer.getAnswerConcept() != null) {
-							tmp.append(answer.getAnswerConcept().getName()).append("\n");
-						} else if (answer.getAnswerDrug() != null) {
-							tmp.append(answer.getAnswerDrug().getFullName(Context.getLocale())).append("\n");
-						}
-					}
-					line.append('"');
-					line.append(tmp.toString().trim());
-					line.append("\",");
-					
-					tmp = new StringBuilder("");
-					for (ConceptSet set : c.getConceptSets()) {
-						if (set.getConcept() != null) {
-							name = set.getConcept().getName().toString();
-							tmp.append(name.replace("\"", "\"\"")).append("\n");
-						}
-					}
-					line.append('"');
-					line.append(tmp.toString().trim());
-					line.append("\",");
-					
-					line.append('"');
-					if (c.getConceptClass() != null) {
-						line.append(c.getConceptClass().getName());
-					}
-					line.append("\",");
-					
-					line.append('"');
-					if (c.getDatatype() != null) {
-						line.append(c.getDatatype().getName());
-					}
-					line.append("\",");
-					
-					line.append('"');
-					if (c.getChangedBy() != null) {
-						line.append(c.getChangedBy().getPersonName());
-					}
-					line.append("\",");
-					
-					line.append('"');
-					if (c.getCreator() != null) {
-						line.append(c.getCreator().getPersonName());
-					}
-					line.append("\"\n");
-					
-					response.getWriter().write(line.toString());
-				}
-				
-			}
+			exporter.export(Context.getConceptService().conceptIterator(), Context.getLocale(), response
+			        .getOutputStream());
 		}
 		catch (Exception e) {
 			log.error("Error while downloading concepts.", e);
@@ -171,4 +75,32 @@ public class DownloadDictionaryServlet extends HttpServlet {
 	protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
 		doGet(request, response);
 	}
+	
+	/**
+	 * @return the requested format, e.g. "csv.gz" for /downloadDictionary.csv.gz
+	 */
+	private String getFormat(HttpServletRequest request) {
+		String format = request.getParameter("format");
+		if (StringUtils.isNotBlank(format)) {
+			return format;
+		}
+		
+		String path = request.getServletPath();
+		if (path != null) {
+			int start = path.indexOf(SERVLET_NAME + ".");
+			if (start >= 0) {
+				return path.substring(start + SERVLET_NAME.length() + 1);
+			}
+		}
+		return DEFAULT_FORMAT;
+	}
+	
+	private ConceptDictionaryExporter getExporter(String format) {
+		for (ConceptDictionaryExporter exporter : Context.getRegisteredComponents(ConceptDictionaryExporter.class)) {
+			if (exporter.getFormat().equals(format)) {
+				return exporter;
+			}
+		}
+		return null;
+	}
 }
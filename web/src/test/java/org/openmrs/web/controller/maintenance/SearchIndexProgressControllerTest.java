@@ -0,0 +1,59 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.web.controller.maintenance;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openmrs.api.APIAuthenticationException;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.db.SearchIndexProgress;
+import org.openmrs.web.test.BaseWebContextSensitiveTest;
+
+/**
+ * Tests the {@link SearchIndexProgressController} controller
+ */
+public class SearchIndexProgressControllerTest extends BaseWebContextSensitiveTest {
+	
+	/**
+	 * @see SearchIndexProgressController#getSearchIndexProgress()
+	 * @verifies return the progress of the search index rebuild
+	 */
+	@Test
+	public void getSearchIndexProgress_shouldReturnTheProgressOfTheSearchIndexRebuild() throws Exception {
+		Context.updateSearchIndex();
+		
+		SearchIndexProgress progress = new SearchIndexProgressController().getSearchIndexProgress();
+		
+		Assert.assertFalse(progress.isRunning());
+		Assert.assertNull(progress.getError());
+		Assert.assertNull(progress.getCurrentType());
+		Assert.assertTrue(progress.getTypeCount() > 0);
+		Assert.assertEquals(progress.getTypeCount(), progress.getTypesIndexed());
+		Assert.assertTrue(progress.getEntityCount() > 0);
+		Assert.assertEquals(progress.getEntityCount(), progress.getEntitiesIndexed());
+		Assert.assertEquals(100, progress.getPercentComplete());
+		Assert.assertNotNull(progress.getStartTime());
+		Assert.assertFalse(progress.getEndTime().before(progress.getStartTime()));
+	}
+	
+	/**
+	 * @see SearchIndexProgressController#getSearchIndexProgress()
+	 * @verifies fail if the user cannot view administration functions
+	 */
+	@Test(expected = APIAuthenticationException.class)
+	public void getSearchIndexProgress_shouldFailIfTheUserCannotViewAdministrationFunctions() throws Exception {
+		Context.logout();
+		new SearchIndexProgressController().getSearchIndexProgress();
+	}
+}
@@ -0,0 +1,57 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.web.controller.maintenance;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openmrs.aop.MethodMetrics;
+import org.openmrs.api.APIAuthenticationException;
+import org.openmrs.api.context.Context;
+import org.openmrs.web.test.BaseWebContextSensitiveTest;
+
+/**
+ * Tests the {@link ServiceMetricsController} controller
+ */
+public class ServiceMetricsControllerTest extends BaseWebContextSensitiveTest {
+	
+	/**
+	 * @see ServiceMetricsController#getServiceMetrics()
+	 * @verifies return the metrics of called service methods
+	 */
+	@Test
+	public void getServiceMetrics_shouldReturnTheMetricsOfCalledServiceMethods() throws Exception {
+		Context.getConceptService().getConcept(3);
+		
+		MethodMetrics.Snapshot getConcept = null;
+		for (MethodMetrics.Snapshot snapshot : new ServiceMetricsController().getServiceMetrics()) {
+			if (snapshot.getName().equals("ConceptService.getConcept(Integer)")) {
+				getConcept = snapshot;
+			}
+		}
+		
+		Assert.assertNotNull(getConcept);
+		Assert.assertTrue(getConcept.getCalls() > 0);
+		Assert.assertTrue(getConcept.getP99Micros() >= getConcept.getP50Micros());
+	}
+	
+	/**
+	 * @see ServiceMetricsController#getServiceMetrics()
+	 * @verifies fail if the user cannot view administration functions
+	 */
+	@Test(expected = APIAuthenticationException.class)
+	public void getServiceMetrics_shouldFailIfTheUserCannotViewAdministrationFunctions() throws Exception {
+		Context.logout();
+		new ServiceMetricsController().getServiceMetrics();
+	}
+}